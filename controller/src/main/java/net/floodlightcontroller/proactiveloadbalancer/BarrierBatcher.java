@@ -0,0 +1,193 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import net.floodlightcontroller.core.IOFSwitch;
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+/**
+ * Groups the messages queued for a switch within a short window and closes the group with a single barrier.
+ * Callbacks registered during the window run once the switch acknowledges that barrier. The barrier is written as a
+ * request, so its reply completes a future rather than reaching the message listeners.
+ */
+class BarrierBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BarrierBatcher.class);
+
+    private final SwitchWriterPool switchWriters;
+    private final ScheduledExecutorService executor;
+    private final long windowMillis;
+
+    private final ConcurrentMap<DatapathId, Batch> openBatches = new ConcurrentHashMap<>();
+    private final Set<Batch> pendingBatches = ConcurrentHashMap.newKeySet();
+
+    // Latency from opening a batch to the barrier reply, since last reset
+    private final AtomicLong acknowledgedBatches = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    BarrierBatcher(SwitchWriterPool switchWriters, ScheduledExecutorService executor, long windowMillis) {
+        this.switchWriters = switchWriters;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Adds a callback to the open batch of the switch, opening one if necessary. Call after queueing the messages
+     * that the barrier should cover.
+     */
+    void add(IOFSwitch iofSwitch, Runnable onAcknowledged) {
+        DatapathId switchId = iofSwitch.getId();
+        while (true) {
+            Batch batch = openBatches.computeIfAbsent(switchId, id -> openBatch(iofSwitch));
+            synchronized (batch) {
+                if (!batch.closed) {
+                    batch.callbacks.add(onAcknowledged);
+                    break;
+                }
+            }
+        }
+        if (windowMillis <= 0) {
+            close(switchId);
+        }
+    }
+
+    /**
+     * Forgets batches whose barrier reply did not arrive within the timeout, their callbacks never run.
+     */
+    void expire(long timeoutMillis) {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        pendingBatches.removeIf(batch -> batch.openedNanos - deadline < 0);
+    }
+
+    void clear() {
+        openBatches.clear();
+        pendingBatches.clear();
+    }
+
+    long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * @return number of acknowledged batches, their mean and max latency in milliseconds since the last call
+     */
+    BatchLatency getAndResetLatency() {
+        long batches = acknowledgedBatches.getAndSet(0);
+        long total = totalLatencyNanos.getAndSet(0);
+        long max = maxLatencyNanos.getAndSet(0);
+        double mean = batches > 0 ? total / (double) batches : 0;
+        return new BatchLatency(batches, mean / 1e6, max / 1e6);
+    }
+
+    private void acknowledge(Batch batch) {
+        if (!pendingBatches.remove(batch)) {
+            // Expired or cleared
+            return;
+        }
+        long latency = System.nanoTime() - batch.openedNanos;
+        acknowledgedBatches.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        for (Runnable callback : batch.callbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Barrier callback for switch {} failed", batch.switchId, e);
+            }
+        }
+    }
+
+    private Batch openBatch(IOFSwitch iofSwitch) {
+        Batch batch = new Batch(iofSwitch.getId(), iofSwitch.getOFFactory(), System.nanoTime());
+        if (windowMillis > 0) {
+            executor.schedule(() -> close(batch.switchId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return batch;
+    }
+
+    private void close(DatapathId switchId) {
+        Batch batch = openBatches.remove(switchId);
+        if (batch == null) {
+            return;
+        }
+        synchronized (batch) {
+            batch.closed = true;
+        }
+        OFFactory factory = batch.factory;
+        OFBarrierRequest barrier = factory.buildBarrierRequest()
+                .setXid(factory.nextXid())
+                .build();
+        pendingBatches.add(batch);
+        // Written behind the batch's messages; callbacks only queue messages, so they run on the replying thread
+        ListenableFuture<OFBarrierReply> reply = switchWriters.writeRequest(switchId, barrier);
+        Futures.addCallback(reply, new FutureCallback<OFBarrierReply>() {
+            @Override
+            public void onSuccess(OFBarrierReply result) {
+                acknowledge(batch);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.debug("No barrier reply from switch {}", switchId, t);
+                pendingBatches.remove(batch);
+            }
+        }, directExecutor());
+    }
+
+    // Value class
+    static final class BatchLatency {
+        private final long batches;
+        private final double meanMillis;
+        private final double maxMillis;
+
+        BatchLatency(long batches, double meanMillis, double maxMillis) {
+            this.batches = batches;
+            this.meanMillis = meanMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        long getBatches() {
+            return batches;
+        }
+
+        double getMeanMillis() {
+            return meanMillis;
+        }
+
+        double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+
+    private static final class Batch {
+        private final DatapathId switchId;
+        private final OFFactory factory;
+        private final long openedNanos;
+        private final List<Runnable> callbacks = new ArrayList<>();
+        private boolean closed = false;
+
+        private Batch(DatapathId switchId, OFFactory factory, long openedNanos) {
+            this.switchId = switchId;
+            this.factory = factory;
+            this.openedNanos = openedNanos;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4PrefixIndex;
+import net.floodlightcontroller.proactiveloadbalancer.util.SpaceSavingSketch;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client traffic summarized across snapshots in fixed memory, however many clients there are. Bytes of measurement
+ * prefixes and of removed microflows are kept in two Space-Saving sketches and decay exponentially, so the estimate
+ * reflects the last time constant of traffic rather than the last snapshot alone.
+ *
+ * <p>Microflow bytes were also counted by the measurement flow the client's traffic passed, so they refine rather
+ * than add: a heavy client gets its own weight, taken out of the most specific measurement prefix containing it.
+ */
+class ClientTrafficEstimator {
+
+    private final SpaceSavingSketch prefixes;
+    private final SpaceSavingSketch clients;
+    private final long timeConstantMillis;
+
+    private long lastTimestamp;
+    private boolean started;
+
+    /**
+     * @param capacity counters per sketch
+     * @param timeConstantMillis time after which bytes have decayed to 1/e
+     */
+    ClientTrafficEstimator(int capacity, long timeConstantMillis) {
+        if (timeConstantMillis <= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Time constant must be positive: {0}", timeConstantMillis));
+        }
+        this.prefixes = new SpaceSavingSketch(capacity);
+        this.clients = new SpaceSavingSketch(capacity);
+        this.timeConstantMillis = timeConstantMillis;
+    }
+
+    /**
+     * Decays what was seen before and adds the bytes of one snapshot.
+     *
+     * @param measurements bytes per measurement prefix since the previous snapshot
+     */
+    synchronized void addMeasurements(long timestamp, Iterable<Measurement> measurements) {
+        if (started && timestamp > lastTimestamp) {
+            double factor = Math.exp(-(double) (timestamp - lastTimestamp) / timeConstantMillis);
+            prefixes.scale(factor);
+            clients.scale(factor);
+        }
+        if (!started || timestamp > lastTimestamp) {
+            lastTimestamp = timestamp;
+            started = true;
+        }
+        for (Measurement measurement : measurements) {
+            prefixes.add(IPv4Prefix.of(measurement.getPrefix()), measurement.getBytes());
+        }
+    }
+
+    synchronized void addMicroflow(IPv4Address client, long bytes) {
+        clients.add(client.getInt() & 0xFFFFFFFFL, bytes);
+    }
+
+    synchronized void clear() {
+        prefixes.clear();
+        clients.clear();
+        started = false;
+    }
+
+    /**
+     * @return estimated bytes of monitored measurement prefixes and heavy clients, where prefixes overlap their bytes
+     * add up
+     */
+    synchronized List<WeightedPrefix> estimate() {
+        Map<IPv4AddressWithMask, Double> remaining = new HashMap<>();
+        Map<IPv4AddressWithMask, IPv4AddressWithMask> lookup = new HashMap<>();
+        for (int i = 0; i < prefixes.size(); i++) {
+            IPv4AddressWithMask prefix = IPv4Prefix.toIPv4AddressWithMask(prefixes.getKey(i));
+            remaining.put(prefix, prefixes.getCount(i));
+            lookup.put(prefix, prefix);
+        }
+        IPv4PrefixIndex<IPv4AddressWithMask> index = IPv4PrefixIndex.of(lookup);
+
+        List<WeightedPrefix> estimates = new ArrayList<>(prefixes.size() + clients.size());
+        for (int i = 0; i < clients.size(); i++) {
+            IPv4Address client = IPv4Address.of((int) clients.getKey(i));
+            IPv4AddressWithMask prefix = index.get(client);
+            if (prefix == null) {
+                // Not measured, or its prefix was evicted
+                continue;
+            }
+            // Guaranteed bytes only, overestimates would shift weight away from the rest of the prefix
+            double bytes = Math.min(clients.getCount(i) - clients.getError(i), remaining.get(prefix));
+            if (bytes > 0) {
+                remaining.put(prefix, remaining.get(prefix) - bytes);
+                estimates.add(new WeightedPrefix(client.withMaskOfLength(32), bytes));
+            }
+        }
+        remaining.forEach((prefix, bytes) -> estimates.add(new WeightedPrefix(prefix, bytes)));
+        return estimates;
+    }
+}
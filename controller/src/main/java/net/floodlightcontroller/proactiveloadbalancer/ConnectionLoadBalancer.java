@@ -1,96 +1,157 @@
 package net.floodlightcontroller.proactiveloadbalancer;
 
-import com.google.common.collect.Iterators;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.PacketInStage;
 import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
 import net.floodlightcontroller.proactiveloadbalancer.domain.Topology;
+import net.floodlightcontroller.proactiveloadbalancer.util.ClientTable;
 import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static java.util.Collections.singletonList;
-import static java.util.Comparator.comparingInt;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
+import static net.floodlightcontroller.proactiveloadbalancer.domain.Strategy.least_conn;
 
-class ConnectionLoadBalancer {
+class ConnectionLoadBalancer implements LoadBalancer {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConnectionLoadBalancer.class);
 
+    // Client tables are striped by address, each guarded by its own monitor. Deleting from and resizing a primitive
+    // open-addressing table lock-free would take tombstones and a cooperative copy, instead there are enough stripes
+    // per core that packet-ins and flow-removeds on the I/O threads seldom contend.
+    private static final int CLIENT_SEGMENTS = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+
     // Config
     private Strategy strategy;
-    private Topology topology;
     private List<IPv4Address> servers;
     private Map<DatapathId, IPv4Address> vips;
-    private Iterator<IPv4Address> roundRobinIterator;
+    private PathTemplates pathTemplates;
 
     // Floodlight services
     private IOFSwitchService switchService;
+    private SwitchWriterPool switchWriters;
+    private PacketInLatencies latencies;
 
     // Runtime
-    private Map<IPv4Address, IPv4Address> clientServerAllocations;
-    private Map<IPv4Address, Integer> serverConnectionCounts;
-    private Map<IPv4Address, Map<DatapathId, LoadBalancingFlow>> knownPhysicalFlows;
+    private ClientTable[] clientSegments;
+    private AtomicIntegerArray serverConnectionCounts;
+    private AtomicInteger roundRobinCounter;
+    private WeightedLeastConnectionsSelector leastConnections;
 
     ConnectionLoadBalancer(Strategy strategy,
             Topology topology,
+            Map<IPv4Address, Double> weights,
             Map<DatapathId, IPv4Address> vips,
-            IOFSwitchService switchService) {
+            PathTemplates pathTemplates,
+            IOFSwitchService switchService,
+            SwitchWriterPool switchWriters,
+            PacketInLatencies latencies) {
         this.strategy = strategy;
-        this.topology = topology;
         this.servers = topology.getServers();
         this.vips = vips;
-        this.roundRobinIterator = Iterators.cycle(servers);
+        this.pathTemplates = pathTemplates;
 
         this.switchService = switchService;
+        this.switchWriters = switchWriters;
+        this.latencies = latencies;
 
-        clientServerAllocations = new HashMap<>();
-        serverConnectionCounts = servers.stream().collect(toMap(s -> s, s -> 0));
-        servers.forEach(server -> serverConnectionCounts.put(server, 0));
-        knownPhysicalFlows = new HashMap<>();
-    }
-
-    boolean handlePacketIn(IPv4Address client) {
-        synchronized (this) {
-            if (!isClientKnown(client)) {
-                IPv4Address server = allocateServer(client);
-                clientServerAllocations.put(client, server);
-                serverConnectionCounts.put(server, serverConnectionCounts.get(server) + 1);
-
-                LoadBalancingFlow logicalFlow = buildLogicalFlow(client, server);
-                Map<DatapathId, LoadBalancingFlow> physicalFlows = buildPhysicalFlows(logicalFlow);
-                knownPhysicalFlows.put(client, physicalFlows);
-                installPhysicalFlows(physicalFlows);
-                return true;
+        clientSegments = new ClientTable[CLIENT_SEGMENTS];
+        for (int i = 0; i < CLIENT_SEGMENTS; i++) {
+            clientSegments[i] = new ClientTable();
+        }
+        serverConnectionCounts = new AtomicIntegerArray(servers.size());
+        roundRobinCounter = new AtomicInteger();
+        if (strategy == least_conn) {
+            double[] serverWeights = new double[servers.size()];
+            for (int i = 0; i < servers.size(); i++) {
+                Double weight = weights != null ? weights.get(servers.get(i)) : null;
+                serverWeights[i] = weight != null ? weight : 1;
             }
+            leastConnections = new WeightedLeastConnectionsSelector(serverWeights);
         }
-        return false;
     }
 
-    void handleFlowRemoved(IPv4Address client, DatapathId switchId) {
-        synchronized (this) {
-            if (isClientKnown(client)) {
-                IPv4Address server = clientServerAllocations.get(client);
-                Map<DatapathId, LoadBalancingFlow> physicalFlows = knownPhysicalFlows.get(client);
-                if (physicalFlows == null) {
-                    LOG.warn("Flow removed for client {}, but no physical flows known.");
-                    return;
-                }
-                physicalFlows.remove(switchId);
+    @Override
+    public Strategy getStrategy() {
+        return strategy;
+    }
 
-                if (physicalFlows.isEmpty()) {
-                    clientServerAllocations.remove(client);
-                    serverConnectionCounts.put(server, serverConnectionCounts.get(server) - 1);
-                    knownPhysicalFlows.remove(client);
+    @Override
+    public boolean handlePacketIn(IPv4Address client, boolean isNew) {
+        ClientTable segment = segmentFor(client);
+        int serverIndex;
+        // Allocation runs at most once per client, concurrent packet-ins for the same client serialize on the segment
+        synchronized (segment) {
+            if (segment.contains(client.getInt())) {
+                return false;
+            }
+            serverIndex = allocateServer(client);
+            if (serverIndex < 0) {
+                // Not allocated, the packet falls through
+                LOG.warn("No server for client {}", client);
+                return false;
+            }
+            serverConnectionCounts.incrementAndGet(serverIndex);
+            segment.putIfAbsent(client.getInt(), serverIndex, pathTemplates.getSwitchMask(serverIndex));
+        }
+        long start = System.nanoTime();
+        Map<DatapathId, List<OFFlowMod>> microFlows = buildMicroFlows(client, serverIndex);
+        latencies.record(strategy, PacketInStage.build_physical_flows, System.nanoTime() - start);
+
+        // Queue flows, written asynchronously per switch
+        start = System.nanoTime();
+        boolean written = true;
+        for (Map.Entry<DatapathId, List<OFFlowMod>> entry : microFlows.entrySet()) {
+            if (!switchWriters.write(entry.getKey(), entry.getValue())) {
+                written = false;
+                break;
+            }
+        }
+        latencies.record(strategy, PacketInStage.write, System.nanoTime() - start);
+        if (!written) {
+            // Release the allocation, so the client's next packet retries the installation
+            synchronized (segment) {
+                if (segment.remove(client.getInt())) {
+                    releaseServer(serverIndex);
                 }
             }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void handleFlowRemoved(IPv4Address client, DatapathId switchId, long bytes) {
+        int switchIndex = pathTemplates.getSwitchIndex(switchId);
+        if (switchIndex < 0) {
+            return;
+        }
+        long bit = 1L << switchIndex;
+        ClientTable segment = segmentFor(client);
+        synchronized (segment) {
+            int serverIndex = segment.getServer(client.getInt(), -1);
+            long pending = segment.clearSwitches(client.getInt(), bit);
+            // Only the removal that clears the last bit releases the client
+            if ((pending & bit) != 0 && (pending & ~bit) == 0) {
+                releaseServer(serverIndex);
+            }
+        }
+    }
+
+    private void releaseServer(int serverIndex) {
+        serverConnectionCounts.decrementAndGet(serverIndex);
+        if (leastConnections != null) {
+            leastConnections.release(serverIndex);
         }
     }
 
@@ -104,55 +165,66 @@ class ConnectionLoadBalancer {
     }
 
     private List<LoadBalancingFlow> knownPhysicalFlowsForSwitch(DatapathId switchId) {
-        return knownPhysicalFlows.values().stream()
-                .map(flows -> flows.get(switchId))
-                .filter(Objects::nonNull)
-                .collect(toList());
+        int switchIndex = pathTemplates.getSwitchIndex(switchId);
+        List<LoadBalancingFlow> flows = new ArrayList<>();
+        if (switchIndex >= 0) {
+            long bit = 1L << switchIndex;
+            for (ClientTable segment : clientSegments) {
+                // Flows are rebuilt from the assigned server rather than kept per client
+                synchronized (segment) {
+                    segment.forEach((client, serverIndex, switches) -> {
+                        IPv4Address nextHop = pathTemplates.getNextHop(serverIndex, switchIndex);
+                        if ((switches & bit) != 0 && nextHop != null) {
+                            flows.add(new LoadBalancingFlow(IPv4Address.of(client).withMaskOfLength(32), nextHop));
+                        }
+                    });
+                }
+            }
+        }
+        return flows;
     }
 
-    private boolean isClientKnown(IPv4Address client) {
-        return clientServerAllocations.containsKey(client);
+    private ClientTable segmentFor(IPv4Address client) {
+        return clientSegments[Math.floorMod(client.getInt(), CLIENT_SEGMENTS)];
     }
 
-    private IPv4Address allocateServer(IPv4Address client) {
+    // -1 if there are no servers
+    private int allocateServer(IPv4Address client) {
+        if (servers.isEmpty()) {
+            return -1;
+        }
         switch (strategy) {
             case round_robin:
-                return roundRobinIterator.next();
+                return Math.floorMod(roundRobinCounter.getAndIncrement(), servers.size());
             case ip_hash:
-                return servers.get(client.hashCode() % servers.size());
+                return Math.floorMod(client.hashCode(), servers.size());
             case least_conn:
-                return serverConnectionCounts.entrySet().stream()
-                        .sorted(comparingInt(Entry::getValue))
-                        .map(Entry::getKey)
-                        .findFirst()
-                        .orElse(null);
+                return leastConnections.acquire();
             default:
                 throw new UnsupportedOperationException();
         }
     }
 
-    private LoadBalancingFlow buildLogicalFlow(IPv4Address client, IPv4Address server) {
-        return new LoadBalancingFlow(client.withMaskOfLength(32), server);
-    }
-
-    private Map<DatapathId, LoadBalancingFlow> buildPhysicalFlows(LoadBalancingFlow logicalFlow) {
-        Map<DatapathId, List<LoadBalancingFlow>> physicalFlows = FlowBuilder.buildPhysicalFlows(topology, vips, singletonList(logicalFlow));
-        // Extract single flow per switch
-        return physicalFlows.entrySet().stream()
-                .filter(e -> !e.getValue().isEmpty())
-                .collect(toMap(
-                        e -> e.getKey(),
-                        e -> e.getValue().get(0)));
-    }
-
-    private void installPhysicalFlows(Map<DatapathId, LoadBalancingFlow> physicalFlows) {
-        Concurrently.forEach(topology.getSwitches(), (switchId) -> {
+    // Flow mods per active switch on the path to the server, from its path template
+    private Map<DatapathId, List<OFFlowMod>> buildMicroFlows(IPv4Address client, int serverIndex) {
+        Map<DatapathId, List<OFFlowMod>> microFlows = new LinkedHashMap<>();
+        IPv4AddressWithMask prefix = client.withMaskOfLength(32);
+        List<DatapathId> switches = pathTemplates.getSwitches();
+        for (int switchIndex = 0; switchIndex < switches.size(); switchIndex++) {
+            IPv4Address nextHop = pathTemplates.getNextHop(serverIndex, switchIndex);
+            if (nextHop == null) {
+                continue;
+            }
+            DatapathId switchId = switches.get(switchIndex);
             IOFSwitch iofSwitch = switchService.getActiveSwitch(switchId);
-            OFFactory factory = iofSwitch.getOFFactory();
-            IPv4Address vip = vips.get(switchId);
-            List<LoadBalancingFlow> flows = singletonList(physicalFlows.get(switchId));
-            MessageBuilder.addLoadBalancingMicroFlows(switchId, factory, vip, flows, strategy.cookie())
-                    .forEach(iofSwitch::write);
-        });
+            if (iofSwitch != null) {
+                OFFactory factory = iofSwitch.getOFFactory();
+                IPv4Address vip = vips.get(switchId);
+                List<LoadBalancingFlow> flows = singletonList(new LoadBalancingFlow(prefix, nextHop));
+                microFlows.put(switchId,
+                        MessageBuilder.addLoadBalancingMicroFlows(switchId, factory, vip, flows, strategy.cookie()));
+            }
+        }
+        return microFlows;
     }
 }
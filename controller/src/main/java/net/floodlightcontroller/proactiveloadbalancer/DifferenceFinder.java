@@ -3,83 +3,57 @@ package net.floodlightcontroller.proactiveloadbalancer;
 
 import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
 import net.floodlightcontroller.proactiveloadbalancer.domain.Transition;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
 import org.projectfloodlight.openflow.types.IPv4Address;
-import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
-import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
 
 class DifferenceFinder {
     static void requirePrefixesAreContiguous(List<LoadBalancingFlow> sorted) {
-        if (sorted.size() <= 1) {
-            return;
-        }
-        for (int i = 0; i < sorted.size() - 1; i++){
-            IPv4AddressWithMask prev = sorted.get(i).getPrefix();
-            IPv4AddressWithMask next = sorted.get(i + 1).getPrefix();
-            int maxPrev = prev.getValue().or(prev.getMask().not()).getInt();
-            int minNext = next.getValue().getInt();
-            if (minNext - maxPrev != 1) {
-                throw new IllegalArgumentException(MessageFormat.format(
-                        "Prefixes must be contiguous. maxPrev: {0}, minNext: {1}", maxPrev, minNext));
-            }
-        }
+        requirePrefixesAreContiguous(prefixes(sorted));
     }
 
     static void requirePrefixesCoverSameRange(List<LoadBalancingFlow> sortedOld, List<LoadBalancingFlow> sortedNew) {
-        if (sortedOld.isEmpty() && sortedNew.isEmpty()) {
-            return;
-        } else if (sortedOld.isEmpty() || sortedNew.isEmpty()) {
-            throw new IllegalArgumentException("Prefixes must cover same range but old or new was empty.");
-        }
-
-        IPv4Address minOld = sortedOld.get(0).getPrefix().getValue();
-        IPv4Address maxOld = sortedOld.get(sortedOld.size() - 1).getPrefix().getSubnetBroadcastAddress();
-        IPv4Address minNew = sortedNew.get(0).getPrefix().getValue();
-        IPv4Address maxNew = sortedNew.get(sortedNew.size() - 1).getPrefix().getSubnetBroadcastAddress();
-
-        if (!(minOld.equals(minNew) && maxOld.equals(maxNew))) {
-            throw new IllegalArgumentException(MessageFormat.format(
-                    "Prefixes must cover same range. old: {0}-{1}, new: {2}-{3}", minOld, maxOld, minNew, maxNew));
-        }
+        requirePrefixesCoverSameRange(prefixes(sortedOld), prefixes(sortedNew));
     }
 
     static List<Transition> transitions(List<LoadBalancingFlow> flowsOld, List<LoadBalancingFlow> flowsNew) {
         List<LoadBalancingFlow> sortedOld = sortFlows(flowsOld);
         List<LoadBalancingFlow> sortedNew = sortFlows(flowsNew);
+        long[] prefixesOld = prefixes(sortedOld);
+        long[] prefixesNew = prefixes(sortedNew);
 
-        requirePrefixesAreContiguous(sortedOld);
-        requirePrefixesAreContiguous(sortedNew);
-        requirePrefixesCoverSameRange(sortedOld, sortedNew);
+        requirePrefixesAreContiguous(prefixesOld);
+        requirePrefixesAreContiguous(prefixesNew);
+        requirePrefixesCoverSameRange(prefixesOld, prefixesNew);
 
-        Iterator<LoadBalancingFlow> iterOld = sortedOld.iterator();
-        Iterator<LoadBalancingFlow> iterNew = sortedNew.iterator();
-        LoadBalancingFlow flowOld = iterOld.hasNext() ? iterOld.next() : null;
-        LoadBalancingFlow flowNew = iterNew.hasNext() ? iterNew.next() : null;
         List<Transition> transitions = new ArrayList<>();
-
-        while (flowOld != null && flowNew != null) {
-            IPv4AddressWithMask prefixOld = flowOld.getPrefix();
-            IPv4AddressWithMask prefixNew = flowNew.getPrefix();
-
-            if (prefixOld.getMask().compareTo(prefixNew.getMask()) >= 0) {
-                transitions.add(new Transition(prefixOld, flowOld.getDip(), flowNew.getDip()));
+        int iOld = 0;
+        int iNew = 0;
+        while (iOld < prefixesOld.length && iNew < prefixesNew.length) {
+            LoadBalancingFlow flowOld = sortedOld.get(iOld);
+            LoadBalancingFlow flowNew = sortedNew.get(iNew);
+            long prefixOld = prefixesOld[iOld];
+            long prefixNew = prefixesNew[iNew];
+
+            if (IPv4Prefix.length(prefixOld) >= IPv4Prefix.length(prefixNew)) {
+                transitions.add(new Transition(flowOld.getPrefix(), flowOld.getDip(), flowNew.getDip()));
             } else {
-                transitions.add(new Transition(prefixNew, flowOld.getDip(), flowNew.getDip()));
+                transitions.add(new Transition(flowNew.getPrefix(), flowOld.getDip(), flowNew.getDip()));
             }
 
-            IPv4Address maxOld = prefixOld.getSubnetBroadcastAddress();
-            IPv4Address maxNew = prefixNew.getSubnetBroadcastAddress();
-            if (maxOld.compareTo(maxNew) <= 0) {
-                flowOld = iterOld.hasNext() ? iterOld.next() : null;
+            int maxOld = IPv4Prefix.broadcast(prefixOld);
+            int maxNew = IPv4Prefix.broadcast(prefixNew);
+            if (IPv4Prefix.compareAddresses(maxOld, maxNew) <= 0) {
+                iOld++;
             }
-            if (maxNew.compareTo(maxOld) <= 0) {
-                flowNew = iterNew.hasNext() ? iterNew.next() : null;
+            if (IPv4Prefix.compareAddresses(maxNew, maxOld) <= 0) {
+                iNew++;
             }
         }
         return transitions;
@@ -109,10 +83,51 @@ class DifferenceFinder {
         return oldExists && newIsDifferent;
     }
 
+    // Helper
+    private static void requirePrefixesAreContiguous(long[] sorted) {
+        for (int i = 0; i < sorted.length - 1; i++){
+            int maxPrev = IPv4Prefix.broadcast(sorted[i]);
+            int minNext = IPv4Prefix.address(sorted[i + 1]);
+            if (minNext - maxPrev != 1) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Prefixes must be contiguous. maxPrev: {0}, minNext: {1}", maxPrev, minNext));
+            }
+        }
+    }
+
+    // Helper
+    private static void requirePrefixesCoverSameRange(long[] sortedOld, long[] sortedNew) {
+        if (sortedOld.length == 0 && sortedNew.length == 0) {
+            return;
+        } else if (sortedOld.length == 0 || sortedNew.length == 0) {
+            throw new IllegalArgumentException("Prefixes must cover same range but old or new was empty.");
+        }
+
+        int minOld = IPv4Prefix.address(sortedOld[0]);
+        int maxOld = IPv4Prefix.broadcast(sortedOld[sortedOld.length - 1]);
+        int minNew = IPv4Prefix.address(sortedNew[0]);
+        int maxNew = IPv4Prefix.broadcast(sortedNew[sortedNew.length - 1]);
+
+        if (minOld != minNew || maxOld != maxNew) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Prefixes must cover same range. old: {0}-{1}, new: {2}-{3}",
+                    IPv4Address.of(minOld), IPv4Address.of(maxOld), IPv4Address.of(minNew), IPv4Address.of(maxNew)));
+        }
+    }
+
     // Helper
     private static List<LoadBalancingFlow> sortFlows(List<LoadBalancingFlow> flows) {
         List<LoadBalancingFlow> sorted = new ArrayList<>(flows);
-        sorted.sort(comparing(LoadBalancingFlow::getPrefix));
+        sorted.sort(comparingLong(flow -> IPv4Prefix.of(flow.getPrefix())));
         return sorted;
     }
+
+    // Helper
+    private static long[] prefixes(List<LoadBalancingFlow> sorted) {
+        long[] prefixes = new long[sorted.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = IPv4Prefix.of(sorted.get(i).getPrefix());
+        }
+        return prefixes;
+    }
 }
@@ -1,9 +1,9 @@
 package net.floodlightcontroller.proactiveloadbalancer;
 
 import net.floodlightcontroller.proactiveloadbalancer.domain.*;
+import net.floodlightcontroller.proactiveloadbalancer.util.ArrayPrefixTrie;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
-import net.floodlightcontroller.proactiveloadbalancer.util.PrefixTrie;
-import net.floodlightcontroller.proactiveloadbalancer.util.PrefixTrie.Node;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
@@ -14,8 +14,8 @@ import java.util.*;
 
 import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 class FlowBuilder {
 
@@ -52,25 +52,27 @@ class FlowBuilder {
                 .sum();
 
         IPv4AddressWithMask rootPrefix = IPUtil.base(config.getClientRange());
+        int rootLength = rootPrefix.getMask().asCidrMaskLength();
+        double threshold = config.getMeasurementThreshold();
 
         // Merge into tree
-        PrefixTrie<Double> tree = mergeMeasurements(measurements, config);
+        ArrayPrefixTrie tree = mergeMeasurements(measurements, config);
 
         // Expand if above threshold, collapse if below
-        tree.traversePreOrder((node, prefix) -> {
-            double effectiveValue = total != 0 ? node.getValue() : Math.pow(2, rootPrefix.getMask().asCidrMaskLength() - prefix.getMask().asCidrMaskLength());
-            if (effectiveValue > config.getMeasurementThreshold() && node.isLeaf() && prefix.getMask().asCidrMaskLength() < 32) {
-                node.expand(node.getValue() / 2, node.getValue() / 2);
-            } else if (effectiveValue <= config.getMeasurementThreshold() && !node.isLeaf()) {
-                node.collapse();
+        tree.traversePreOrder((node, address, length) -> {
+            double effectiveValue = total != 0 ? tree.getValue(node) : Math.pow(2, rootLength - length);
+            if (effectiveValue > threshold && tree.isLeaf(node) && length < 32) {
+                tree.expand(node, tree.getValue(node) / 2, tree.getValue(node) / 2);
+            } else if (effectiveValue <= threshold && !tree.isLeaf(node)) {
+                tree.collapse(node);
             }
         });
 
         // Extract leaf node prefixes;
         List<IPv4AddressWithMask> prefixes = new ArrayList<>();
-        tree.traversePostOrder((node, prefix) -> {
-            if (node.isLeaf()) {
-                prefixes.add(prefix);
+        tree.traversePostOrder((node, address, length) -> {
+            if (tree.isLeaf(node)) {
+                prefixes.add(IPv4Address.of(address).withMaskOfLength(length));
             }
         });
 
@@ -138,85 +140,127 @@ class FlowBuilder {
 
     // Helpers
     static List<LoadBalancingFlow> mergeContiguousFlows(List<LoadBalancingFlow> flows) {
-        Map<IPv4AddressWithMask, IPv4Address> flowsAsMap = flows.stream().collect(toMap(
-                flow -> flow.getPrefix(),
-                flow -> flow.getDip()));
-        PrefixTrie<IPv4Address> tree = PrefixTrie.inflate(IPv4AddressWithMask.of("0.0.0.0/0"),
-                null, flows.stream().map(LoadBalancingFlow::getPrefix).collect(toList()));
-        tree.traversePostOrder((node, prefix) -> {
-            if (flowsAsMap.containsKey(prefix)) {
-                node.setValue(flowsAsMap.get(prefix));
+        // Flows in pre-order, dips as labels
+        List<LoadBalancingFlow> sorted = new ArrayList<>(flows);
+        sorted.sort(comparingLong(flow -> IPv4Prefix.of(flow.getPrefix())));
+        List<IPv4Address> dips = new ArrayList<>();
+        Map<IPv4Address, Integer> labels = new HashMap<>();
+        long[] prefixes = new long[sorted.size()];
+        int[] flowLabels = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            LoadBalancingFlow flow = sorted.get(i);
+            prefixes[i] = IPv4Prefix.of(flow.getPrefix());
+            if (i > 0 && prefixes[i] == prefixes[i - 1]) {
+                throw new IllegalStateException("Duplicate flow for prefix " + flow.getPrefix());
             }
-            Node<IPv4Address> child0 = node.getChild0();
-            Node<IPv4Address> child1 = node.getChild1();
-            if (child0 != null && child1 != null) {
-                IPv4Address ip0 = child0.getValue();
-                IPv4Address ip1 = child1.getValue();
-                if (ip0 != null && ip1 != null && ip0.equals(ip1)) {
-                    node.collapse();
-                    node.setValue(ip0);
+            flowLabels[i] = labels.computeIfAbsent(flow.getDip(), dip -> {
+                dips.add(dip);
+                return dips.size() - 1;
+            });
+        }
+
+        // Expand until all flows are covered, labelling their nodes
+        ArrayPrefixTrie tree = new ArrayPrefixTrie(0, 0, 0D, 4 * flows.size());
+        int[] next = {0};
+        tree.traversePreOrder((node, address, length) -> {
+            long prefix = IPv4Prefix.of(address, length);
+            int i = next[0];
+            if (i < prefixes.length && prefixes[i] == prefix) {
+                tree.setLabel(node, flowLabels[i]);
+                next[0] = ++i;
+            }
+            if (i < prefixes.length && IPv4Prefix.contains(prefix, IPv4Prefix.address(prefixes[i]))) {
+                tree.expand(node, 0D, 0D);
+            }
+        });
+        tree.traversePostOrder((node, address, length) -> {
+            int child0 = tree.getChild0(node);
+            int child1 = tree.getChild1(node);
+            if (child0 != ArrayPrefixTrie.NONE && child1 != ArrayPrefixTrie.NONE) {
+                int label0 = tree.getLabel(child0);
+                if (label0 != ArrayPrefixTrie.NONE && label0 == tree.getLabel(child1)) {
+                    tree.collapse(node);
+                    tree.setLabel(node, label0);
                 }
             }
         });
 
         List<LoadBalancingFlow> result = new ArrayList<>();
-        tree.traversePreOrder((node, prefix) -> {
-            if (node.getValue() != null) {
-                result.add(new LoadBalancingFlow(prefix, node.getValue()));
+        tree.traversePreOrder((node, address, length) -> {
+            if (tree.getLabel(node) != ArrayPrefixTrie.NONE) {
+                result.add(new LoadBalancingFlow(IPv4Address.of(address).withMaskOfLength(length),
+                        dips.get(tree.getLabel(node))));
             }
         });
 
         return result;
     }
 
-    private static PrefixTrie<Double> mergeMeasurements(Collection<Measurement> measurements, Config config) {
+    private static ArrayPrefixTrie mergeMeasurements(Collection<Measurement> measurements, Config config) {
         Objects.requireNonNull(measurements);
 
         double total = measurements.stream()
                 .mapToLong(Measurement::getBytes)
                 .sum();
 
-        PrefixTrie<Double> tree = PrefixTrie.empty(IPUtil.base(config.getClientRange()), 0D);
-        Queue<Measurement> measurementsInPreOrder = new PriorityQueue<>(comparing(Measurement::getPrefix));
-        measurementsInPreOrder.addAll(measurements);
+        IPv4AddressWithMask rootPrefix = IPUtil.base(config.getClientRange());
+        int clientMin = config.getClientRange().getMin().getInt();
+        int clientMax = config.getClientRange().getMax().getInt();
+
+        // Measurements in pre-order as primitives
+        List<Measurement> sorted = new ArrayList<>(measurements);
+        sorted.sort(comparingLong(measurement -> IPv4Prefix.of(measurement.getPrefix())));
+        long[] prefixes = new long[sorted.size()];
+        double[] shares = new double[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            Measurement measurement = sorted.get(i);
+            prefixes[i] = IPv4Prefix.of(measurement.getPrefix());
+            shares[i] = total == 0 ? 0 : measurement.getBytes() / total;
+        }
+
+        ArrayPrefixTrie tree = new ArrayPrefixTrie(rootPrefix.getValue().getInt(),
+                rootPrefix.getMask().asCidrMaskLength(),
+                0D,
+                4 * measurements.size());
+        int[] next = {0};
 
         // Expand tree, fill in measurements, and propagate estimates down
-        tree.traversePreOrder((node, prefix) -> {
-            Measurement nextMeasurement = measurementsInPreOrder.peek();
-            while (nextMeasurement != null && Objects.equals(prefix, nextMeasurement.getPrefix())) {
-                node.setValue(node.getValue() + (total == 0 ? 0 : nextMeasurement.getBytes() / total));
-                measurementsInPreOrder.remove();
-                nextMeasurement = measurementsInPreOrder.peek();
+        tree.traversePreOrder((node, address, length) -> {
+            long prefix = IPv4Prefix.of(address, length);
+            int i = next[0];
+            while (i < prefixes.length && prefixes[i] == prefix) {
+                tree.setValue(node, tree.getValue(node) + shares[i]);
+                i++;
             }
-            if (nextMeasurement != null && prefix.contains(nextMeasurement.getPrefix().getValue())) {
-                IPv4Address minOfRightSubtree = IPUtil.min(IPUtil.subprefix1(prefix));
-                IPv4Address maxOfLeftSubtree = IPUtil.max(IPUtil.subprefix0(prefix));
-                if (minOfRightSubtree.compareTo(config.getClientRange().getMin()) <= 0) { // Left subtree (0) not relevant
-                    node.expand1(node.getValue());
-                } else if (config.getClientRange().getMax().compareTo(maxOfLeftSubtree) <= 0) { // Right subtree (1) not relevant
-                    node.expand0(node.getValue());
+            next[0] = i;
+            if (i < prefixes.length && IPv4Prefix.contains(prefix, IPv4Prefix.address(prefixes[i]))) {
+                double value = tree.getValue(node);
+                if (IPv4Prefix.compareAddresses(IPv4Prefix.broadcast(prefix), clientMin) <= 0) { // Left subtree (0) not relevant
+                    tree.expand1(node, value);
+                } else if (IPv4Prefix.compareAddresses(clientMax, address) <= 0) { // Right subtree (1) not relevant
+                    tree.expand0(node, value);
                 } else {
-                    node.expand(node.getValue() / 2, node.getValue() / 2);
+                    tree.expand(node, value / 2, value / 2);
                 }
             }
         });
         // Propagate measurements up
-        tree.traversePostOrder((node, prefix) -> {
-            if (!node.isLeaf()) {
+        tree.traversePostOrder((node, address, length) -> {
+            if (!tree.isLeaf(node)) {
                 double val = 0;
-                if (node.getChild0() != null) {
-                    val += node.getChild0().getValue();
+                if (tree.getChild0(node) != ArrayPrefixTrie.NONE) {
+                    val += tree.getValue(tree.getChild0(node));
                 }
-                if (node.getChild1() != null) {
-                    val += node.getChild1().getValue();
+                if (tree.getChild1(node) != ArrayPrefixTrie.NONE) {
+                    val += tree.getValue(tree.getChild1(node));
                 }
-                node.setValue(val);
+                tree.setValue(node, val);
             }
         });
         return tree;
     }
 
-    private static List<DatapathId> toposortSwitches(Topology topology) {
+    static List<DatapathId> toposortSwitches(Topology topology) {
         // Topological sort over load balancers (sort by dependency)
         Map<DatapathId, List<DatapathId>> dependencies = new HashMap<>();
         Map<DatapathId, List<DatapathId>> dependents = new HashMap<>();
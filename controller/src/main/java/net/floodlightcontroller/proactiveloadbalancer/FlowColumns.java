@@ -0,0 +1,82 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flow counters stored column-wise in growable primitive arrays. Cleared and refilled for each dump, so parsing does
+ * not allocate once the arrays have grown to the size of the flow table.
+ */
+class FlowColumns {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] cookies = new long[INITIAL_CAPACITY];
+    private short[] tableIds = new short[INITIAL_CAPACITY];
+    private int[] prefixes = new int[INITIAL_CAPACITY];
+    private byte[] prefixLengths = new byte[INITIAL_CAPACITY];
+    private long[] bytes = new long[INITIAL_CAPACITY];
+    private int size;
+
+    void add(long cookie, short tableId, int prefix, int prefixLength, long byteCount) {
+        if (size == cookies.length) {
+            int capacity = size * 2;
+            cookies = Arrays.copyOf(cookies, capacity);
+            tableIds = Arrays.copyOf(tableIds, capacity);
+            prefixes = Arrays.copyOf(prefixes, capacity);
+            prefixLengths = Arrays.copyOf(prefixLengths, capacity);
+            bytes = Arrays.copyOf(bytes, capacity);
+        }
+        cookies[size] = cookie;
+        tableIds[size] = tableId;
+        prefixes[size] = prefix;
+        prefixLengths[size] = (byte) prefixLength;
+        bytes[size] = byteCount;
+        size++;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getCookie(int index) {
+        return cookies[index];
+    }
+
+    short getTableId(int index) {
+        return tableIds[index];
+    }
+
+    int getPrefix(int index) {
+        return prefixes[index];
+    }
+
+    int getPrefixLength(int index) {
+        return prefixLengths[index];
+    }
+
+    long getBytes(int index) {
+        return bytes[index];
+    }
+
+    List<Flow> toFlows() {
+        List<Flow> flows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flows.add(new Flow(U64.of(cookies[i]),
+                    tableIds[i],
+                    IPv4Address.of(prefixes[i]).withMaskOfLength(prefixLengths[i]),
+                    bytes[i]));
+        }
+        return flows;
+    }
+}
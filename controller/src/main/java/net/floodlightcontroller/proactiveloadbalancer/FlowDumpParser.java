@@ -0,0 +1,225 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for ovs-ofctl dump-flows output. Scans the raw bytes of each line for the cookie, table,
+ * n_bytes, nw_src and nw_dst fields and appends them to {@link FlowColumns} without allocating per line. Lines
+ * without a cookie, table and byte count (headers, blank lines) are skipped.
+ *
+ * <p>As before, the prefix of a flow is its nw_src match, else its nw_dst match, else 0.0.0.0/0.
+ *
+ * <p>Not thread-safe, use one instance per reader.
+ */
+class FlowDumpParser {
+
+    private static final byte[] COOKIE = ascii("cookie=");
+    private static final byte[] TABLE = ascii("table=");
+    private static final byte[] N_BYTES = ascii("n_bytes=");
+    private static final byte[] NW_SRC = ascii("nw_src=");
+    private static final byte[] NW_DST = ascii("nw_dst=");
+    private static final byte[] ACTIONS = ascii("actions=");
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    // Only used when parsing streams
+    private byte[] buffer;
+
+    // Scanner state, fields avoid returning tuples
+    private int position;
+    private long parsedLong;
+    private int address;
+    private int length;
+
+    /**
+     * Parses all lines until the end of the stream.
+     */
+    void parse(InputStream in, FlowColumns columns) throws IOException {
+        if (buffer == null) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+        int start = 0;
+        int end = 0;
+        int scan = 0;
+        while (true) {
+            for (; scan < end; scan++) {
+                if (buffer[scan] == '\n') {
+                    parseLine(buffer, start, scan, columns);
+                    start = scan + 1;
+                }
+            }
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                scan = end;
+                start = 0;
+            } else if (end == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                break;
+            }
+            end += read;
+        }
+        if (start < end) {
+            parseLine(buffer, start, end, columns);
+        }
+    }
+
+    /**
+     * Parses a single line, from inclusive, to exclusive.
+     */
+    void parseLine(byte[] line, int from, int to, FlowColumns columns) {
+        boolean hasCookie = false;
+        long cookie = 0;
+        int tableId = -1;
+        long byteCount = -1;
+        int srcLength = -1;
+        int src = 0;
+        int dstLength = -1;
+        int dst = 0;
+
+        int i = from;
+        while (i < to) {
+            byte c = line[i];
+            if (c == ' ' || c == ',' || c == '\t' || c == '\r') {
+                i++;
+                continue;
+            }
+            position = i;
+            if (startsWith(line, i, to, COOKIE)) {
+                hasCookie = parseCookie(line, i + COOKIE.length, to);
+                cookie = hasCookie ? parsedLong : 0;
+            } else if (startsWith(line, i, to, TABLE)) {
+                tableId = parseDecimal(line, i + TABLE.length, to) ? (int) parsedLong : -1;
+            } else if (startsWith(line, i, to, N_BYTES)) {
+                byteCount = parseDecimal(line, i + N_BYTES.length, to) ? parsedLong : -1;
+            } else if (startsWith(line, i, to, NW_SRC)) {
+                if (parsePrefix(line, i + NW_SRC.length, to)) {
+                    src = address;
+                    srcLength = length;
+                }
+            } else if (startsWith(line, i, to, NW_DST)) {
+                if (parsePrefix(line, i + NW_DST.length, to)) {
+                    dst = address;
+                    dstLength = length;
+                }
+            } else if (startsWith(line, i, to, ACTIONS)) {
+                break;
+            }
+            // Skip the rest of the token
+            i = Math.max(i, position);
+            while (i < to && line[i] != ' ' && line[i] != ',') {
+                i++;
+            }
+        }
+
+        if (!hasCookie || tableId < 0 || byteCount < 0) {
+            return;
+        }
+        if (srcLength >= 0) {
+            columns.add(cookie, (short) tableId, src, srcLength, byteCount);
+        } else if (dstLength >= 0) {
+            columns.add(cookie, (short) tableId, dst, dstLength, byteCount);
+        } else {
+            columns.add(cookie, (short) tableId, 0, 0, byteCount);
+        }
+    }
+
+    // Numbers
+    private boolean parseCookie(byte[] line, int from, int to) {
+        int i = from;
+        if (i + 1 < to && line[i] == '0' && (line[i + 1] == 'x' || line[i + 1] == 'X')) {
+            i += 2;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < to; i++, digits++) {
+            int digit = Character.digit(line[i], 16);
+            if (digit < 0) {
+                break;
+            }
+            value = (value << 4) | digit;
+        }
+        position = i;
+        parsedLong = value;
+        return digits > 0;
+    }
+
+    private boolean parseDecimal(byte[] line, int from, int to) {
+        int i = from;
+        long value = 0;
+        for (; i < to && line[i] >= '0' && line[i] <= '9'; i++) {
+            value = value * 10 + (line[i] - '0');
+        }
+        position = i;
+        parsedLong = value;
+        return i > from;
+    }
+
+    // Dotted quad, optionally followed by /length or /dotted-quad-mask
+    private boolean parsePrefix(byte[] line, int from, int to) {
+        if (!parseAddress(line, from, to)) {
+            return false;
+        }
+        int value = address;
+        int i = position;
+        length = 32;
+        if (i < to && line[i] == '/') {
+            if (parseAddress(line, i + 1, to)) {
+                length = Integer.bitCount(address);
+            } else if (parseDecimal(line, i + 1, to) && parsedLong <= 32) {
+                length = (int) parsedLong;
+            } else {
+                return false;
+            }
+        }
+        address = length == 0 ? 0 : value & (-1 << (32 - length));
+        return true;
+    }
+
+    private boolean parseAddress(byte[] line, int from, int to) {
+        int i = from;
+        int value = 0;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= to || line[i] != '.') {
+                    return false;
+                }
+                i++;
+            }
+            int start = i;
+            int octetValue = 0;
+            for (; i < to && line[i] >= '0' && line[i] <= '9'; i++) {
+                octetValue = octetValue * 10 + (line[i] - '0');
+            }
+            if (i == start || i - start > 3 || octetValue > 255) {
+                return false;
+            }
+            value = (value << 8) | octetValue;
+        }
+        position = i;
+        address = value;
+        return true;
+    }
+
+    private static boolean startsWith(byte[] line, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
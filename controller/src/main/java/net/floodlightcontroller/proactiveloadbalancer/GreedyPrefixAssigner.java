@@ -12,9 +12,14 @@ import java.util.List;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
-class GreedyPrefixAssigner {
+/**
+ * Walks the servers in order, each taking the following prefixes while the cumulative weight stays within its
+ * cumulative share, give or take half a prefix.
+ */
+class GreedyPrefixAssigner implements PrefixAssigner {
 
-    static List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range, List<WeightedPrefix> measurements, List<Server> servers) {
+    @Override
+    public List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range, List<WeightedPrefix> measurements, List<Server> servers) {
         if (servers.isEmpty()) {
             return getDefaultFlows(range);
         } else if (servers.size() == 1) {
@@ -28,26 +33,27 @@ class GreedyPrefixAssigner {
         List<LoadBalancingFlow> flows = new ArrayList<>(measurements.size());
         double cumulativeServerWeight = 0;
         double cumulativeMeasurementWeight = 0;
+        int next = 0;
         for (Server server : scaledServers) {
             cumulativeServerWeight += server.getWeight();
-            while (!scaledMeasurements.isEmpty() && cumulativeServerWeight >= cumulativeMeasurementWeight + scaledMeasurements.get(0).getWeight() / 2) {
+            while (next < scaledMeasurements.size() && cumulativeServerWeight >= cumulativeMeasurementWeight + scaledMeasurements.get(next).getWeight() / 2) {
                 // Assign prefix to server
-                flows.add(new LoadBalancingFlow(scaledMeasurements.get(0).getPrefix(), server.getDip()));
-                cumulativeMeasurementWeight += scaledMeasurements.get(0).getWeight();
-                scaledMeasurements.remove(0);
+                flows.add(new LoadBalancingFlow(scaledMeasurements.get(next).getPrefix(), server.getDip()));
+                cumulativeMeasurementWeight += scaledMeasurements.get(next).getWeight();
+                next++;
             }
         }
 
         // Add any remaining 0 measurements due to numeric error to last server
         Server lastServer = scaledServers.get(scaledServers.size() - 1);
-        for (WeightedPrefix scaledMeasurement : scaledMeasurements) {
+        for (WeightedPrefix scaledMeasurement : scaledMeasurements.subList(next, scaledMeasurements.size())) {
             flows.add(new LoadBalancingFlow(scaledMeasurement.getPrefix(), lastServer.getDip()));
         }
 
         return flows;
     }
 
-    private static List<LoadBalancingFlow> getDefaultFlows(IPv4AddressWithMask range) {
+    static List<LoadBalancingFlow> getDefaultFlows(IPv4AddressWithMask range) {
         return singletonList(new LoadBalancingFlow(range, null));
     }
 
@@ -69,7 +75,7 @@ class GreedyPrefixAssigner {
                 .collect(toList());
     }
 
-    private static List<LoadBalancingFlow> assignPrefixesToServer(List<WeightedPrefix> measurements, IPv4Address server) {
+    static List<LoadBalancingFlow> assignPrefixesToServer(List<WeightedPrefix> measurements, IPv4Address server) {
         return measurements.stream()
                 .map(traffic -> new LoadBalancingFlow(traffic.getPrefix(), server))
                 .collect(toList());
@@ -0,0 +1,198 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Hierarchical heavy-hitter refinement of a switch's measurement prefixes. Instead of splitting and collapsing by a
+ * threshold, each interval rebuilds the prefix set from the root, always splitting the prefix with the most estimated
+ * traffic until the rule budget is used. This spends every rule on localizing heavy traffic, however many levels
+ * that takes.
+ *
+ * <p>Traffic below the measured prefixes is estimated from how each prefix split its traffic between its halves when
+ * it was last measured at a finer level, or evenly if it never was. So prefixes that were hot before are found again
+ * in a single interval.
+ *
+ * <p>The refiner is fed by the measurement cycle, once per interval. The prefixes of the last interval can be read
+ * from any thread, e.g. to reinstall them in a switch that reconnects.
+ */
+class HeavyHitterRefiner {
+
+    // Intervals over which the rules of threshold refinement are matched
+    private static final int BUDGET_WINDOW = 60;
+
+    private final IPv4AddressRange clientRange;
+    private final IPv4AddressWithMask rootPrefix;
+
+    private final SplitHistory splits = new SplitHistory();
+
+    // Rules threshold refinement would have used in the last intervals
+    private final int[] thresholdRules = new int[BUDGET_WINDOW];
+    private long thresholdIntervals;
+
+    private List<IPv4AddressWithMask> prefixes;
+
+    HeavyHitterRefiner(IPv4AddressRange clientRange) {
+        this.clientRange = clientRange;
+        this.rootPrefix = IPUtil.base(clientRange);
+    }
+
+    /**
+     * Records the rules threshold refinement settles on for this interval's traffic: every prefix with more than the
+     * threshold share is split, traffic below the measured prefixes taken to be spread evenly. Counted from the
+     * measured bytes, so the prefixes this refiner chose do not feed back into its budget.
+     */
+    synchronized void recordThresholdRules(Collection<Measurement> measurements, double threshold) {
+        thresholdRules[(int) (thresholdIntervals++ % BUDGET_WINDOW)] = countThresholdRules(measurements, threshold);
+    }
+
+    /**
+     * Budget matching threshold refinement: the most rules it used in the last intervals, which the switch has shown
+     * to hold.
+     */
+    synchronized int getThresholdBudget() {
+        int budget = 1;
+        for (int i = 0; i < Math.min(thresholdIntervals, BUDGET_WINDOW); i++) {
+            budget = Math.max(budget, thresholdRules[i]);
+        }
+        return budget;
+    }
+
+    /**
+     * @return prefixes of the last interval, null before the first
+     */
+    synchronized List<IPv4AddressWithMask> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @param measurements bytes per measurement prefix in the last interval
+     * @param ruleBudget maximum number of prefixes
+     * @return prefixes covering the client range, ordered by address
+     */
+    synchronized List<IPv4AddressWithMask> refine(Collection<Measurement> measurements, int ruleBudget) {
+        if (ruleBudget < 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Rule budget must be at least 1: {0}", ruleBudget));
+        }
+        Map<IPv4AddressWithMask, Double> shares = aggregateShares(measurements);
+        splits.update(shares);
+
+        // Split heaviest first, measured shares where known, estimates below
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                comparing((Candidate candidate) -> candidate.share).reversed()
+                        .thenComparing(candidate -> candidate.prefix));
+        List<IPv4AddressWithMask> prefixes = new ArrayList<>();
+        candidates.add(new Candidate(rootPrefix, shares.isEmpty() ? 1 : shares.getOrDefault(rootPrefix, 0D)));
+        int leaves = 1;
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.peek();
+            int length = candidate.prefix.getMask().asCidrMaskLength();
+            if (length == 32 || candidate.share == 0) {
+                prefixes.add(candidates.remove().prefix);
+                continue;
+            }
+            IPv4AddressWithMask prefix0 = IPUtil.subprefix0(candidate.prefix);
+            IPv4AddressWithMask prefix1 = IPUtil.subprefix1(candidate.prefix);
+            boolean relevant0 = overlapsClientRange(prefix0);
+            boolean relevant1 = overlapsClientRange(prefix1);
+            if (relevant0 && relevant1 && leaves == ruleBudget) {
+                break;
+            }
+            candidates.remove();
+            double share0 = estimateShare(shares, candidate, prefix0, relevant1 ? lowerShare(candidate.prefix) : 1);
+            double share1 = estimateShare(shares, candidate, prefix1, relevant0 ? 1 - lowerShare(candidate.prefix) : 1);
+            if (relevant0) {
+                candidates.add(new Candidate(prefix0, share0));
+            }
+            if (relevant1) {
+                candidates.add(new Candidate(prefix1, share1));
+            }
+            if (relevant0 && relevant1) {
+                leaves++;
+            }
+        }
+        for (Candidate candidate : candidates) {
+            prefixes.add(candidate.prefix);
+        }
+        Collections.sort(prefixes);
+        this.prefixes = Collections.unmodifiableList(prefixes);
+        return this.prefixes;
+    }
+
+    // Leaves of the tree whose inner nodes are the prefixes above the threshold
+    private int countThresholdRules(Collection<Measurement> measurements, double threshold) {
+        long splits = 0;
+        for (Map.Entry<IPv4AddressWithMask, Double> entry : aggregateShares(measurements).entrySet()) {
+            if (entry.getValue() > threshold && entry.getKey().getMask().asCidrMaskLength() < 32) {
+                splits++;
+            }
+        }
+        // Below the measured prefixes, each level halves the share and doubles the prefixes
+        double total = measurements.stream()
+                .mapToLong(Measurement::getBytes)
+                .sum();
+        for (Measurement measurement : measurements) {
+            double share = total > 0 ? measurement.getBytes() / total : 0;
+            long prefixesAtLevel = 1;
+            for (int length = measurement.getPrefix().getMask().asCidrMaskLength() + 1;
+                    length < 32 && splits < Integer.MAX_VALUE; length++) {
+                share /= 2;
+                prefixesAtLevel *= 2;
+                if (share <= threshold) {
+                    break;
+                }
+                splits += prefixesAtLevel;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, splits + 1);
+    }
+
+    // Share of total bytes of each measured prefix and all its ancestors up to the root
+    private Map<IPv4AddressWithMask, Double> aggregateShares(Collection<Measurement> measurements) {
+        return SplitHistory.aggregateShares(measurements,
+                Measurement::getPrefix,
+                Measurement::getBytes,
+                rootPrefix.getMask().asCidrMaskLength());
+    }
+
+    private double lowerShare(IPv4AddressWithMask prefix) {
+        Double lowerShare = splits.getLowerShare(prefix);
+        return lowerShare != null ? lowerShare : 0.5;
+    }
+
+    private static double estimateShare(Map<IPv4AddressWithMask, Double> shares,
+            Candidate parent,
+            IPv4AddressWithMask prefix,
+            double fractionOfParent) {
+        Double measured = shares.get(prefix);
+        return measured != null ? measured : parent.share * fractionOfParent;
+    }
+
+    private boolean overlapsClientRange(IPv4AddressWithMask prefix) {
+        return prefix.getValue().compareTo(clientRange.getMax()) <= 0
+                && clientRange.getMin().compareTo(prefix.getSubnetBroadcastAddress()) <= 0;
+    }
+
+    private static final class Candidate {
+        private final IPv4AddressWithMask prefix;
+        private final double share;
+
+        private Candidate(IPv4AddressWithMask prefix, double share) {
+            this.prefix = prefix;
+            this.share = share;
+        }
+    }
+}
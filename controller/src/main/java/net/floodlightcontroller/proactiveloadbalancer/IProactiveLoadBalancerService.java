@@ -2,7 +2,41 @@ package net.floodlightcontroller.proactiveloadbalancer;
 
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.proactiveloadbalancer.domain.Config;
+import net.floodlightcontroller.proactiveloadbalancer.domain.LatencyStats;
+import net.floodlightcontroller.proactiveloadbalancer.domain.MeasurementStats;
+import net.floodlightcontroller.proactiveloadbalancer.domain.PacketInStage;
+import net.floodlightcontroller.proactiveloadbalancer.domain.RateStats;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerLoad;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.Map;
 
 public interface IProactiveLoadBalancerService extends IFloodlightService {
+    /**
+     * @throws IllegalArgumentException if the config's strategy ranges overlap, leaving the current config in place
+     */
     void setConfig(Config config);
+
+    Map<Strategy, Map<PacketInStage, LatencyStats>> getPacketInLatencies();
+
+    Map<DatapathId, MeasurementStats> getMeasurementStats();
+
+    /**
+     * @param windowMillis window of the rate, the server measurement interval if 0
+     */
+    Map<IPv4Address, RateStats> getServerRates(long windowMillis);
+
+    /**
+     * @param windowMillis window of the rate, the server measurement interval if 0
+     */
+    Map<IPv4AddressWithMask, RateStats> getClientRates(long windowMillis);
+
+    /**
+     * @return load reported by each server, empty unless the config's server load source is servers
+     */
+    Map<IPv4Address, ServerLoad> getServerLoads();
 }
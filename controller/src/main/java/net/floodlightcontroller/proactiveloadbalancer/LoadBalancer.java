@@ -0,0 +1,17 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+interface LoadBalancer {
+
+    Strategy getStrategy();
+
+    boolean handlePacketIn(IPv4Address client, boolean isNew);
+
+    /**
+     * @param bytes bytes the removed microflow matched
+     */
+    void handleFlowRemoved(IPv4Address client, DatapathId switchId, long bytes);
+}
@@ -0,0 +1,131 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Measurement prefixes installed on each switch, so only changed prefixes are added and deleted and the counters of
+ * the others keep running. Since counters now span many snapshots, this also turns them back into bytes per snapshot.
+ */
+class MeasurementFlowTracker {
+
+    static class Update {
+        private final boolean replaceAll;
+        private final List<IPv4AddressWithMask> added;
+        private final List<IPv4AddressWithMask> removed;
+
+        private Update(boolean replaceAll, List<IPv4AddressWithMask> added, List<IPv4AddressWithMask> removed) {
+            this.replaceAll = replaceAll;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        // The switch's flows are unknown, delete all measurement flows before adding
+        boolean isReplaceAll() {
+            return replaceAll;
+        }
+
+        List<IPv4AddressWithMask> getAdded() {
+            return added;
+        }
+
+        List<IPv4AddressWithMask> getRemoved() {
+            return removed;
+        }
+
+        boolean isEmpty() {
+            return !replaceAll && added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final Map<DatapathId, SwitchState> switchStates = new ConcurrentHashMap<>();
+
+    /**
+     * Records the prefixes as installed.
+     *
+     * @return prefixes to add and delete to get from the installed prefixes to these
+     */
+    Update update(DatapathId switchId, Collection<IPv4AddressWithMask> prefixes) {
+        SwitchState state = switchStates.computeIfAbsent(switchId, k -> new SwitchState());
+        synchronized (state) {
+            Set<IPv4AddressWithMask> target = new LinkedHashSet<>(prefixes);
+            Set<IPv4AddressWithMask> installed = state.installed;
+            state.installed = target;
+            if (installed == null) {
+                state.lastCounters.clear();
+                return new Update(true, new ArrayList<>(target), emptyList());
+            }
+
+            List<IPv4AddressWithMask> added = new ArrayList<>();
+            for (IPv4AddressWithMask prefix : target) {
+                if (!installed.contains(prefix)) {
+                    added.add(prefix);
+                    state.lastCounters.remove(prefix);
+                }
+            }
+            List<IPv4AddressWithMask> removed = new ArrayList<>();
+            for (IPv4AddressWithMask prefix : installed) {
+                if (!target.contains(prefix)) {
+                    removed.add(prefix);
+                    state.lastCounters.remove(prefix);
+                }
+            }
+            return new Update(false, added, removed);
+        }
+    }
+
+    /**
+     * Turns counters into bytes since the previous call. Counters that went backwards were reset and count from zero.
+     *
+     * @param stale whether the counters are reused from an earlier snapshot, the previous bytes are returned again
+     */
+    List<Measurement> toDeltas(DatapathId switchId, List<Measurement> counters, boolean stale) {
+        SwitchState state = switchStates.computeIfAbsent(switchId, k -> new SwitchState());
+        synchronized (state) {
+            if (stale) {
+                return state.lastDeltas;
+            }
+            Map<IPv4AddressWithMask, Long> lastCounters = new HashMap<>();
+            List<Measurement> deltas = new ArrayList<>(counters.size());
+            for (Measurement counter : counters) {
+                Long last = state.lastCounters.get(counter.getPrefix());
+                long bytes = last != null && counter.getBytes() >= last ? counter.getBytes() - last : counter.getBytes();
+                deltas.add(new Measurement(counter.getPrefix(), bytes));
+                lastCounters.put(counter.getPrefix(), counter.getBytes());
+            }
+            state.lastCounters = lastCounters;
+            state.lastDeltas = deltas;
+            return deltas;
+        }
+    }
+
+    /**
+     * Forgets the switch's prefixes, e.g. after it reconnected, so the next update replaces all.
+     */
+    void forget(DatapathId switchId) {
+        switchStates.remove(switchId);
+    }
+
+    void clear() {
+        switchStates.clear();
+    }
+
+    private static final class SwitchState {
+        // Null if unknown
+        private Set<IPv4AddressWithMask> installed;
+        private Map<IPv4AddressWithMask, Long> lastCounters = new HashMap<>();
+        private List<Measurement> lastDeltas = emptyList();
+    }
+}
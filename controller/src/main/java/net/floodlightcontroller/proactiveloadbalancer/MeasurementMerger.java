@@ -1,16 +1,17 @@
 package net.floodlightcontroller.proactiveloadbalancer;
 
 import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.ArrayPrefixTrie;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
-import net.floodlightcontroller.proactiveloadbalancer.util.PrefixTrie;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 
 import java.util.*;
 
 import static java.util.Collections.emptyList;
-import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
 
 class MeasurementMerger {
 
@@ -22,36 +23,51 @@ class MeasurementMerger {
         }
 
         IPv4AddressWithMask rootPrefix = IPUtil.base(clientRange);
+        int clientMin = clientRange.getMin().getInt();
+        int clientMax = clientRange.getMax().getInt();
 
-        PrefixTrie<Double> tree = PrefixTrie.empty(rootPrefix, 0D);
-        Queue<WeightedPrefix> measurementsInPreOrder = new PriorityQueue<>(comparing(WeightedPrefix::getPrefix));
-        measurementsInPreOrder.addAll(measurements);
+        // Measurements in pre-order as primitives
+        List<WeightedPrefix> sorted = new ArrayList<>(measurements);
+        sorted.sort(comparingLong(measurement -> IPv4Prefix.of(measurement.getPrefix())));
+        long[] prefixes = new long[sorted.size()];
+        double[] weights = new double[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            prefixes[i] = IPv4Prefix.of(sorted.get(i).getPrefix());
+            weights[i] = sorted.get(i).getWeight();
+        }
+
+        ArrayPrefixTrie tree = new ArrayPrefixTrie(rootPrefix.getValue().getInt(),
+                rootPrefix.getMask().asCidrMaskLength(),
+                0D,
+                4 * measurements.size());
+        int[] next = {0};
 
         // Expand tree, fill in measurements, and propagate estimates down
-        tree.traversePreOrder((node, prefix) -> {
-            WeightedPrefix nextMeasurement = measurementsInPreOrder.peek();
-            while (nextMeasurement != null && Objects.equals(prefix, nextMeasurement.getPrefix())) {
-                node.setValue(node.getValue() + nextMeasurement.getWeight());
-                measurementsInPreOrder.remove();
-                nextMeasurement = measurementsInPreOrder.peek();
+        tree.traversePreOrder((node, address, length) -> {
+            long prefix = IPv4Prefix.of(address, length);
+            int i = next[0];
+            while (i < prefixes.length && prefixes[i] == prefix) {
+                tree.setValue(node, tree.getValue(node) + weights[i]);
+                i++;
             }
-            if (nextMeasurement != null && prefix.contains(nextMeasurement.getPrefix().getValue())) {
-                IPv4Address minOfRightSubtree = IPUtil.min(IPUtil.subprefix1(prefix));
-                IPv4Address maxOfLeftSubtree = IPUtil.max(IPUtil.subprefix0(prefix));
-                if (minOfRightSubtree.compareTo(clientRange.getMin()) <= 0) { // Left subtree (0) not relevant
-                    node.expand1(node.getValue());
-                } else if (clientRange.getMax().compareTo(maxOfLeftSubtree) <= 0) { // Right subtree (1) not relevant
-                    node.expand0(node.getValue());
+            next[0] = i;
+            if (i < prefixes.length && IPv4Prefix.contains(prefix, IPv4Prefix.address(prefixes[i]))) {
+                double value = tree.getValue(node);
+                if (IPv4Prefix.compareAddresses(IPv4Prefix.broadcast(prefix), clientMin) <= 0) { // Left subtree (0) not relevant
+                    tree.expand1(node, value);
+                } else if (IPv4Prefix.compareAddresses(clientMax, address) <= 0) { // Right subtree (1) not relevant
+                    tree.expand0(node, value);
                 } else {
-                    node.expand(node.getValue() / 2, node.getValue() / 2);
+                    tree.expand(node, value / 2, value / 2);
                 }
             }
         });
 
         List<WeightedPrefix> mergedMeasurements = new ArrayList<>();
-        tree.traversePostOrder((node, prefix) -> {
-            if (node.isLeaf()) {
-                mergedMeasurements.add(new WeightedPrefix(prefix, node.getValue()));
+        tree.traversePostOrder((node, address, length) -> {
+            if (tree.isLeaf(node)) {
+                mergedMeasurements.add(new WeightedPrefix(IPv4Address.of(address).withMaskOfLength(length),
+                        tree.getValue(node)));
             }
         });
         return mergedMeasurements;
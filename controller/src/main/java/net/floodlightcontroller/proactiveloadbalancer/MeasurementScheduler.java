@@ -0,0 +1,224 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.MeasurementStats;
+import net.floodlightcontroller.proactiveloadbalancer.util.LatencyHistogram;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Runs measurement cycles at a fixed rate. Each cycle requests the flows of all switches at once and waits for each
+ * until its deadline. Switches that fail or miss it are cancelled and their last known flows are reused, marked as
+ * stale.
+ * A tick that arrives while the previous cycle is still running is skipped instead of queueing behind it.
+ */
+class MeasurementScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MeasurementScheduler.class);
+
+    interface Listener {
+        /**
+         * @param flows flows of every switch, last known flows or an empty list for stale switches
+         * @param staleSwitches switches whose flows were not collected in this cycle
+         */
+        void handleMeasurements(long timestamp, Map<DatapathId, List<Flow>> flows, Set<DatapathId> staleSwitches);
+    }
+
+    private final MeasurementSource source;
+    private final Collection<DatapathId> switchIds;
+    private final ScheduledExecutorService scheduler;
+    private final Executor worker;
+    private final long intervalMillis;
+    private final Listener listener;
+
+    private final Map<DatapathId, SwitchState> switchStates = new HashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong skippedCycles = new AtomicLong();
+    private ScheduledFuture<?> future;
+
+    /**
+     * @param scheduler triggers cycles, only used for short ticks
+     * @param worker runs cycles, which block until the deadline
+     * @param timeoutMillis time a switch has to answer, capped at the interval
+     * @param switchTimeoutsMillis timeouts of specific switches, overriding the default
+     */
+    MeasurementScheduler(MeasurementSource source,
+            Collection<DatapathId> switchIds,
+            ScheduledExecutorService scheduler,
+            Executor worker,
+            long intervalMillis,
+            long timeoutMillis,
+            Map<DatapathId, Long> switchTimeoutsMillis,
+            Listener listener) {
+        this.source = source;
+        this.switchIds = switchIds;
+        this.scheduler = scheduler;
+        this.worker = worker;
+        this.intervalMillis = intervalMillis;
+        this.listener = listener;
+        for (DatapathId switchId : switchIds) {
+            long switchTimeoutMillis = switchTimeoutsMillis.getOrDefault(switchId, timeoutMillis);
+            switchStates.put(switchId, new SwitchState(Math.min(switchTimeoutMillis, intervalMillis)));
+        }
+    }
+
+    synchronized void start() {
+        if (future == null) {
+            future = scheduler.scheduleAtFixedRate(this::tick, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Starts a cycle on the worker unless one is still running.
+     *
+     * @return whether a cycle was started
+     */
+    boolean tick() {
+        if (!running.compareAndSet(false, true)) {
+            long skipped = skippedCycles.incrementAndGet();
+            LOG.warn("Previous measurement cycle still running, skipping cycle ({} skipped in total)", skipped);
+            return false;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    runCycle();
+                } catch (RuntimeException e) {
+                    // Prevent any exceptions from stopping future cycles
+                    LOG.error("Measurement cycle failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Collects the flows of all switches and passes them to the listener, blocking until the deadline at most.
+     */
+    void runCycle() {
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        // Request all switches at once
+        Map<DatapathId, CompletableFuture<List<Flow>>> futures = new HashMap<>();
+        for (DatapathId switchId : switchIds) {
+            SwitchState state = switchStates.get(switchId);
+            CompletableFuture<List<Flow>> flowsFuture;
+            try {
+                flowsFuture = source.getFlows(switchId);
+            } catch (RuntimeException e) {
+                flowsFuture = new CompletableFuture<>();
+                flowsFuture.completeExceptionally(e);
+            }
+            // Latency of successful collections, even if they miss the deadline
+            flowsFuture.whenComplete((flows, e) -> {
+                if (e == null) {
+                    state.latency.record(System.nanoTime() - start);
+                }
+            });
+            futures.put(switchId, flowsFuture);
+        }
+
+        // Wait for each switch until its deadline
+        Map<DatapathId, List<Flow>> flows = new HashMap<>();
+        Set<DatapathId> staleSwitches = new HashSet<>();
+        for (Entry<DatapathId, CompletableFuture<List<Flow>>> entry : futures.entrySet()) {
+            DatapathId switchId = entry.getKey();
+            CompletableFuture<List<Flow>> flowsFuture = entry.getValue();
+            SwitchState state = switchStates.get(switchId);
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(state.timeoutMillis);
+            try {
+                List<Flow> switchFlows = flowsFuture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                state.lastFlows = switchFlows;
+                state.lastCollected = timestamp;
+                state.stale = false;
+                flows.put(switchId, switchFlows);
+                continue;
+            } catch (TimeoutException | CancellationException e) {
+                LOG.warn("Measurement of switch {} missed the deadline of {} ms", switchId, state.timeoutMillis);
+                flowsFuture.cancel(true);
+                state.timeouts.incrementAndGet();
+            } catch (ExecutionException e) {
+                LOG.warn("Unable to measure switch {}: {}", switchId, e.getCause().getMessage());
+                state.failures.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flowsFuture.cancel(true);
+            }
+            state.stale = true;
+            staleSwitches.add(switchId);
+            flows.put(switchId, state.lastFlows);
+        }
+
+        for (SwitchState state : switchStates.values()) {
+            state.latency.tick();
+        }
+        listener.handleMeasurements(timestamp, flows, unmodifiableSet(staleSwitches));
+    }
+
+    long getSkippedCycles() {
+        return skippedCycles.get();
+    }
+
+    Map<DatapathId, MeasurementStats> getStats() {
+        Map<DatapathId, MeasurementStats> stats = new HashMap<>();
+        for (Entry<DatapathId, SwitchState> entry : switchStates.entrySet()) {
+            SwitchState state = entry.getValue();
+            stats.put(entry.getKey(), new MeasurementStats(state.latency.getStats(),
+                    state.timeouts.get(),
+                    state.failures.get(),
+                    state.stale,
+                    state.lastCollected));
+        }
+        return stats;
+    }
+
+    private static final class SwitchState {
+        private final long timeoutMillis;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        // Written by the cycle, read for stats
+        private volatile List<Flow> lastFlows = emptyList();
+        private volatile long lastCollected;
+        private volatile boolean stale;
+
+        private SwitchState(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads the flow table counters of switches for snapshots.
+ */
+interface MeasurementSource {
+
+    /**
+     * Requests the flows of a switch without blocking. The future completes exceptionally if the switch could not be
+     * measured, cancelling it abandons the request.
+     */
+    CompletableFuture<List<Flow>> getFlows(DatapathId switchId);
+
+    default void close() {}
+}
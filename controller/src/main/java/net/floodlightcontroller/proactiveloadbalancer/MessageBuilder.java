@@ -164,14 +164,6 @@ class MessageBuilder {
 
         List<OFFlowMod> flowMods = new LinkedList<>();
         for (IPv4AddressWithMask prefix : prefixes) {
-            // Ingress match
-            Match ingressMatch = factory
-                    .buildMatch()
-                    .setExact(MatchField.ETH_TYPE, EthType.IPv4)
-                    .setExact(MatchField.IPV4_DST, vip)
-                    .setMasked(MatchField.IPV4_SRC, prefix)
-                    .build();
-
             // Ingress instructions
             List<OFInstruction> ingressInstructionList = singletonList(
                     instructions.gotoTable(getLoadBalancingTableId(dpid)));
@@ -181,17 +173,10 @@ class MessageBuilder {
                     .setTableId(getMeasurementTableId(dpid))
                     .setCookie(MEASUREMENT_COOKIE)
                     .setPriority(INGRESS_PRIORITY + prefix.getMask().asCidrMaskLength())
-                    .setMatch(ingressMatch)
+                    .setMatch(buildMeasurementIngressMatch(factory, vip, prefix))
                     .setInstructions(ingressInstructionList)
                     .build());
 
-            // Egress match
-            Match egressMatch = factory
-                    .buildMatch()
-                    .setExact(MatchField.ETH_TYPE, EthType.IPv4)
-                    .setMasked(MatchField.IPV4_DST, prefix)
-                    .build();
-
             // Egress instructions
             List<OFInstruction> egressInstructionList = singletonList(
                     instructions.gotoTable(getLoadBalancingTableId(dpid)));
@@ -201,7 +186,7 @@ class MessageBuilder {
                     .setTableId(getMeasurementTableId(dpid))
                     .setCookie(MEASUREMENT_COOKIE)
                     .setPriority(EGRESS_PRIORITY + prefix.getMask().asCidrMaskLength())
-                    .setMatch(egressMatch)
+                    .setMatch(buildMeasurementEgressMatch(factory, prefix))
                     .setInstructions(egressInstructionList)
                     .build());
         }
@@ -222,6 +207,55 @@ class MessageBuilder {
                 .build());
     }
 
+    // Deletes exactly the flows of the prefixes, leaving other measurement flows and their counters alone
+    static List<OFFlowMod> deleteMeasurementFlows(DatapathId dpid, OFFactory factory, IPv4Address vip,
+            Iterable<IPv4AddressWithMask> prefixes) {
+        // Preconditions
+        Objects.requireNonNull(dpid);
+        Objects.requireNonNull(factory);
+        Objects.requireNonNull(vip);
+        Objects.requireNonNull(prefixes);
+
+        List<OFFlowMod> flowMods = new LinkedList<>();
+        for (IPv4AddressWithMask prefix : prefixes) {
+            flowMods.add(factory
+                    .buildFlowDeleteStrict()
+                    .setTableId(getMeasurementTableId(dpid))
+                    .setCookie(MEASUREMENT_COOKIE)
+                    .setCookieMask(U64.NO_MASK)
+                    .setPriority(INGRESS_PRIORITY + prefix.getMask().asCidrMaskLength())
+                    .setMatch(buildMeasurementIngressMatch(factory, vip, prefix))
+                    .build());
+            flowMods.add(factory
+                    .buildFlowDeleteStrict()
+                    .setTableId(getMeasurementTableId(dpid))
+                    .setCookie(MEASUREMENT_COOKIE)
+                    .setCookieMask(U64.NO_MASK)
+                    .setPriority(EGRESS_PRIORITY + prefix.getMask().asCidrMaskLength())
+                    .setMatch(buildMeasurementEgressMatch(factory, prefix))
+                    .build());
+        }
+
+        return flowMods;
+    }
+
+    private static Match buildMeasurementIngressMatch(OFFactory factory, IPv4Address vip, IPv4AddressWithMask prefix) {
+        return factory
+                .buildMatch()
+                .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                .setExact(MatchField.IPV4_DST, vip)
+                .setMasked(MatchField.IPV4_SRC, prefix)
+                .build();
+    }
+
+    private static Match buildMeasurementEgressMatch(OFFactory factory, IPv4AddressWithMask prefix) {
+        return factory
+                .buildMatch()
+                .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                .setMasked(MatchField.IPV4_DST, prefix)
+                .build();
+    }
+
     static List<OFFlowMod> addFallbackFlows(DatapathId dpid, OFFactory factory) {
         // Preconditions
         Objects.requireNonNull(dpid);
@@ -548,7 +582,7 @@ class MessageBuilder {
     }
 
     // Stats
-    static OFFlowStatsRequest requestIngressMeasurementFlowStats(DatapathId dpid, OFFactory factory) {
+    static OFFlowStatsRequest requestAllFlowStats(DatapathId dpid, OFFactory factory) {
         // Preconditions
         Objects.requireNonNull(dpid);
         Objects.requireNonNull(factory);
@@ -556,21 +590,7 @@ class MessageBuilder {
         return factory
                 .buildFlowStatsRequest()
                 .setMatch(factory.buildMatch().build())
-                .setTableId(getMeasurementTableId(dpid))
-                .setCookie(MEASUREMENT_COOKIE)
-                .build();
-    }
-
-    static OFFlowStatsRequest requestEgressMeasurementFlowStats(DatapathId dpid, OFFactory factory) {
-        // Preconditions
-        Objects.requireNonNull(dpid);
-        Objects.requireNonNull(factory);
-
-        return factory
-                .buildFlowStatsRequest()
-                .setMatch(factory.buildMatch().build())
-                .setTableId(getMeasurementTableId(dpid))
-                .setCookie(MEASUREMENT_COOKIE)
+                .setTableId(TableId.ALL)
                 .build();
     }
 }
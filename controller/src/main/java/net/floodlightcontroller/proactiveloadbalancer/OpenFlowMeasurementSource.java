@@ -0,0 +1,97 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+import org.projectfloodlight.openflow.types.Masked;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.projectfloodlight.openflow.protocol.match.MatchField.IPV4_DST;
+import static org.projectfloodlight.openflow.protocol.match.MatchField.IPV4_SRC;
+
+/**
+ * Reads flow counters with OpenFlow multipart flow stats requests over the existing switch connection.
+ */
+class OpenFlowMeasurementSource implements MeasurementSource {
+
+    private static final IPv4AddressWithMask ANY = IPv4AddressWithMask.of("0.0.0.0/0");
+
+    private final IOFSwitchService switchService;
+
+    OpenFlowMeasurementSource(IOFSwitchService switchService) {
+        this.switchService = switchService;
+    }
+
+    @Override
+    public CompletableFuture<List<Flow>> getFlows(DatapathId switchId) {
+        CompletableFuture<List<Flow>> result = new CompletableFuture<>();
+        IOFSwitch iofSwitch = switchService.getActiveSwitch(switchId);
+        if (iofSwitch == null) {
+            result.completeExceptionally(new IllegalStateException(MessageFormat.format(
+                    "Switch not connected: {0}", switchId)));
+            return result;
+        }
+
+        ListenableFuture<List<OFFlowStatsReply>> replies = iofSwitch.writeStatsRequest(
+                MessageBuilder.requestAllFlowStats(switchId, iofSwitch.getOFFactory()));
+        // Completes on the I/O thread that received the last reply
+        replies.addListener(() -> {
+            try {
+                result.complete(toFlows(replies.get()));
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, Runnable::run);
+        // Cancelling the measurement abandons the request
+        result.whenComplete((flows, e) -> {
+            if (result.isCancelled()) {
+                replies.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static List<Flow> toFlows(List<OFFlowStatsReply> replies) {
+        List<Flow> flows = new ArrayList<>();
+        for (OFFlowStatsReply reply : replies) {
+            for (OFFlowStatsEntry entry : reply.getEntries()) {
+                flows.add(new Flow(entry.getCookie(),
+                        entry.getTableId().getValue(),
+                        getPrefix(entry.getMatch()),
+                        entry.getByteCount().getValue()));
+            }
+        }
+        return flows;
+    }
+
+    // Same precedence as the ovs-ofctl output: source prefix, then destination prefix, then everything
+    private static IPv4AddressWithMask getPrefix(Match match) {
+        if (match.isExact(IPV4_SRC)) {
+            return match.get(IPV4_SRC).withMaskOfLength(32);
+        } else if (match.isPartiallyMasked(IPV4_SRC)) {
+            Masked<IPv4Address> masked = match.getMasked(IPV4_SRC);
+            return masked.getValue().withMask(masked.getMask());
+        } else if (match.isExact(IPV4_DST)) {
+            return match.get(IPV4_DST).withMaskOfLength(32);
+        } else if (match.isPartiallyMasked(IPV4_DST)) {
+            Masked<IPv4Address> masked = match.getMasked(IPV4_DST);
+            return masked.getValue().withMask(masked.getMask());
+        } else {
+            return ANY;
+        }
+    }
+}
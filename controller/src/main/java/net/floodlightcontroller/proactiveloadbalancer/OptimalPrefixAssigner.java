@@ -0,0 +1,109 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the prefixes into contiguous runs, one per server in order, minimizing the largest ratio of a server's
+ * load to its weight.
+ *
+ * <p>For a given ratio, servers taking the longest run that stays within it in turn cover all prefixes exactly when
+ * some split does, so the smallest such ratio is found by bisection. A probe takes a binary search over cumulative
+ * weights per server, O(n + m log n) for n prefixes and m servers, and bisection takes a few dozen probes.
+ */
+class OptimalPrefixAssigner implements PrefixAssigner {
+
+    // Relative gap between the bounds at which bisection stops
+    private static final double PRECISION = 1e-12;
+
+    @Override
+    public List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range, List<WeightedPrefix> measurements, List<Server> servers) {
+        if (servers.isEmpty()) {
+            return GreedyPrefixAssigner.getDefaultFlows(range);
+        } else if (servers.size() == 1) {
+            return GreedyPrefixAssigner.assignPrefixesToServer(measurements, servers.get(0).getDip());
+        }
+
+        int n = measurements.size();
+        double[] cumulativeWeights = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            cumulativeWeights[i + 1] = cumulativeWeights[i] + Math.max(0, measurements.get(i).getWeight());
+        }
+        if (cumulativeWeights[n] == 0) {
+            // No traffic, balance prefixes
+            for (int i = 0; i <= n; i++) {
+                cumulativeWeights[i] = i;
+            }
+        }
+
+        double[] capacities = new double[servers.size()];
+        double maxCapacity = 0;
+        for (int j = 0; j < capacities.length; j++) {
+            capacities[j] = Math.max(0, servers.get(j).getWeight());
+            maxCapacity = Math.max(maxCapacity, capacities[j]);
+        }
+        if (maxCapacity == 0) {
+            for (int j = 0; j < capacities.length; j++) {
+                capacities[j] = 1;
+            }
+            maxCapacity = 1;
+        }
+
+        // The largest server alone takes everything at high, nothing is feasible below low
+        int[] ends = new int[capacities.length];
+        double low = 0;
+        double high = 2 * cumulativeWeights[n] / maxCapacity;
+        while (high - low > PRECISION * high) {
+            double mid = low + (high - low) / 2;
+            if (fill(cumulativeWeights, capacities, mid, ends)) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        fill(cumulativeWeights, capacities, high, ends);
+
+        // Assign runs to servers, any remainder due to numeric error to the last server
+        ends[ends.length - 1] = n;
+        List<LoadBalancingFlow> flows = new ArrayList<>(n);
+        int start = 0;
+        for (int j = 0; j < ends.length; j++) {
+            for (int i = start; i < ends[j]; i++) {
+                flows.add(new LoadBalancingFlow(measurements.get(i).getPrefix(), servers.get(j).getDip()));
+            }
+            start = Math.max(start, ends[j]);
+        }
+        return flows;
+    }
+
+    // Gives each server in turn the longest run within ratio * capacity, true if all prefixes are taken
+    private static boolean fill(double[] cumulativeWeights, double[] capacities, double ratio, int[] ends) {
+        int n = cumulativeWeights.length - 1;
+        int start = 0;
+        for (int j = 0; j < capacities.length; j++) {
+            start = lastWithin(cumulativeWeights, start, n, cumulativeWeights[start] + ratio * capacities[j]);
+            ends[j] = start;
+        }
+        return start == n;
+    }
+
+    // Largest index in [from, to] whose cumulative weight is at most limit
+    private static int lastWithin(double[] cumulativeWeights, int from, int to, double limit) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (cumulativeWeights[mid] <= limit) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,179 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.core.IOFSwitch;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Front-end for packet-ins of new clients. The first packet-in of a client triggers allocation, packet-ins for the
+ * same client that arrive before the switch confirms the microflows (barrier reply) are collapsed and their packets
+ * are sent out once the confirmation arrives, each through the switch it came from. Barriers are batched per switch
+ * by {@link BarrierBatcher}.
+ */
+class PacketInCoalescer {
+
+    private final SwitchWriterPool switchWriters;
+    private final BarrierBatcher barrierBatcher;
+    private final int maxPendingPackets;
+    private final long timeoutNanos;
+
+    private final ConcurrentMap<IPv4Address, Pending> pendingClients = new ConcurrentHashMap<>();
+
+    // Counters
+    private final AtomicLong collapsedPacketIns = new AtomicLong();
+    private final AtomicLong droppedPacketIns = new AtomicLong();
+
+    PacketInCoalescer(SwitchWriterPool switchWriters,
+            BarrierBatcher barrierBatcher,
+            int maxPendingPackets,
+            long timeoutMillis) {
+        this.switchWriters = switchWriters;
+        this.barrierBatcher = barrierBatcher;
+        this.maxPendingPackets = maxPendingPackets;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Handles a packet-in from a client.
+     * @param packetOut packet-out resending the packet, written once the client's microflows are confirmed
+     * @param allocate allocates the client in its load balancer, returns false if there was nothing to allocate
+     * @return true if the packet-in was collapsed into a pending allocation
+     */
+    boolean handlePacketIn(IOFSwitch iofSwitch, IPv4Address client, OFMessage packetOut, BooleanSupplier allocate) {
+        long now = System.nanoTime();
+        DatapathId switchId = iofSwitch.getId();
+        Pending pending = pendingClients.get(client);
+        if (pending != null && collapse(pending, switchId, packetOut, now)) {
+            return true;
+        }
+
+        Pending created = new Pending(client, now);
+        pending = pendingClients.putIfAbsent(client, created);
+        if (pending != null) {
+            if (collapse(pending, switchId, packetOut, now)) {
+                return true;
+            }
+            // Expired entry, replace it
+            if (!pendingClients.replace(client, pending, created)) {
+                return handlePacketIn(iofSwitch, client, packetOut, allocate);
+            }
+        }
+
+        if (!allocate.getAsBoolean()) {
+            release(created);
+            return false;
+        }
+
+        synchronized (created) {
+            created.add(switchId, packetOut);
+        }
+        // The barrier follows the microflows through the switch's write queue, its reply confirms them
+        barrierBatcher.add(iofSwitch, () -> release(created).forEach(switchWriters::write));
+        return false;
+    }
+
+    /**
+     * Releases allocations whose barrier reply did not arrive in time, their packets are dropped.
+     */
+    void expire() {
+        long now = System.nanoTime();
+        for (Pending pending : pendingClients.values()) {
+            synchronized (pending) {
+                if (pending.released || now - pending.createdNanos <= timeoutNanos) {
+                    continue;
+                }
+                expire(pending);
+            }
+            pendingClients.remove(pending.client, pending);
+        }
+    }
+
+    void clear() {
+        pendingClients.clear();
+    }
+
+    long getCollapsedPacketIns() {
+        return collapsedPacketIns.get();
+    }
+
+    long getDroppedPacketIns() {
+        return droppedPacketIns.get();
+    }
+
+    int getPendingClients() {
+        return pendingClients.size();
+    }
+
+    private boolean collapse(Pending pending, DatapathId switchId, OFMessage packetOut, long now) {
+        synchronized (pending) {
+            if (pending.released) {
+                return false;
+            }
+            if (now - pending.createdNanos > timeoutNanos) {
+                // Barrier reply never arrived, e.g. because the switch disconnected
+                expire(pending);
+                return false;
+            }
+            collapsedPacketIns.incrementAndGet();
+            if (pending.size < maxPendingPackets) {
+                pending.add(switchId, packetOut);
+            } else {
+                droppedPacketIns.incrementAndGet();
+            }
+            return true;
+        }
+    }
+
+    // Caller holds the monitor of pending
+    private void expire(Pending pending) {
+        pending.released = true;
+        droppedPacketIns.addAndGet(pending.size);
+        pending.clear();
+    }
+
+    // Switch -> packet-outs of the packet-ins from that switch, in arrival order
+    private Map<DatapathId, List<OFMessage>> release(Pending pending) {
+        Map<DatapathId, List<OFMessage>> packetOuts;
+        synchronized (pending) {
+            pending.released = true;
+            packetOuts = new LinkedHashMap<>(pending.packetOuts);
+            pending.clear();
+        }
+        pendingClients.remove(pending.client, pending);
+        return packetOuts;
+    }
+
+    private static final class Pending {
+        private final IPv4Address client;
+        private final long createdNanos;
+        private final Map<DatapathId, List<OFMessage>> packetOuts = new LinkedHashMap<>();
+        private int size = 0;
+        private boolean released = false;
+
+        private Pending(IPv4Address client, long createdNanos) {
+            this.client = client;
+            this.createdNanos = createdNanos;
+        }
+
+        private void add(DatapathId switchId, OFMessage packetOut) {
+            packetOuts.computeIfAbsent(switchId, id -> new ArrayList<>()).add(packetOut);
+            size++;
+        }
+
+        private void clear() {
+            packetOuts.clear();
+            size = 0;
+        }
+    }
+}
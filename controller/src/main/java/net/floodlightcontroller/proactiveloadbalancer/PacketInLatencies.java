@@ -0,0 +1,58 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LatencyStats;
+import net.floodlightcontroller.proactiveloadbalancer.domain.PacketInStage;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+import net.floodlightcontroller.proactiveloadbalancer.util.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency histograms of packet-in handling, one per stage and strategy.
+ */
+class PacketInLatencies {
+
+    private final LatencyHistogram[][] histograms;
+
+    PacketInLatencies() {
+        histograms = new LatencyHistogram[Strategy.values().length][PacketInStage.values().length];
+        for (LatencyHistogram[] stageHistograms : histograms) {
+            for (int i = 0; i < stageHistograms.length; i++) {
+                stageHistograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    void record(Strategy strategy, PacketInStage stage, long nanos) {
+        histograms[strategy.ordinal()][stage.ordinal()].record(nanos);
+    }
+
+    void tick() {
+        for (LatencyHistogram[] stageHistograms : histograms) {
+            for (LatencyHistogram histogram : stageHistograms) {
+                histogram.tick();
+            }
+        }
+    }
+
+    /**
+     * @return stats of every strategy that has recorded latencies
+     */
+    Map<Strategy, Map<PacketInStage, LatencyStats>> getStats() {
+        Map<Strategy, Map<PacketInStage, LatencyStats>> stats = new EnumMap<>(Strategy.class);
+        for (Strategy strategy : Strategy.values()) {
+            Map<PacketInStage, LatencyStats> stageStats = new EnumMap<>(PacketInStage.class);
+            for (PacketInStage stage : PacketInStage.values()) {
+                LatencyHistogram histogram = histograms[strategy.ordinal()][stage.ordinal()];
+                if (histogram.getCount() > 0) {
+                    stageStats.put(stage, histogram.getStats());
+                }
+            }
+            if (!stageStats.isEmpty()) {
+                stats.put(strategy, stageStats);
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,107 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Topology;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Next hop towards each server at each switch, precomputed from the topology when the config is set.
+ * Switches are numbered by their position in the topology and tracked as bits in a long.
+ */
+class PathTemplates {
+
+    private final List<DatapathId> switches;
+    private final Map<DatapathId, Integer> switchIndices;
+    private final Map<IPv4Address, Integer> serverIndices;
+    // Server index -> switch index -> server or downstream switch VIP, null if the server is not downstream
+    private final IPv4Address[][] nextHops;
+    // Server index -> switches on the path to that server
+    private final long[] switchMasks;
+
+    private PathTemplates(List<DatapathId> switches,
+            Map<DatapathId, Integer> switchIndices,
+            Map<IPv4Address, Integer> serverIndices,
+            IPv4Address[][] nextHops,
+            long[] switchMasks) {
+        this.switches = switches;
+        this.switchIndices = switchIndices;
+        this.serverIndices = serverIndices;
+        this.nextHops = nextHops;
+        this.switchMasks = switchMasks;
+    }
+
+    static PathTemplates of(Topology topology, Map<DatapathId, IPv4Address> vips) {
+        List<DatapathId> switches = topology.getSwitches();
+        if (switches.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " switches are supported");
+        }
+        Map<DatapathId, Integer> switchIndices = new HashMap<>();
+        for (int i = 0; i < switches.size(); i++) {
+            switchIndices.put(switches.get(i), i);
+        }
+        List<IPv4Address> servers = topology.getServers();
+        Map<IPv4Address, Integer> serverIndices = new HashMap<>();
+        for (int i = 0; i < servers.size(); i++) {
+            serverIndices.put(servers.get(i), i);
+        }
+
+        // Same rules as FlowBuilder.buildPhysicalFlows, for a single client per server
+        IPv4Address[][] nextHops = new IPv4Address[servers.size()][switches.size()];
+        long[] switchMasks = new long[servers.size()];
+        for (DatapathId switchId : FlowBuilder.toposortSwitches(topology)) {
+            int switchIndex = switchIndices.get(switchId);
+            Map<IPv4Address, Integer> downstreamServers = topology.getDownlinksToServers().get(switchId);
+            Map<DatapathId, Integer> downstreamSwitches = topology.getDownlinksToSwitches().get(switchId);
+            for (int serverIndex = 0; serverIndex < servers.size(); serverIndex++) {
+                IPv4Address nextHop = null;
+                if (downstreamServers.containsKey(servers.get(serverIndex))) {
+                    nextHop = servers.get(serverIndex);
+                } else {
+                    for (DatapathId downstreamSwitch : downstreamSwitches.keySet()) {
+                        if (nextHops[serverIndex][switchIndices.get(downstreamSwitch)] != null) {
+                            nextHop = vips.get(downstreamSwitch);
+                            break;
+                        }
+                    }
+                }
+                if (nextHop != null) {
+                    nextHops[serverIndex][switchIndex] = nextHop;
+                    switchMasks[serverIndex] |= 1L << switchIndex;
+                }
+            }
+        }
+        return new PathTemplates(switches, switchIndices, serverIndices, nextHops, switchMasks);
+    }
+
+    List<DatapathId> getSwitches() {
+        return switches;
+    }
+
+    /**
+     * @return index of the switch, -1 if not in the topology
+     */
+    int getSwitchIndex(DatapathId switchId) {
+        Integer switchIndex = switchIndices.get(switchId);
+        return switchIndex != null ? switchIndex : -1;
+    }
+
+    /**
+     * @return index of the server, -1 if not in the topology
+     */
+    int getServerIndex(IPv4Address server) {
+        Integer serverIndex = serverIndices.get(server);
+        return serverIndex != null ? serverIndex : -1;
+    }
+
+    IPv4Address getNextHop(int serverIndex, int switchIndex) {
+        return nextHops[serverIndex][switchIndex];
+    }
+
+    long getSwitchMask(int serverIndex) {
+        return switchMasks[serverIndex];
+    }
+}
@@ -0,0 +1,30 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+
+/**
+ * Assigns prefixes to servers, so each server's share of the weight follows its own weight.
+ */
+interface PrefixAssigner {
+
+    /**
+     * @param range prefix forwarded nowhere if there are no servers
+     * @param measurements weighted prefixes in address order, covering the range
+     */
+    List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range, List<WeightedPrefix> measurements, List<Server> servers);
+
+    /**
+     * @param flowsOld the previous assignment, null if there is none
+     */
+    default List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range,
+            List<WeightedPrefix> measurements,
+            List<Server> servers,
+            List<LoadBalancingFlow> flowsOld) {
+        return assignPrefixes(range, measurements, servers);
+    }
+}
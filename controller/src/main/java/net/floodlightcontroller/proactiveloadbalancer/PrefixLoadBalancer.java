@@ -3,9 +3,12 @@ package net.floodlightcontroller.proactiveloadbalancer;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.proactiveloadbalancer.domain.*;
+import net.floodlightcontroller.proactiveloadbalancer.util.ClientTable;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4PrefixIndex;
 import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
@@ -21,7 +24,7 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static net.floodlightcontroller.proactiveloadbalancer.domain.Strategy.uniform;
 
-class PrefixLoadBalancer {
+class PrefixLoadBalancer implements LoadBalancer {
 
     private static final Logger LOG = LoggerFactory.getLogger(PrefixLoadBalancer.class);
 
@@ -30,18 +33,27 @@ class PrefixLoadBalancer {
     private Strategy strategy;
     private Config config;
     private Map<DatapathId, IPv4Address> vips;
+    private PathTemplates pathTemplates;
 
     // Floodlight services
     private IOFSwitchService switchService;
+    private SwitchWriterPool switchWriters;
+    private PacketInLatencies latencies;
 
     // Runtime
     private List<LoadBalancingFlow> logicalFlows;
     private Map<DatapathId, List<LoadBalancingFlow>> physicalFlows;
     private List<Transition> transitions;
+    private volatile IPv4PrefixIndex<Transition> transitionIndex = IPv4PrefixIndex.empty();
 
     // Transition stuff
-    private Map<IPv4Address, Map<DatapathId, LoadBalancingFlow>> knownPhysicalFlows;
-    private Set<IPv4Address> knownTransitionClients;
+    private ClientTable knownTransitionClients;
+
+    // Null if the last snapshot's measurements are used
+    private final ClientTrafficEstimator trafficEstimator;
+
+    private final PrefixAssigner prefixAssigner;
+    private final PrefixSplitter prefixSplitter;
 
     private long lastUpdate;
 
@@ -49,86 +61,124 @@ class PrefixLoadBalancer {
             Strategy strategy,
             Config config,
             Map<DatapathId, IPv4Address> vips,
-            IOFSwitchService switchService) {
+            PathTemplates pathTemplates,
+            IOFSwitchService switchService,
+            SwitchWriterPool switchWriters,
+            PacketInLatencies latencies) {
+        this(range, strategy, config, vips, pathTemplates, switchService, switchWriters, latencies,
+                createTrafficEstimator(config));
+    }
+
+    PrefixLoadBalancer(IPv4AddressRange range,
+            Strategy strategy,
+            Config config,
+            Map<DatapathId, IPv4Address> vips,
+            PathTemplates pathTemplates,
+            IOFSwitchService switchService,
+            SwitchWriterPool switchWriters,
+            PacketInLatencies latencies,
+            ClientTrafficEstimator trafficEstimator) {
         this.range = range;
         this.strategy = strategy;
         this.config = config;
         this.vips = vips;
+        this.pathTemplates = pathTemplates;
 
         this.switchService = switchService;
+        this.switchWriters = switchWriters;
+        this.latencies = latencies;
 
         lastUpdate = Long.MIN_VALUE;
 
         // Transition stuff
-        knownPhysicalFlows = new HashMap<>();
-        knownTransitionClients = new HashSet<>();
+        knownTransitionClients = new ClientTable();
+
+        this.trafficEstimator = trafficEstimator;
+
+        prefixAssigner = createPrefixAssigner(config.getPrefixAssignment(range), config);
+        prefixSplitter = new PrefixSplitter(config.getClientRange());
 
         // Initial flows
         handleClientMeasurements(null);
     }
 
-    boolean handlePacketIn(IPv4Address client, boolean isNew) {
+    @Override
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public boolean handlePacketIn(IPv4Address client, boolean isNew) {
+        int serverIndex;
         synchronized (this) {
-            if (!isTransitionClientKnown(client)) {
-                Transition transition = transitions.stream()
-                        .filter(t -> t.getPrefix().contains(client))
-                        .findFirst()
-                        .orElse(null);
-                IPv4Address server = isNew ? transition.getIpNew() : transition.getIpOld();
-                knownTransitionClients.add(client);
-
-                LoadBalancingFlow logicalFlow = buildLogicalFlow(client, server);
-//                LOG.info("Logical flow for client {}  : {}", client, logicalFlow);
-                Map<DatapathId, LoadBalancingFlow> physicalFlows = buildPhysicalFlows(logicalFlow);
-//                LOG.info("Physical flows for client {}: {}", client, physicalFlows);
-                knownPhysicalFlows.put(client, physicalFlows);
-
-                // Install flows
-                Concurrently.forEach(config.getTopology().getSwitches(), (switchId) -> {
-                    IOFSwitch iofSwitch = switchService.getActiveSwitch(switchId);
-                    OFFactory factory = iofSwitch.getOFFactory();
-                    IPv4Address vip = vips.get(switchId);
-                    List<LoadBalancingFlow> flows = singletonList(physicalFlows.get(switchId));
-                    MessageBuilder.addLoadBalancingMicroFlows(switchId, factory, vip, flows, U64.ZERO)
-                            .forEach(iofSwitch::write);
-                });
-                return true;
+            if (isTransitionClientKnown(client)) {
+                return false;
+            }
+            Transition transition = transitionIndex.get(client);
+            if (transition == null) {
+                LOG.debug("No transition for client {}", client);
+                return false;
             }
+            IPv4Address server = isNew ? transition.getIpNew() : transition.getIpOld();
+            serverIndex = pathTemplates.getServerIndex(server);
+            if (serverIndex < 0) {
+                LOG.warn("Transition for client {} to unknown server {}", client, server);
+                return false;
+            }
+            long switchMask = pathTemplates.getSwitchMask(serverIndex);
+            knownTransitionClients.putIfAbsent(client.getInt(), server.getInt(), switchMask);
         }
-        return false;
-    }
 
-    private LoadBalancingFlow buildLogicalFlow(IPv4Address client, IPv4Address server) {
-        return new LoadBalancingFlow(client.withMaskOfLength(32), server);
-    }
-
-    private Map<DatapathId, LoadBalancingFlow> buildPhysicalFlows(LoadBalancingFlow logicalFlow) {
-        Map<DatapathId, List<LoadBalancingFlow>> physicalFlows = FlowBuilder.buildPhysicalFlows(config.getTopology(), vips, singletonList(logicalFlow));
-        // Extract single flow per switch
-        return physicalFlows.entrySet().stream()
-                .filter(e -> !e.getValue().isEmpty())
-                .collect(toMap(
-                        e -> e.getKey(),
-                        e -> e.getValue().get(0)));
+        long start = System.nanoTime();
+        Map<DatapathId, List<OFFlowMod>> microFlows = buildMicroFlows(client, serverIndex);
+        latencies.record(strategy, PacketInStage.build_physical_flows, System.nanoTime() - start);
+
+        // Queue flows outside the lock, as a full queue blocks for up to the offer timeout
+        start = System.nanoTime();
+        boolean written = true;
+        for (Map.Entry<DatapathId, List<OFFlowMod>> entry : microFlows.entrySet()) {
+            if (!switchWriters.write(entry.getKey(), entry.getValue())) {
+                written = false;
+                break;
+            }
+        }
+        latencies.record(strategy, PacketInStage.write, System.nanoTime() - start);
+        if (!written) {
+            // Forget the client, so its next packet retries the installation
+            synchronized (this) {
+                knownTransitionClients.remove(client.getInt());
+            }
+            return false;
+        }
+        return true;
     }
 
-    void handleFlowRemoved(IPv4Address client, DatapathId switchId) {
+    @Override
+    public void handleFlowRemoved(IPv4Address client, DatapathId switchId, long bytes) {
+        int switchIndex = pathTemplates.getSwitchIndex(switchId);
+        if (switchIndex < 0) {
+            return;
+        }
+        long bit = 1L << switchIndex;
+        long pending;
         synchronized (this) {
-            Map<DatapathId, LoadBalancingFlow> physicalFlows = knownPhysicalFlows.get(client);
-            if (physicalFlows == null) {
-                LOG.warn("Flow removed for client {}, but no physical flows known.", client);
-                return;
-            }
-            physicalFlows.remove(switchId);
-
-            if (physicalFlows.isEmpty()) {
-                knownTransitionClients.remove(client);
-                knownPhysicalFlows.remove(client);
-            }
+            pending = knownTransitionClients.clearSwitches(client.getInt(), bit);
+        }
+        if (pending == 0) {
+            LOG.warn("Flow removed for client {}, but no physical flows known.", client);
+        } else if (trafficEstimator != null && (pending & bit) != 0 && (pending & ~bit) == 0) {
+            // Every switch on the path removes its copy of the microflow, count the client's bytes once
+            trafficEstimator.addMicroflow(client, bytes);
         }
     }
 
     void handleClientMeasurements(Map<DatapathId, List<Measurement>> clientMeasurements) {
+        if (trafficEstimator != null && clientMeasurements != null) {
+            trafficEstimator.addMeasurements(System.currentTimeMillis(), clientMeasurements.values().stream()
+                    .flatMap(Collection::stream)
+                    .collect(toList()));
+        }
+
         // Only handle if sufficient time has passed
         if (System.currentTimeMillis() > lastUpdate + config.getLoadBalancingInterval() * 1000) {
             lastUpdate = System.currentTimeMillis();
@@ -136,7 +186,7 @@ class PrefixLoadBalancer {
 
             // Build logical flows
             List<LoadBalancingFlow> logicalFlowsOld = logicalFlows;
-            logicalFlows = buildPrefixLogicalFlows(clientMeasurements);
+            logicalFlows = buildPrefixLogicalFlows(clientMeasurements, logicalFlowsOld);
 
             // Calculate transitions
             if (logicalFlowsOld != null) {
@@ -145,6 +195,8 @@ class PrefixLoadBalancer {
             } else {
                 transitions = emptyList();
             }
+            transitionIndex = IPv4PrefixIndex.of(transitions.stream()
+                    .collect(toMap(Transition::getPrefix, t -> t, (t1, t2) -> t1)));
             LOG.info("Logical Flows: {}", logicalFlows);
 
             // Build physical flows
@@ -175,7 +227,8 @@ class PrefixLoadBalancer {
     }
 
     // TODO check this works right!!!
-    private List<LoadBalancingFlow> buildPrefixLogicalFlows(Map<DatapathId, List<Measurement>> clientMeasurements) {
+    private List<LoadBalancingFlow> buildPrefixLogicalFlows(Map<DatapathId, List<Measurement>> clientMeasurements,
+            List<LoadBalancingFlow> logicalFlowsOld) {
         Topology topology = config.getTopology();
         Map<IPv4Address, Double> weights = config.getWeights();
         IPv4AddressRange clientRange = config.getClientRange();
@@ -198,6 +251,8 @@ class PrefixLoadBalancer {
                     doubleMeasurements.add(new WeightedPrefix(prefix, 1));
                 }
             }
+        } else if (trafficEstimator != null) {
+            doubleMeasurements = trafficEstimator.estimate();
         } else {
             // Convert long measurements to double measurements
             // TODO remove long measurements eventually
@@ -225,7 +280,31 @@ class PrefixLoadBalancer {
             mergedMeasurements.forEach(wp -> wp.setWeight(1));
         }
 
-        return GreedyPrefixAssigner.assignPrefixes(basePrefix, mergedMeasurements, servers);
+        // Split prefixes no server could take alone, within the switches' rule budget
+        mergedMeasurements = prefixSplitter.split(mergedMeasurements, servers, config.getLoadBalancingRuleBudget());
+
+        return prefixAssigner.assignPrefixes(basePrefix, mergedMeasurements, servers, logicalFlowsOld);
+    }
+
+    // Null if the client sketch is disabled, client traffic decays over one load balancing interval
+    private static ClientTrafficEstimator createTrafficEstimator(Config config) {
+        return config.getClientSketchCapacity() > 0
+                ? new ClientTrafficEstimator(config.getClientSketchCapacity(),
+                        Math.max(1, config.getLoadBalancingInterval()) * 1000)
+                : null;
+    }
+
+    private static PrefixAssigner createPrefixAssigner(PrefixAssignment prefixAssignment, Config config) {
+        switch (prefixAssignment) {
+            case greedy:
+                return new GreedyPrefixAssigner();
+            case optimal:
+                return new OptimalPrefixAssigner();
+            case stable:
+                return new StablePrefixAssigner(config.getPrefixImbalanceTolerance());
+            default:
+                throw new IllegalArgumentException("Unknown prefix assignment: " + prefixAssignment);
+        }
     }
 
     private void reinstallPhysicalFlowsInAllSwitches() {
@@ -239,7 +318,30 @@ class PrefixLoadBalancer {
         });
     }
 
+    // Flow mods per active switch on the path to the server, from its path template
+    private Map<DatapathId, List<OFFlowMod>> buildMicroFlows(IPv4Address client, int serverIndex) {
+        Map<DatapathId, List<OFFlowMod>> microFlows = new LinkedHashMap<>();
+        IPv4AddressWithMask prefix = client.withMaskOfLength(32);
+        List<DatapathId> switches = pathTemplates.getSwitches();
+        for (int switchIndex = 0; switchIndex < switches.size(); switchIndex++) {
+            IPv4Address nextHop = pathTemplates.getNextHop(serverIndex, switchIndex);
+            if (nextHop == null) {
+                continue;
+            }
+            DatapathId switchId = switches.get(switchIndex);
+            IOFSwitch iofSwitch = switchService.getActiveSwitch(switchId);
+            if (iofSwitch != null) {
+                OFFactory factory = iofSwitch.getOFFactory();
+                IPv4Address vip = vips.get(switchId);
+                List<LoadBalancingFlow> flows = singletonList(new LoadBalancingFlow(prefix, nextHop));
+                microFlows.put(switchId,
+                        MessageBuilder.addLoadBalancingMicroFlows(switchId, factory, vip, flows, U64.ZERO));
+            }
+        }
+        return microFlows;
+    }
+
     private boolean isTransitionClientKnown(IPv4Address client) {
-        return knownTransitionClients.contains(client);
+        return knownTransitionClients.contains(client.getInt());
     }
 }
@@ -0,0 +1,103 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static java.util.Comparator.comparingDouble;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Splits prefixes carrying more traffic than the largest server's share, which no assignment could place without
+ * overloading a server. The heaviest prefix is split first, until no prefix is overweight or another split would
+ * exceed the rule budget.
+ *
+ * <p>Halves are weighted by how the prefix split its traffic when it was last measured below its own level, kept in
+ * a {@link SplitHistory} of the measurements passed in. A prefix that never was is left whole, as nothing is known
+ * about where in it the traffic is.
+ */
+class PrefixSplitter {
+
+    private static final Comparator<WeightedPrefix> HEAVIEST_FIRST = comparingDouble(WeightedPrefix::getWeight)
+            .reversed()
+            .thenComparingLong(measurement -> IPv4Prefix.of(measurement.getPrefix()));
+
+    private final int rootLength;
+    private final SplitHistory splits = new SplitHistory();
+
+    PrefixSplitter(IPv4AddressRange clientRange) {
+        this.rootLength = IPUtil.base(clientRange).getMask().asCidrMaskLength();
+    }
+
+    /**
+     * Records the measurements' splits, then splits the overweight prefixes.
+     *
+     * @param measurements weighted prefixes in address order, once per interval
+     * @param ruleBudget load balancing rules per switch, one per prefix at most, no splitting if 0
+     * @return the prefixes after splitting, in address order
+     */
+    synchronized List<WeightedPrefix> split(List<WeightedPrefix> measurements, List<Server> servers, int ruleBudget) {
+        if (ruleBudget <= 0) {
+            return measurements;
+        }
+        splits.update(SplitHistory.aggregateShares(measurements,
+                WeightedPrefix::getPrefix,
+                WeightedPrefix::getWeight,
+                rootLength));
+        if (servers.isEmpty() || measurements.size() >= ruleBudget) {
+            return measurements;
+        }
+
+        double total = 0;
+        for (WeightedPrefix measurement : measurements) {
+            total += measurement.getWeight();
+        }
+        double totalServerWeight = 0;
+        double maxServerWeight = 0;
+        for (Server server : servers) {
+            totalServerWeight += server.getWeight();
+            maxServerWeight = Math.max(maxServerWeight, server.getWeight());
+        }
+        if (total <= 0 || maxServerWeight <= 0) {
+            return measurements;
+        }
+        double maxShare = total * maxServerWeight / totalServerWeight;
+
+        PriorityQueue<WeightedPrefix> queue = new PriorityQueue<>(HEAVIEST_FIRST);
+        queue.addAll(measurements);
+        List<WeightedPrefix> result = new ArrayList<>(ruleBudget);
+        int rules = measurements.size();
+        while (!queue.isEmpty()) {
+            WeightedPrefix heaviest = queue.peek();
+            if (heaviest.getWeight() <= maxShare || rules >= ruleBudget) {
+                break;
+            }
+            queue.poll();
+            IPv4AddressWithMask prefix = heaviest.getPrefix();
+            Double lowerShare = prefix.getMask().asCidrMaskLength() < 32 ? splits.getLowerShare(prefix) : null;
+            if (lowerShare == null) {
+                // A single client, or a prefix whose traffic was never seen split
+                result.add(heaviest);
+                continue;
+            }
+            double lowerWeight = heaviest.getWeight() * lowerShare;
+            queue.add(new WeightedPrefix(IPUtil.subprefix0(prefix), lowerWeight));
+            queue.add(new WeightedPrefix(IPUtil.subprefix1(prefix), heaviest.getWeight() - lowerWeight));
+            rules++;
+        }
+        if (rules == measurements.size()) {
+            return measurements;
+        }
+        result.addAll(queue);
+        result.sort(comparingLong(measurement -> IPv4Prefix.of(measurement.getPrefix())));
+        return result;
+    }
+}
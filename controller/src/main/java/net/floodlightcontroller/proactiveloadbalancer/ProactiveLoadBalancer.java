@@ -3,10 +3,8 @@ package net.floodlightcontroller.proactiveloadbalancer;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.io.CharStreams;
 import net.floodlightcontroller.core.*;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
-import net.floodlightcontroller.core.internal.OFErrorMsgException;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
@@ -17,6 +15,8 @@ import net.floodlightcontroller.packet.TCP;
 import net.floodlightcontroller.proactiveloadbalancer.domain.*;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
 import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRangeIndex;
+import net.floodlightcontroller.proactiveloadbalancer.util.TimeSeriesStore;
 import net.floodlightcontroller.proactiveloadbalancer.web.ProactiveLoadBalancerWebRoutable;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
@@ -28,15 +28,15 @@ import org.projectfloodlight.openflow.types.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -50,8 +50,22 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
     // Constants
     private static final int FLAG_SYN = 0x2;
 
-    // TODO configurable?
-    private static final long SNAPSHOT_INTERVAL = 1;
+    // Snapshot cycle defaults
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 1000;
+    private static final double DEFAULT_MEASUREMENT_TIMEOUT_FRACTION = 0.9;
+    private static final int DEFAULT_SERVER_METRICS_PORT = 8080;
+
+    // Per-switch write queues
+    private static final int WRITE_QUEUE_CAPACITY = 4096;
+    private static final long WRITE_QUEUE_OFFER_TIMEOUT_MILLIS = 100;
+
+    // Measurement history, in snapshots
+    private static final int SERVER_HISTORY_CAPACITY = 3600;
+    private static final int CLIENT_HISTORY_CAPACITY = 600;
+
+    // Packet-in coalescing
+    private static final int COALESCER_MAX_PENDING_PACKETS = 64;
+    private static final long COALESCER_TIMEOUT_MILLIS = 1000;
 
     // Services
     private IFloodlightProviderService floodlightProvider;
@@ -66,17 +80,30 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
     private Map<DatapathId, IPv4Address> vips = new HashMap<>();
     private Map<IPv4AddressRange, ConnectionLoadBalancer> connectionLoadBalancers;
     private Map<IPv4AddressRange, PrefixLoadBalancer> prefixLoadBalancers;
+    private volatile IPv4AddressRangeIndex<LoadBalancer> loadBalancerIndex;
+    private SwitchWriterPool switchWriters;
+    private volatile BarrierBatcher barrierBatcher;
+    private volatile PacketInCoalescer packetInCoalescer;
+    private final PacketInLatencies packetInLatencies = new PacketInLatencies();
 
     // Scheduling
 //    private ScheduledFuture<?> clientMeasurementFuture;
-    private ScheduledFuture<?> snapshotFuture;
+    private volatile MeasurementScheduler measurementScheduler;
+    private ExecutorService measurementWorker;
+    private volatile SnapshotJournal snapshotJournal;
 
     // Measurement
+    private volatile MeasurementSource measurementSource;
+    // Bytes per snapshot
     private Map<DatapathId, List<Measurement>> clientMeasurements;
-    private LinkedList<Snapshot> snapshotHistory;
-
-    // Derived from measurements
-    private Map<IPv4Address, Double> serverRates;
+    private final MeasurementFlowTracker measurementFlows = new MeasurementFlowTracker();
+    // Per switch, only for hhh refinement
+    private volatile Map<DatapathId, HeavyHitterRefiner> heavyHitterRefiners = emptyMap();
+    private volatile TimeSeriesStore<IPv4Address> serverHistory;
+    // Only if server load is reported by the servers
+    private volatile ServerMetricsCollector serverMetricsCollector;
+    private ExecutorService serverMetricsWorker;
+    private volatile TimeSeriesStore<IPv4AddressWithMask> clientHistory;
 
 
     // ----------------------------------------------------------------
@@ -107,45 +134,36 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
                 if (EthType.IPv4 == eth.getEtherType()) {
                     IPv4 ipv4 = (IPv4) eth.getPayload();
                     IPv4Address client = ipv4.getSourceAddress();
-                    if (config != null) {
-                        IPv4AddressRange range = config.getStrategyRanges().keySet().stream()
-                                .filter(r -> r.contains(client))
-                                .findFirst()
-                                .orElse(null);
-                        if (range != null) {
-                            Strategy strategy = config.getStrategyRanges().get(range);
-                            boolean handled;
-                            if (strategy.isPrefixBased()) {
-                                boolean isNew = ipv4.getProtocol() != IpProtocol.TCP || (((TCP) ipv4.getPayload()).getFlags() & FLAG_SYN) != 0;
-                                handled = prefixLoadBalancers.get(range).handlePacketIn(client, isNew);
-                            } else {
-                                handled = connectionLoadBalancers.get(range).handlePacketIn(client);
+                    IPv4AddressRangeIndex<LoadBalancer> index = loadBalancerIndex;
+                    PacketInCoalescer coalescer = packetInCoalescer;
+                    if (index != null && coalescer != null) {
+                        // Packets are resent once the switch confirms the client's microflows
+                        coalescer.handlePacketIn(iofSwitch, client, buildPacketOut(iofSwitch, packetIn), () -> {
+                            long start = System.nanoTime();
+                            LoadBalancer loadBalancer = index.get(client);
+                            if (loadBalancer == null) {
+                                return false;
                             }
-                            if (handled) {
-                                iofSwitch.write(iofSwitch.getOFFactory().barrierRequest());
-                                resendPacket(iofSwitch, packetIn);
-                            }
-                        }
+                            long lookedUp = System.nanoTime();
+                            Strategy strategy = loadBalancer.getStrategy();
+                            packetInLatencies.record(strategy, PacketInStage.range_lookup, lookedUp - start);
+                            boolean isNew = ipv4.getProtocol() != IpProtocol.TCP || (((TCP) ipv4.getPayload()).getFlags() & FLAG_SYN) != 0;
+                            boolean handled = loadBalancer.handlePacketIn(client, isNew);
+                            packetInLatencies.record(strategy, PacketInStage.handle_packet_in, System.nanoTime() - lookedUp);
+                            return handled;
+                        });
                     }
                 }
                 break;
             case FLOW_REMOVED:
-                Match match = ((OFFlowRemoved) msg).getMatch();
+                OFFlowRemoved flowRemoved = (OFFlowRemoved) msg;
+                Match match = flowRemoved.getMatch();
                 if (match.isExact(IPV4_SRC)) {
                     IPv4Address client = match.get(IPV4_SRC);
-                    if (config != null) {
-                        IPv4AddressRange range = config.getStrategyRanges().keySet().stream()
-                                .filter(r -> r.contains(client))
-                                .findFirst()
-                                .orElse(null);
-                        if (range != null) {
-                            Strategy strategy = config.getStrategyRanges().get(range);
-                            if (strategy.isPrefixBased()) {
-                                prefixLoadBalancers.get(range).handleFlowRemoved(client, switchId);
-                            } else {
-                                connectionLoadBalancers.get(range).handleFlowRemoved(client, switchId);
-                            }
-                        }
+                    IPv4AddressRangeIndex<LoadBalancer> index = loadBalancerIndex;
+                    LoadBalancer loadBalancer = index != null ? index.get(client) : null;
+                    if (loadBalancer != null) {
+                        loadBalancer.handleFlowRemoved(client, switchId, flowRemoved.getByteCount().getValue());
                     }
                 }
                 break;
@@ -155,7 +173,7 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
         return Command.STOP;
     }
 
-    private void resendPacket(IOFSwitch iofSwitch, OFPacketIn packetIn) {
+    private OFPacketOut buildPacketOut(IOFSwitch iofSwitch, OFPacketIn packetIn) {
         OFFactory factory = iofSwitch.getOFFactory();
         OFActions actions = factory.actions();
 
@@ -168,7 +186,7 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
             builder.setData(packetIn.getData());
         }
 
-        iofSwitch.write(builder.build());
+        return builder.build();
     }
 
     // ----------------------------------------------------------------
@@ -220,6 +238,7 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
         if (config != null && config.getTopology().getSwitches().contains(switchId)) {
             LOG.info("Setting up switch {}", switchId);
             writePermanentFlows(singletonList(switchId));
+            measurementFlows.forget(switchId);
             writeClientMeasurementFlows(singletonList(switchId));
             for (PrefixLoadBalancer loadBalancer : prefixLoadBalancers.values()) {
                 loadBalancer.reinstallPhysicalFlowsInSwitch(switchId);
@@ -245,26 +264,109 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
     @Override
     public void setConfig(Config newConfig) {
         if (!Objects.equals(config, newConfig)) {
+            if (newConfig != null) {
+                // Reject overlapping strategy ranges before tearing down the current config
+                IPv4AddressRangeIndex.of(newConfig.getStrategyRanges());
+            }
             teardown();
             config = newConfig;
             setup();
         }
     }
 
+    @Override
+    public Map<Strategy, Map<PacketInStage, LatencyStats>> getPacketInLatencies() {
+        return packetInLatencies.getStats();
+    }
+
+    @Override
+    public Map<DatapathId, MeasurementStats> getMeasurementStats() {
+        MeasurementScheduler scheduler = measurementScheduler;
+        return scheduler != null ? scheduler.getStats() : emptyMap();
+    }
+
+    @Override
+    public Map<IPv4Address, RateStats> getServerRates(long windowMillis) {
+        return getRates(serverHistory, windowMillis);
+    }
+
+    @Override
+    public Map<IPv4AddressWithMask, RateStats> getClientRates(long windowMillis) {
+        return getRates(clientHistory, windowMillis);
+    }
+
+    @Override
+    public Map<IPv4Address, ServerLoad> getServerLoads() {
+        ServerMetricsCollector collector = serverMetricsCollector;
+        return collector != null ? collector.getLoads() : emptyMap();
+    }
+
+    private <K> Map<K, RateStats> getRates(TimeSeriesStore<K> history, long windowMillis) {
+        Config config = this.config;
+        if (history == null || config == null) {
+            return emptyMap();
+        }
+        long window = windowMillis > 0 ? windowMillis : TimeUnit.SECONDS.toMillis(config.getServerMeasurementInterval());
+        Map<K, RateStats> rates = new HashMap<>();
+        for (K key : history.getKeys()) {
+            rates.put(key, new RateStats(history.getRate(key, window),
+                    history.getEwmaRate(key),
+                    history.getRatePercentile(key, window, 0.5),
+                    history.getRatePercentile(key, window, 0.99)));
+        }
+        return rates;
+    }
+
     private void teardown() {
         if (config != null) {
             LOG.info("Tearing down all switches");
 //            if (clientMeasurementFuture != null) {
 //                clientMeasurementFuture.cancel(true);
 //            }
-            if (snapshotFuture != null) {
-                snapshotFuture.cancel(true);
+            // Stop the measurement cycle first, a running cycle uses the state torn down below
+            if (measurementScheduler != null) {
+                measurementScheduler.stop();
+            }
+            if (measurementWorker != null) {
+                measurementWorker.shutdownNow();
+                awaitTermination(measurementWorker);
+                measurementWorker = null;
+            }
+            measurementScheduler = null;
+            if (serverMetricsCollector != null) {
+                serverMetricsCollector.stop();
+                serverMetricsCollector = null;
+            }
+            if (serverMetricsWorker != null) {
+                serverMetricsWorker.shutdownNow();
+                awaitTermination(serverMetricsWorker);
+                serverMetricsWorker = null;
+            }
+            loadBalancerIndex = null;
+            if (packetInCoalescer != null) {
+                packetInCoalescer.clear();
+                packetInCoalescer = null;
             }
-            // TODO wait for that to complete
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            if (barrierBatcher != null) {
+                barrierBatcher.clear();
+                barrierBatcher = null;
+            }
+            if (measurementSource != null) {
+                measurementSource.close();
+                measurementSource = null;
+            }
+            if (snapshotJournal != null) {
+                try {
+                    snapshotJournal.close();
+                } catch (IOException e) {
+                    LOG.error("Unable to close snapshot journal", e);
+                }
+                snapshotJournal = null;
+            }
+
+            // Discard queued writes so they don't land after the flows are deleted
+            if (switchWriters != null) {
+                switchWriters.shutdown();
             }
 
             getActiveManagedSwitches().forEach(iofSwitch -> {
@@ -277,6 +379,16 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
         }
     }
 
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOG.warn("Measurement threads still running after teardown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void setup() {
         if (config != null) {
             List<DatapathId> activeDpids = getActiveManagedSwitches()
@@ -305,57 +417,115 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
             writePermanentFlows(getActiveManagedSwitchIds());
 
             // Initialize client measurements
+            measurementFlows.clear();
+            if (config.getMeasurementRefinement() == MeasurementRefinement.hhh) {
+                heavyHitterRefiners = switches.stream()
+                        .collect(toMap(dpid -> dpid, dpid -> new HeavyHitterRefiner(config.getClientRange())));
+            } else {
+                heavyHitterRefiners = emptyMap();
+            }
             clientMeasurements = switches.stream().collect(toMap(dpid -> dpid, dpid -> emptyList()));
             if (config.hasPrefixBasedStrategyRange()) {
                 writeClientMeasurementFlows(getActiveManagedSwitchIds());
             }
 
             // Initialize snapshots
-            snapshotHistory = new LinkedList<>();
-            serverRates = topology.getServers().stream()
-                    .collect(toMap(server -> server, server -> 0D));
+            long snapshotInterval = config.getSnapshotInterval() > 0
+                    ? config.getSnapshotInterval()
+                    : DEFAULT_SNAPSHOT_INTERVAL_MILLIS;
+            long measurementTimeout = config.getMeasurementTimeout() > 0
+                    ? config.getMeasurementTimeout()
+                    : (long) (snapshotInterval * DEFAULT_MEASUREMENT_TIMEOUT_FRACTION);
+            measurementSource = createMeasurementSource(config, measurementTimeout);
+            if (config.getSnapshotJournalPath() != null) {
+                try {
+                    snapshotJournal = SnapshotJournal.open(Paths.get(config.getSnapshotJournalPath()));
+                } catch (IOException e) {
+                    LOG.error("Unable to open snapshot journal, logging snapshots instead", e);
+                }
+            }
+            long ewmaTimeConstantMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getServerMeasurementInterval()));
+            serverHistory = new TimeSeriesStore<>(SERVER_HISTORY_CAPACITY, ewmaTimeConstantMillis);
+            clientHistory = new TimeSeriesStore<>(CLIENT_HISTORY_CAPACITY, ewmaTimeConstantMillis);
+
+            // Precompute paths to each server for microflows
+            PathTemplates pathTemplates = PathTemplates.of(topology, vips);
 
             // Initialize load balancers
+            switchWriters = new SwitchWriterPool(switchManager, WRITE_QUEUE_CAPACITY, WRITE_QUEUE_OFFER_TIMEOUT_MILLIS);
+            barrierBatcher = new BarrierBatcher(switchWriters,
+                    threadPoolService.getScheduledExecutor(),
+                    config.getBarrierBatchWindow());
+            packetInCoalescer = new PacketInCoalescer(switchWriters,
+                    barrierBatcher,
+                    COALESCER_MAX_PENDING_PACKETS,
+                    COALESCER_TIMEOUT_MILLIS);
             prefixLoadBalancers = new HashMap<>();
             connectionLoadBalancers = new HashMap<>();
+            Map<IPv4AddressRange, LoadBalancer> loadBalancers = new HashMap<>();
             for (IPv4AddressRange range : strategyRanges.keySet()) {
                 Strategy strategy = strategyRanges.get(range);
                 if (strategy.isPrefixBased()) {
-                    prefixLoadBalancers.put(range,
-                            new PrefixLoadBalancer(range,
-                                    strategy,
-                                    config,
-                                    vips,
-                                    switchManager));
+                    PrefixLoadBalancer loadBalancer = new PrefixLoadBalancer(range,
+                            strategy,
+                            config,
+                            vips,
+                            pathTemplates,
+                            switchManager,
+                            switchWriters,
+                            packetInLatencies);
+                    prefixLoadBalancers.put(range, loadBalancer);
+                    loadBalancers.put(range, loadBalancer);
                 } else {
-                    connectionLoadBalancers.put(range, new ConnectionLoadBalancer(strategy, topology, vips, switchManager));
+                    ConnectionLoadBalancer loadBalancer = new ConnectionLoadBalancer(strategy,
+                            topology,
+                            config.getWeights(),
+                            vips,
+                            pathTemplates,
+                            switchManager,
+                            switchWriters,
+                            packetInLatencies);
+                    connectionLoadBalancers.put(range, loadBalancer);
+                    loadBalancers.put(range, loadBalancer);
                 }
             }
 
-            // Start snapshot cycle
-            snapshotFuture = threadPoolService.getScheduledExecutor().scheduleAtFixedRate(() -> {
-                try {
-                    Snapshot snapshot = getSnapshot();
-                    snapshotHistory.addFirst(snapshot);
-                    snapshotHistory.removeIf(snap -> snapshot.getTimestamp() - snap.getTimestamp() > TimeUnit.SECONDS.toMillis(config.getLoadBalancingInterval()));
-                    serverRates = calculateRatesAsMovingAverage(config.getServerMeasurementInterval() * 1000);
-                    LOG.info("snapshot: {}", snapshot.toJson());
-
-                    // update msmts
-                    if (config.hasPrefixBasedStrategyRange()) {
-                        clientMeasurements = snapshot.getClientMeasurements();
-                        writeClientMeasurementFlows(getActiveManagedSwitchIds());
-                    }
+            // Index load balancers by client range for packet-in and flow-removed dispatch
+            loadBalancerIndex = IPv4AddressRangeIndex.of(loadBalancers);
 
-                    // update lb
-                    for (IPv4AddressRange range : config.getPrefixBasedStrategyRanges()) {
-                        prefixLoadBalancers.get(range).handleClientMeasurements(clientMeasurements);
-                    }
-                } catch (Exception e) {
-                    // Prevent any exceptions from bubbling up and killing our future
-                    e.printStackTrace();
-                }
-            }, 0, SNAPSHOT_INTERVAL, TimeUnit.SECONDS);
+            // Start snapshot cycle
+            measurementWorker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "measurement-cycle");
+                thread.setDaemon(true);
+                return thread;
+            });
+            measurementScheduler = new MeasurementScheduler(measurementSource,
+                    switches,
+                    threadPoolService.getScheduledExecutor(),
+                    measurementWorker,
+                    snapshotInterval,
+                    measurementTimeout,
+                    config.getMeasurementTimeouts() != null ? config.getMeasurementTimeouts() : emptyMap(),
+                    this::handleMeasurements);
+            measurementScheduler.start();
+
+            // Start polling server metrics, in place of the forwarding flows' counters
+            if (config.getServerLoadSource() == ServerLoadSourceType.servers) {
+                int serverMetricsPort = config.getServerMetricsPort() > 0
+                        ? config.getServerMetricsPort()
+                        : DEFAULT_SERVER_METRICS_PORT;
+                serverMetricsWorker = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "server-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                serverMetricsCollector = new ServerMetricsCollector(topology.getServers(),
+                        ServerMetricsCollector.http(serverMetricsPort, (int) measurementTimeout),
+                        threadPoolService.getScheduledExecutor(),
+                        serverMetricsWorker,
+                        snapshotInterval);
+                serverMetricsCollector.start();
+            }
 
 //            // Start client prefix measurement cycle
 //            if (config.hasPrefixBasedStrategyRange()) {
@@ -407,163 +577,134 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
     }
 
     // Measurement stuff
-    private void updateClientMeasurements() {
-        if (config.getMeasurementCommands() == null) {
-            clientMeasurements = getClientMeasurements(getActiveManagedSwitchIds());
-        } else {
-            clientMeasurements = getClientMeasurementsFromSsh(config.getTopology().getSwitches());
-        }
-    }
-
     private void writeClientMeasurementFlows(List<DatapathId> switchIds) {
         Concurrently.forEach(switchIds, switchId -> {
             IOFSwitch iofSwitch = switchManager.getActiveSwitch(switchId);
             OFFactory factory = iofSwitch.getOFFactory();
-            List<IPv4AddressWithMask> flows = FlowBuilder.buildMeasurementFlows(clientMeasurements.get(switchId), config);
-
-            MessageBuilder.deleteMeasurementFlows(switchId, factory).forEach(iofSwitch::write);
-            MessageBuilder.addMeasurementFlows(switchId, factory, vips.get(switchId), flows).forEach(iofSwitch::write);
-        });
-    }
-
-    private Map<DatapathId, List<Measurement>> getClientMeasurements(List<DatapathId> switchIds) {
-
-        return Concurrently.forEach(switchIds, switchId -> {
-            IOFSwitch iofSwitch = switchManager.getActiveSwitch(switchId);
-            OFFactory factory = iofSwitch.getOFFactory();
-
-            // Build stats requests
-            OFFlowStatsRequest ingressRequest = MessageBuilder.requestIngressMeasurementFlowStats(switchId, factory);
-            OFFlowStatsRequest egressRequest = MessageBuilder.requestEgressMeasurementFlowStats(switchId, factory);
-
-            LOG.info("Getting byte counts from switch {}", switchId);
-            List<OFFlowStatsReply> replies = new ArrayList<>();
-            try {
-                replies.addAll(iofSwitch
-                        .writeStatsRequest(ingressRequest)
-                        .get());
-                replies.addAll(iofSwitch
-                        .writeStatsRequest(egressRequest)
-                        .get());
-            } catch (InterruptedException e) {
-                LOG.info("Interruped while getting byte counts from switch {}", switchId);
-                return emptyList();
-            } catch (ExecutionException e) {
-                LOG.info("Unable to get byte counts from switch {} due to {}", switchId,
-                        ((OFErrorMsgException) e.getCause()).getErrorMessage());
-                return emptyList();
+            // Prefixes refined in the last cycle, threshold refinement until there are any
+            HeavyHitterRefiner refiner = heavyHitterRefiners.get(switchId);
+            List<IPv4AddressWithMask> flows = refiner != null ? refiner.getPrefixes() : null;
+            if (flows == null) {
+                flows = FlowBuilder.buildMeasurementFlows(clientMeasurements.get(switchId), config);
             }
-            LOG.info("# of stats replies: {}", replies.size());
-
-            // Record prefix and byte count for all flows
-            List<Measurement> parsedMeasurements = new ArrayList<>();
-            for (OFFlowStatsReply reply : replies) {
-                for (OFFlowStatsEntry entry : reply.getEntries()) {
-                    Match match = entry.getMatch();
-                    IPv4AddressWithMask prefix;
-                    if (match.isExact(IPV4_SRC)) {
-                        prefix = match.get(IPV4_SRC).withMaskOfLength(32);
-                    } else if (match.isPartiallyMasked(IPV4_SRC)) {
-                        Masked<IPv4Address> masked = match.getMasked(IPV4_SRC);
-                        prefix = masked.getValue().withMask(masked.getMask());
-                    } else {
-                        prefix = IPv4AddressWithMask.of("0.0.0.0/0");
-                    }
-                    long byteCount = entry.getByteCount().getValue();
-                    parsedMeasurements.add(new Measurement(prefix, byteCount));
-                }
+            MeasurementFlowTracker.Update update = measurementFlows.update(switchId, flows);
+            if (update.isEmpty()) {
+                return;
+            }
+
+            IPv4Address vip = vips.get(switchId);
+            if (update.isReplaceAll()) {
+                MessageBuilder.deleteMeasurementFlows(switchId, factory).forEach(iofSwitch::write);
             }
-            LOG.info("Measurements: {}", Joiner.on(", ").join(parsedMeasurements));
-            return parsedMeasurements;
+            // Add before deleting, so traffic of changed prefixes never falls through to the fallback flows
+            MessageBuilder.addMeasurementFlows(switchId, factory, vip, update.getAdded()).forEach(iofSwitch::write);
+            MessageBuilder.deleteMeasurementFlows(switchId, factory, vip, update.getRemoved()).forEach(iofSwitch::write);
         });
     }
 
-    private Map<DatapathId, List<Measurement>> getClientMeasurementsFromSsh(Collection<DatapathId> dpids) {
-        Objects.requireNonNull(dpids);
-
-        return Concurrently.forEach(dpids, dpid -> {
-            IOFSwitch iofSwitch = switchManager.getActiveSwitch(dpid);
-
-            MeasurementCommand command = config.getMeasurementCommands().get(dpid);
-            try {
-                Process p = new ProcessBuilder("ssh", command.getEndpoint(), command.getCommand())
-                        .redirectError(new File("/dev/null"))
-                        .start();
-                String sshStdOut = CharStreams.toString(new InputStreamReader(p.getInputStream()));
-                p.waitFor(config.getLoadBalancingInterval() / 2, TimeUnit.SECONDS);
-                // If taking too long, kill
-                if (p.isAlive()) {
-                    p.destroyForcibly().waitFor();
-                    LOG.warn("SSH TERMINATED. Command was: ssh \"{}\" \"{}\"", command.getEndpoint(), command.getCommand());
-                    return emptyList();
-                }
-                if (p.exitValue() != 0) {
-                    LOG.warn("ssh exited unsuccessfully. Return code: {}", p.exitValue());
-                } else {
-                    List<Flow> flows = SshParser.parseResult(sshStdOut);
-                    return extractClientMeasurements(flows, dpid);
-                }
-            } catch (InterruptedException | IOException e) {
-                LOG.warn("Unable to ssh into switch {}", iofSwitch.getId());
-            }
-            return emptyList();
+    // Heavy-hitter refiners advance once per cycle, on the cycle's thread
+    private void refineClientMeasurementFlows() {
+        heavyHitterRefiners.forEach((switchId, refiner) -> {
+            List<Measurement> measurements = clientMeasurements.get(switchId);
+            refiner.recordThresholdRules(measurements, config.getMeasurementThreshold());
+            // Rules of threshold refinement unless configured, placed on the heaviest prefixes
+            int ruleBudget = config.getMeasurementRuleBudget() > 0
+                    ? config.getMeasurementRuleBudget()
+                    : refiner.getThresholdBudget();
+            refiner.refine(measurements, ruleBudget);
         });
     }
 
-    private Map<DatapathId, List<Measurement>> getServerMeasurementsFromSsh(Collection<DatapathId> dpids) {
-        Objects.requireNonNull(dpids);
+    private void handleMeasurements(long timestamp, Map<DatapathId, List<Flow>> flows, Set<DatapathId> staleSwitches) {
+        PacketInCoalescer coalescer = packetInCoalescer;
+        BarrierBatcher batcher = barrierBatcher;
+        MeasurementScheduler scheduler = measurementScheduler;
+        if (coalescer == null || batcher == null || scheduler == null) {
+            // Torn down while the cycle was still running
+            return;
+        }
+        coalescer.expire();
+        packetInLatencies.tick();
+        batcher.expire(COALESCER_TIMEOUT_MILLIS);
+        Snapshot snapshot = getSnapshot(timestamp, flows, staleSwitches, coalescer, batcher, scheduler);
+        boolean appended = true;
+        ServerMetricsCollector collector = serverMetricsCollector;
+        if (collector != null) {
+            // Stamped with the time each poll was requested rather than the cycle's
+            for (ServerMetricsCollector.Round round : collector.takeCompletedRounds()) {
+                appended &= serverHistory.append(round.getTimestamp(),
+                        round.getMeasurements(),
+                        msmt -> msmt.getPrefix().getValue(),
+                        Measurement::getBytes);
+            }
+        } else {
+            appended = serverHistory.append(snapshot.getTimestamp(),
+                    snapshot.getServerMeasurements(),
+                    msmt -> msmt.getPrefix().getValue(),
+                    Measurement::getBytes);
+        }
+        appended &= clientHistory.append(snapshot.getTimestamp(),
+                snapshot.getClientMeasurements().values().stream()
+                        .flatMap(List::stream)
+                        .collect(toList()),
+                Measurement::getPrefix,
+                Measurement::getBytes);
+        if (!appended) {
+            LOG.warn("Clock stepped back, snapshot {} left out of the measurement history", snapshot.getTimestamp());
+        }
+        writeSnapshot(snapshot);
+
+        // update msmts
+        if (config.hasPrefixBasedStrategyRange()) {
+            clientMeasurements = snapshot.getClientMeasurements().entrySet().stream()
+                    .collect(toMap(
+                            e -> e.getKey(),
+                            e -> measurementFlows.toDeltas(e.getKey(), e.getValue(), staleSwitches.contains(e.getKey()))));
+            refineClientMeasurementFlows();
+            writeClientMeasurementFlows(getActiveManagedSwitchIds());
+        }
 
-        HashSet<IPv4Address> servers = new HashSet<>(config.getTopology().getServers());
+        // update lb
+        for (IPv4AddressRange range : config.getPrefixBasedStrategyRanges()) {
+            prefixLoadBalancers.get(range).handleClientMeasurements(clientMeasurements);
+        }
+    }
 
-        return Concurrently.forEach(dpids, dpid -> {
-            IOFSwitch iofSwitch = switchManager.getActiveSwitch(dpid);
+    private void writeSnapshot(Snapshot snapshot) {
+        SnapshotJournal journal = snapshotJournal;
+        if (journal == null) {
+            LOG.info("snapshot: {}", snapshot.toJson());
+            return;
+        }
+        try {
+            journal.append(snapshot);
+        } catch (IOException e) {
+            LOG.error("Unable to write snapshot to journal", e);
+        }
+    }
 
-            MeasurementCommand command = config.getMeasurementCommands().get(dpid);
-            try {
-                Process p = new ProcessBuilder("ssh", command.getEndpoint(), command.getCommand()).redirectError(new File("/dev/null")).start();
-                String sshStdOut = CharStreams.toString(new InputStreamReader(p.getInputStream()));
-                p.waitFor();
-                if (p.exitValue() != 0) {
-                    LOG.warn("ssh exited unsuccessfully. Return code: {}", p.exitValue());
-                } else {
-                    List<Flow> flows = SshParser.parseResult(sshStdOut);
-                    return extractServerMeasurements(flows, dpid, servers);
-                }
-            } catch (InterruptedException | IOException e) {
-                LOG.warn("Unable to ssh into switch {}", iofSwitch.getId());
-            }
-            return emptyList();
-        });
+    private MeasurementSource createMeasurementSource(Config config, long measurementTimeout) {
+        switch (config.getMeasurementSource()) {
+            case ssh:
+                return new SshMeasurementSource(config.getMeasurementCommands(),
+                        ShellSessionPool.ssh(),
+                        measurementTimeout);
+            case openflow:
+                return new OpenFlowMeasurementSource(switchManager);
+            default:
+                throw new IllegalArgumentException("Unknown measurement source: " + config.getMeasurementSource());
+        }
     }
 
     // Snapshot stuff
-    private Snapshot getSnapshot() {
-        long timestamp = System.currentTimeMillis();
-
-        Collection<DatapathId> dpids = config.getTopology().getSwitches();
+    private Snapshot getSnapshot(long timestamp,
+            Map<DatapathId, List<Flow>> flows,
+            Set<DatapathId> staleSwitches,
+            PacketInCoalescer coalescer,
+            BarrierBatcher batcher,
+            MeasurementScheduler scheduler) {
         HashSet<IPv4Address> servers = new HashSet<>(config.getTopology().getServers());
 
-        Map<DatapathId, List<Flow>> flows = Concurrently.forEach(dpids, (dpid) -> {
-            IOFSwitch iofSwitch = switchManager.getActiveSwitch(dpid);
-
-            MeasurementCommand command = config.getMeasurementCommands().get(dpid);
-            try {
-                Process p = new ProcessBuilder("ssh", command.getEndpoint(), command.getCommand()).redirectError(new File("/dev/null")).start();
-                String sshStdOut = CharStreams.toString(new InputStreamReader(p.getInputStream()));
-                p.waitFor();
-                if (p.exitValue() == 0) {
-                    return SshParser.parseResult(sshStdOut);
-                } else {
-                    LOG.warn("ssh exited unsuccessfully. Return code: {}", p.exitValue());
-                    return emptyList();
-                }
-            } catch (InterruptedException | IOException e) {
-                LOG.warn("Unable to ssh into switch {}", iofSwitch.getId());
-                return emptyList();
-            }
-        });
-
-        // TODO fill in missing values (missing/disconnected switches)?
         Snapshot snapshot = new Snapshot();
         snapshot.setTimestamp(timestamp);
         snapshot.setNumRules(flows.entrySet().stream()
@@ -574,70 +715,35 @@ public class ProactiveLoadBalancer implements IFloodlightModule, IOFMessageListe
                 .collect(toMap(
                         e -> e.getKey(),
                         e -> extractClientMeasurements(e.getValue(), e.getKey()))));
-        List<Measurement> serverMeasurements = flows.entrySet().stream()
-                .map(e -> extractServerMeasurements(e.getValue(), e.getKey(), servers))
-                .flatMap(List::stream)
-                .collect(toMap(
-                        msmt -> msmt.getPrefix(),
-                        msmt -> msmt,
-                        Measurement::add))
-                .values().stream()
-                .collect(toList());
+        ServerMetricsCollector collector = serverMetricsCollector;
+        List<Measurement> serverMeasurements;
+        if (collector != null) {
+            serverMeasurements = collector.getServerMeasurements();
+        } else {
+            serverMeasurements = flows.entrySet().stream()
+                    .map(e -> extractServerMeasurements(e.getValue(), e.getKey(), servers))
+                    .flatMap(List::stream)
+                    .collect(toMap(
+                            msmt -> msmt.getPrefix(),
+                            msmt -> msmt,
+                            Measurement::add))
+                    .values().stream()
+                    .collect(toList());
+        }
         snapshot.setServerMeasurements(serverMeasurements);
+        snapshot.setWriteQueueDepths(switchWriters.getQueueDepths());
+        snapshot.setCollapsedPacketIns(coalescer.getCollapsedPacketIns());
+        snapshot.setDroppedPacketIns(coalescer.getDroppedPacketIns());
+        BarrierBatcher.BatchLatency batchLatency = batcher.getAndResetLatency();
+        snapshot.setBarrierBatches(batchLatency.getBatches());
+        snapshot.setBarrierBatchMeanLatency(batchLatency.getMeanMillis());
+        snapshot.setBarrierBatchMaxLatency(batchLatency.getMaxMillis());
+        snapshot.setStaleSwitches(new ArrayList<>(staleSwitches));
+        snapshot.setSkippedCycles(scheduler.getSkippedCycles());
 
         return snapshot;
     }
 
-    private Map<IPv4Address, Double> calculateRatesAsMovingAverage(long intervalMillis) {
-        List<IPv4Address> servers = config.getTopology().getServers();
-
-        // Initialize rates to zero
-        Map<IPv4Address, Double> rates = new HashMap<>();
-        for (IPv4Address server : servers) {
-            rates.put(server, 0D);
-        }
-
-        // Default return zeros
-        if (snapshotHistory.isEmpty()) {
-            return rates;
-        }
-
-        // Use newest snapshot as starting point
-        Snapshot newestSnapshot = snapshotHistory.getFirst();
-        long newestTimestamp = newestSnapshot.getTimestamp();
-
-        // Use oldest snapshot (or first to exceed duration) as end point
-        Snapshot oldestSnapshot = snapshotHistory.getLast();
-        long oldestTimestamp = oldestSnapshot.getTimestamp();
-        for (Snapshot snapshot : snapshotHistory) {
-            if (newestTimestamp - snapshot.getTimestamp() > intervalMillis) {
-                oldestSnapshot = snapshot;
-                oldestTimestamp = snapshot.getTimestamp();
-                break;
-            }
-        }
-
-        // Calculate interval in seconds
-        double actualIntervalSeconds = (newestTimestamp - oldestTimestamp) / 1000.0;
-
-        // Add newest measurements
-        for (Measurement measurement : newestSnapshot.getServerMeasurements()) {
-            IPv4Address server = measurement.getPrefix().getValue();
-            long newestBytes = measurement.getBytes();
-            rates.put(server, (double) newestBytes);
-        }
-
-        // Subtract oldest measurements and divide by interval
-        for (Measurement measurement : oldestSnapshot.getServerMeasurements()) {
-            IPv4Address server = measurement.getPrefix().getValue();
-            long oldestBytes = measurement.getBytes();
-            double rate = (rates.get(server) - oldestBytes) / actualIntervalSeconds;
-            rates.put(server, rate);
-        }
-
-        return rates;
-    }
-
     private static List<Measurement> extractClientMeasurements(List<Flow> flows, DatapathId dpid) {
         short measurementTableId = MessageBuilder.getMeasurementTableId(dpid).getValue();
         Map<IPv4AddressWithMask, Measurement> measurementsByPrefix = flows.stream()
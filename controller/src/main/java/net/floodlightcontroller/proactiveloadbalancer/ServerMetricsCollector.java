@@ -0,0 +1,293 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerLoad;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerMetrics;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Polls the metrics endpoint of every server at a fixed rate, all servers at once, so server load is known without
+ * reading the switches' forwarding flows. A server whose previous request is still running is skipped, one that fails
+ * keeps reporting its last values, marked as stale.
+ *
+ * <p>Each poll is also kept as a round of the bytes served by the servers that answered it, stamped with the time
+ * the poll was requested, so the history of server rates is built from collection times rather than from whenever
+ * the measurement cycle reads it.
+ */
+class ServerMetricsCollector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerMetricsCollector.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Rounds not yet taken, oldest dropped beyond this
+    private static final int MAX_PENDING_ROUNDS = 64;
+
+    interface Fetcher {
+        ServerMetrics fetch(IPv4Address server) throws IOException;
+    }
+
+    /**
+     * Fetches http://server:port/metrics.
+     */
+    static Fetcher http(int port, int timeoutMillis) {
+        return server -> {
+            URL url = new URL("http", server.toString(), port, "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            try (InputStream in = connection.getInputStream()) {
+                return MAPPER.readValue(in, ServerMetrics.class);
+            } finally {
+                connection.disconnect();
+            }
+        };
+    }
+
+    private final Fetcher fetcher;
+    private final ScheduledExecutorService scheduler;
+    private final Executor worker;
+    private final long intervalMillis;
+    private final LongSupplier clock;
+
+    private final Map<IPv4Address, ServerState> serverStates = new LinkedHashMap<>();
+    // Rounds in the order they were polled
+    private final ArrayDeque<Round> rounds = new ArrayDeque<>();
+    private ScheduledFuture<?> future;
+
+    /**
+     * @param scheduler triggers polls, only used for short ticks
+     * @param worker runs requests, which block until the server answers or times out
+     */
+    ServerMetricsCollector(Collection<IPv4Address> servers,
+            Fetcher fetcher,
+            ScheduledExecutorService scheduler,
+            Executor worker,
+            long intervalMillis) {
+        this(servers, fetcher, scheduler, worker, intervalMillis, System::currentTimeMillis);
+    }
+
+    ServerMetricsCollector(Collection<IPv4Address> servers,
+            Fetcher fetcher,
+            ScheduledExecutorService scheduler,
+            Executor worker,
+            long intervalMillis,
+            LongSupplier clock) {
+        this.fetcher = fetcher;
+        this.scheduler = scheduler;
+        this.worker = worker;
+        this.intervalMillis = intervalMillis;
+        this.clock = clock;
+        for (IPv4Address server : servers) {
+            serverStates.put(server, new ServerState());
+        }
+    }
+
+    synchronized void start() {
+        if (future == null) {
+            future = scheduler.scheduleAtFixedRate(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Requests the metrics of every server that is not still answering the previous request.
+     */
+    void poll() {
+        Round round = new Round(clock.getAsLong());
+        synchronized (rounds) {
+            if (rounds.size() >= MAX_PENDING_ROUNDS) {
+                rounds.pollFirst();
+            }
+            rounds.addLast(round);
+        }
+        try {
+            pollServers(round);
+        } finally {
+            round.release();
+        }
+    }
+
+    private void pollServers(Round round) {
+        for (Map.Entry<IPv4Address, ServerState> entry : serverStates.entrySet()) {
+            IPv4Address server = entry.getKey();
+            ServerState state = entry.getValue();
+            if (!state.polling.compareAndSet(false, true)) {
+                LOG.debug("Previous request to server {} still running, skipping", server);
+                continue;
+            }
+            round.pending.incrementAndGet();
+            try {
+                CompletableFuture.supplyAsync(() -> fetch(server), worker).whenComplete((metrics, e) -> {
+                    try {
+                        if (e == null) {
+                            state.record(metrics, clock.getAsLong());
+                            round.add(new Measurement(server.withMaskOfLength(32), metrics.getBytesServed()));
+                        } else {
+                            LOG.warn("Unable to collect metrics of server {}: {}", server, e.getMessage());
+                            state.fail();
+                        }
+                    } finally {
+                        state.polling.set(false);
+                        round.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                state.polling.set(false);
+                round.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return bytes served by each server that answered at least once, like the forwarding flows' byte counters
+     */
+    List<Measurement> getServerMeasurements() {
+        List<Measurement> measurements = new ArrayList<>();
+        for (Map.Entry<IPv4Address, ServerState> entry : serverStates.entrySet()) {
+            ServerMetrics metrics = entry.getValue().getLatest();
+            if (metrics != null) {
+                measurements.add(new Measurement(entry.getKey().withMaskOfLength(32), metrics.getBytesServed()));
+            }
+        }
+        return measurements;
+    }
+
+    /**
+     * Takes the rounds whose requests have all completed, up to the first round still running, so rounds are taken
+     * in the order they were polled.
+     */
+    List<Round> takeCompletedRounds() {
+        List<Round> completed = new ArrayList<>();
+        synchronized (rounds) {
+            while (!rounds.isEmpty() && rounds.peekFirst().pending.get() == 0) {
+                completed.add(rounds.pollFirst());
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return load between the last two reports of each server that answered at least twice
+     */
+    Map<IPv4Address, ServerLoad> getLoads() {
+        Map<IPv4Address, ServerLoad> loads = new HashMap<>();
+        for (Map.Entry<IPv4Address, ServerState> entry : serverStates.entrySet()) {
+            ServerLoad load = entry.getValue().getLoad();
+            if (load != null) {
+                loads.put(entry.getKey(), load);
+            }
+        }
+        return loads;
+    }
+
+    private ServerMetrics fetch(IPv4Address server) {
+        try {
+            return fetcher.fetch(server);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Bytes served by the servers that answered one poll. Servers that failed or were skipped are missing.
+     */
+    static final class Round {
+        private final long timestamp;
+        private final List<Measurement> measurements = new ArrayList<>();
+        // Requests still running, plus one while the poll is issuing them
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private Round(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        synchronized List<Measurement> getMeasurements() {
+            return new ArrayList<>(measurements);
+        }
+
+        private synchronized void add(Measurement measurement) {
+            measurements.add(measurement);
+        }
+
+        private void release() {
+            pending.decrementAndGet();
+        }
+    }
+
+    private static final class ServerState {
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private ServerMetrics previous;
+        private long previousCollected;
+        private ServerMetrics latest;
+        private long lastCollected;
+        private boolean stale;
+
+        private synchronized void record(ServerMetrics metrics, long timestamp) {
+            previous = latest;
+            previousCollected = lastCollected;
+            latest = metrics;
+            lastCollected = timestamp;
+            stale = false;
+        }
+
+        private synchronized void fail() {
+            stale = true;
+        }
+
+        private synchronized ServerMetrics getLatest() {
+            return latest;
+        }
+
+        private synchronized ServerLoad getLoad() {
+            if (previous == null || lastCollected <= previousCollected) {
+                return null;
+            }
+            // Counters that went backwards were reset by a server restart and count from zero
+            long bytes = latest.getBytesServed() >= previous.getBytesServed()
+                    ? latest.getBytesServed() - previous.getBytesServed()
+                    : latest.getBytesServed();
+            boolean reset = latest.getRequests() < previous.getRequests();
+            long requests = reset ? latest.getRequests() : latest.getRequests() - previous.getRequests();
+            long latencyNanos = reset
+                    ? latest.getRequestLatencyNanos()
+                    : latest.getRequestLatencyNanos() - previous.getRequestLatencyNanos();
+            double rate = bytes / ((lastCollected - previousCollected) / 1000.0);
+            double meanLatency = requests > 0 ? latencyNanos / 1e6 / requests : 0;
+            return new ServerLoad(rate, latest.getActiveConnections(), meanLatency, stale, lastCollected);
+        }
+    }
+}
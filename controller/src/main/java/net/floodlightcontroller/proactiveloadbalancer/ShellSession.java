@@ -0,0 +1,197 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-lived shell process that runs commands one after another. The output of each command is framed by an end
+ * marker carrying its exit code, so connection setup and authentication are paid once per session instead of once per
+ * command. The session is restarted on the next command after it dies or a command times out.
+ */
+class ShellSession {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShellSession.class);
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int NO_MARKER = -1;
+
+    // Kills sessions whose command exceeds its timeout, which unblocks the reading thread
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shell-session-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Receives the output of a command line by line, from inclusive, to exclusive, without the newline. The buffer
+     * is reused once the call returns.
+     */
+    interface LineConsumer {
+        void accept(byte[] buffer, int from, int to);
+    }
+
+    private final List<String> shellCommand;
+    private final byte[] marker = ("__end_of_output_" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + "__")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private Process process;
+    private Writer stdin;
+    private InputStream stdout;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int markerStart;
+
+    /**
+     * @param shellCommand command starting a shell that reads commands from stdin, e.g. ssh -T host sh
+     */
+    ShellSession(List<String> shellCommand) {
+        this.shellCommand = shellCommand;
+    }
+
+    /**
+     * Runs the command in the session and returns its standard output.
+     *
+     * @throws IOException if the shell cannot be started, dies, or the command exits unsuccessfully
+     * @throws TimeoutException if the command does not finish in time, the session is restarted on the next call
+     */
+    String execute(String command, long timeoutMillis) throws IOException, TimeoutException {
+        StringBuilder output = new StringBuilder();
+        execute(command, timeoutMillis, (buffer, from, to) ->
+                output.append(new String(buffer, from, to - from, StandardCharsets.UTF_8)).append('\n'));
+        return output.toString();
+    }
+
+    /**
+     * Runs the command in the session and streams its standard output to the consumer.
+     *
+     * @throws IOException if the shell cannot be started, dies, or the command exits unsuccessfully
+     * @throws TimeoutException if the command does not finish in time, the session is restarted on the next call
+     */
+    synchronized void execute(String command, long timeoutMillis, LineConsumer output)
+            throws IOException, TimeoutException {
+        if (process == null || !process.isAlive()) {
+            start();
+        }
+
+        // Commands must not consume the rest of the session's input
+        stdin.write("{ " + command + "\n} < /dev/null\necho \"" + new String(marker, StandardCharsets.US_ASCII) + " $?\"\n");
+        stdin.flush();
+
+        Process p = process;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            p.destroyForcibly();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        int exitCode;
+        try {
+            exitCode = readUntilMarker(output);
+        } catch (IOException e) {
+            close();
+            if (timedOut.get()) {
+                throw new TimeoutException(MessageFormat.format(
+                        "Command timed out after {0} ms: {1}", timeoutMillis, command));
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+        if (exitCode != 0) {
+            throw new IOException(MessageFormat.format(
+                    "Command exited unsuccessfully. Return code: {0}", exitCode));
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return process != null && process.isAlive();
+    }
+
+    synchronized void close() {
+        if (process != null) {
+            process.destroyForcibly();
+            process = null;
+            stdin = null;
+            stdout = null;
+        }
+    }
+
+    private void start() throws IOException {
+        LOG.info("Starting shell session: {}", String.join(" ", shellCommand));
+        process = new ProcessBuilder(shellCommand)
+                .redirectError(new File("/dev/null"))
+                .start();
+        stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        stdout = process.getInputStream();
+    }
+
+    // Passes complete lines to the consumer until the marker line, returns the exit code on it
+    private int readUntilMarker(LineConsumer output) throws IOException {
+        int start = 0;
+        int end = 0;
+        int scan = 0;
+        while (true) {
+            for (; scan < end; scan++) {
+                if (buffer[scan] == '\n') {
+                    int exitCode = parseMarker(start, scan);
+                    if (exitCode != NO_MARKER) {
+                        // Output without a trailing newline ends up on the marker line
+                        if (markerStart > start) {
+                            output.accept(buffer, start, markerStart);
+                        }
+                        return exitCode;
+                    }
+                    output.accept(buffer, start, scan);
+                    start = scan + 1;
+                }
+            }
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                scan = end;
+                start = 0;
+            } else if (end == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = stdout.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                throw new IOException("Shell exited while running command");
+            }
+            end += read;
+        }
+    }
+
+    // Exit code if the line ends with "<marker> <exit code>", NO_MARKER otherwise
+    private int parseMarker(int from, int to) {
+        int i = to;
+        while (i > from && buffer[i - 1] >= '0' && buffer[i - 1] <= '9') {
+            i--;
+        }
+        if (i == to || i - 1 - marker.length < from || buffer[i - 1] != ' ') {
+            return NO_MARKER;
+        }
+        int start = i - 1 - marker.length;
+        for (int j = 0; j < marker.length; j++) {
+            if (buffer[start + j] != marker[j]) {
+                return NO_MARKER;
+            }
+        }
+        markerStart = start;
+        return Integer.parseInt(new String(buffer, i, to - i, StandardCharsets.US_ASCII));
+    }
+}
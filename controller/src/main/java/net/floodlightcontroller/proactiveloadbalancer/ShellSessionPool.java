@@ -0,0 +1,41 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+
+/**
+ * One shell session per endpoint, shared by all switches measured through that endpoint.
+ */
+class ShellSessionPool {
+
+    private final Function<String, List<String>> shellCommand;
+    private final ConcurrentMap<String, ShellSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param shellCommand command starting a shell on the given endpoint
+     */
+    ShellSessionPool(Function<String, List<String>> shellCommand) {
+        this.shellCommand = shellCommand;
+    }
+
+    static ShellSessionPool ssh() {
+        return new ShellSessionPool(endpoint -> asList("ssh", "-T", endpoint, "sh"));
+    }
+
+    static ShellSessionPool local() {
+        return new ShellSessionPool(endpoint -> asList("sh"));
+    }
+
+    ShellSession get(String endpoint) {
+        return sessions.computeIfAbsent(endpoint, e -> new ShellSession(shellCommand.apply(e)));
+    }
+
+    void close() {
+        sessions.values().forEach(ShellSession::close);
+        sessions.clear();
+    }
+}
@@ -0,0 +1,240 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static java.util.Collections.emptyMap;
+
+/**
+ * Binary encoding of snapshots for the {@link SnapshotJournal}. Prefixes are packed as an int address and a byte
+ * mask length. Timestamps and byte counters are zigzag varints holding the delta to the previous snapshot, so
+ * steady counters take a byte or two.
+ *
+ * <p>Deltas depend on every snapshot before, so a codec must see all records of a journal in order, whether
+ * encoding or decoding. Byte counters are kept only for the prefixes of the previous snapshot, a prefix that
+ * disappears and returns is encoded in full.
+ */
+class SnapshotCodec {
+
+    // Upper bounds of encoded sizes, for sizing the buffer
+    private static final int MAX_VARINT_SIZE = 10;
+    private static final int MAX_SWITCH_ENTRY_SIZE = Long.BYTES + MAX_VARINT_SIZE;
+    private static final int MAX_MEASUREMENT_SIZE = Integer.BYTES + 1 + MAX_VARINT_SIZE;
+
+    // Previous values for deltas
+    private long lastTimestamp;
+    private Map<Long, Long> lastServerBytes = new HashMap<>();
+    private Map<Long, Map<Long, Long>> lastClientBytes = new HashMap<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    /**
+     * @return encoded snapshot, valid until the next call
+     */
+    ByteBuffer encode(Snapshot snapshot) {
+        ensureCapacity(maxEncodedSize(snapshot));
+        ByteBuffer out = buffer;
+        out.clear();
+
+        writeSignedVarLong(out, snapshot.getTimestamp() - lastTimestamp);
+        lastTimestamp = snapshot.getTimestamp();
+        writeSwitchCounts(out, snapshot.getNumRules());
+        writeSwitchCounts(out, snapshot.getWriteQueueDepths());
+
+        lastServerBytes = writeMeasurements(out, snapshot.getServerMeasurements(), lastServerBytes);
+        writeVarLong(out, snapshot.getClientMeasurements().size());
+        Map<Long, Map<Long, Long>> clientBytes = new HashMap<>();
+        for (Entry<DatapathId, List<Measurement>> entry : snapshot.getClientMeasurements().entrySet()) {
+            long switchId = entry.getKey().getLong();
+            out.putLong(switchId);
+            clientBytes.put(switchId, writeMeasurements(out, entry.getValue(), lastClientBytes(switchId)));
+        }
+        lastClientBytes = clientBytes;
+
+        writeVarLong(out, snapshot.getStaleSwitches().size());
+        for (DatapathId switchId : snapshot.getStaleSwitches()) {
+            out.putLong(switchId.getLong());
+        }
+        writeVarLong(out, snapshot.getCollapsedPacketIns());
+        writeVarLong(out, snapshot.getDroppedPacketIns());
+        writeVarLong(out, snapshot.getBarrierBatches());
+        writeVarLong(out, snapshot.getSkippedCycles());
+        out.putDouble(snapshot.getBarrierBatchMeanLatency());
+        out.putDouble(snapshot.getBarrierBatchMaxLatency());
+
+        out.flip();
+        return out;
+    }
+
+    Snapshot decode(ByteBuffer in) {
+        Snapshot snapshot = new Snapshot();
+        lastTimestamp += readSignedVarLong(in);
+        snapshot.setTimestamp(lastTimestamp);
+        snapshot.setNumRules(readSwitchCounts(in));
+        snapshot.setWriteQueueDepths(readSwitchCounts(in));
+
+        Map<Long, Long> serverBytes = new HashMap<>();
+        snapshot.setServerMeasurements(readMeasurements(in, lastServerBytes, serverBytes));
+        lastServerBytes = serverBytes;
+        int switchCount = (int) readVarLong(in);
+        Map<DatapathId, List<Measurement>> clientMeasurements = new HashMap<>();
+        Map<Long, Map<Long, Long>> clientBytes = new HashMap<>();
+        for (int i = 0; i < switchCount; i++) {
+            long switchId = in.getLong();
+            Map<Long, Long> bytes = new HashMap<>();
+            clientMeasurements.put(DatapathId.of(switchId), readMeasurements(in, lastClientBytes(switchId), bytes));
+            clientBytes.put(switchId, bytes);
+        }
+        lastClientBytes = clientBytes;
+        snapshot.setClientMeasurements(clientMeasurements);
+
+        int staleCount = (int) readVarLong(in);
+        List<DatapathId> staleSwitches = new ArrayList<>(staleCount);
+        for (int i = 0; i < staleCount; i++) {
+            staleSwitches.add(DatapathId.of(in.getLong()));
+        }
+        snapshot.setStaleSwitches(staleSwitches);
+        snapshot.setCollapsedPacketIns(readVarLong(in));
+        snapshot.setDroppedPacketIns(readVarLong(in));
+        snapshot.setBarrierBatches(readVarLong(in));
+        snapshot.setSkippedCycles(readVarLong(in));
+        snapshot.setBarrierBatchMeanLatency(in.getDouble());
+        snapshot.setBarrierBatchMaxLatency(in.getDouble());
+        return snapshot;
+    }
+
+    // Switch maps
+    private static void writeSwitchCounts(ByteBuffer out, Map<DatapathId, Integer> counts) {
+        writeVarLong(out, counts.size());
+        for (Entry<DatapathId, Integer> entry : counts.entrySet()) {
+            out.putLong(entry.getKey().getLong());
+            writeSignedVarLong(out, entry.getValue());
+        }
+    }
+
+    private static Map<DatapathId, Integer> readSwitchCounts(ByteBuffer in) {
+        int size = (int) readVarLong(in);
+        Map<DatapathId, Integer> counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            DatapathId switchId = DatapathId.of(in.getLong());
+            counts.put(switchId, (int) readSignedVarLong(in));
+        }
+        return counts;
+    }
+
+    int getBaselineSize() {
+        int size = lastServerBytes.size();
+        for (Map<Long, Long> bytes : lastClientBytes.values()) {
+            size += bytes.size();
+        }
+        return size;
+    }
+
+    private Map<Long, Long> lastClientBytes(long switchId) {
+        return lastClientBytes.getOrDefault(switchId, emptyMap());
+    }
+
+    // Measurements, deltas against lastBytes. Returns the counters of this snapshot as the next baseline
+    private static Map<Long, Long> writeMeasurements(ByteBuffer out,
+            List<Measurement> measurements,
+            Map<Long, Long> lastBytes) {
+        writeVarLong(out, measurements.size());
+        Map<Long, Long> bytes = new HashMap<>();
+        for (Measurement measurement : measurements) {
+            IPv4AddressWithMask prefix = measurement.getPrefix();
+            int address = prefix.getValue().getInt();
+            int length = prefix.getMask().asCidrMaskLength();
+            out.putInt(address);
+            out.put((byte) length);
+            long key = prefixKey(address, length);
+            bytes.put(key, measurement.getBytes());
+            writeSignedVarLong(out, measurement.getBytes() - lastBytes.getOrDefault(key, 0L));
+        }
+        return bytes;
+    }
+
+    // Counters of this snapshot are put in nextBytes
+    private static List<Measurement> readMeasurements(ByteBuffer in,
+            Map<Long, Long> lastBytes,
+            Map<Long, Long> nextBytes) {
+        int size = (int) readVarLong(in);
+        List<Measurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int address = in.getInt();
+            int length = in.get();
+            long key = prefixKey(address, length);
+            long bytes = lastBytes.getOrDefault(key, 0L) + readSignedVarLong(in);
+            nextBytes.put(key, bytes);
+            measurements.add(new Measurement(IPv4AddressWithMask.of(IPv4Address.of(address),
+                    IPv4Address.ofCidrMaskLength(length)), bytes));
+        }
+        return measurements;
+    }
+
+    private static long prefixKey(int address, int length) {
+        return (address & 0xFFFFFFFFL) << 8 | length;
+    }
+
+    // Varints
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static void writeSignedVarLong(ByteBuffer out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Buffer
+    private static int maxEncodedSize(Snapshot snapshot) {
+        long size = 2 * MAX_VARINT_SIZE + 2 * Double.BYTES + 4 * MAX_VARINT_SIZE;
+        size += MAX_VARINT_SIZE + (long) snapshot.getNumRules().size() * MAX_SWITCH_ENTRY_SIZE;
+        size += MAX_VARINT_SIZE + (long) snapshot.getWriteQueueDepths().size() * MAX_SWITCH_ENTRY_SIZE;
+        size += MAX_VARINT_SIZE + (long) snapshot.getServerMeasurements().size() * MAX_MEASUREMENT_SIZE;
+        size += MAX_VARINT_SIZE;
+        for (List<Measurement> measurements : snapshot.getClientMeasurements().values()) {
+            size += Long.BYTES + MAX_VARINT_SIZE + (long) measurements.size() * MAX_MEASUREMENT_SIZE;
+        }
+        size += MAX_VARINT_SIZE + (long) snapshot.getStaleSwitches().size() * Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot too large to encode");
+        }
+        return (int) size;
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+    }
+}
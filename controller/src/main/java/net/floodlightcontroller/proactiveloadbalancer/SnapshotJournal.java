@@ -0,0 +1,112 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped journal of snapshots. The file starts with a magic number and version, followed by
+ * records of an int length and a {@link SnapshotCodec} encoded snapshot. A record's length is written after its body,
+ * so readers never see a half-written record.
+ *
+ * <p>Opening an existing journal replays it to restore the codec's deltas and appends after the last record.
+ * Use {@link SnapshotJournalTool} to turn a journal into the TSV of process_log.py.
+ */
+class SnapshotJournal implements Closeable {
+
+    static final int MAGIC = 0x504C424A; // "PLBJ"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final SnapshotCodec codec;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    private SnapshotJournal(FileChannel channel, SnapshotCodec codec, long position) {
+        this.channel = channel;
+        this.codec = codec;
+        this.position = position;
+    }
+
+    static SnapshotJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            SnapshotCodec codec = new SnapshotCodec();
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.write(header, 0);
+                return new SnapshotJournal(channel, codec, HEADER_SIZE);
+            }
+            // Replay to restore deltas, anything after the last complete record is overwritten
+            SnapshotJournalReader reader = new SnapshotJournalReader(channel, codec);
+            while (reader.read() != null) {
+                // Only the codec state matters
+            }
+            reader.close();
+            return new SnapshotJournal(channel, codec, reader.getPosition());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    synchronized void append(Snapshot snapshot) throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Snapshot journal closed");
+        }
+        ByteBuffer record = codec.encode(snapshot);
+        int length = record.remaining();
+        // Room for this record and the zero length after it
+        ensureMapped(2 * Integer.BYTES + length);
+        int offset = (int) (position - regionStart);
+        region.position(offset + Integer.BYTES);
+        region.put(record);
+        region.putInt(offset + Integer.BYTES + length, 0);
+        region.putInt(offset, length);
+        position += Integer.BYTES + length;
+    }
+
+    /**
+     * Flushes the journal and cuts the file after the last record.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            if (region != null) {
+                region.force();
+                region = null;
+            }
+            channel.truncate(position);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureMapped(int bytes) throws IOException {
+        if (region == null || position + bytes > regionStart + region.capacity()) {
+            if (region != null) {
+                region.force();
+            }
+            regionStart = position;
+            region = channel.map(MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, bytes));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+
+/**
+ * Reads the snapshots of a {@link SnapshotJournal} in order. The file is mapped region by region, so journals of any
+ * size are read without copying them to the heap. A record that was cut short, e.g. by a crash, ends the journal.
+ */
+class SnapshotJournalReader implements Closeable {
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final SnapshotCodec codec;
+    private final long size;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position = SnapshotJournal.HEADER_SIZE;
+
+    SnapshotJournalReader(FileChannel channel, SnapshotCodec codec) throws IOException {
+        this(channel, false, codec);
+    }
+
+    private SnapshotJournalReader(FileChannel channel, boolean ownsChannel, SnapshotCodec codec) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.codec = codec;
+        this.size = channel.size();
+        if (size < SnapshotJournal.HEADER_SIZE) {
+            throw new IOException("Not a snapshot journal, file too short");
+        }
+        ByteBuffer header = ByteBuffer.allocate(SnapshotJournal.HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != SnapshotJournal.MAGIC) {
+            throw new IOException("Not a snapshot journal, wrong magic number");
+        }
+        if (version != SnapshotJournal.VERSION) {
+            throw new IOException(MessageFormat.format("Unsupported snapshot journal version: {0}", version));
+        }
+    }
+
+    static SnapshotJournalReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SnapshotJournalReader(channel, true, new SnapshotCodec());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return next snapshot, null at the end of the journal
+     */
+    Snapshot read() throws IOException {
+        if (position + Integer.BYTES > size) {
+            return null;
+        }
+        ensureMapped(Integer.BYTES);
+        int length = region.getInt((int) (position - regionStart));
+        if (length <= 0 || position + Integer.BYTES + length > size) {
+            return null;
+        }
+        ensureMapped(Integer.BYTES + length);
+        ByteBuffer record = region.duplicate();
+        record.position((int) (position - regionStart + Integer.BYTES));
+        record.limit(record.position() + length);
+        position += Integer.BYTES + length;
+        return codec.decode(record);
+    }
+
+    /**
+     * @return offset after the last record read
+     */
+    long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private void ensureMapped(int bytes) throws IOException {
+        if (region == null || position + bytes > regionStart + region.capacity()) {
+            regionStart = position;
+            long regionSize = Math.min(size - position, Math.max(SnapshotJournal.REGION_SIZE, bytes));
+            region = channel.map(MapMode.READ_ONLY, regionStart, regionSize);
+        }
+    }
+}
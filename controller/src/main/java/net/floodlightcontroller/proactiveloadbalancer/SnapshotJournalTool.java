@@ -0,0 +1,151 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Turns a snapshot journal into the TSV of process_log.py: seconds since the first balanced snapshot, rules per
+ * switch, rate per server and load imbalance (max / avg - 1). Numbers are formatted like Python 2's str, so the
+ * output can be diffed against the script's.
+ *
+ * <p>Usage: {@code java -cp <classpath> net.floodlightcontroller.proactiveloadbalancer.SnapshotJournalTool <journal>}
+ */
+public class SnapshotJournalTool {
+
+    private static final MathContext PYTHON_STR_PRECISION = new MathContext(12, RoundingMode.HALF_EVEN);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SnapshotJournalTool <journal>");
+            System.exit(1);
+        }
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(Paths.get(args[0]));
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            writeTsv(reader, out);
+        }
+    }
+
+    static void writeTsv(SnapshotJournalReader reader, Writer out) throws IOException {
+        long previousTimestamp = 0;
+        Map<IPv4Address, Long> previousByteCounts = null;
+        Long firstTimestamp = null;
+
+        Snapshot snapshot;
+        while ((snapshot = reader.read()) != null) {
+            // Server byte counts by address, ordered like the script's ip2int sort
+            Map<IPv4Address, Long> byteCounts = new TreeMap<>((a, b) -> Integer.compareUnsigned(a.getInt(), b.getInt()));
+            for (Measurement measurement : snapshot.getServerMeasurements()) {
+                byteCounts.put(measurement.getPrefix().getValue(), measurement.getBytes());
+            }
+            if (byteCounts.isEmpty()) {
+                continue;
+            }
+            long interval = snapshot.getTimestamp() - previousTimestamp;
+            Map<IPv4Address, Double> rates = new HashMap<>();
+            for (Entry<IPv4Address, Long> entry : byteCounts.entrySet()) {
+                Long previous = previousByteCounts != null ? previousByteCounts.get(entry.getKey()) : null;
+                rates.put(entry.getKey(), previous == null || interval == 0
+                        ? 0.0
+                        : (entry.getValue() - previous) / (interval / 1000.0));
+            }
+            double loadImbalance = loadImbalance(rates.values());
+            previousTimestamp = snapshot.getTimestamp();
+            previousByteCounts = byteCounts;
+
+            // Drop leading snapshots until load is measured
+            boolean balanced = !Double.isNaN(loadImbalance) && loadImbalance != 0;
+            if (firstTimestamp == null && !balanced) {
+                continue;
+            }
+
+            Map<String, Integer> numRules = new TreeMap<>();
+            for (Entry<DatapathId, Integer> entry : snapshot.getNumRules().entrySet()) {
+                numRules.put(entry.getKey().toString(), entry.getValue());
+            }
+            List<String> row = new ArrayList<>();
+            if (firstTimestamp == null) {
+                firstTimestamp = snapshot.getTimestamp();
+                row.add("Timestamp");
+                numRules.keySet().forEach(dpid -> row.add("Rules: " + dpid));
+                byteCounts.keySet().forEach(ip -> row.add("Rate: " + ip));
+                row.add("Load Imbalance");
+                writeRow(out, row);
+                row.clear();
+            }
+            double seconds = new BigDecimal((snapshot.getTimestamp() - firstTimestamp) / 1000.0)
+                    .setScale(1, RoundingMode.HALF_UP)
+                    .doubleValue();
+            row.add(formatDouble(seconds));
+            numRules.values().forEach(rules -> row.add(rules.toString()));
+            byteCounts.keySet().forEach(ip -> row.add(formatDouble(rates.get(ip))));
+            row.add(balanced ? formatDouble(loadImbalance) : "nan");
+            writeRow(out, row);
+        }
+        out.flush();
+    }
+
+    // NaN if the average rate is 0
+    private static double loadImbalance(Iterable<Double> rates) {
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        int count = 0;
+        for (double rate : rates) {
+            max = Math.max(max, rate);
+            sum += rate;
+            count++;
+        }
+        double avg = sum / count;
+        return avg == 0 ? Double.NaN : max / avg - 1;
+    }
+
+    /**
+     * Formats like Python 2's str(float): 12 significant digits, exponent notation outside [1e-4, 1e12).
+     */
+    static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == 0) {
+            return "0.0";
+        }
+        BigDecimal rounded = new BigDecimal(value).round(PYTHON_STR_PRECISION).stripTrailingZeros();
+        int exponent = rounded.precision() - rounded.scale() - 1;
+        if (exponent < -4 || exponent >= PYTHON_STR_PRECISION.getPrecision()) {
+            String mantissa = rounded.movePointLeft(exponent).toPlainString();
+            return mantissa + (exponent < 0 ? "e-" : "e+") + (Math.abs(exponent) < 10 ? "0" : "") + Math.abs(exponent);
+        }
+        String plain = rounded.toPlainString();
+        return plain.indexOf('.') >= 0 ? plain : plain + ".0";
+    }
+
+    private static void writeRow(Writer out, List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                out.write('\t');
+            }
+            out.write(row.get(i));
+        }
+        out.write('\n');
+    }
+}
@@ -0,0 +1,123 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4Prefix;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * How prefixes split their traffic between their halves when they were last measured at a finer level. Splits seen
+ * at high traffic are kept while the prefix is cold or measured as a whole, until they have not been seen for a
+ * number of intervals.
+ *
+ * <p>Not thread-safe, owners serialize access.
+ */
+class SplitHistory {
+
+    // Weight of a new split observation
+    private static final double SPLIT_SMOOTHING = 0.5;
+    // Intervals a split is remembered without being observed again
+    private static final int SPLIT_RETENTION = 300;
+
+    // Prefix -> observed split between its halves
+    private final Map<IPv4AddressWithMask, Split> splits = new HashMap<>();
+    private long interval;
+
+    /**
+     * @return share of total weight of each prefix and all its ancestors up to the root, empty if there is no weight
+     */
+    static <T> Map<IPv4AddressWithMask, Double> aggregateShares(Collection<T> items,
+            Function<T, IPv4AddressWithMask> prefix,
+            ToDoubleFunction<T> weight,
+            int rootLength) {
+        double total = 0;
+        for (T item : items) {
+            total += weight.applyAsDouble(item);
+        }
+        Map<IPv4AddressWithMask, Double> shares = new HashMap<>();
+        if (total <= 0) {
+            return shares;
+        }
+        for (T item : items) {
+            double share = weight.applyAsDouble(item) / total;
+            // Ancestors with host bits cleared, so they key like the subprefixes of IPUtil
+            for (long ancestor = IPv4Prefix.of(prefix.apply(item));
+                    IPv4Prefix.length(ancestor) >= rootLength;
+                    ancestor = IPv4Prefix.parent(ancestor)) {
+                shares.merge(IPv4Prefix.toIPv4AddressWithMask(ancestor), share, Double::sum);
+                if (IPv4Prefix.length(ancestor) == 0) {
+                    break;
+                }
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Records how each prefix measured below its own level split between its halves in one interval.
+     *
+     * @param shares share of total weight of each measured prefix and its ancestors, see {@link #aggregateShares}
+     */
+    void update(Map<IPv4AddressWithMask, Double> shares) {
+        interval++;
+        for (Map.Entry<IPv4AddressWithMask, Double> entry : shares.entrySet()) {
+            IPv4AddressWithMask prefix = entry.getKey();
+            if (prefix.getMask().asCidrMaskLength() == 32 || entry.getValue() == 0) {
+                continue;
+            }
+            Double share0 = shares.get(IPUtil.subprefix0(prefix));
+            Double share1 = shares.get(IPUtil.subprefix1(prefix));
+            if (share0 == null && share1 == null) {
+                continue;
+            }
+            double share = entry.getValue();
+            double lowerShare = (share0 != null ? share0 : 0) / share;
+            Split split = splits.get(prefix);
+            if (split == null) {
+                splits.put(prefix, new Split(lowerShare, share, interval));
+            } else {
+                // Splits of little traffic say little, keep what was seen when the prefix was hot
+                double weight = SPLIT_SMOOTHING * Math.min(1, share / split.share);
+                split.lowerShare += weight * (lowerShare - split.lowerShare);
+                split.share = Math.max(share, split.share);
+                split.updated = interval;
+            }
+        }
+        if (interval % SPLIT_RETENTION == 0) {
+            Iterator<Split> iterator = splits.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().updated <= interval - SPLIT_RETENTION) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return share of the prefix's traffic in its lower half, null if it was never measured below its own level
+     */
+    Double getLowerShare(IPv4AddressWithMask prefix) {
+        Split split = splits.get(prefix);
+        return split != null ? split.lowerShare : null;
+    }
+
+    private static final class Split {
+        // Share of the prefix's traffic in its lower half
+        private double lowerShare;
+        // Highest share of all traffic the split was observed at
+        private double share;
+        private long updated;
+
+        private Split(double lowerShare, double share, long updated) {
+            this.lowerShare = lowerShare;
+            this.share = share;
+            this.updated = updated;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.MeasurementCommand;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads flow counters by running the configured measurement command (usually ovs-ofctl dump-flows) in a persistent
+ * shell session per endpoint. Switches sharing an endpoint are measured one after another over the same session.
+ */
+class SshMeasurementSource implements MeasurementSource {
+
+    private final Map<DatapathId, MeasurementCommand> commands;
+    private final ShellSessionPool sessions;
+    private final long commandTimeoutMillis;
+    private final ExecutorService executor;
+    private final ConcurrentMap<DatapathId, FlowColumns> columns = new ConcurrentHashMap<>();
+
+    SshMeasurementSource(Map<DatapathId, MeasurementCommand> commands,
+            ShellSessionPool sessions,
+            long commandTimeoutMillis) {
+        this.commands = commands;
+        this.sessions = sessions;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ssh-measurement");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Flow>> getFlows(DatapathId switchId) {
+        MeasurementCommand command = commands.get(switchId);
+        if (command == null) {
+            CompletableFuture<List<Flow>> result = new CompletableFuture<>();
+            result.completeExceptionally(new IllegalArgumentException(MessageFormat.format(
+                    "No measurement command for switch {0}", switchId)));
+            return result;
+        }
+        return CompletableFuture.supplyAsync(() -> run(switchId, command), executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        sessions.close();
+    }
+
+    private List<Flow> run(DatapathId switchId, MeasurementCommand command) {
+        ShellSession session = sessions.get(command.getEndpoint());
+        FlowColumns flows = columns.computeIfAbsent(switchId, id -> new FlowColumns());
+        FlowDumpParser parser = new FlowDumpParser();
+        // Columns are reused for every measurement of the switch
+        synchronized (flows) {
+            flows.clear();
+            try {
+                session.execute(command.getCommand(), commandTimeoutMillis,
+                        (buffer, from, to) -> parser.parseLine(buffer, from, to, flows));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (TimeoutException e) {
+                throw new CompletionException(e);
+            }
+            return flows.toFlows();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4PrefixIndex;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps prefixes on the server the previous assignment sent them to, and only moves traffic while the imbalance
+ * (max load per weight / mean - 1) is above a tolerance. Every transition is routed through the controller, so
+ * moving little traffic in few prefixes keeps packet-ins down.
+ *
+ * <p>Each move takes a prefix off the most loaded server and onto the least loaded one: the smallest prefix that
+ * brings the source within the target without pushing the destination over it, else the largest one that fits, else
+ * whichever lowers the maximum most. A prefix moves at most once per assignment. Without a previous assignment,
+ * prefixes are assigned optimally.
+ */
+class StablePrefixAssigner implements PrefixAssigner {
+
+    private final PrefixAssigner initialAssigner = new OptimalPrefixAssigner();
+    private final double tolerance;
+
+    StablePrefixAssigner(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Tolerance must not be negative: {0}", tolerance));
+        }
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range, List<WeightedPrefix> measurements, List<Server> servers) {
+        return initialAssigner.assignPrefixes(range, measurements, servers);
+    }
+
+    @Override
+    public List<LoadBalancingFlow> assignPrefixes(IPv4AddressWithMask range,
+            List<WeightedPrefix> measurements,
+            List<Server> servers,
+            List<LoadBalancingFlow> flowsOld) {
+        if (flowsOld == null || servers.size() <= 1) {
+            return assignPrefixes(range, measurements, servers);
+        }
+
+        int n = measurements.size();
+        double[] weights = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = Math.max(0, measurements.get(i).getWeight());
+            total += weights[i];
+        }
+        if (total == 0) {
+            // No traffic, balance prefixes
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1;
+            }
+            total = n;
+        }
+
+        int m = servers.size();
+        double[] capacities = new double[m];
+        double totalCapacity = 0;
+        Map<IPv4Address, Integer> serverIndices = new HashMap<>();
+        for (int j = 0; j < m; j++) {
+            capacities[j] = Math.max(0, servers.get(j).getWeight());
+            totalCapacity += capacities[j];
+            serverIndices.put(servers.get(j).getDip(), j);
+        }
+        if (totalCapacity == 0) {
+            for (int j = 0; j < m; j++) {
+                capacities[j] = 1;
+            }
+            totalCapacity = m;
+        }
+
+        // Keep prefixes where their first address went before
+        Map<IPv4AddressWithMask, IPv4Address> dipsOld = new HashMap<>();
+        for (LoadBalancingFlow flowOld : flowsOld) {
+            if (flowOld.getDip() != null) {
+                dipsOld.put(flowOld.getPrefix(), flowOld.getDip());
+            }
+        }
+        IPv4PrefixIndex<IPv4Address> indexOld = IPv4PrefixIndex.of(dipsOld);
+        int[] assigned = new int[n];
+        double[] loads = new double[m];
+        List<Integer> unassigned = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            IPv4Address dipOld = indexOld.get(measurements.get(i).getPrefix().getValue());
+            Integer server = dipOld != null ? serverIndices.get(dipOld) : null;
+            if (server != null && capacities[server] > 0) {
+                assigned[i] = server;
+                loads[server] += weights[i];
+            } else {
+                unassigned.add(i);
+            }
+        }
+
+        // New prefixes and those of removed servers go to the least loaded server, heaviest first
+        unassigned.sort((i1, i2) -> Double.compare(weights[i2], weights[i1]));
+        for (int i : unassigned) {
+            int destination = -1;
+            for (int j = 0; j < m; j++) {
+                if (capacities[j] > 0 && (destination < 0
+                        || (loads[j] + weights[i]) / capacities[j] < (loads[destination] + weights[i]) / capacities[destination])) {
+                    destination = j;
+                }
+            }
+            assigned[i] = destination;
+            loads[destination] += weights[i];
+        }
+
+        // Move prefixes until balanced within the tolerance
+        double target = (1 + tolerance) * total / totalCapacity;
+        boolean[] moved = new boolean[n];
+        for (int moves = 0; moves < n; moves++) {
+            int source = -1;
+            int destination = -1;
+            for (int j = 0; j < m; j++) {
+                if (source < 0 || ratio(loads[j], capacities[j]) > ratio(loads[source], capacities[source])) {
+                    source = j;
+                }
+                if (capacities[j] > 0 && (destination < 0 || loads[j] / capacities[j] < loads[destination] / capacities[destination])) {
+                    destination = j;
+                }
+            }
+            double max = ratio(loads[source], capacities[source]);
+            if (max <= target * (1 + 1e-9) || source == destination) {
+                break;
+            }
+
+            double excess = loads[source] - target * capacities[source];
+            double room = target * capacities[destination] - loads[destination];
+            int best = -1;
+            double bestMax = max;
+            for (int i = 0; i < n; i++) {
+                if (assigned[i] != source || moved[i] || weights[i] == 0) {
+                    continue;
+                }
+                double maxAfter = Math.max(ratio(loads[source] - weights[i], capacities[source]),
+                        (loads[destination] + weights[i]) / capacities[destination]);
+                if (maxAfter >= max) {
+                    continue;
+                }
+                if (best < 0 || isBetterMove(weights[i], maxAfter, weights[best], bestMax, excess, room)) {
+                    best = i;
+                    bestMax = maxAfter;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            assigned[best] = destination;
+            moved[best] = true;
+            loads[source] -= weights[best];
+            loads[destination] += weights[best];
+        }
+
+        List<LoadBalancingFlow> flows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            flows.add(new LoadBalancingFlow(measurements.get(i).getPrefix(), servers.get(assigned[i]).getDip()));
+        }
+        return flows;
+    }
+
+    // Helpers
+    private static boolean isBetterMove(double weight, double maxAfter, double bestWeight, double bestMaxAfter,
+            double excess, double room) {
+        boolean fits = weight <= room;
+        boolean bestFits = bestWeight <= room;
+        if (fits != bestFits) {
+            return fits;
+        } else if (!fits) {
+            return maxAfter < bestMaxAfter;
+        }
+        boolean covers = weight >= excess;
+        boolean bestCovers = bestWeight >= excess;
+        if (covers != bestCovers) {
+            return covers;
+        }
+        // Least traffic if it covers the excess, else as much as fits
+        return covers ? weight < bestWeight : weight > bestWeight;
+    }
+
+    private static double ratio(double load, double capacity) {
+        if (capacity > 0) {
+            return load / capacity;
+        }
+        return load > 0 ? Double.POSITIVE_INFINITY : 0;
+    }
+}
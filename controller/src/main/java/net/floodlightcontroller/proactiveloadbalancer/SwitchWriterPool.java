@@ -0,0 +1,254 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFRequest;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * One bounded outbound message queue and one writer thread per switch.
+ * Messages for the same switch are written in the order they were enqueued. Requests are written in that order too,
+ * with {@link IOFSwitch#writeRequest}, so their replies complete futures rather than reaching message listeners.
+ */
+class SwitchWriterPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SwitchWriterPool.class);
+
+    private final IOFSwitchService switchService;
+    private final int capacity;
+    private final long offerTimeoutMillis;
+
+    private final ConcurrentMap<DatapathId, Writer> writers = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
+
+    SwitchWriterPool(IOFSwitchService switchService, int capacity, long offerTimeoutMillis) {
+        this.switchService = switchService;
+        this.capacity = capacity;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    /**
+     * Enqueues messages for a switch as one batch. Blocks for up to the offer timeout while the queue is full.
+     * @return false if the batch was rejected because the queue stayed full or the pool is shut down
+     */
+    boolean write(DatapathId switchId, Collection<? extends OFMessage> messages) {
+        return enqueue(switchId, messages);
+    }
+
+    /**
+     * Enqueues a request for a switch behind the messages queued before it, blocking like {@link #write}.
+     * @return future of the reply, failed if the request was rejected, the switch is not active or the write threw,
+     * cancelled if the pool shuts down before the request is written
+     */
+    <R extends OFMessage> ListenableFuture<R> writeRequest(DatapathId switchId, OFRequest<R> request) {
+        Request<R> queued = new Request<>(request);
+        if (!enqueue(switchId, singletonList(queued))) {
+            return Futures.immediateFailedFuture(new RejectedExecutionException(
+                    "Write queue for switch " + switchId + " rejected request"));
+        }
+        return queued.reply;
+    }
+
+    int getQueueDepth(DatapathId switchId) {
+        Writer writer = writers.get(switchId);
+        return writer != null ? writer.depth : 0;
+    }
+
+    Map<DatapathId, Integer> getQueueDepths() {
+        Map<DatapathId, Integer> depths = new HashMap<>();
+        writers.forEach((switchId, writer) -> depths.put(switchId, writer.depth));
+        return depths;
+    }
+
+    /**
+     * Stops all writers. Messages still queued are discarded.
+     */
+    void shutdown() {
+        List<Writer> stopped;
+        synchronized (writers) {
+            shutdown = true;
+            stopped = new ArrayList<>(writers.values());
+            writers.clear();
+        }
+        stopped.forEach(Thread::interrupt);
+        for (Writer writer : stopped) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private boolean enqueue(DatapathId switchId, Collection<?> items) {
+        if (shutdown) {
+            return false;
+        }
+        Writer writer = writers.get(switchId);
+        if (writer == null) {
+            // Starting a writer is guarded like shutdown, so none is started after shutdown drained the pool
+            synchronized (writers) {
+                if (shutdown) {
+                    return false;
+                }
+                writer = writers.computeIfAbsent(switchId, this::startWriter);
+            }
+        }
+        try {
+            if (!writer.offer(items, offerTimeoutMillis)) {
+                LOG.warn("Write queue for switch {} full, dropped {} messages", switchId, items.size());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Writer startWriter(DatapathId switchId) {
+        Writer writer = new Writer(switchId);
+        writer.start();
+        return writer;
+    }
+
+    private class Writer extends Thread {
+        private final DatapathId switchId;
+        // Messages and requests
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private volatile int depth = 0;
+
+        private Writer(DatapathId switchId) {
+            super("SwitchWriter-" + switchId);
+            this.switchId = switchId;
+            setDaemon(true);
+        }
+
+        private boolean offer(Collection<?> messages, long timeoutMillis) throws InterruptedException {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            lock.lockInterruptibly();
+            try {
+                // Oversized batches are only accepted into an empty queue
+                while (!queue.isEmpty() && queue.size() + messages.size() > capacity) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                queue.addAll(messages);
+                depth = queue.size();
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<Object> takeAll() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (queue.isEmpty()) {
+                    notEmpty.await();
+                }
+                List<Object> messages = new ArrayList<>(queue);
+                queue.clear();
+                depth = 0;
+                notFull.signalAll();
+                return messages;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Requests still queued are cancelled, so nobody waits for their reply
+        private void discard() {
+            lock.lock();
+            try {
+                for (Object message : queue) {
+                    if (message instanceof Request) {
+                        ((Request<?>) message).reply.cancel(false);
+                    }
+                }
+                queue.clear();
+                depth = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                List<Object> messages;
+                try {
+                    messages = takeAll();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                IOFSwitch iofSwitch = switchService.getActiveSwitch(switchId);
+                if (iofSwitch == null) {
+                    LOG.warn("Switch {} not active, dropped {} messages", switchId, messages.size());
+                    for (Object message : messages) {
+                        if (message instanceof Request) {
+                            ((Request<?>) message).reply.setException(new IllegalStateException(
+                                    "Switch " + switchId + " not active"));
+                        }
+                    }
+                    continue;
+                }
+                for (Object message : messages) {
+                    try {
+                        if (message instanceof Request) {
+                            ((Request<?>) message).writeTo(iofSwitch);
+                        } else {
+                            iofSwitch.write((OFMessage) message);
+                        }
+                    } catch (RuntimeException e) {
+                        // Keep the writer alive for subsequent messages
+                        LOG.warn("Unable to write message to switch {}", switchId, e);
+                        if (message instanceof Request) {
+                            ((Request<?>) message).reply.setException(e);
+                        }
+                    }
+                }
+            }
+            discard();
+        }
+    }
+
+    private static final class Request<R extends OFMessage> {
+        private final OFRequest<R> request;
+        private final SettableFuture<R> reply = SettableFuture.create();
+
+        private Request(OFRequest<R> request) {
+            this.request = request;
+        }
+
+        private void writeTo(IOFSwitch iofSwitch) {
+            reply.setFuture(iofSwitch.writeRequest(request));
+        }
+    }
+}
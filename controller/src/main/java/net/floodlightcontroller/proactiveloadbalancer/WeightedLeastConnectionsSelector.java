@@ -0,0 +1,106 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+/**
+ * Picks the server with the fewest connections per unit of weight.
+ * Servers are kept in an indexed binary min-heap, so acquire and release are O(log n).
+ */
+class WeightedLeastConnectionsSelector {
+
+    private final double[] weights;
+    private final int[] connections;
+    // Heap position -> server index
+    private final int[] heap;
+    // Server index -> heap position
+    private final int[] positions;
+
+    WeightedLeastConnectionsSelector(double[] weights) {
+        int size = weights.length;
+        this.weights = weights.clone();
+        this.connections = new int[size];
+        this.heap = new int[size];
+        this.positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            positions[i] = i;
+        }
+        // Heapify, servers without weight sort last
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Allocates a connection to the least loaded server.
+     * @return index of that server, or -1 if there are no servers
+     */
+    synchronized int acquire() {
+        if (heap.length == 0) {
+            return -1;
+        }
+        int server = heap[0];
+        connections[server]++;
+        siftDown(0);
+        return server;
+    }
+
+    /**
+     * Releases a connection previously allocated to the given server.
+     */
+    synchronized void release(int server) {
+        if (connections[server] > 0) {
+            connections[server]--;
+            siftUp(positions[server]);
+        }
+    }
+
+    synchronized int getConnections(int server) {
+        return connections[server];
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!less(heap[position], heap[parent])) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int size = heap.length;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], heap[position])) {
+                break;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int server = heap[i];
+        heap[i] = heap[j];
+        heap[j] = server;
+        positions[heap[i]] = i;
+        positions[heap[j]] = j;
+    }
+
+    // Lower load first, ties broken by server index
+    private boolean less(int a, int b) {
+        int result = Double.compare(load(a), load(b));
+        return result < 0 || (result == 0 && a < b);
+    }
+
+    private double load(int server) {
+        return weights[server] > 0 ? connections[server] / weights[server] : Double.POSITIVE_INFINITY;
+    }
+}
@@ -68,6 +68,67 @@ public class Config {
     @JsonProperty
     private String measurementLogPath;
 
+    // Defaults to ssh if measurement commands are given, otherwise openflow
+    @JsonProperty
+    private MeasurementSourceType measurementSource;
+
+    // Milliseconds
+    @JsonProperty
+    private long barrierBatchWindow;
+
+    // Milliseconds, 1 second if not set
+    @JsonProperty
+    private long snapshotInterval;
+
+    // Milliseconds, 90% of the snapshot interval if not set
+    @JsonProperty
+    private long measurementTimeout;
+
+    // Milliseconds, overriding measurementTimeout for specific switches
+    @JsonProperty
+    @JsonSerialize(keyUsing = StdKeySerializer.class)
+    @JsonDeserialize(keyUsing = DatapathIdKeyDeserializer.class)
+    private Map<DatapathId, Long> measurementTimeouts;
+
+    // Threshold if not set
+    @JsonProperty
+    private MeasurementRefinement measurementRefinement;
+
+    // Measurement prefixes per switch for hhh refinement, the most threshold refinement used in the last 60
+    // snapshots if not set
+    @JsonProperty
+    private int measurementRuleBudget;
+
+    // Counters per client traffic sketch, prefix based strategies use the last snapshot's measurements if not set
+    @JsonProperty
+    private int clientSketchCapacity;
+
+    // Forwarding flow counters if not set
+    @JsonProperty
+    private ServerLoadSourceType serverLoadSource;
+
+    // Port of the servers' metrics endpoint, 8080 if not set
+    @JsonProperty
+    private int serverMetricsPort;
+
+    // Per prefix based strategy range, greedy if not set
+    @JsonProperty
+    private Map<IPv4AddressRange, PrefixAssignment> prefixAssignments;
+
+    // Imbalance (max load per weight / mean - 1) the stable prefix assignment accepts rather than moving traffic,
+    // 0.1 if not set
+    @JsonProperty
+    private double prefixImbalanceTolerance;
+
+    // Load balancing rules per switch that splitting prefixes heavier than a server's share may use, no splitting if
+    // not set
+    @JsonProperty
+    private int loadBalancingRuleBudget;
+
+    // Binary snapshot journal, snapshots are logged as JSON if not set
+    @JsonProperty
+    private String snapshotJournalPath;
+
     public IPv4Address getVip() {
         return vip;
     }
@@ -177,6 +238,140 @@ public class Config {
         return this;
     }
 
+    public MeasurementSourceType getMeasurementSource() {
+        if (measurementSource == null) {
+            return measurementCommands != null ? MeasurementSourceType.ssh : MeasurementSourceType.openflow;
+        }
+        return measurementSource;
+    }
+
+    public Config setMeasurementSource(MeasurementSourceType measurementSource) {
+        this.measurementSource = measurementSource;
+        return this;
+    }
+
+    public long getBarrierBatchWindow() {
+        return barrierBatchWindow;
+    }
+
+    public Config setBarrierBatchWindow(long barrierBatchWindow) {
+        this.barrierBatchWindow = barrierBatchWindow;
+        return this;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public Config setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+        return this;
+    }
+
+    public long getMeasurementTimeout() {
+        return measurementTimeout;
+    }
+
+    public Config setMeasurementTimeout(long measurementTimeout) {
+        this.measurementTimeout = measurementTimeout;
+        return this;
+    }
+
+    public Map<DatapathId, Long> getMeasurementTimeouts() {
+        return measurementTimeouts;
+    }
+
+    public Config setMeasurementTimeouts(Map<DatapathId, Long> measurementTimeouts) {
+        this.measurementTimeouts = measurementTimeouts;
+        return this;
+    }
+
+    public MeasurementRefinement getMeasurementRefinement() {
+        return measurementRefinement != null ? measurementRefinement : MeasurementRefinement.threshold;
+    }
+
+    public Config setMeasurementRefinement(MeasurementRefinement measurementRefinement) {
+        this.measurementRefinement = measurementRefinement;
+        return this;
+    }
+
+    public int getMeasurementRuleBudget() {
+        return measurementRuleBudget;
+    }
+
+    public Config setMeasurementRuleBudget(int measurementRuleBudget) {
+        this.measurementRuleBudget = measurementRuleBudget;
+        return this;
+    }
+
+    public int getClientSketchCapacity() {
+        return clientSketchCapacity;
+    }
+
+    public Config setClientSketchCapacity(int clientSketchCapacity) {
+        this.clientSketchCapacity = clientSketchCapacity;
+        return this;
+    }
+
+    public ServerLoadSourceType getServerLoadSource() {
+        return serverLoadSource != null ? serverLoadSource : ServerLoadSourceType.flows;
+    }
+
+    public Config setServerLoadSource(ServerLoadSourceType serverLoadSource) {
+        this.serverLoadSource = serverLoadSource;
+        return this;
+    }
+
+    public int getServerMetricsPort() {
+        return serverMetricsPort;
+    }
+
+    public Config setServerMetricsPort(int serverMetricsPort) {
+        this.serverMetricsPort = serverMetricsPort;
+        return this;
+    }
+
+    public Map<IPv4AddressRange, PrefixAssignment> getPrefixAssignments() {
+        return prefixAssignments;
+    }
+
+    public Config setPrefixAssignments(Map<IPv4AddressRange, PrefixAssignment> prefixAssignments) {
+        this.prefixAssignments = prefixAssignments;
+        return this;
+    }
+
+    public PrefixAssignment getPrefixAssignment(IPv4AddressRange range) {
+        PrefixAssignment prefixAssignment = prefixAssignments != null ? prefixAssignments.get(range) : null;
+        return prefixAssignment != null ? prefixAssignment : PrefixAssignment.greedy;
+    }
+
+    public double getPrefixImbalanceTolerance() {
+        return prefixImbalanceTolerance > 0 ? prefixImbalanceTolerance : 0.1;
+    }
+
+    public Config setPrefixImbalanceTolerance(double prefixImbalanceTolerance) {
+        this.prefixImbalanceTolerance = prefixImbalanceTolerance;
+        return this;
+    }
+
+    public int getLoadBalancingRuleBudget() {
+        return loadBalancingRuleBudget;
+    }
+
+    public Config setLoadBalancingRuleBudget(int loadBalancingRuleBudget) {
+        this.loadBalancingRuleBudget = loadBalancingRuleBudget;
+        return this;
+    }
+
+    public String getSnapshotJournalPath() {
+        return snapshotJournalPath;
+    }
+
+    public Config setSnapshotJournalPath(String snapshotJournalPath) {
+        this.snapshotJournalPath = snapshotJournalPath;
+        return this;
+    }
+
     public long getServerMeasurementInterval() {
         return serverMeasurementInterval;
     }
@@ -212,7 +407,15 @@ public class Config {
         Config config = (Config) o;
         return loadBalancingInterval == config.loadBalancingInterval &&
                 serverMeasurementInterval == config.serverMeasurementInterval &&
+                barrierBatchWindow == config.barrierBatchWindow &&
+                snapshotInterval == config.snapshotInterval &&
+                measurementTimeout == config.measurementTimeout &&
+                measurementRuleBudget == config.measurementRuleBudget &&
+                clientSketchCapacity == config.clientSketchCapacity &&
+                loadBalancingRuleBudget == config.loadBalancingRuleBudget &&
+                serverMetricsPort == config.serverMetricsPort &&
                 Double.compare(config.measurementThreshold, measurementThreshold) == 0 &&
+                Double.compare(config.prefixImbalanceTolerance, prefixImbalanceTolerance) == 0 &&
                 ignoreMeasurements == config.ignoreMeasurements &&
                 Objects.equals(vip, config.vip) &&
                 Objects.equals(dVipRange, config.dVipRange) &&
@@ -221,7 +424,13 @@ public class Config {
                 Objects.equals(loadBalancers, config.loadBalancers) &&
                 Objects.equals(weights, config.weights) &&
                 Objects.equals(measurementCommands, config.measurementCommands) &&
-                Objects.equals(measurementLogPath, config.measurementLogPath);
+                Objects.equals(measurementLogPath, config.measurementLogPath) &&
+                measurementSource == config.measurementSource &&
+                Objects.equals(measurementTimeouts, config.measurementTimeouts) &&
+                measurementRefinement == config.measurementRefinement &&
+                serverLoadSource == config.serverLoadSource &&
+                Objects.equals(prefixAssignments, config.prefixAssignments) &&
+                Objects.equals(snapshotJournalPath, config.snapshotJournalPath);
     }
 
     @Override
@@ -237,6 +446,20 @@ public class Config {
                 ignoreMeasurements,
                 weights,
                 measurementCommands,
-                measurementLogPath);
+                measurementLogPath,
+                measurementSource,
+                barrierBatchWindow,
+                snapshotInterval,
+                measurementTimeout,
+                measurementTimeouts,
+                measurementRefinement,
+                measurementRuleBudget,
+                clientSketchCapacity,
+                serverLoadSource,
+                serverMetricsPort,
+                prefixAssignments,
+                prefixImbalanceTolerance,
+                loadBalancingRuleBudget,
+                snapshotJournalPath);
     }
 }
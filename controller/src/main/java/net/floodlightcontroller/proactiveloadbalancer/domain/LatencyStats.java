@@ -0,0 +1,81 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Latencies in microseconds
+public class LatencyStats {
+
+    @JsonProperty
+    private final long count;
+
+    @JsonProperty
+    private final double ratePerSecond;
+
+    @JsonProperty
+    private final double mean;
+
+    @JsonProperty
+    private final double p50;
+
+    @JsonProperty
+    private final double p90;
+
+    @JsonProperty
+    private final double p99;
+
+    @JsonProperty
+    private final double p999;
+
+    @JsonProperty
+    private final double max;
+
+    public LatencyStats(long count,
+            double ratePerSecond,
+            double mean,
+            double p50,
+            double p90,
+            double p99,
+            double p999,
+            double max) {
+        this.count = count;
+        this.ratePerSecond = ratePerSecond;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -33,6 +33,20 @@ public class Measurement {
         return bytes;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Measurement that = (Measurement) o;
+        return bytes == that.bytes &&
+                Objects.equals(prefix, that.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(prefix, bytes);
+    }
+
     @Override
     public String toString() {
         return "{" + prefix + ": " + bytes + "B}";
@@ -0,0 +1,5 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+public enum MeasurementRefinement {
+    threshold, hhh
+}
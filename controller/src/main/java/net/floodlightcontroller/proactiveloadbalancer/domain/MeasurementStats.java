@@ -0,0 +1,52 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Collection of one switch's counters
+public class MeasurementStats {
+
+    // Successful collections, in microseconds
+    @JsonProperty
+    private final LatencyStats latency;
+
+    @JsonProperty
+    private final long timeouts;
+
+    @JsonProperty
+    private final long failures;
+
+    // Whether the last cycle reused older values
+    @JsonProperty
+    private final boolean stale;
+
+    @JsonProperty
+    private final long lastCollected;
+
+    public MeasurementStats(LatencyStats latency, long timeouts, long failures, boolean stale, long lastCollected) {
+        this.latency = latency;
+        this.timeouts = timeouts;
+        this.failures = failures;
+        this.stale = stale;
+        this.lastCollected = lastCollected;
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public long getLastCollected() {
+        return lastCollected;
+    }
+}
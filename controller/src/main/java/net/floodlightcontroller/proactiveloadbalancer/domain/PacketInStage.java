@@ -0,0 +1,5 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+public enum PacketInStage {
+    range_lookup, handle_packet_in, build_physical_flows, write
+}
@@ -0,0 +1,5 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+public enum PrefixAssignment {
+    greedy, optimal, stable
+}
@@ -0,0 +1,42 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Rates in bytes per second
+public class RateStats {
+
+    @JsonProperty
+    private final double rate;
+
+    @JsonProperty
+    private final double ewmaRate;
+
+    @JsonProperty
+    private final double p50;
+
+    @JsonProperty
+    private final double p99;
+
+    public RateStats(double rate, double ewmaRate, double p50, double p99) {
+        this.rate = rate;
+        this.ewmaRate = ewmaRate;
+        this.p50 = p50;
+        this.p99 = p99;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public double getEwmaRate() {
+        return ewmaRate;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+}
@@ -0,0 +1,53 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Load of one server between its last two reports
+public class ServerLoad {
+
+    // Bytes per second
+    @JsonProperty
+    private final double rate;
+
+    @JsonProperty
+    private final int activeConnections;
+
+    // Milliseconds, 0 if no request completed
+    @JsonProperty
+    private final double meanLatency;
+
+    // Whether the last poll failed and older values are reported
+    @JsonProperty
+    private final boolean stale;
+
+    @JsonProperty
+    private final long lastCollected;
+
+    public ServerLoad(double rate, int activeConnections, double meanLatency, boolean stale, long lastCollected) {
+        this.rate = rate;
+        this.activeConnections = activeConnections;
+        this.meanLatency = meanLatency;
+        this.stale = stale;
+        this.lastCollected = lastCollected;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public double getMeanLatency() {
+        return meanLatency;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public long getLastCollected() {
+        return lastCollected;
+    }
+}
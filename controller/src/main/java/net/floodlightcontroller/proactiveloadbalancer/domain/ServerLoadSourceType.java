@@ -0,0 +1,5 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+public enum ServerLoadSourceType {
+    flows, servers
+}
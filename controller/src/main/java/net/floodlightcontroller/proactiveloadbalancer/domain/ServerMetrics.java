@@ -0,0 +1,58 @@
+package net.floodlightcontroller.proactiveloadbalancer.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Counters reported by a server's /metrics endpoint, running since the server started
+public class ServerMetrics {
+
+    @JsonProperty
+    private long bytesServed;
+
+    // Requests being served
+    @JsonProperty
+    private int activeConnections;
+
+    // Completed requests
+    @JsonProperty
+    private long requests;
+
+    // Sum over completed requests
+    @JsonProperty
+    private long requestLatencyNanos;
+
+    public long getBytesServed() {
+        return bytesServed;
+    }
+
+    public ServerMetrics setBytesServed(long bytesServed) {
+        this.bytesServed = bytesServed;
+        return this;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public ServerMetrics setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+        return this;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public ServerMetrics setRequests(long requests) {
+        this.requests = requests;
+        return this;
+    }
+
+    public long getRequestLatencyNanos() {
+        return requestLatencyNanos;
+    }
+
+    public ServerMetrics setRequestLatencyNanos(long requestLatencyNanos) {
+        this.requestLatencyNanos = requestLatencyNanos;
+        return this;
+    }
+}
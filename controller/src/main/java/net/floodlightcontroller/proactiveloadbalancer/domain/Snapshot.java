@@ -5,6 +5,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.StdKeySerializer;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import org.projectfloodlight.openflow.types.DatapathId;
 
 import java.util.List;
@@ -15,6 +16,8 @@ import static java.util.Collections.emptyMap;
 
 public class Snapshot {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     @JsonProperty
     private long timestamp;
 
@@ -22,6 +25,7 @@ public class Snapshot {
     @JsonSerialize(keyUsing = StdKeySerializer.class)
     private Map<DatapathId, Integer> numRules;
 
+    // Byte counters, running since each prefix's flow was installed
     @JsonProperty
     @JsonSerialize(keyUsing = StdKeySerializer.class)
     private Map<DatapathId, List<Measurement>> clientMeasurements;
@@ -29,18 +33,63 @@ public class Snapshot {
     @JsonProperty
     private List<Measurement> serverMeasurements;
 
+    @JsonProperty
+    @JsonSerialize(keyUsing = StdKeySerializer.class)
+    private Map<DatapathId, Integer> writeQueueDepths;
+
+    @JsonProperty
+    private long collapsedPacketIns;
+
+    @JsonProperty
+    private long droppedPacketIns;
+
+    @JsonProperty
+    private long barrierBatches;
+
+    // Milliseconds
+    @JsonProperty
+    private double barrierBatchMeanLatency;
+
+    // Milliseconds
+    @JsonProperty
+    private double barrierBatchMaxLatency;
+
+    // Switches whose measurements are from an earlier snapshot
+    @JsonProperty
+    @JsonSerialize(contentUsing = ToStringSerializer.class)
+    private List<DatapathId> staleSwitches;
+
+    @JsonProperty
+    private long skippedCycles;
+
     private Snapshot(long timestamp,
             Map<DatapathId, Integer> numRules,
             Map<DatapathId, List<Measurement>> clientMeasurements,
-            List<Measurement> serverMeasurements) {
+            List<Measurement> serverMeasurements,
+            Map<DatapathId, Integer> writeQueueDepths,
+            long collapsedPacketIns,
+            long droppedPacketIns,
+            long barrierBatches,
+            double barrierBatchMeanLatency,
+            double barrierBatchMaxLatency,
+            List<DatapathId> staleSwitches,
+            long skippedCycles) {
         this.timestamp = timestamp;
         this.numRules = numRules;
         this.clientMeasurements = clientMeasurements;
         this.serverMeasurements = serverMeasurements;
+        this.writeQueueDepths = writeQueueDepths;
+        this.collapsedPacketIns = collapsedPacketIns;
+        this.droppedPacketIns = droppedPacketIns;
+        this.barrierBatches = barrierBatches;
+        this.barrierBatchMeanLatency = barrierBatchMeanLatency;
+        this.barrierBatchMaxLatency = barrierBatchMaxLatency;
+        this.staleSwitches = staleSwitches;
+        this.skippedCycles = skippedCycles;
     }
 
     public Snapshot() {
-        this(-1, emptyMap(), emptyMap(), emptyList());
+        this(-1, emptyMap(), emptyMap(), emptyList(), emptyMap(), 0, 0, 0, 0, 0, emptyList(), 0);
     }
 
     public long getTimestamp() {
@@ -79,9 +128,81 @@ public class Snapshot {
         return this;
     }
 
+    public Map<DatapathId, Integer> getWriteQueueDepths() {
+        return writeQueueDepths;
+    }
+
+    public Snapshot setWriteQueueDepths(Map<DatapathId, Integer> writeQueueDepths) {
+        this.writeQueueDepths = writeQueueDepths;
+        return this;
+    }
+
+    public long getCollapsedPacketIns() {
+        return collapsedPacketIns;
+    }
+
+    public Snapshot setCollapsedPacketIns(long collapsedPacketIns) {
+        this.collapsedPacketIns = collapsedPacketIns;
+        return this;
+    }
+
+    public long getDroppedPacketIns() {
+        return droppedPacketIns;
+    }
+
+    public Snapshot setDroppedPacketIns(long droppedPacketIns) {
+        this.droppedPacketIns = droppedPacketIns;
+        return this;
+    }
+
+    public long getBarrierBatches() {
+        return barrierBatches;
+    }
+
+    public Snapshot setBarrierBatches(long barrierBatches) {
+        this.barrierBatches = barrierBatches;
+        return this;
+    }
+
+    public double getBarrierBatchMeanLatency() {
+        return barrierBatchMeanLatency;
+    }
+
+    public Snapshot setBarrierBatchMeanLatency(double barrierBatchMeanLatency) {
+        this.barrierBatchMeanLatency = barrierBatchMeanLatency;
+        return this;
+    }
+
+    public double getBarrierBatchMaxLatency() {
+        return barrierBatchMaxLatency;
+    }
+
+    public Snapshot setBarrierBatchMaxLatency(double barrierBatchMaxLatency) {
+        this.barrierBatchMaxLatency = barrierBatchMaxLatency;
+        return this;
+    }
+
+    public List<DatapathId> getStaleSwitches() {
+        return staleSwitches;
+    }
+
+    public Snapshot setStaleSwitches(List<DatapathId> staleSwitches) {
+        this.staleSwitches = staleSwitches;
+        return this;
+    }
+
+    public long getSkippedCycles() {
+        return skippedCycles;
+    }
+
+    public Snapshot setSkippedCycles(long skippedCycles) {
+        this.skippedCycles = skippedCycles;
+        return this;
+    }
+
     public String toJson() {
         try {
-            String json = new ObjectMapper().writeValueAsString(this);
+            String json = MAPPER.writeValueAsString(this);
             return json.replaceAll("\\n", ""); // Just in case
         } catch (JsonProcessingException e) {
             return null;
@@ -0,0 +1,213 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+/**
+ * Binary prefix trie stored as parallel primitive arrays, indexed by node: child indices, each node's prefix as an int
+ * address and length, a double value and an int label. Traversals use an explicit stack and hand the visitor the
+ * node's index and prefix, so neither allocates. {@link IPv4Prefix} operates on the prefixes.
+ *
+ * <p>Visitors may expand the visited node in a pre-order traversal, whose new children are then visited, and collapse
+ * it in either traversal. Collapsed nodes are not reused, a trie is meant to be built for one computation.
+ * Not thread safe.
+ */
+public class ArrayPrefixTrie {
+
+    public static final int NONE = -1;
+    public static final int ROOT = 0;
+
+    private static final int MIN_CAPACITY = 16;
+    // Entries needed by a post-order traversal down to /32, two per level plus the root
+    private static final int STACK_SIZE = 2 * 33 + 2;
+
+    public interface Visitor {
+        void visit(int node, int address, int length);
+    }
+
+    private int[] child0;
+    private int[] child1;
+    private int[] addresses;
+    private byte[] lengths;
+    private double[] values;
+    private int[] labels;
+    private int size;
+
+    private final int[] stack = new int[STACK_SIZE];
+
+    /**
+     * @param expectedSize nodes the trie is expected to grow to
+     */
+    public ArrayPrefixTrie(int rootAddress, int rootLength, double rootValue, int expectedSize) {
+        long root = IPv4Prefix.of(rootAddress, rootLength);
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Expected size must not be negative: {0}", expectedSize));
+        }
+        allocate(Math.max(MIN_CAPACITY, expectedSize));
+        add(IPv4Prefix.address(root), rootLength, rootValue);
+    }
+
+    public ArrayPrefixTrie(int rootAddress, int rootLength, double rootValue) {
+        this(rootAddress, rootLength, rootValue, MIN_CAPACITY);
+    }
+
+    // Nodes
+
+    public int size() {
+        return size;
+    }
+
+    public int getChild0(int node) {
+        return child0[node];
+    }
+
+    public int getChild1(int node) {
+        return child1[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return child0[node] == NONE && child1[node] == NONE;
+    }
+
+    public int getAddress(int node) {
+        return addresses[node];
+    }
+
+    public int getLength(int node) {
+        return lengths[node];
+    }
+
+    public double getValue(int node) {
+        return values[node];
+    }
+
+    public void setValue(int node, double value) {
+        values[node] = value;
+    }
+
+    // NONE unless set
+    public int getLabel(int node) {
+        return labels[node];
+    }
+
+    public void setLabel(int node, int label) {
+        labels[node] = label;
+    }
+
+    public void expand(int node, double value0, double value1) {
+        expand0(node, value0);
+        expand1(node, value1);
+    }
+
+    /**
+     * Adds the lower half of the node's prefix as its child.
+     *
+     * @return the child
+     */
+    public int expand0(int node, double value0) {
+        int length = checkExpandable(node);
+        int child = add(addresses[node], length + 1, value0);
+        child0[node] = child;
+        return child;
+    }
+
+    /**
+     * Adds the upper half of the node's prefix as its child.
+     *
+     * @return the child
+     */
+    public int expand1(int node, double value1) {
+        int length = checkExpandable(node);
+        int child = add(addresses[node] | 1 << (31 - length), length + 1, value1);
+        child1[node] = child;
+        return child;
+    }
+
+    public void collapse(int node) {
+        child0[node] = NONE;
+        child1[node] = NONE;
+    }
+
+    // Traversal
+
+    public void traversePreOrder(Visitor visitor) {
+        int top = 0;
+        stack[top++] = ROOT;
+        while (top > 0) {
+            int node = stack[--top];
+            visitor.visit(node, addresses[node], lengths[node]);
+            // Children as they are after the visit, lower half first
+            if (child1[node] != NONE) {
+                stack[top++] = child1[node];
+            }
+            if (child0[node] != NONE) {
+                stack[top++] = child0[node];
+            }
+        }
+    }
+
+    public void traversePostOrder(Visitor visitor) {
+        // Entries are node << 1, with the low bit set once the node's children are on the stack
+        int top = 0;
+        stack[top++] = ROOT << 1;
+        while (top > 0) {
+            int entry = stack[--top];
+            int node = entry >>> 1;
+            if ((entry & 1) != 0) {
+                visitor.visit(node, addresses[node], lengths[node]);
+                continue;
+            }
+            stack[top++] = node << 1 | 1;
+            if (child1[node] != NONE) {
+                stack[top++] = child1[node] << 1;
+            }
+            if (child0[node] != NONE) {
+                stack[top++] = child0[node] << 1;
+            }
+        }
+    }
+
+    // Helpers
+
+    private int checkExpandable(int node) {
+        int length = lengths[node];
+        if (length == 32) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Node {0} is a /32 and cannot be expanded", node));
+        }
+        return length;
+    }
+
+    private int add(int address, int length, double value) {
+        if (size == values.length) {
+            allocate(2 * values.length);
+        }
+        int node = size++;
+        child0[node] = NONE;
+        child1[node] = NONE;
+        addresses[node] = address;
+        lengths[node] = (byte) length;
+        values[node] = value;
+        labels[node] = NONE;
+        return node;
+    }
+
+    private void allocate(int capacity) {
+        if (values == null) {
+            child0 = new int[capacity];
+            child1 = new int[capacity];
+            addresses = new int[capacity];
+            lengths = new byte[capacity];
+            values = new double[capacity];
+            labels = new int[capacity];
+        } else {
+            child0 = Arrays.copyOf(child0, capacity);
+            child1 = Arrays.copyOf(child1, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import java.text.MessageFormat;
+
+/**
+ * Open-addressing table from client address to assigned server and a bitmask of switches with live flows.
+ * Entries are stored in parallel primitive arrays with linear probing, so lookups and updates do not allocate.
+ * Not thread safe.
+ */
+public class ClientTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] clients;
+    private int[] servers;
+    private long[] switches;
+    private boolean[] used;
+    private int size;
+
+    public ClientTable() {
+        this(MIN_CAPACITY);
+    }
+
+    public ClientTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Expected size must not be negative: {0}", expectedSize));
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    public boolean contains(int client) {
+        return find(client) >= 0;
+    }
+
+    /**
+     * @return server assigned to the client, or the given default if the client is unknown
+     */
+    public int getServer(int client, int defaultServer) {
+        int slot = find(client);
+        return slot >= 0 ? servers[slot] : defaultServer;
+    }
+
+    /**
+     * @return switches with live flows for the client, 0 if the client is unknown
+     */
+    public long getSwitches(int client) {
+        int slot = find(client);
+        return slot >= 0 ? switches[slot] : 0;
+    }
+
+    /**
+     * Adds a client unless it is already known.
+     * @return false if the client was already known, in which case the table is unchanged
+     */
+    public boolean putIfAbsent(int client, int server, long switchMask) {
+        if ((size + 1) * 2 > used.length) {
+            resize(used.length * 2);
+        }
+        int mask = used.length - 1;
+        int slot = hash(client) & mask;
+        while (used[slot]) {
+            if (clients[slot] == client) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        clients[slot] = client;
+        servers[slot] = server;
+        switches[slot] = switchMask;
+        size++;
+        return true;
+    }
+
+    /**
+     * Clears switch bits for a client. The client is removed once no bits remain.
+     * @return switches before clearing, 0 if the client is unknown
+     */
+    public long clearSwitches(int client, long switchMask) {
+        int slot = find(client);
+        if (slot < 0) {
+            return 0;
+        }
+        long previous = switches[slot];
+        switches[slot] = previous & ~switchMask;
+        if (switches[slot] == 0) {
+            removeSlot(slot);
+        }
+        return previous;
+    }
+
+    public boolean remove(int client) {
+        int slot = find(client);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                consumer.accept(clients[slot], servers[slot], switches[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int client, int server, long switches);
+    }
+
+    private int find(int client) {
+        int mask = used.length - 1;
+        int slot = hash(client) & mask;
+        while (used[slot]) {
+            if (clients[slot] == client) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward shift deletion keeps probe sequences intact without tombstones
+    private void removeSlot(int slot) {
+        int mask = used.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = hash(clients[next]) & mask;
+            // Move the entry into the hole unless its home lies cyclically within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                clients[hole] = clients[next];
+                servers[hole] = servers[next];
+                switches[hole] = switches[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldClients = clients;
+        int[] oldServers = servers;
+        long[] oldSwitches = switches;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldClients[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                clients[slot] = oldClients[i];
+                servers[slot] = oldServers[i];
+                switches[slot] = oldSwitches[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        clients = new int[capacity];
+        servers = new int[capacity];
+        switches = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    // Load factor of at most 1/2, rounded up to a power of two
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Client addresses are often consecutive, spread them over the table
+    private static int hash(int client) {
+        int h = client * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
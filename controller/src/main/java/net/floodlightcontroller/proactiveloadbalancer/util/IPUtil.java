@@ -1,6 +1,5 @@
 package net.floodlightcontroller.proactiveloadbalancer.util;
 
-import com.google.common.primitives.UnsignedInts;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 
@@ -12,75 +11,71 @@ public class IPUtil {
     }
 
     public static IPv4Address min (IPv4AddressWithMask prefix) {
-        return prefix.getValue().or(prefix.getMask().not());
+        return IPv4Address.of(IPv4Prefix.broadcast(IPv4Prefix.of(prefix)));
     }
 
     public static IPv4AddressWithMask base(IPv4AddressRange range) {
-        return base(range.getMin(), range.getMax());
+        return IPv4Prefix.toIPv4AddressWithMask(IPv4Prefix.covering(range.getMin().getInt(), range.getMax().getInt()));
     }
 
     public static IPv4AddressWithMask base(IPv4Address ip, IPv4Address... otherIPs) {
         Objects.requireNonNull(otherIPs);
-        for (int i = 32; i >= 0; i--) {
-            IPv4AddressWithMask prefix = ip.withMaskOfLength(i);
-            boolean containsOtherIPs = true;
-            for (IPv4Address otherIP : otherIPs) {
-                if (!prefix.contains(otherIP)) {
-                    containsOtherIPs = false;
-                }
-            }
-            if (containsOtherIPs) {
-                return prefix;
-            }
+        long prefix = IPv4Prefix.of(ip.getInt(), 32);
+        for (IPv4Address otherIP : otherIPs) {
+            int length = Math.min(IPv4Prefix.length(prefix), IPv4Prefix.length(IPv4Prefix.covering(ip.getInt(), otherIP.getInt())));
+            prefix = IPv4Prefix.of(ip.getInt(), length);
         }
-        throw new RuntimeException("Somehow the given IP addresses aren't contained in 0.0.0.0/0, WTF!");
+        return IPv4Prefix.toIPv4AddressWithMask(prefix);
     }
 
     public static IPv4AddressRange range(List<IPv4AddressWithMask> prefixes) {
         if (prefixes == null || prefixes.isEmpty()) {
             return null;
         }
-        IPv4AddressRange range = IPv4AddressRange.of(prefixes.get(0));
-        prefixes.forEach(prefix -> {
-            if (prefix.getValue().compareTo(range.getMin()) < 0) {
-                range.setMin(prefix.getValue());
+        long first = IPv4Prefix.of(prefixes.get(0));
+        int min = IPv4Prefix.address(first);
+        int max = IPv4Prefix.broadcast(first);
+        for (IPv4AddressWithMask prefix : prefixes) {
+            long packed = IPv4Prefix.of(prefix);
+            if (IPv4Prefix.compareAddresses(IPv4Prefix.address(packed), min) < 0) {
+                min = IPv4Prefix.address(packed);
             }
-            if (prefix.getSubnetBroadcastAddress().compareTo(range.getMax()) > 0) {
-                range.setMax(prefix.getSubnetBroadcastAddress());
+            if (IPv4Prefix.compareAddresses(IPv4Prefix.broadcast(packed), max) > 0) {
+                max = IPv4Prefix.broadcast(packed);
             }
-        });
-        return range;
+        }
+        return IPv4AddressRange.of(IPv4Address.of(min), IPv4Address.of(max));
     }
 
     public static IPv4AddressWithMask subprefix0(IPv4AddressWithMask prefix) {
-        return prefix.getValue()
-                .withMaskOfLength(prefix.getMask().asCidrMaskLength() + 1);
+        return IPv4Prefix.toIPv4AddressWithMask(IPv4Prefix.lower(IPv4Prefix.of(prefix)));
     }
 
     public static IPv4AddressWithMask subprefix1(IPv4AddressWithMask prefix) {
-        return prefix.getValue().or(prefix.getMask().not())
-                .withMaskOfLength(prefix.getMask().asCidrMaskLength() + 1);
+        return IPv4Prefix.toIPv4AddressWithMask(IPv4Prefix.upper(IPv4Prefix.of(prefix)));
     }
 
     public static List<IPv4AddressWithMask> nonOverlappingPrefixes(IPv4AddressRange range) {
         int rangeMin = range.getMin().getInt();
         int rangeMax = range.getMax().getInt();
         List<IPv4AddressWithMask> prefixes = new ArrayList<>();
-        Queue<IPv4AddressWithMask> queue = new PriorityQueue<>();
-        queue.add(IPv4AddressWithMask.of("0.0.0.0/0"));
-        while(!queue.isEmpty()) {
-            IPv4AddressWithMask prefix = queue.poll();
-            int min = prefix.getValue().getInt();
-            int max = prefix.getValue().or(prefix.getMask().not()).getInt();
-            boolean inside = UnsignedInts.compare(rangeMin, min) <= 0 && UnsignedInts.compare(max, rangeMax) <= 0;
-            boolean outside = UnsignedInts.compare(max, rangeMin) < 0 || UnsignedInts.compare(rangeMax, min) < 0;
+        // Depth first, lower half first, so prefixes come out ordered
+        long[] stack = new long[2 * 33];
+        int top = 0;
+        stack[top++] = IPv4Prefix.ALL;
+        while (top > 0) {
+            long prefix = stack[--top];
+            int min = IPv4Prefix.address(prefix);
+            int max = IPv4Prefix.broadcast(prefix);
+            boolean inside = IPv4Prefix.compareAddresses(rangeMin, min) <= 0 && IPv4Prefix.compareAddresses(max, rangeMax) <= 0;
+            boolean outside = IPv4Prefix.compareAddresses(max, rangeMin) < 0 || IPv4Prefix.compareAddresses(rangeMax, min) < 0;
             if (inside) {
                 // Contained, save
-                prefixes.add(prefix);
+                prefixes.add(IPv4Prefix.toIPv4AddressWithMask(prefix));
             } else if (!outside) {
                 // Too large, split
-                queue.add(IPv4Address.of(min).withMaskOfLength(prefix.getMask().asCidrMaskLength() + 1));
-                queue.add(IPv4Address.of(max).withMaskOfLength(prefix.getMask().asCidrMaskLength() + 1));
+                stack[top++] = IPv4Prefix.upper(prefix);
+                stack[top++] = IPv4Prefix.lower(prefix);
             }
         }
         return prefixes;
@@ -0,0 +1,84 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Immutable lookup from an IP address to the value of the range containing it.
+ * Ranges are kept as sorted primitive interval arrays, so lookups are a binary search without allocation.
+ */
+public class IPv4AddressRangeIndex<T> {
+
+    // Bounds are stored with the sign bit flipped, so signed int comparison matches unsigned address order
+    private final int[] mins;
+    private final int[] maxs;
+    private final Object[] values;
+
+    private IPv4AddressRangeIndex(int[] mins, int[] maxs, Object[] values) {
+        this.mins = mins;
+        this.maxs = maxs;
+        this.values = values;
+    }
+
+    public static <T> IPv4AddressRangeIndex<T> of(Map<IPv4AddressRange, T> ranges) {
+        List<Entry<IPv4AddressRange, T>> sorted = new ArrayList<>(ranges.entrySet());
+        sorted.sort(comparing(e -> e.getKey().getMin()));
+
+        int size = sorted.size();
+        int[] mins = new int[size];
+        int[] maxs = new int[size];
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            IPv4AddressRange range = sorted.get(i).getKey();
+            if (range.getMin().compareTo(range.getMax()) > 0) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Range must not be empty: {0}", range));
+            }
+            mins[i] = toKey(range.getMin().getInt());
+            maxs[i] = toKey(range.getMax().getInt());
+            values[i] = sorted.get(i).getValue();
+            if (i > 0 && mins[i] <= maxs[i - 1]) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Ranges must not overlap: {0}, {1}", sorted.get(i - 1).getKey(), range));
+            }
+        }
+        return new IPv4AddressRangeIndex<>(mins, maxs, values);
+    }
+
+    public T get(IPv4Address ip) {
+        return get(ip.getInt());
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int ip) {
+        int key = toKey(ip);
+
+        // Find last range starting at or below key
+        int lo = 0;
+        int hi = mins.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mins[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= 0 && key <= maxs[hi] ? (T) values[hi] : null;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    private static int toKey(int ip) {
+        return ip ^ Integer.MIN_VALUE;
+    }
+}
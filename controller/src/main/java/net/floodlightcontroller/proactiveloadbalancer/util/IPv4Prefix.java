@@ -0,0 +1,139 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.text.MessageFormat;
+
+/**
+ * IPv4 prefixes packed into a long: the unsigned network address shifted left by 8, or'ed with the prefix length.
+ * Packed prefixes order like {@link IPv4AddressWithMask}, by address and then shallow before deep, so plain long
+ * comparison sorts them in pre-order. Operations are static and do not allocate.
+ */
+public final class IPv4Prefix {
+
+    // Not a prefix, the length byte is out of range
+    public static final long NONE = -1;
+
+    // 0.0.0.0/0
+    public static final long ALL = 0;
+
+    private IPv4Prefix() {
+    }
+
+    // Conversion
+
+    /**
+     * @return the prefix of the given length containing the address, host bits are cleared
+     */
+    public static long of(int address, int length) {
+        if (length < 0 || length > 32) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Prefix length must be between 0 and 32: {0}", length));
+        }
+        return ((address & mask(length)) & 0xFFFFFFFFL) << 8 | length;
+    }
+
+    public static long of(IPv4AddressWithMask prefix) {
+        return of(prefix.getValue().getInt(), prefix.getMask().asCidrMaskLength());
+    }
+
+    public static IPv4AddressWithMask toIPv4AddressWithMask(long prefix) {
+        return IPv4Address.of(address(prefix)).withMaskOfLength(length(prefix));
+    }
+
+    public static String toString(long prefix) {
+        return IPv4Address.of(address(prefix)) + "/" + length(prefix);
+    }
+
+    // Fields
+
+    public static int address(long prefix) {
+        return (int) (prefix >>> 8);
+    }
+
+    public static int length(long prefix) {
+        return (int) (prefix & 0xFF);
+    }
+
+    public static int mask(int length) {
+        return length == 0 ? 0 : -1 << (32 - length);
+    }
+
+    // Last address of the prefix
+    public static int broadcast(long prefix) {
+        return address(prefix) | ~mask(length(prefix));
+    }
+
+    // Number of addresses, as a long for /0
+    public static long size(long prefix) {
+        return 1L << (32 - length(prefix));
+    }
+
+    // Relations
+
+    public static boolean contains(long prefix, int address) {
+        return (address & mask(length(prefix))) == address(prefix);
+    }
+
+    // Whether other equals or lies within prefix
+    public static boolean contains(long prefix, long other) {
+        return length(other) >= length(prefix) && contains(prefix, address(other));
+    }
+
+    public static int compare(long prefix1, long prefix2) {
+        return Long.compare(prefix1, prefix2);
+    }
+
+    // Compares addresses as unsigned
+    public static int compareAddresses(int address1, int address2) {
+        return Integer.compareUnsigned(address1, address2);
+    }
+
+    // Splitting and merging
+
+    public static long lower(long prefix) {
+        checkSplittable(prefix);
+        return prefix + 1;
+    }
+
+    public static long upper(long prefix) {
+        checkSplittable(prefix);
+        int length = length(prefix);
+        return ((address(prefix) | 1 << (31 - length)) & 0xFFFFFFFFL) << 8 | (length + 1);
+    }
+
+    /**
+     * @return the prefix one bit shorter containing this one, NONE for /0
+     */
+    public static long parent(long prefix) {
+        int length = length(prefix);
+        return length == 0 ? NONE : of(address(prefix), length - 1);
+    }
+
+    /**
+     * @return the parent of two sibling prefixes, NONE if they are not siblings
+     */
+    public static long merge(long prefix1, long prefix2) {
+        int length = length(prefix1);
+        if (length == 0 || length != length(prefix2) || prefix1 == prefix2) {
+            return NONE;
+        }
+        long parent = parent(prefix1);
+        return parent == parent(prefix2) ? parent : NONE;
+    }
+
+    /**
+     * @return the longest prefix containing both addresses
+     */
+    public static long covering(int address1, int address2) {
+        return of(address1, Integer.numberOfLeadingZeros(address1 ^ address2));
+    }
+
+    private static void checkSplittable(long prefix) {
+        if (length(prefix) == 32) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Prefix {0} cannot be split", toString(prefix)));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable longest-prefix-match lookup from an IP address to the value of the most specific prefix containing it.
+ * Prefixes are grouped by length into primitive open-addressing tables, a lookup probes one table per distinct
+ * length, longest first, without allocation.
+ */
+public class IPv4PrefixIndex<T> {
+
+    private static final IPv4PrefixIndex<?> EMPTY = new IPv4PrefixIndex<>(new int[0], new Table[0]);
+
+    // Distinct prefix lengths, longest first, with one table each
+    private final int[] lengths;
+    private final Table[] tables;
+
+    private IPv4PrefixIndex(int[] lengths, Table[] tables) {
+        this.lengths = lengths;
+        this.tables = tables;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> IPv4PrefixIndex<T> empty() {
+        return (IPv4PrefixIndex<T>) EMPTY;
+    }
+
+    public static <T> IPv4PrefixIndex<T> of(Map<IPv4AddressWithMask, T> prefixes) {
+        int[] counts = new int[33];
+        for (Entry<IPv4AddressWithMask, T> entry : prefixes.entrySet()) {
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Value must not be null: {0}", entry.getKey()));
+            }
+            counts[entry.getKey().getMask().asCidrMaskLength()]++;
+        }
+
+        int distinct = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        int[] lengths = new int[distinct];
+        Table[] tables = new Table[distinct];
+        Table[] tablesByLength = new Table[33];
+        for (int length = 32, i = 0; length >= 0; length--) {
+            if (counts[length] > 0) {
+                lengths[i] = length;
+                tables[i] = new Table(counts[length]);
+                tablesByLength[length] = tables[i];
+                i++;
+            }
+        }
+
+        for (Entry<IPv4AddressWithMask, T> entry : prefixes.entrySet()) {
+            IPv4AddressWithMask prefix = entry.getKey();
+            int length = prefix.getMask().asCidrMaskLength();
+            tablesByLength[length].put(prefix.getValue().getInt() & mask(length), entry.getValue());
+        }
+        return new IPv4PrefixIndex<>(lengths, tables);
+    }
+
+    public T get(IPv4Address ip) {
+        return get(ip.getInt());
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int ip) {
+        for (int i = 0; i < lengths.length; i++) {
+            Object value = tables[i].get(ip & mask(lengths[i]));
+            if (value != null) {
+                return (T) value;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Table table : tables) {
+            size += table.size;
+        }
+        return size;
+    }
+
+    private static int mask(int length) {
+        return length == 0 ? 0 : -1 << (32 - length);
+    }
+
+    // Fixed size linear probing table, load factor of at most 1/2
+    private static final class Table {
+        private final int[] keys;
+        private final Object[] values;
+        private int size;
+
+        private Table(int expectedSize) {
+            int capacity = 2;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new Object[capacity];
+        }
+
+        private void put(int key, Object value) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private Object get(int key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
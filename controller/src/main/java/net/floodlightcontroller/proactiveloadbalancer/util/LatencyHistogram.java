@@ -0,0 +1,116 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LatencyStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear histogram of latencies in nanoseconds. Each power of two is split into 8 linear buckets,
+ * so percentiles are within 12.5% of the recorded value. Recording does not allocate or lock.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below SUB_BUCKETS are exact, each further power of two up to 2^62 gets SUB_BUCKETS buckets
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    // Rate over the last tick interval
+    private long lastTickCount;
+    private long lastTickNanos = System.nanoTime();
+    private volatile double ratePerSecond;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Updates the per-second rate from the number of values recorded since the previous tick.
+     */
+    public synchronized void tick() {
+        long now = System.nanoTime();
+        long currentCount = count.sum();
+        if (now > lastTickNanos) {
+            ratePerSecond = (currentCount - lastTickCount) / ((now - lastTickNanos) / 1e9);
+        }
+        lastTickCount = currentCount;
+        lastTickNanos = now;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public LatencyStats getStats() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long maxNanos = max.get();
+        double mean = total > 0 ? sum.sum() / (double) count.sum() : 0;
+        return new LatencyStats(total,
+                ratePerSecond,
+                toMicros(mean),
+                toMicros(percentile(counts, total, 0.5, maxNanos)),
+                toMicros(percentile(counts, total, 0.9, maxNanos)),
+                toMicros(percentile(counts, total, 0.99, maxNanos)),
+                toMicros(percentile(counts, total, 0.999, maxNanos)),
+                toMicros(maxNanos));
+    }
+
+    // Upper bound of the bucket containing the percentile, capped at the maximum
+    private static long percentile(long[] counts, long total, double percentile, long maxNanos) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(lowerBound(i + 1) - 1, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        if (exponent >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static double toMicros(double nanos) {
+        return nanos / 1e3;
+    }
+}
@@ -0,0 +1,224 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import java.text.MessageFormat;
+
+/**
+ * Space-Saving summary of weighted long keys with a fixed number of counters. Once all counters are in use, a new key
+ * takes over the smallest counter and inherits its count as error, so every key weighing more than total / capacity
+ * is monitored, and a monitored key's count overestimates its weight by at most its error.
+ *
+ * <p>Counters sit in parallel primitive arrays, ordered by a min-heap on count and found through a linear probing
+ * table, so updates take logarithmic time and do not allocate. Not thread safe.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+
+    // Counters
+    private final long[] keys;
+    private final double[] counts;
+    private final double[] errors;
+    private int size;
+
+    // Min-heap of counters by count, and each counter's place in it
+    private final int[] heap;
+    private final int[] heapIndices;
+
+    // Key -> counter + 1, 0 if empty
+    private final int[] table;
+    private final int mask;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Capacity must be at least 1: {0}", capacity));
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        counts = new double[capacity];
+        errors = new double[capacity];
+        heap = new int[capacity];
+        heapIndices = new int[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    public void add(long key, double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Weight must not be negative: {0}", weight));
+        }
+        int counter = find(key);
+        if (counter < 0) {
+            if (size < capacity) {
+                counter = size++;
+                heap[counter] = counter;
+                heapIndices[counter] = counter;
+                counts[counter] = 0;
+                errors[counter] = 0;
+                siftUp(counter);
+            } else {
+                // Take over the smallest counter
+                counter = heap[0];
+                remove(keys[counter]);
+                errors[counter] = counts[counter];
+            }
+            keys[counter] = key;
+            insert(key, counter);
+        }
+        counts[counter] += weight;
+        siftDown(heapIndices[counter]);
+    }
+
+    /**
+     * Multiplies all counts and errors, e.g. to age old weight.
+     */
+    public void scale(double factor) {
+        if (!(factor >= 0)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Factor must not be negative: {0}", factor));
+        }
+        // Order is kept, so is the heap
+        for (int i = 0; i < size; i++) {
+            counts[i] *= factor;
+            errors[i] *= factor;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = 0;
+        }
+        size = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return upper bound of the key's weight: its count if monitored, else the smallest count once all counters are
+     * in use, else 0
+     */
+    public double estimate(long key) {
+        int counter = find(key);
+        if (counter >= 0) {
+            return counts[counter];
+        }
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    // Monitored keys by index, 0 <= index < size, in no particular order
+
+    public long getKey(int index) {
+        return keys[checkIndex(index)];
+    }
+
+    public double getCount(int index) {
+        return counts[checkIndex(index)];
+    }
+
+    // Lower bound of the weight is count - error
+    public double getError(int index) {
+        return errors[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(MessageFormat.format(
+                    "Index {0} out of bounds for size {1}", index, size));
+        }
+        return index;
+    }
+
+    // Heap
+
+    private void siftUp(int i) {
+        int counter = heap[i];
+        double count = counts[counter];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[heap[parent]] <= count) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndices[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = counter;
+        heapIndices[counter] = i;
+    }
+
+    private void siftDown(int i) {
+        int counter = heap[i];
+        double count = counts[counter];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= count) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndices[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = counter;
+        heapIndices[counter] = i;
+    }
+
+    // Table
+
+    private int find(long key) {
+        for (int slot = slot(key); table[slot] != 0; slot = (slot + 1) & mask) {
+            int counter = table[slot] - 1;
+            if (keys[counter] == key) {
+                return counter;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, int counter) {
+        int slot = slot(key);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = counter + 1;
+    }
+
+    private void remove(long key) {
+        int slot = slot(key);
+        while (keys[table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        // Shift later entries of the probe sequence back into the gap
+        int gap = slot;
+        for (slot = (slot + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int home = slot(keys[table[slot] - 1]);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                table[gap] = table[slot];
+                gap = slot;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
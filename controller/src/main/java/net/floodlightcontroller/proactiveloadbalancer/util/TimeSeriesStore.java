@@ -0,0 +1,358 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Fixed-capacity history of byte counters, one column per key. Samples are kept in a ring buffer, so memory stays
+ * flat however long the experiment runs. Each key's values are a contiguous primitive array indexed by sample.
+ * Keys that have not been seen for a whole ring are dropped and their columns reused.
+ *
+ * <p>Each key also keeps a running sum of the deltas between its samples, so a windowed rate is the difference of the
+ * sums at the key's first and last sample in the window: a binary search for the window's start and two lookups. EWMA
+ * rates are maintained on append. Percentiles scan the samples of the window.
+ */
+public class TimeSeriesStore<K> {
+
+    // Value of a key in a sample it was not measured in
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final double ewmaTimeConstantMillis;
+
+    // Ring of sample timestamps, sample n is at slot n % capacity
+    private final long[] timestamps;
+    private long samples;
+
+    // Columns
+    private final Map<K, Integer> columnsByKey = new HashMap<>();
+    private long[][] values = new long[0][];
+    // Running sum of deltas up to each sample the key is in
+    private long[][] cumulative = new long[0][];
+    // First sample at or after each sample that the key is in, known once the key is seen again
+    private long[][] nextSeen = new long[0][];
+    private long[] lastSeen = new long[0];
+    // Value and running sum at the last sample counted, kept after the sample leaves the ring
+    private long[] lastValue = new long[0];
+    private long[] lastCumulative = new long[0];
+    private long[] lastCounted = new long[0];
+    private double[] ewmaRates = new double[0];
+    private int[] freeColumns = new int[0];
+    private int freeColumnCount;
+
+    public TimeSeriesStore(int capacity, long ewmaTimeConstantMillis) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Capacity must be at least 2: {0}", capacity));
+        }
+        this.capacity = capacity;
+        this.ewmaTimeConstantMillis = ewmaTimeConstantMillis;
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Appends a sample. Values of items with the same key are summed, keys without items are missing from the sample.
+     *
+     * @return false if the sample was dropped because it is older than the newest sample, e.g. after the clock stepped
+     * back
+     */
+    public synchronized <T> boolean append(long timestampMillis,
+            Collection<T> items,
+            Function<T, K> key,
+            ToLongFunction<T> value) {
+        if (samples > 0 && timestampMillis < timestamps[slot(samples - 1)]) {
+            return false;
+        }
+        long sample = samples++;
+        int slot = slot(sample);
+        timestamps[slot] = timestampMillis;
+        if (sample > 0 && sample % capacity == 0) {
+            releaseStaleColumns(sample);
+        }
+
+        for (T item : items) {
+            int column = getOrAddColumn(key.apply(item));
+            long[] columnValues = values[column];
+            if (lastSeen[column] == sample) {
+                columnValues[slot] += value.applyAsLong(item);
+            } else {
+                columnValues[slot] = value.applyAsLong(item);
+                lastSeen[column] = sample;
+            }
+        }
+
+        // EWMA over the rate between this and the previous sample
+        if (sample > 0) {
+            int previousSlot = slot(sample - 1);
+            long interval = timestampMillis - timestamps[previousSlot];
+            if (interval > 0) {
+                double alpha = 1 - Math.exp(-interval / ewmaTimeConstantMillis);
+                for (int column : columnsByKey.values()) {
+                    long current = values[column][slot];
+                    long previous = values[column][previousSlot];
+                    if (lastSeen[column] != sample || previous == MISSING) {
+                        continue;
+                    }
+                    double rate = rate(previous, current, interval);
+                    ewmaRates[column] = Double.isNaN(ewmaRates[column])
+                            ? rate
+                            : ewmaRates[column] + alpha * (rate - ewmaRates[column]);
+                }
+            }
+        }
+
+        for (int column : columnsByKey.values()) {
+            if (lastSeen[column] == sample) {
+                count(column, sample);
+            } else {
+                // Key not in this sample
+                values[column][slot] = MISSING;
+            }
+        }
+        return true;
+    }
+
+    public synchronized Set<K> getKeys() {
+        return unmodifiableSet(new HashSet<>(columnsByKey.keySet()));
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(samples, capacity);
+    }
+
+    public synchronized long getNewestTimestamp() {
+        return samples > 0 ? timestamps[slot(samples - 1)] : MISSING;
+    }
+
+    /**
+     * Rate in bytes per second between the newest sample and the newest one at least the window before it, or the
+     * oldest one if there is none. The deltas between consecutive samples are summed, so counter resets within the
+     * window lose no bytes. Samples in which the key is missing are skipped.
+     *
+     * @return rate, 0 if the key has less than two samples in the window
+     */
+    public synchronized double getRate(K key, long windowMillis) {
+        Integer column = columnsByKey.get(key);
+        if (column == null || samples < 2) {
+            return 0;
+        }
+        long start = windowStart(samples - 1, windowMillis);
+        long last = lastSeen[column];
+        if (last < start) {
+            return 0;
+        }
+        long first = nextSeen[column][slot(start)];
+        long bytes = cumulative[column][slot(last)] - cumulative[column][slot(first)];
+        long interval = timestamps[slot(last)] - timestamps[slot(first)];
+        return interval > 0 ? bytes * 1000.0 / interval : 0;
+    }
+
+    /**
+     * @return exponentially weighted moving average of the rate in bytes per second, 0 if the key has no rate yet
+     */
+    public synchronized double getEwmaRate(K key) {
+        Integer column = columnsByKey.get(key);
+        if (column == null || Double.isNaN(ewmaRates[column])) {
+            return 0;
+        }
+        return ewmaRates[column];
+    }
+
+    /**
+     * Percentile of the rates between consecutive samples in the window, by nearest rank.
+     *
+     * @return rate in bytes per second, 0 if the key has no rate in the window
+     */
+    public synchronized double getRatePercentile(K key, long windowMillis, double percentile) {
+        Integer column = columnsByKey.get(key);
+        if (column == null || samples < 2) {
+            return 0;
+        }
+        long[] columnValues = values[column];
+        long newest = samples - 1;
+        long oldest = windowStart(newest, windowMillis);
+        double[] rates = new double[(int) (newest - oldest)];
+        int count = 0;
+        for (long sample = oldest; sample < newest; sample++) {
+            long previous = columnValues[slot(sample)];
+            long current = columnValues[slot(sample + 1)];
+            long interval = timestamps[slot(sample + 1)] - timestamps[slot(sample)];
+            if (previous != MISSING && current != MISSING && interval > 0) {
+                rates[count++] = rate(previous, current, interval);
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(rates, 0, count);
+        int rank = (int) Math.ceil(percentile * count);
+        return rates[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * @return timestamps of the samples in [fromMillis, toMillis], oldest first
+     */
+    public synchronized long[] getTimestamps(long fromMillis, long toMillis) {
+        long first = firstSampleAtOrAfter(fromMillis);
+        long last = firstSampleAtOrAfter(toMillis + 1) - 1;
+        long[] result = new long[(int) Math.max(0, last - first + 1)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = timestamps[slot(first + i)];
+        }
+        return result;
+    }
+
+    /**
+     * @return values of the key in the samples in [fromMillis, toMillis], oldest first, {@link #MISSING} where absent
+     */
+    public synchronized long[] getValues(K key, long fromMillis, long toMillis) {
+        long first = firstSampleAtOrAfter(fromMillis);
+        long last = firstSampleAtOrAfter(toMillis + 1) - 1;
+        long[] result = new long[(int) Math.max(0, last - first + 1)];
+        Integer column = columnsByKey.get(key);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = column != null ? values[column][slot(first + i)] : MISSING;
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        samples = 0;
+        columnsByKey.clear();
+        values = new long[0][];
+        cumulative = new long[0][];
+        nextSeen = new long[0][];
+        lastSeen = new long[0];
+        lastValue = new long[0];
+        lastCumulative = new long[0];
+        lastCounted = new long[0];
+        ewmaRates = new double[0];
+        freeColumnCount = 0;
+    }
+
+    private int slot(long sample) {
+        return (int) (sample % capacity);
+    }
+
+    private long oldestSample() {
+        return Math.max(0, samples - capacity);
+    }
+
+    // Newest sample at least the window before the given one, or the oldest sample
+    private long windowStart(long newest, long windowMillis) {
+        long threshold = timestamps[slot(newest)] - windowMillis;
+        long low = oldestSample();
+        long high = newest;
+        // Last sample with timestamp <= threshold
+        long result = low;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[slot(mid)] <= threshold) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private long firstSampleAtOrAfter(long timestampMillis) {
+        long low = oldestSample();
+        long high = samples;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[slot(mid)] < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double rate(long previous, long current, long intervalMillis) {
+        return delta(previous, current) * 1000.0 / intervalMillis;
+    }
+
+    // Counters that went backwards were reset, count from zero
+    private static long delta(long previous, long current) {
+        return current >= previous ? current - previous : current;
+    }
+
+    // Adds the key's delta in the sample to its running sum and points the samples it was missing in at this one
+    private void count(int column, long sample) {
+        int slot = slot(sample);
+        long current = values[column][slot];
+        long previous = lastCounted[column];
+        long sum = previous >= 0 ? lastCumulative[column] + delta(lastValue[column], current) : 0;
+        for (long missing = Math.max(previous + 1, oldestSample()); missing < sample; missing++) {
+            nextSeen[column][slot(missing)] = sample;
+        }
+        cumulative[column][slot] = sum;
+        nextSeen[column][slot] = sample;
+        lastValue[column] = current;
+        lastCumulative[column] = sum;
+        lastCounted[column] = sample;
+    }
+
+    private int getOrAddColumn(K key) {
+        Integer column = columnsByKey.get(key);
+        if (column != null) {
+            return column;
+        }
+        int newColumn;
+        if (freeColumnCount > 0) {
+            newColumn = freeColumns[--freeColumnCount];
+        } else {
+            newColumn = values.length;
+            int length = Math.max(4, values.length * 2);
+            values = Arrays.copyOf(values, length);
+            cumulative = Arrays.copyOf(cumulative, length);
+            nextSeen = Arrays.copyOf(nextSeen, length);
+            lastSeen = Arrays.copyOf(lastSeen, length);
+            lastValue = Arrays.copyOf(lastValue, length);
+            lastCumulative = Arrays.copyOf(lastCumulative, length);
+            lastCounted = Arrays.copyOf(lastCounted, length);
+            ewmaRates = Arrays.copyOf(ewmaRates, length);
+            for (int i = newColumn; i < length; i++) {
+                values[i] = new long[capacity];
+                cumulative[i] = new long[capacity];
+                nextSeen[i] = new long[capacity];
+            }
+            freeColumns = Arrays.copyOf(freeColumns, length);
+            for (int i = length - 1; i > newColumn; i--) {
+                freeColumns[freeColumnCount++] = i;
+            }
+        }
+        Arrays.fill(values[newColumn], MISSING);
+        lastSeen[newColumn] = -1;
+        lastCounted[newColumn] = -1;
+        ewmaRates[newColumn] = Double.NaN;
+        columnsByKey.put(key, newColumn);
+        return newColumn;
+    }
+
+    // Drops keys whose values have all left the ring
+    private void releaseStaleColumns(long sample) {
+        Iterator<Entry<K, Integer>> entries = columnsByKey.entrySet().iterator();
+        while (entries.hasNext()) {
+            int column = entries.next().getValue();
+            if (lastSeen[column] <= sample - capacity) {
+                entries.remove();
+                freeColumns[freeColumnCount++] = column;
+            }
+        }
+    }
+}
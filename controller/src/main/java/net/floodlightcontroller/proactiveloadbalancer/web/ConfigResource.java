@@ -57,7 +57,14 @@ public class ConfigResource extends ServerResource {
         }
 
         // Apply configuration
-        service.setConfig(config);
+        try {
+            service.setConfig(config);
+        } catch (IllegalArgumentException e) {
+            log.info("Invalid config", e);
+            setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return new Response<Void>()
+                    .addError(e.getMessage());
+        }
 
         // Construct response
         setStatus(Status.SUCCESS_OK);
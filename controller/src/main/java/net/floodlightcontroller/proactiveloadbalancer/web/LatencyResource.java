@@ -0,0 +1,26 @@
+package net.floodlightcontroller.proactiveloadbalancer.web;
+
+import net.floodlightcontroller.proactiveloadbalancer.IProactiveLoadBalancerService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.LatencyStats;
+import net.floodlightcontroller.proactiveloadbalancer.domain.PacketInStage;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+import org.restlet.data.Status;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import java.util.Map;
+
+public class LatencyResource extends ServerResource {
+
+    @Get("json")
+    public Response<?> get() {
+        IProactiveLoadBalancerService service = ((IProactiveLoadBalancerService) getContext()
+                .getAttributes()
+                .get(IProactiveLoadBalancerService.class.getCanonicalName()));
+
+        // Construct response
+        setStatus(Status.SUCCESS_OK);
+        return new Response<Map<Strategy, Map<PacketInStage, LatencyStats>>>()
+                .setData(service.getPacketInLatencies());
+    }
+}
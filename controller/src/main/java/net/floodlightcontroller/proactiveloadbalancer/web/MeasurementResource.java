@@ -0,0 +1,25 @@
+package net.floodlightcontroller.proactiveloadbalancer.web;
+
+import net.floodlightcontroller.proactiveloadbalancer.IProactiveLoadBalancerService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.MeasurementStats;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.restlet.data.Status;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import java.util.Map;
+
+public class MeasurementResource extends ServerResource {
+
+    @Get("json")
+    public Response<?> get() {
+        IProactiveLoadBalancerService service = ((IProactiveLoadBalancerService) getContext()
+                .getAttributes()
+                .get(IProactiveLoadBalancerService.class.getCanonicalName()));
+
+        // Construct response
+        setStatus(Status.SUCCESS_OK);
+        return new Response<Map<DatapathId, MeasurementStats>>()
+                .setData(service.getMeasurementStats());
+    }
+}
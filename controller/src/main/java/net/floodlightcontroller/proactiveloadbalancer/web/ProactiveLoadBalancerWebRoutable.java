@@ -11,6 +11,11 @@ public class ProactiveLoadBalancerWebRoutable implements RestletRoutable {
         Router router = new Router(context);
         // Config paths
         router.attach("/config", ConfigResource.class);
+        // Metrics paths
+        router.attach("/latencies", LatencyResource.class);
+        router.attach("/rates/{type}", RateResource.class);
+        router.attach("/measurements", MeasurementResource.class);
+        router.attach("/servers", ServerLoadResource.class);
         return router;
     }
 
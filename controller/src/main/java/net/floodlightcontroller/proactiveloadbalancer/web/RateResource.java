@@ -0,0 +1,49 @@
+package net.floodlightcontroller.proactiveloadbalancer.web;
+
+import net.floodlightcontroller.proactiveloadbalancer.IProactiveLoadBalancerService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.RateStats;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+import org.restlet.data.Status;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class RateResource extends ServerResource {
+
+    @Get("json")
+    public Response<?> get() {
+        IProactiveLoadBalancerService service = ((IProactiveLoadBalancerService) getContext()
+                .getAttributes()
+                .get(IProactiveLoadBalancerService.class.getCanonicalName()));
+
+        // Window in seconds
+        String windowParam = getQueryValue("window");
+        long windowMillis;
+        try {
+            windowMillis = windowParam != null ? TimeUnit.SECONDS.toMillis(Long.parseLong(windowParam)) : 0;
+        } catch (NumberFormatException e) {
+            setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return new Response<Void>()
+                    .addError("Invalid window: " + windowParam);
+        }
+
+        // Construct response
+        String type = (String) getRequestAttributes().get("type");
+        if ("servers".equals(type)) {
+            setStatus(Status.SUCCESS_OK);
+            return new Response<Map<IPv4Address, RateStats>>()
+                    .setData(service.getServerRates(windowMillis));
+        } else if ("clients".equals(type)) {
+            setStatus(Status.SUCCESS_OK);
+            return new Response<Map<IPv4AddressWithMask, RateStats>>()
+                    .setData(service.getClientRates(windowMillis));
+        } else {
+            setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            return new Response<Void>()
+                    .addError("Unknown rate type: " + type);
+        }
+    }
+}
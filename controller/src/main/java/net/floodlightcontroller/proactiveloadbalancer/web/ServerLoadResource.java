@@ -0,0 +1,25 @@
+package net.floodlightcontroller.proactiveloadbalancer.web;
+
+import net.floodlightcontroller.proactiveloadbalancer.IProactiveLoadBalancerService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerLoad;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.restlet.data.Status;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+
+import java.util.Map;
+
+public class ServerLoadResource extends ServerResource {
+
+    @Get("json")
+    public Response<?> get() {
+        IProactiveLoadBalancerService service = ((IProactiveLoadBalancerService) getContext()
+                .getAttributes()
+                .get(IProactiveLoadBalancerService.class.getCanonicalName()));
+
+        // Construct response
+        setStatus(Status.SUCCESS_OK);
+        return new Response<Map<IPv4Address, ServerLoad>>()
+                .setData(service.getServerLoads());
+    }
+}
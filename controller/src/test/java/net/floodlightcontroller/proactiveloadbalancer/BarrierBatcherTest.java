@@ -0,0 +1,208 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.google.common.util.concurrent.SettableFuture;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(EasyMockRunner.class)
+public class BarrierBatcherTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_ID = DatapathId.of(1);
+    private static final long XID = 42;
+
+    @Mock
+    private SwitchWriterPool mockSwitchWriters;
+
+    @Mock
+    private ScheduledExecutorService mockExecutor;
+
+    @Mock
+    private IOFSwitch mockSwitch;
+
+    @Mock
+    private OFFactory mockFactory;
+
+    @Mock
+    private OFBarrierRequest.Builder mockBarrierBuilder;
+
+    @Mock
+    private OFBarrierRequest mockBarrier;
+
+    @Mock
+    private OFBarrierReply mockBarrierReply;
+
+    @Mock
+    private OFMessage mockMessage;
+
+    private Capture<OFBarrierRequest> requested = newCapture(CaptureType.ALL);
+    private Capture<Runnable> scheduled = newCapture(CaptureType.ALL);
+    // Futures of the barriers written, in order
+    private List<SettableFuture<OFBarrierReply>> replies = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        expect(mockSwitch.getId()).andStubReturn(SWITCH_ID);
+        expect(mockSwitch.getOFFactory()).andStubReturn(mockFactory);
+        expect(mockFactory.nextXid()).andStubReturn(XID);
+        expect(mockFactory.buildBarrierRequest()).andStubReturn(mockBarrierBuilder);
+        expect(mockBarrierBuilder.setXid(XID)).andStubReturn(mockBarrierBuilder);
+        expect(mockBarrierBuilder.build()).andStubReturn(mockBarrier);
+        expect(mockBarrier.getXid()).andStubReturn(XID);
+        expect(mockSwitchWriters.writeRequest(eq(SWITCH_ID), capture(requested))).andStubAnswer(() -> {
+            SettableFuture<OFBarrierReply> reply = SettableFuture.create();
+            replies.add(reply);
+            return reply;
+        });
+        expect(mockExecutor.schedule(capture(scheduled), eq(10L), eq(TimeUnit.MILLISECONDS))).andStubReturn(null);
+        replay(mockSwitch, mockFactory, mockBarrierBuilder, mockBarrier, mockSwitchWriters, mockExecutor);
+    }
+
+    @Test
+    public void add_whenNoWindow_writesBarrierImmediately() {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 0);
+
+        batcher.add(mockSwitch, () -> {});
+
+        assertThat(requested.getValues(), contains(mockBarrier));
+        assertThat(scheduled.getValues(), empty());
+    }
+
+    @Test
+    public void add_whenWindowOpen_closesBatchWithSingleBarrier() {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 10);
+
+        batcher.add(mockSwitch, () -> {});
+        batcher.add(mockSwitch, () -> {});
+        batcher.add(mockSwitch, () -> {});
+
+        assertThat(requested.getValues(), empty());
+        assertThat(scheduled.getValues().size(), equalTo(1));
+
+        scheduled.getValue().run();
+
+        assertThat(requested.getValues(), contains(mockBarrier));
+    }
+
+    @Test
+    public void barrierReply_runsCallbacksOfBatch() {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 10);
+        AtomicInteger acknowledged = new AtomicInteger();
+        batcher.add(mockSwitch, acknowledged::incrementAndGet);
+        batcher.add(mockSwitch, acknowledged::incrementAndGet);
+
+        scheduled.getValue().run();
+        assertThat(acknowledged.get(), equalTo(0));
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(acknowledged.get(), equalTo(2));
+        assertThat(batcher.getAndResetLatency().getBatches(), equalTo(1L));
+        assertThat(batcher.getAndResetLatency().getBatches(), equalTo(0L));
+    }
+
+    @Test
+    public void barrierReply_whenFailed_dropsBatch() {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 0);
+        AtomicInteger acknowledged = new AtomicInteger();
+        batcher.add(mockSwitch, acknowledged::incrementAndGet);
+
+        replies.get(0).setException(new IllegalStateException("Switch disconnected"));
+
+        assertThat(acknowledged.get(), equalTo(0));
+        assertThat(batcher.getAndResetLatency().getBatches(), equalTo(0L));
+    }
+
+    @Test
+    public void barrierReply_whenWrittenThroughSwitchQueue_runsCallbacksAfterQueuedMessages()
+            throws InterruptedException {
+        IOFSwitchService switchService = createMock(IOFSwitchService.class);
+        IOFSwitch iofSwitch = createMock(IOFSwitch.class);
+        List<OFMessage> written = new CopyOnWriteArrayList<>();
+        SettableFuture<OFBarrierReply> switchReply = SettableFuture.create();
+        CountDownLatch barrierWritten = new CountDownLatch(1);
+        expect(switchService.getActiveSwitch(SWITCH_ID)).andStubReturn(iofSwitch);
+        expect(iofSwitch.getId()).andStubReturn(SWITCH_ID);
+        expect(iofSwitch.getOFFactory()).andStubReturn(mockFactory);
+        expect(iofSwitch.write(anyObject(OFMessage.class))).andStubAnswer(() -> {
+            written.add((OFMessage) getCurrentArguments()[0]);
+            return true;
+        });
+        // Floodlight completes the request's future with the switch's reply
+        expect(iofSwitch.writeRequest(anyObject(OFBarrierRequest.class))).andStubAnswer(() -> {
+            written.add((OFMessage) getCurrentArguments()[0]);
+            barrierWritten.countDown();
+            return switchReply;
+        });
+        replay(switchService, iofSwitch);
+        SwitchWriterPool switchWriters = new SwitchWriterPool(switchService, 16, 0);
+        BarrierBatcher batcher = new BarrierBatcher(switchWriters, mockExecutor, 0);
+        AtomicInteger acknowledged = new AtomicInteger();
+
+        try {
+            switchWriters.write(SWITCH_ID, singletonList(mockMessage));
+            batcher.add(iofSwitch, acknowledged::incrementAndGet);
+            assertThat(barrierWritten.await(1, TimeUnit.SECONDS), is(true));
+            assertThat(acknowledged.get(), equalTo(0));
+
+            switchReply.set(mockBarrierReply);
+        } finally {
+            switchWriters.shutdown();
+        }
+
+        assertThat(written, equalTo(asList(mockMessage, mockBarrier)));
+        assertThat(acknowledged.get(), equalTo(1));
+        assertThat(batcher.getAndResetLatency().getBatches(), equalTo(1L));
+    }
+
+    @Test
+    public void add_afterBatchClosed_opensNewBatch() {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 10);
+        batcher.add(mockSwitch, () -> {});
+        scheduled.getValue().run();
+
+        batcher.add(mockSwitch, () -> {});
+
+        assertThat(scheduled.getValues().size(), equalTo(2));
+    }
+
+    @Test
+    public void expire_whenBarrierReplyMissing_dropsBatch() throws InterruptedException {
+        BarrierBatcher batcher = new BarrierBatcher(mockSwitchWriters, mockExecutor, 0);
+        AtomicInteger acknowledged = new AtomicInteger();
+        batcher.add(mockSwitch, acknowledged::incrementAndGet);
+        Thread.sleep(1);
+
+        batcher.expire(0);
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(acknowledged.get(), equalTo(0));
+    }
+}
@@ -0,0 +1,94 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toMap;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ClientTrafficEstimatorTest extends FloodlightTestCase {
+
+    private static final IPv4AddressWithMask PREFIX_1 = IPv4AddressWithMask.of("10.0.0.0/25");
+    private static final IPv4AddressWithMask PREFIX_2 = IPv4AddressWithMask.of("10.0.0.128/25");
+    private static final IPv4Address CLIENT_1 = IPv4Address.of("10.0.0.7");
+
+    @Test
+    public void estimate_whenOnlyMeasurements_returnsPrefixBytes() {
+        ClientTrafficEstimator estimator = new ClientTrafficEstimator(16, 1000);
+
+        estimator.addMeasurements(0, asList(new Measurement(PREFIX_1, 300), new Measurement(PREFIX_2, 100)));
+
+        Map<IPv4AddressWithMask, Double> estimates = byPrefix(estimator.estimate());
+        assertThat(estimates.size(), equalTo(2));
+        assertThat(estimates.get(PREFIX_1), equalTo(300.0));
+        assertThat(estimates.get(PREFIX_2), equalTo(100.0));
+    }
+
+    @Test
+    public void estimate_whenMicroflowInsidePrefix_movesBytesToClient() {
+        ClientTrafficEstimator estimator = new ClientTrafficEstimator(16, 1000);
+        estimator.addMeasurements(0, asList(new Measurement(PREFIX_1, 300), new Measurement(PREFIX_2, 100)));
+
+        estimator.addMicroflow(CLIENT_1, 200);
+
+        Map<IPv4AddressWithMask, Double> estimates = byPrefix(estimator.estimate());
+        assertThat(estimates.get(CLIENT_1.withMaskOfLength(32)), equalTo(200.0));
+        assertThat(estimates.get(PREFIX_1), equalTo(100.0));
+        assertThat(estimates.get(PREFIX_2), equalTo(100.0));
+    }
+
+    @Test
+    public void estimate_whenMicroflowExceedsPrefix_takesAtMostPrefixBytes() {
+        ClientTrafficEstimator estimator = new ClientTrafficEstimator(16, 1000);
+        estimator.addMeasurements(0, asList(new Measurement(PREFIX_1, 300)));
+
+        estimator.addMicroflow(CLIENT_1, 500);
+        estimator.addMicroflow(IPv4Address.of("192.168.0.1"), 500);
+
+        Map<IPv4AddressWithMask, Double> estimates = byPrefix(estimator.estimate());
+        assertThat(estimates.size(), equalTo(2));
+        assertThat(estimates.get(CLIENT_1.withMaskOfLength(32)), equalTo(300.0));
+        assertThat(estimates.get(PREFIX_1), equalTo(0.0));
+    }
+
+    @Test
+    public void addMeasurements_decaysEarlierBytes() {
+        ClientTrafficEstimator estimator = new ClientTrafficEstimator(16, 1000);
+        estimator.addMeasurements(0, asList(new Measurement(PREFIX_1, 1000)));
+
+        estimator.addMeasurements(1000, asList(new Measurement(PREFIX_2, 1000)));
+
+        Map<IPv4AddressWithMask, Double> estimates = byPrefix(estimator.estimate());
+        assertThat(estimates.get(PREFIX_1), closeTo(1000 / Math.E, 1e-9));
+        assertThat(estimates.get(PREFIX_2), equalTo(1000.0));
+    }
+
+    @Test
+    public void estimate_whenMorePrefixesThanCapacity_keepsHeaviest() {
+        ClientTrafficEstimator estimator = new ClientTrafficEstimator(2, 1000);
+
+        estimator.addMeasurements(0, asList(
+                new Measurement(IPv4AddressWithMask.of("10.0.0.0/26"), 1000),
+                new Measurement(IPv4AddressWithMask.of("10.0.0.64/26"), 10),
+                new Measurement(IPv4AddressWithMask.of("10.0.0.128/26"), 20)));
+
+        Map<IPv4AddressWithMask, Double> estimates = byPrefix(estimator.estimate());
+        assertThat(estimates.size(), equalTo(2));
+        assertThat(estimates.get(IPv4AddressWithMask.of("10.0.0.0/26")), equalTo(1000.0));
+        assertThat(estimates.get(IPv4AddressWithMask.of("10.0.0.128/26")), equalTo(30.0));
+    }
+
+    private static Map<IPv4AddressWithMask, Double> byPrefix(List<WeightedPrefix> estimates) {
+        return estimates.stream().collect(toMap(WeightedPrefix::getPrefix, WeightedPrefix::getWeight));
+    }
+}
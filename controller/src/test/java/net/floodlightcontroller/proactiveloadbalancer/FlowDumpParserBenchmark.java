@@ -0,0 +1,117 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.io.CharStreams;
+
+/**
+ * Compares the previous String/regex based dump parser with {@link FlowDumpParser} on a 100k line ovs-ofctl dump.
+ * Run with main, prints ms per dump.
+ */
+public class FlowDumpParserBenchmark {
+
+    private static final int LINES = 100_000;
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws IOException {
+        StringBuilder dump = new StringBuilder("OFPST_FLOW reply (OF1.3) (xid=0x2):\n");
+        for (int i = 0; i < LINES; i++) {
+            dump.append(" cookie=0x64, duration=").append(i % 1000).append(".123s, table=2, n_packets=").append(i)
+                    .append(", n_bytes=").append(i * 1500L).append(", idle_timeout=60, priority=200,ip,nw_src=10.")
+                    .append((i >> 8) & 255).append('.').append(i & 255).append(".0/24,nw_dst=10.5.1.1")
+                    .append(" actions=goto_table:3\n");
+        }
+        byte[] bytes = dump.toString().getBytes(StandardCharsets.US_ASCII);
+
+        FlowDumpParser parser = new FlowDumpParser();
+        FlowColumns columns = new FlowColumns();
+        long sink = 0;
+
+        // Warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += legacyParse(bytes).size();
+            columns.clear();
+            parser.parse(new ByteArrayInputStream(bytes), columns);
+            sink += columns.size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += legacyParse(bytes).size();
+        }
+        double legacyMs = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            columns.clear();
+            parser.parse(new ByteArrayInputStream(bytes), columns);
+            sink += columns.size();
+        }
+        double columnsMs = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            columns.clear();
+            parser.parse(new ByteArrayInputStream(bytes), columns);
+            sink += columns.toFlows().size();
+        }
+        double flowsMs = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        System.out.println("lines\tlegacy_ms\tcolumns_ms\tcolumns_to_flows_ms");
+        System.out.printf("%d\t%.1f\t%.1f\t%.1f\t(%d)%n", LINES, legacyMs, columnsMs, flowsMs, sink & 1);
+    }
+
+    // Previous parser: whole dump as a String, regex per line, two maps per flow
+    private static List<Flow> legacyParse(byte[] bytes) throws IOException {
+        String result = CharStreams.toString(new InputStreamReader(new ByteArrayInputStream(bytes),
+                StandardCharsets.US_ASCII));
+        List<Flow> flows = new ArrayList<>();
+        for (String line : result.trim().split("\n")) {
+            if (line.matches("^\\s*cookie.*")) {
+                flows.add(legacyParseLine(line));
+            }
+        }
+        return flows;
+    }
+
+    private static Flow legacyParseLine(String line) {
+        Map<String, String> properties = new HashMap<>();
+        for (String part : line.trim().split("(, )| ")) {
+            String[] keyValue = part.split("=", 2);
+            if (keyValue.length == 2 && (keyValue[0].equals("cookie") || keyValue[0].equals("table")
+                    || keyValue[0].equals("n_bytes") || keyValue[0].equals("duration")
+                    || keyValue[0].equals("n_packets") || keyValue[0].equals("actions"))) {
+                properties.put(keyValue[0], keyValue[1]);
+            } else {
+                properties.put("match", part);
+            }
+        }
+        Map<String, String> matchProperties = new HashMap<>();
+        for (String matchPart : properties.get("match").split(",")) {
+            if (matchPart.contains("=")) {
+                String[] components = matchPart.split("=", 2);
+                matchProperties.put(components[0], components[1]);
+            }
+        }
+        IPv4AddressWithMask nwDst = matchProperties.containsKey("nw_dst")
+                ? IPv4AddressWithMask.of(matchProperties.get("nw_dst")) : null;
+        IPv4AddressWithMask nwSrc = matchProperties.containsKey("nw_src")
+                ? IPv4AddressWithMask.of(matchProperties.get("nw_src")) : null;
+        IPv4AddressWithMask prefix = nwSrc != null ? nwSrc : nwDst != null ? nwDst : IPv4AddressWithMask.of("0.0.0.0/0");
+        return new Flow(U64.parseHex(properties.get("cookie").substring(2)),
+                Short.parseShort(properties.get("table")),
+                prefix,
+                Long.parseLong(properties.get("n_bytes")));
+    }
+}
@@ -0,0 +1,107 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class FlowDumpParserTest extends FloodlightTestCase {
+
+    private FlowDumpParser parser;
+    private FlowColumns columns;
+
+    @Before
+    public void setUp() {
+        parser = new FlowDumpParser();
+        columns = new FlowColumns();
+    }
+
+    @Test
+    public void parse_whenSourcePrefix_recordsFlow() throws IOException {
+        parse("OFPST_FLOW reply (OF1.3) (xid=0x2):\n"
+                + " cookie=0x64, duration=12.5s, table=2, n_packets=10, n_bytes=1000, idle_timeout=60,"
+                + " priority=200,ip,nw_src=10.1.0.0/16,nw_dst=10.5.1.1 actions=goto_table:3\n");
+
+        assertThat(columns.size(), equalTo(1));
+        assertThat(columns.getCookie(0), equalTo(0x64L));
+        assertThat(columns.getTableId(0), equalTo((short) 2));
+        assertThat(columns.getPrefix(0), equalTo(IPv4Address.of("10.1.0.0").getInt()));
+        assertThat(columns.getPrefixLength(0), equalTo(16));
+        assertThat(columns.getBytes(0), equalTo(1000L));
+    }
+
+    @Test
+    public void parse_whenOnlyDestination_usesDestination() throws IOException {
+        parse(" cookie=0x0, duration=1s, table=6, n_packets=1, n_bytes=98, priority=100,ip,nw_dst=10.0.0.1"
+                + " actions=output:1\n");
+
+        assertThat(columns.getPrefix(0), equalTo(IPv4Address.of("10.0.0.1").getInt()));
+        assertThat(columns.getPrefixLength(0), equalTo(32));
+    }
+
+    @Test
+    public void parse_whenNoAddressMatch_usesDefaultRoute() throws IOException {
+        parse(" cookie=0x0, duration=1s, table=0, n_packets=0, n_bytes=0, priority=0 actions=goto_table:1\n");
+
+        assertThat(columns.getPrefix(0), equalTo(0));
+        assertThat(columns.getPrefixLength(0), equalTo(0));
+    }
+
+    @Test
+    public void parse_whenDottedMask_convertsToLength() throws IOException {
+        parse(" cookie=0xffffffffffffffff, table=2, n_bytes=5, ip,nw_src=10.1.2.0/255.255.255.0 actions=drop\n");
+
+        assertThat(columns.getCookie(0), equalTo(-1L));
+        assertThat(columns.getPrefix(0), equalTo(IPv4Address.of("10.1.2.0").getInt()));
+        assertThat(columns.getPrefixLength(0), equalTo(24));
+    }
+
+    @Test
+    public void parse_ignoresAddressesInActions() throws IOException {
+        parse(" cookie=0x1, table=4, n_bytes=5, ip actions=set_field:10.0.0.1->nw_dst,mod_nw_src=10.0.0.2\n");
+
+        assertThat(columns.getPrefixLength(0), equalTo(0));
+    }
+
+    @Test
+    public void parse_skipsLinesWithoutCounters() throws IOException {
+        parse("NXST_FLOW reply (xid=0x4):\n\n cookie=0x1, table=4, n_bytes=5, ip actions=drop");
+
+        assertThat(columns.size(), equalTo(1));
+    }
+
+    @Test
+    public void parse_whenLinesSpanReads_parsesAllLines() throws IOException {
+        StringBuilder dump = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            dump.append(" cookie=0x64, duration=1s, table=2, n_packets=1, n_bytes=").append(i)
+                    .append(", priority=200,ip,nw_src=10.0.").append(i % 256).append(".0/24 actions=goto_table:3\n");
+        }
+        // Stream returning a few bytes at a time
+        byte[] bytes = dump.toString().getBytes(StandardCharsets.US_ASCII);
+        InputStream in = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        parser.parse(in, columns);
+
+        assertThat(columns.size(), equalTo(10000));
+        assertThat(columns.getBytes(9999), equalTo(9999L));
+        assertThat(columns.getPrefix(9999), equalTo(IPv4Address.of("10.0.15.0").getInt()));
+    }
+
+    private void parse(String dump) throws IOException {
+        parser.parse(new ByteArrayInputStream(dump.getBytes(StandardCharsets.US_ASCII)), columns);
+    }
+}
@@ -20,12 +20,13 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
 
     IPv4AddressWithMask RANGE = IPv4AddressWithMask.of("10.0.0.0/8");
     List<LoadBalancingFlow> DEFAULT= singletonList(new LoadBalancingFlow(RANGE, null));
+    GreedyPrefixAssigner assigner = new GreedyPrefixAssigner();
 
     @Test
     public void assignPrefixes_whenEmptyServers_returnsDefault() {
         List<Server> servers = emptyList();
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, null, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, null, servers);
 
         assertThat(result, equalTo(DEFAULT));
     }
@@ -37,7 +38,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
         List<Server> servers = singletonList(
                 new Server(IPv4Address.of("10.0.0.1"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = singletonList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/8"), IPv4Address.of("10.0.0.1")));
@@ -52,7 +53,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.1"), 1),
                 new Server(IPv4Address.of("10.0.0.2"), 2));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = singletonList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/8"), IPv4Address.of("10.0.0.2")));
@@ -67,7 +68,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.1"), 2),
                 new Server(IPv4Address.of("10.0.0.2"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = singletonList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/8"), IPv4Address.of("10.0.0.1")));
@@ -84,7 +85,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.1"), 1),
                 new Server(IPv4Address.of("10.0.0.2"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = asList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/8"), IPv4Address.of("10.0.0.1")),
@@ -102,7 +103,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.1"), 1),
                 new Server(IPv4Address.of("10.0.0.2"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = asList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/8"), IPv4Address.of("10.0.0.1")),
@@ -122,7 +123,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.3"), 1),
                 new Server(IPv4Address.of("10.0.0.4"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = asList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), IPv4Address.of("10.0.0.2")),
@@ -144,7 +145,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.3"), 1),
                 new Server(IPv4Address.of("10.0.0.4"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = asList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), IPv4Address.of("10.0.0.2")),
@@ -214,7 +215,7 @@ public class GreedyPrefixAssignerTest extends FloodlightTestCase {
                 new Server(IPv4Address.of("10.0.0.1"), 1),
                 new Server(IPv4Address.of("10.0.0.2"), 1));
 
-        List<LoadBalancingFlow> result = GreedyPrefixAssigner.assignPrefixes(RANGE, measurements, servers);
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
 
         List<LoadBalancingFlow> expectedResult = asList(
                 new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/14"), IPv4Address.of("10.0.0.1")),
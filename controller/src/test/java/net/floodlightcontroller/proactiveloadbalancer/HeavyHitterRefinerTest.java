@@ -0,0 +1,113 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class HeavyHitterRefinerTest extends FloodlightTestCase {
+
+    private static final IPv4AddressRange CLIENT_RANGE = new IPv4AddressRange("10.0.0.0-10.255.255.255");
+
+    @Test
+    public void refine_whenNoTraffic_splitsEvenlyUpToBudget() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+
+        assertThat(refiner.refine(emptyList(), 4), contains(
+                prefix("10.0.0.0/10"), prefix("10.64.0.0/10"), prefix("10.128.0.0/10"), prefix("10.192.0.0/10")));
+    }
+
+    @Test
+    public void refine_spendsBudgetOnHeaviestPrefixes() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+
+        List<IPv4AddressWithMask> prefixes = refiner.refine(asList(
+                measurement("10.0.0.0/9", 90),
+                measurement("10.128.0.0/9", 10)), 4);
+
+        assertThat(prefixes, contains(
+                prefix("10.0.0.0/11"), prefix("10.32.0.0/11"), prefix("10.64.0.0/10"), prefix("10.128.0.0/9")));
+    }
+
+    @Test
+    public void refine_whenPrefixWasHotBefore_splitsTowardsIt() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        refiner.refine(asList(
+                measurement("10.0.0.0/10", 0),
+                measurement("10.64.0.0/10", 100),
+                measurement("10.128.0.0/9", 0)), 3);
+
+        List<IPv4AddressWithMask> prefixes = refiner.refine(singletonList(measurement("10.0.0.0/8", 100)), 3);
+
+        assertThat(prefixes, contains(prefix("10.0.0.0/10"), prefix("10.64.0.0/10"), prefix("10.128.0.0/9")));
+    }
+
+    @Test
+    public void refine_staysWithinClientRangeAndAbove32() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(new IPv4AddressRange("10.0.0.0-10.0.0.2"));
+
+        assertThat(refiner.refine(emptyList(), 10), contains(
+                prefix("10.0.0.0/32"), prefix("10.0.0.1/32"), prefix("10.0.0.2/32")));
+    }
+
+    @Test
+    public void recordThresholdRules_countsSplitsAboveThreshold() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+
+        // /8 and /9 above 0.3, the /10s below the hot /9 estimated at 0.4 each
+        refiner.recordThresholdRules(asList(
+                measurement("10.0.0.0/9", 80),
+                measurement("10.128.0.0/9", 20)), 0.3);
+
+        assertThat(refiner.getThresholdBudget(), equalTo(5));
+    }
+
+    @Test
+    public void getThresholdBudget_returnsMostRulesInWindow() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        List<Measurement> hot = asList(measurement("10.0.0.0/9", 80), measurement("10.128.0.0/9", 20));
+        List<Measurement> even = asList(measurement("10.0.0.0/9", 50), measurement("10.128.0.0/9", 50));
+
+        refiner.recordThresholdRules(hot, 0.3);
+        refiner.recordThresholdRules(even, 0.3);
+        assertThat(refiner.getThresholdBudget(), equalTo(5));
+        for (int i = 0; i < 60; i++) {
+            refiner.recordThresholdRules(even, 0.3);
+        }
+        assertThat(refiner.getThresholdBudget(), equalTo(4));
+    }
+
+    @Test
+    public void getPrefixes_returnsLastRefinedPrefixes() {
+        HeavyHitterRefiner refiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        assertThat(refiner.getPrefixes(), nullValue());
+
+        List<IPv4AddressWithMask> prefixes = refiner.refine(emptyList(), 2);
+
+        assertThat(refiner.getPrefixes(), equalTo(prefixes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refine_whenBudgetZero_throwsException() {
+        new HeavyHitterRefiner(CLIENT_RANGE).refine(emptyList(), 0);
+    }
+
+    private static IPv4AddressWithMask prefix(String prefix) {
+        return IPv4AddressWithMask.of(prefix);
+    }
+
+    private static Measurement measurement(String prefix, long bytes) {
+        return new Measurement(IPv4AddressWithMask.of(prefix), bytes);
+    }
+}
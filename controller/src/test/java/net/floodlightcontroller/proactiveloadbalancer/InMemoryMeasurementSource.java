@@ -0,0 +1,46 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measurement source answering from preset flows, for tests. Failures take precedence over flows,
+ * switches without either never answer.
+ */
+class InMemoryMeasurementSource implements MeasurementSource {
+
+    private final Map<DatapathId, List<Flow>> flows = new HashMap<>();
+    private final Map<DatapathId, Throwable> failures = new HashMap<>();
+    private final Map<DatapathId, CompletableFuture<List<Flow>>> requests = new HashMap<>();
+
+    InMemoryMeasurementSource setFlows(DatapathId switchId, List<Flow> flows) {
+        this.flows.put(switchId, flows);
+        return this;
+    }
+
+    InMemoryMeasurementSource setFailure(DatapathId switchId, Throwable failure) {
+        this.failures.put(switchId, failure);
+        return this;
+    }
+
+    @Override
+    public synchronized CompletableFuture<List<Flow>> getFlows(DatapathId switchId) {
+        CompletableFuture<List<Flow>> result = new CompletableFuture<>();
+        if (failures.containsKey(switchId)) {
+            result.completeExceptionally(failures.get(switchId));
+        } else if (flows.containsKey(switchId)) {
+            result.complete(flows.get(switchId));
+        }
+        requests.put(switchId, result);
+        return result;
+    }
+
+    synchronized CompletableFuture<List<Flow>> getLastRequest(DatapathId switchId) {
+        return requests.get(switchId);
+    }
+}
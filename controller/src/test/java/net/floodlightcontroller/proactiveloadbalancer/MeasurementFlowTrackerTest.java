@@ -0,0 +1,108 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MeasurementFlowTrackerTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH = DatapathId.of(1);
+    private static final IPv4AddressWithMask ROOT = IPv4AddressWithMask.of("0.0.0.0/0");
+    private static final IPv4AddressWithMask LEFT = IPv4AddressWithMask.of("0.0.0.0/1");
+    private static final IPv4AddressWithMask RIGHT = IPv4AddressWithMask.of("128.0.0.0/1");
+    private static final IPv4AddressWithMask RIGHT_LEFT = IPv4AddressWithMask.of("128.0.0.0/2");
+    private static final IPv4AddressWithMask RIGHT_RIGHT = IPv4AddressWithMask.of("192.0.0.0/2");
+
+    private MeasurementFlowTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new MeasurementFlowTracker();
+    }
+
+    @Test
+    public void update_whenSwitchUnknown_replacesAll() {
+        MeasurementFlowTracker.Update update = tracker.update(SWITCH, singletonList(ROOT));
+
+        assertThat(update.isReplaceAll(), equalTo(true));
+        assertThat(update.getAdded(), contains(ROOT));
+        assertThat(update.getRemoved(), empty());
+    }
+
+    @Test
+    public void update_whenPrefixesUnchanged_isEmpty() {
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+
+        MeasurementFlowTracker.Update update = tracker.update(SWITCH, asList(RIGHT, LEFT));
+
+        assertThat(update.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void update_whenPrefixSplit_addsChildrenAndRemovesParent() {
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+
+        MeasurementFlowTracker.Update update = tracker.update(SWITCH, asList(LEFT, RIGHT_LEFT, RIGHT_RIGHT));
+
+        assertThat(update.isReplaceAll(), equalTo(false));
+        assertThat(update.getAdded(), contains(RIGHT_LEFT, RIGHT_RIGHT));
+        assertThat(update.getRemoved(), contains(RIGHT));
+    }
+
+    @Test
+    public void update_whenSwitchForgotten_replacesAll() {
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+        tracker.forget(SWITCH);
+
+        assertThat(tracker.update(SWITCH, asList(LEFT, RIGHT)).isReplaceAll(), equalTo(true));
+    }
+
+    @Test
+    public void toDeltas_returnsBytesSincePreviousCounters() {
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+        tracker.toDeltas(SWITCH, asList(new Measurement(LEFT, 100), new Measurement(RIGHT, 200)), false);
+
+        assertThat(tracker.toDeltas(SWITCH, asList(new Measurement(LEFT, 150), new Measurement(RIGHT, 200)), false),
+                contains(new Measurement(LEFT, 50), new Measurement(RIGHT, 0)));
+    }
+
+    @Test
+    public void toDeltas_whenPrefixReadded_countsFromZero() {
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+        tracker.toDeltas(SWITCH, asList(new Measurement(LEFT, 100), new Measurement(RIGHT, 200)), false);
+        tracker.update(SWITCH, singletonList(ROOT));
+        tracker.update(SWITCH, asList(LEFT, RIGHT));
+
+        assertThat(tracker.toDeltas(SWITCH, asList(new Measurement(LEFT, 300), new Measurement(RIGHT, 20)), false),
+                contains(new Measurement(LEFT, 300), new Measurement(RIGHT, 20)));
+    }
+
+    @Test
+    public void toDeltas_whenCounterReset_countsFromZero() {
+        tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 1000)), false);
+
+        assertThat(tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 10)), false),
+                contains(new Measurement(ROOT, 10)));
+    }
+
+    @Test
+    public void toDeltas_whenStale_returnsPreviousDeltas() {
+        tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 100)), false);
+        tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 130)), false);
+
+        assertThat(tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 130)), true),
+                contains(new Measurement(ROOT, 30)));
+        assertThat(tracker.toDeltas(SWITCH, singletonList(new Measurement(ROOT, 170)), false),
+                contains(new Measurement(ROOT, 40)));
+    }
+}
@@ -0,0 +1,158 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Config;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+
+/**
+ * Compares threshold and hhh measurement refinement on synthetic traffic: background clients spread over a /8 plus
+ * 4 heavy hitters with 15% of the traffic each. The heavy hitters move to new addresses, then move back.
+ * Run with main, prints rules used and intervals until every prefix above the threshold is a single client.
+ */
+public class MeasurementRefinementSimulator {
+
+    private static final IPv4AddressRange CLIENT_RANGE = new IPv4AddressRange("10.0.0.0-10.255.255.255");
+    private static final double THRESHOLD = 0.05;
+    private static final int BACKGROUND_CLIENTS = 2000;
+    private static final int HEAVY_HITTERS = 4;
+    private static final double HEAVY_HITTER_SHARE = 0.15;
+    private static final int PHASE_INTERVALS = 30;
+    private static final int LARGE_BUDGET = HEAVY_HITTERS << 12;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int base = CLIENT_RANGE.getMin().getInt();
+        int[] background = new int[BACKGROUND_CLIENTS];
+        for (int i = 0; i < background.length; i++) {
+            background[i] = base + random.nextInt(1 << 24);
+        }
+        int[] heavyHittersA = new int[HEAVY_HITTERS];
+        int[] heavyHittersB = new int[HEAVY_HITTERS];
+        for (int i = 0; i < HEAVY_HITTERS; i++) {
+            heavyHittersA[i] = base + random.nextInt(1 << 24);
+            heavyHittersB[i] = base + random.nextInt(1 << 24);
+        }
+        // Phases: A, B, back to A
+        List<Traffic> phases = Arrays.asList(
+                new Traffic(background, heavyHittersA),
+                new Traffic(background, heavyHittersB),
+                new Traffic(background, heavyHittersA));
+
+        Config config = new Config()
+                .setStrategyRanges(singletonMap(CLIENT_RANGE, Strategy.non_uniform))
+                .setMeasurementThreshold(THRESHOLD);
+        Result threshold = simulate(phases, measurements -> FlowBuilder.buildMeasurementFlows(measurements, config));
+        // Default budget: the most rules threshold refinement used recently
+        HeavyHitterRefiner matchedRefiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        Result matched = simulate(phases, measurements -> {
+            matchedRefiner.recordThresholdRules(measurements, THRESHOLD);
+            return matchedRefiner.refine(measurements, matchedRefiner.getThresholdBudget());
+        });
+        HeavyHitterRefiner fixedRefiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        Result fixed = simulate(phases, measurements -> fixedRefiner.refine(measurements, threshold.maxRules));
+        // Enough rules to isolate a new hitter in two intervals, 12 levels each
+        HeavyHitterRefiner largeRefiner = new HeavyHitterRefiner(CLIENT_RANGE);
+        Result large = simulate(phases, measurements -> largeRefiner.refine(measurements, LARGE_BUDGET));
+
+        System.out.println("mode\tbudget\tmean_rules\tmax_rules\tconverge_A\tconverge_B\tconverge_A_again");
+        print("threshold", "-", threshold);
+        print("hhh", "matched", matched);
+        print("hhh", String.valueOf(threshold.maxRules), fixed);
+        print("hhh", String.valueOf(LARGE_BUDGET), large);
+    }
+
+    private static Result simulate(List<Traffic> phases, Function<List<Measurement>, List<IPv4AddressWithMask>> refine) {
+        Result result = new Result(phases.size());
+        List<IPv4AddressWithMask> prefixes = singletonList(IPUtil.base(CLIENT_RANGE));
+        long totalRules = 0;
+        for (int phase = 0; phase < phases.size(); phase++) {
+            Traffic traffic = phases.get(phase);
+            for (int interval = 0; interval < PHASE_INTERVALS; interval++) {
+                List<Measurement> measurements = new ArrayList<>();
+                boolean localized = true;
+                for (IPv4AddressWithMask prefix : prefixes) {
+                    long bytes = traffic.bytes(prefix);
+                    measurements.add(new Measurement(prefix, bytes));
+                    if (bytes > THRESHOLD * traffic.total && prefix.getMask().asCidrMaskLength() < 32) {
+                        localized = false;
+                    }
+                }
+                if (localized && result.convergence[phase] < 0) {
+                    result.convergence[phase] = interval;
+                }
+                totalRules += prefixes.size();
+                result.maxRules = Math.max(result.maxRules, prefixes.size());
+                prefixes = refine.apply(measurements);
+            }
+        }
+        result.meanRules = (double) totalRules / (phases.size() * PHASE_INTERVALS);
+        return result;
+    }
+
+    private static void print(String mode, String budget, Result result) {
+        StringBuilder line = new StringBuilder(mode).append('\t').append(budget).append('\t')
+                .append(String.format("%.1f", result.meanRules)).append('\t').append(result.maxRules);
+        for (int convergence : result.convergence) {
+            line.append('\t').append(convergence >= 0 ? String.valueOf(convergence) : "never");
+        }
+        System.out.println(line);
+    }
+
+    private static final class Traffic {
+        private final int[] clients;
+        private final long[] bytes;
+        private final long total;
+
+        private Traffic(int[] background, int[] heavyHitters) {
+            clients = new int[background.length + heavyHitters.length];
+            bytes = new long[clients.length];
+            long backgroundBytes = 1_000_000_000L;
+            long heavyHitterBytes = (long) (backgroundBytes * HEAVY_HITTER_SHARE
+                    / (1 - HEAVY_HITTER_SHARE * heavyHitters.length));
+            for (int i = 0; i < background.length; i++) {
+                clients[i] = background[i];
+                bytes[i] = backgroundBytes / background.length;
+            }
+            for (int i = 0; i < heavyHitters.length; i++) {
+                clients[background.length + i] = heavyHitters[i];
+                bytes[background.length + i] = heavyHitterBytes;
+            }
+            total = Arrays.stream(bytes).sum();
+        }
+
+        private long bytes(IPv4AddressWithMask prefix) {
+            int mask = prefix.getMask().getInt();
+            int value = prefix.getValue().getInt();
+            long sum = 0;
+            for (int i = 0; i < clients.length; i++) {
+                if ((clients[i] & mask) == value) {
+                    sum += bytes[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    private static final class Result {
+        private final int[] convergence;
+        private int maxRules;
+        private double meanRules;
+
+        private Result(int phases) {
+            convergence = new int[phases];
+            Arrays.fill(convergence, -1);
+        }
+    }
+}
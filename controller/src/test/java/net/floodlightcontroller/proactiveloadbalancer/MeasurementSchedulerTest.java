@@ -0,0 +1,143 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+import org.projectfloodlight.openflow.types.U64;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MeasurementSchedulerTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final List<Flow> FLOWS = asList(
+            new Flow(U64.of(1), (short) 1, IPv4AddressWithMask.of("10.0.0.0/8"), 1000));
+    private static final List<Flow> OLD_FLOWS = asList(
+            new Flow(U64.of(1), (short) 1, IPv4AddressWithMask.of("10.0.0.0/8"), 500));
+    private static final long TIMEOUT_MILLIS = 20;
+
+    private InMemoryMeasurementSource source;
+    private List<Runnable> workerTasks;
+    private Map<DatapathId, List<Flow>> lastFlows;
+    private Set<DatapathId> lastStaleSwitches;
+
+    @Before
+    public void setUp() {
+        source = new InMemoryMeasurementSource();
+        workerTasks = new ArrayList<>();
+    }
+
+    @Test
+    public void runCycle_whenAllSwitchesAnswer_passesFlows() {
+        source.setFlows(SWITCH_1, FLOWS).setFlows(SWITCH_2, emptyList());
+
+        createScheduler(emptyMap()).runCycle();
+
+        assertThat(lastFlows.get(SWITCH_1), equalTo(FLOWS));
+        assertThat(lastFlows.get(SWITCH_2), equalTo(emptyList()));
+        assertThat(lastStaleSwitches, empty());
+    }
+
+    @Test
+    public void runCycle_whenSwitchFails_reusesLastFlowsAsStale() {
+        source.setFlows(SWITCH_1, FLOWS).setFlows(SWITCH_2, OLD_FLOWS);
+        MeasurementScheduler scheduler = createScheduler(emptyMap());
+        scheduler.runCycle();
+
+        source.setFailure(SWITCH_2, new IOException("Connection refused"));
+        scheduler.runCycle();
+
+        assertThat(lastFlows.get(SWITCH_2), equalTo(OLD_FLOWS));
+        assertThat(lastStaleSwitches, contains(SWITCH_2));
+        assertThat(scheduler.getStats().get(SWITCH_2).getFailures(), equalTo(1L));
+        assertThat(scheduler.getStats().get(SWITCH_2).isStale(), equalTo(true));
+    }
+
+    @Test
+    public void runCycle_whenSwitchMissesDeadline_cancelsAndMarksStale() {
+        source.setFlows(SWITCH_1, FLOWS);
+        MeasurementScheduler scheduler = createScheduler(emptyMap());
+
+        scheduler.runCycle();
+
+        assertThat(lastFlows.get(SWITCH_1), equalTo(FLOWS));
+        assertThat(lastFlows.get(SWITCH_2), equalTo(emptyList()));
+        assertThat(lastStaleSwitches, contains(SWITCH_2));
+        assertThat(source.getLastRequest(SWITCH_2).isCancelled(), equalTo(true));
+        assertThat(scheduler.getStats().get(SWITCH_2).getTimeouts(), equalTo(1L));
+        assertThat(scheduler.getStats().get(SWITCH_1).getLatency().getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void runCycle_whenRequestThrows_marksStale() {
+        MeasurementSource throwingSource = switchId -> {
+            if (switchId.equals(SWITCH_2)) {
+                throw new IllegalStateException("Switch not connected");
+            }
+            return CompletableFuture.completedFuture(FLOWS);
+        };
+        MeasurementScheduler scheduler = new MeasurementScheduler(throwingSource, asList(SWITCH_1, SWITCH_2), null,
+                workerTasks::add, 1000, TIMEOUT_MILLIS, emptyMap(), this::handleMeasurements);
+
+        scheduler.runCycle();
+
+        assertThat(lastFlows.get(SWITCH_1), equalTo(FLOWS));
+        assertThat(lastStaleSwitches, contains(SWITCH_2));
+    }
+
+    @Test
+    public void runCycle_usesSwitchTimeouts() {
+        source.setFlows(SWITCH_1, FLOWS);
+        MeasurementScheduler scheduler = createScheduler(singletonMap(SWITCH_2, 200L));
+
+        long start = System.nanoTime();
+        scheduler.runCycle();
+
+        assertThat(System.nanoTime() - start >= 200_000_000L, equalTo(true));
+        assertThat(lastStaleSwitches, contains(SWITCH_2));
+    }
+
+    @Test
+    public void tick_whenCycleRunning_skipsCycle() {
+        source.setFlows(SWITCH_1, FLOWS).setFlows(SWITCH_2, FLOWS);
+        MeasurementScheduler scheduler = createScheduler(emptyMap());
+
+        assertThat(scheduler.tick(), equalTo(true));
+        assertThat(scheduler.tick(), equalTo(false));
+        assertThat(scheduler.getSkippedCycles(), equalTo(1L));
+        assertThat(workerTasks.size(), equalTo(1));
+
+        // Cycle finishes, next tick runs again
+        workerTasks.get(0).run();
+        assertThat(scheduler.tick(), equalTo(true));
+        assertThat(workerTasks.size(), equalTo(2));
+    }
+
+    private MeasurementScheduler createScheduler(Map<DatapathId, Long> switchTimeouts) {
+        return new MeasurementScheduler(source, asList(SWITCH_1, SWITCH_2), null, workerTasks::add,
+                1000, TIMEOUT_MILLIS, switchTimeouts, this::handleMeasurements);
+    }
+
+    private void handleMeasurements(long timestamp, Map<DatapathId, List<Flow>> flows, Set<DatapathId> staleSwitches) {
+        lastFlows = flows;
+        lastStaleSwitches = staleSwitches;
+    }
+}
@@ -0,0 +1,151 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class OptimalPrefixAssignerTest extends FloodlightTestCase {
+
+    IPv4AddressWithMask RANGE = IPv4AddressWithMask.of("10.0.0.0/8");
+    OptimalPrefixAssigner assigner = new OptimalPrefixAssigner();
+
+    @Test
+    public void assignPrefixes_whenEmptyServers_returnsDefault() {
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, null, emptyList());
+
+        assertThat(result, equalTo(singletonList(new LoadBalancingFlow(RANGE, null))));
+    }
+
+    @Test
+    public void assignPrefixes_whenGreedyOverloadsServer_balancesRuns() {
+        // Greedy assigns 10.64.0.0/10 and 10.128.0.0/10 to the second server, a load of 10
+        List<WeightedPrefix> measurements = asList(
+                new WeightedPrefix(IPv4AddressWithMask.of("10.0.0.0/10"), 2),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.64.0.0/10"), 6),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.128.0.0/10"), 4),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.192.0.0/10"), 3));
+        List<Server> servers = asList(
+                new Server(IPv4Address.of("10.0.0.1"), 1),
+                new Server(IPv4Address.of("10.0.0.2"), 1),
+                new Server(IPv4Address.of("10.0.0.3"), 1));
+
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), IPv4Address.of("10.0.0.1")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), IPv4Address.of("10.0.0.2")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), IPv4Address.of("10.0.0.3")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), IPv4Address.of("10.0.0.3")));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_whenNoTraffic_balancesPrefixes() {
+        List<WeightedPrefix> measurements = asList(
+                new WeightedPrefix(IPv4AddressWithMask.of("10.0.0.0/10"), 0),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.64.0.0/10"), 0),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.128.0.0/10"), 0),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.192.0.0/10"), 0));
+        List<Server> servers = asList(
+                new Server(IPv4Address.of("10.0.0.1"), 1),
+                new Server(IPv4Address.of("10.0.0.2"), 1));
+
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), IPv4Address.of("10.0.0.1")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), IPv4Address.of("10.0.0.1")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), IPv4Address.of("10.0.0.2")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), IPv4Address.of("10.0.0.2")));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_whenServerWeightZero_assignsItNothing() {
+        List<WeightedPrefix> measurements = asList(
+                new WeightedPrefix(IPv4AddressWithMask.of("10.0.0.0/9"), 1),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.128.0.0/9"), 1));
+        List<Server> servers = asList(
+                new Server(IPv4Address.of("10.0.0.1"), 0),
+                new Server(IPv4Address.of("10.0.0.2"), 1));
+
+        List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/9"), IPv4Address.of("10.0.0.2")),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/9"), IPv4Address.of("10.0.0.2")));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_minimizesMaxLoadPerWeight() {
+        Random random = new Random(1);
+        for (int run = 0; run < 200; run++) {
+            List<WeightedPrefix> measurements = new ArrayList<>();
+            int numMeasurements = 1 + random.nextInt(8);
+            for (int i = 0; i < numMeasurements; i++) {
+                measurements.add(new WeightedPrefix(IPv4Address.of(i).withMaskOfLength(32), random.nextInt(10)));
+            }
+            List<Server> servers = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                servers.add(new Server(IPv4Address.of("10.0.0." + (j + 1)), 1 + random.nextInt(3)));
+            }
+
+            List<LoadBalancingFlow> result = assigner.assignPrefixes(RANGE, measurements, servers);
+
+            assertThat(maxLoadPerWeight(result, measurements, servers),
+                    closeTo(bruteForceMaxLoadPerWeight(measurements, servers), 1e-9));
+        }
+    }
+
+    // Helpers
+    private static double maxLoadPerWeight(List<LoadBalancingFlow> flows, List<WeightedPrefix> measurements, List<Server> servers) {
+        Map<IPv4Address, Double> loads = new HashMap<>();
+        for (int i = 0; i < flows.size(); i++) {
+            assertThat(flows.get(i).getPrefix(), equalTo(measurements.get(i).getPrefix()));
+            loads.merge(flows.get(i).getDip(), measurements.get(i).getWeight(), Double::sum);
+        }
+        double max = 0;
+        for (Server server : servers) {
+            max = Math.max(max, loads.getOrDefault(server.getDip(), 0D) / server.getWeight());
+        }
+        return max;
+    }
+
+    // Every split of the prefixes into 3 contiguous runs
+    private static double bruteForceMaxLoadPerWeight(List<WeightedPrefix> measurements, List<Server> servers) {
+        int n = measurements.size();
+        double best = Double.MAX_VALUE;
+        for (int end0 = 0; end0 <= n; end0++) {
+            for (int end1 = end0; end1 <= n; end1++) {
+                double max = Math.max(
+                        Math.max(sum(measurements, 0, end0) / servers.get(0).getWeight(),
+                                sum(measurements, end0, end1) / servers.get(1).getWeight()),
+                        sum(measurements, end1, n) / servers.get(2).getWeight());
+                best = Math.min(best, max);
+            }
+        }
+        return best;
+    }
+
+    private static double sum(List<WeightedPrefix> measurements, int from, int to) {
+        return measurements.subList(from, to).stream().mapToDouble(WeightedPrefix::getWeight).sum();
+    }
+}
@@ -0,0 +1,203 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.google.common.util.concurrent.SettableFuture;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(EasyMockRunner.class)
+public class PacketInCoalescerTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_ID = DatapathId.of(1);
+    private static final DatapathId SWITCH_ID_2 = DatapathId.of(2);
+    private static final IPv4Address CLIENT = IPv4Address.of("10.0.0.1");
+    private static final long XID = 42;
+
+    @Mock
+    private SwitchWriterPool mockSwitchWriters;
+
+    @Mock
+    private IOFSwitch mockSwitch;
+
+    @Mock
+    private IOFSwitch mockSwitch2;
+
+    @Mock
+    private OFFactory mockFactory;
+
+    @Mock
+    private OFBarrierRequest.Builder mockBarrierBuilder;
+
+    @Mock
+    private OFBarrierRequest mockBarrier;
+
+    @Mock
+    private OFBarrierReply mockBarrierReply;
+
+    @Mock
+    private OFMessage packetOut1;
+
+    @Mock
+    private OFMessage packetOut2;
+
+    @Mock
+    private OFMessage packetOut3;
+
+    private Capture<Collection<? extends OFMessage>> written = newCapture(CaptureType.ALL);
+    private Capture<Collection<? extends OFMessage>> written2 = newCapture(CaptureType.ALL);
+    private Capture<OFBarrierRequest> requested = newCapture(CaptureType.ALL);
+    // Futures of the barriers written, in order
+    private List<SettableFuture<OFBarrierReply>> replies = new CopyOnWriteArrayList<>();
+
+    // Without a window every allocation is closed by its own barrier
+    private BarrierBatcher barrierBatcher;
+
+    @Before
+    public void setUp() {
+        expect(mockSwitch.getId()).andStubReturn(SWITCH_ID);
+        expect(mockSwitch.getOFFactory()).andStubReturn(mockFactory);
+        expect(mockSwitch2.getId()).andStubReturn(SWITCH_ID_2);
+        expect(mockFactory.nextXid()).andStubReturn(XID);
+        expect(mockFactory.buildBarrierRequest()).andStubReturn(mockBarrierBuilder);
+        expect(mockBarrierBuilder.setXid(XID)).andStubReturn(mockBarrierBuilder);
+        expect(mockBarrierBuilder.build()).andStubReturn(mockBarrier);
+        expect(mockBarrier.getXid()).andStubReturn(XID);
+        expect(mockSwitchWriters.write(eq(SWITCH_ID), capture(written))).andStubReturn(true);
+        expect(mockSwitchWriters.write(eq(SWITCH_ID_2), capture(written2))).andStubReturn(true);
+        expect(mockSwitchWriters.writeRequest(eq(SWITCH_ID), capture(requested))).andStubAnswer(() -> {
+            SettableFuture<OFBarrierReply> reply = SettableFuture.create();
+            replies.add(reply);
+            return reply;
+        });
+        replay(mockSwitch, mockSwitch2, mockFactory, mockBarrierBuilder, mockBarrier, mockSwitchWriters);
+        barrierBatcher = new BarrierBatcher(mockSwitchWriters, null, 0);
+    }
+
+    @Test
+    public void handlePacketIn_whenNewClient_allocatesAndWritesBarrier() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+
+        boolean result = coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+
+        assertThat(result, equalTo(false));
+        assertThat(requested.getValues(), contains(mockBarrier));
+        assertThat(coalescer.getPendingClients(), equalTo(1));
+    }
+
+    @Test
+    public void handlePacketIn_whenAllocationPending_collapsesPacketIns() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+        AtomicInteger allocations = new AtomicInteger();
+
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> allocations.incrementAndGet() > 0);
+        boolean result2 = coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut2, () -> allocations.incrementAndGet() > 0);
+        boolean result3 = coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut3, () -> allocations.incrementAndGet() > 0);
+
+        assertThat(result2, equalTo(true));
+        assertThat(result3, equalTo(true));
+        assertThat(allocations.get(), equalTo(1));
+        assertThat(coalescer.getCollapsedPacketIns(), equalTo(2L));
+        assertThat(requested.getValues(), contains(mockBarrier));
+    }
+
+    @Test
+    public void barrierReply_writesPendingPacketOutsInOrder() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut2, () -> true);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut3, () -> true);
+
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(written.getValues(), contains(asList(packetOut1, packetOut2, packetOut3)));
+        assertThat(coalescer.getPendingClients(), equalTo(0));
+    }
+
+    @Test
+    public void barrierReply_whenPacketInsFromSeveralSwitches_writesPacketOutsToTheirSwitch() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+        boolean result = coalescer.handlePacketIn(mockSwitch2, CLIENT, packetOut2, () -> true);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut3, () -> true);
+
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(result, equalTo(true));
+        assertThat(written.getValues(), contains(asList(packetOut1, packetOut3)));
+        assertThat(written2.getValues(), contains(asList(packetOut2)));
+    }
+
+    @Test
+    public void barrierReply_whenMissing_keepsPacketOutsPending() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+
+        assertThat(written.getValues(), empty());
+        assertThat(coalescer.getPendingClients(), equalTo(1));
+    }
+
+    @Test
+    public void handlePacketIn_whenNothingAllocated_doesNotCollapseNextPacketIn() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 1000);
+        AtomicInteger allocations = new AtomicInteger();
+
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> allocations.incrementAndGet() < 0);
+        boolean result = coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut2, () -> allocations.incrementAndGet() < 0);
+
+        assertThat(result, equalTo(false));
+        assertThat(allocations.get(), equalTo(2));
+        assertThat(requested.getValues(), empty());
+        assertThat(coalescer.getPendingClients(), equalTo(0));
+    }
+
+    @Test
+    public void handlePacketIn_whenPendingPacketsFull_dropsPacket() {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 2, 1000);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut2, () -> true);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut3, () -> true);
+
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(coalescer.getDroppedPacketIns(), equalTo(1L));
+        assertThat(written.getValues(), contains(asList(packetOut1, packetOut2)));
+    }
+
+    @Test
+    public void expire_whenBarrierReplyMissing_dropsPendingPackets() throws InterruptedException {
+        PacketInCoalescer coalescer = new PacketInCoalescer(mockSwitchWriters, barrierBatcher, 64, 0);
+        coalescer.handlePacketIn(mockSwitch, CLIENT, packetOut1, () -> true);
+        Thread.sleep(1);
+
+        coalescer.expire();
+        replies.get(0).set(mockBarrierReply);
+
+        assertThat(coalescer.getPendingClients(), equalTo(0));
+        assertThat(coalescer.getDroppedPacketIns(), equalTo(1L));
+        assertThat(written.getValues(), empty());
+    }
+}
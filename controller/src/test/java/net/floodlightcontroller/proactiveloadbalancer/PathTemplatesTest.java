@@ -0,0 +1,102 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Topology;
+import net.floodlightcontroller.proactiveloadbalancer.serializer.*;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PathTemplatesTest extends FloodlightTestCase {
+
+    // Core switch 1 with server 10.0.0.4, switch 2 with servers 10.0.0.1 and 10.0.0.2, switch 3 with server 10.0.0.3
+    private static final String TOPOLOGY = "{"
+            + "\"servers\": [\"10.0.0.1\", \"10.0.0.2\", \"10.0.0.3\", \"10.0.0.4\"],"
+            + "\"switches\": [\"00:00:00:00:00:00:00:01\", \"00:00:00:00:00:00:00:02\", \"00:00:00:00:00:00:00:03\"],"
+            + "\"downlinksToServers\": {"
+            + "  \"00:00:00:00:00:00:00:01\": {\"10.0.0.4\": 4},"
+            + "  \"00:00:00:00:00:00:00:02\": {\"10.0.0.1\": 1, \"10.0.0.2\": 2},"
+            + "  \"00:00:00:00:00:00:00:03\": {\"10.0.0.3\": 1}},"
+            + "\"downlinksToSwitches\": {"
+            + "  \"00:00:00:00:00:00:00:01\": {\"00:00:00:00:00:00:00:02\": 2, \"00:00:00:00:00:00:00:03\": 3},"
+            + "  \"00:00:00:00:00:00:00:02\": {},"
+            + "  \"00:00:00:00:00:00:00:03\": {}}"
+            + "}";
+
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final DatapathId SWITCH_3 = DatapathId.of(3);
+
+    private Topology topology;
+    private Map<DatapathId, IPv4Address> vips;
+
+    @Before
+    public void setUp() throws IOException {
+        SimpleModule module = new SimpleModule()
+                .addKeyDeserializer(IPv4Address.class, new IPv4AddressKeyDeserializer())
+                .addDeserializer(IPv4Address.class, new IPv4AddressDeserializer())
+                .addKeyDeserializer(IPv4AddressWithMask.class, new IPv4AddressWithMaskKeyDeserializer())
+                .addKeyDeserializer(DatapathId.class, new DatapathIdKeyDeserializer())
+                .addDeserializer(DatapathId.class, new DatapathIdDeserializer());
+        topology = new ObjectMapper().registerModule(module).readValue(TOPOLOGY, Topology.class);
+        vips = new HashMap<>();
+        vips.put(SWITCH_1, IPv4Address.of("10.5.0.1"));
+        vips.put(SWITCH_2, IPv4Address.of("10.5.1.2"));
+        vips.put(SWITCH_3, IPv4Address.of("10.5.1.3"));
+    }
+
+    @Test
+    public void getNextHop_whenServerAttached_returnsServer() {
+        PathTemplates templates = PathTemplates.of(topology, vips);
+        int server = templates.getServerIndex(IPv4Address.of("10.0.0.1"));
+
+        assertThat(templates.getNextHop(server, templates.getSwitchIndex(SWITCH_2)), equalTo(IPv4Address.of("10.0.0.1")));
+        assertThat(templates.getNextHop(server, templates.getSwitchIndex(SWITCH_1)), equalTo(IPv4Address.of("10.5.1.2")));
+        assertThat(templates.getNextHop(server, templates.getSwitchIndex(SWITCH_3)), nullValue());
+        assertThat(templates.getSwitchMask(server), equalTo(0b011L));
+    }
+
+    @Test
+    public void getIndex_whenUnknown_returnsMinusOne() {
+        PathTemplates templates = PathTemplates.of(topology, vips);
+
+        assertThat(templates.getServerIndex(IPv4Address.of("10.0.0.9")), equalTo(-1));
+        assertThat(templates.getSwitchIndex(DatapathId.of(9)), equalTo(-1));
+    }
+
+    @Test
+    public void getNextHop_matchesFlowBuilder() {
+        PathTemplates templates = PathTemplates.of(topology, vips);
+        IPv4AddressWithMask client = IPv4AddressWithMask.of("10.1.2.3/32");
+
+        for (IPv4Address server : topology.getServers()) {
+            int serverIndex = templates.getServerIndex(server);
+            Map<DatapathId, List<LoadBalancingFlow>> expected = FlowBuilder.buildPhysicalFlows(topology, vips,
+                    singletonList(new LoadBalancingFlow(client, server)));
+            for (DatapathId switchId : topology.getSwitches()) {
+                List<LoadBalancingFlow> expectedFlows = expected.get(switchId);
+                IPv4Address nextHop = templates.getNextHop(serverIndex, templates.getSwitchIndex(switchId));
+                if (expectedFlows.isEmpty()) {
+                    assertThat(nextHop, nullValue());
+                } else {
+                    assertThat(singletonList(new LoadBalancingFlow(client, nextHop)), equalTo(expectedFlows));
+                }
+            }
+        }
+    }
+}
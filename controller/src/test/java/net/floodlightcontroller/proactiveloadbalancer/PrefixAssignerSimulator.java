@@ -0,0 +1,312 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compares the load imbalance (max load per weight / mean - 1) of greedy and optimal prefix assignment: on the
+ * measurements recorded on the testbed on 2017-03-27 (see GreedyPrefixAssignerTest), on synthetic Pareto distributed
+ * prefix traffic, and on the client measurements of a snapshot journal if one is given. Then compares optimal and
+ * stable assignment over drifting synthetic traffic by imbalance and share of traffic and prefixes moved per interval,
+ * and optimal assignment of Pareto traffic with heavy prefixes split within growing rule budgets, scored by the
+ * splitter's estimates and by the traffic of the clients in each prefix.
+ *
+ * <p>Usage: {@code java -cp <classpath> net.floodlightcontroller.proactiveloadbalancer.PrefixAssignerSimulator [journal]}
+ */
+public class PrefixAssignerSimulator {
+
+    private static final IPv4AddressWithMask RANGE = IPv4AddressWithMask.of("10.0.0.0/8");
+
+    // Bytes per measurement prefix, 2017-03-27 21:58:17
+    private static final String[][] RECORDED = {
+            {"10.0.0.0/14", "164622"}, {"10.4.0.0/15", "66396"}, {"10.6.0.0/15", "140458"},
+            {"10.8.0.0/14", "279327"}, {"10.12.0.0/15", "138826"}, {"10.14.0.0/15", "216483"},
+            {"10.16.0.0/15", "210740"}, {"10.18.0.0/16", "62714"}, {"10.19.0.0/16", "111144"},
+            {"10.20.0.0/15", "261702"}, {"10.22.0.0/15", "175113"}, {"10.24.0.0/15", "205442"},
+            {"10.26.0.0/15", "278373"}, {"10.28.0.0/15", "265866"}, {"10.30.0.0/15", "137579"},
+            {"10.32.0.0/15", "306957"}, {"10.34.0.0/15", "210024"}, {"10.36.0.0/15", "158141"},
+            {"10.38.0.0/15", "156742"}, {"10.40.0.0/15", "153436"}, {"10.42.0.0/15", "158474"},
+            {"10.44.0.0/14", "240458"}, {"10.48.0.0/13", "307170"}, {"10.56.0.0/13", "103625"},
+            {"10.64.0.0/10", "32369"}};
+
+    private static final PrefixAssigner GREEDY = new GreedyPrefixAssigner();
+    private static final PrefixAssigner OPTIMAL = new OptimalPrefixAssigner();
+
+    public static void main(String[] args) throws IOException {
+        List<WeightedPrefix> recorded = new ArrayList<>();
+        for (String[] measurement : RECORDED) {
+            recorded.add(new WeightedPrefix(IPv4AddressWithMask.of(measurement[0]), Double.parseDouble(measurement[1])));
+        }
+
+        System.out.println("measurements\tservers\tgreedy_imbalance\toptimal_imbalance\tgreedy_ms\toptimal_ms");
+        for (int numServers : new int[] {4, 8, 16}) {
+            print("recorded", recorded, numServers, false);
+            print("recorded", recorded, numServers, true);
+        }
+
+        Random random = new Random(42);
+        for (int bits : new int[] {6, 10, 16}) {
+            List<WeightedPrefix> synthetic = pareto(random, bits);
+            print("pareto/" + (1 << bits), synthetic, 16, false);
+            print("pareto/" + (1 << bits), synthetic, 16, true);
+        }
+
+        System.out.println();
+        System.out.println("assigner\tmean_imbalance\tmoved_traffic\tmoved_prefixes");
+        drift("optimal", OPTIMAL);
+        for (double tolerance : new double[] {0.02, 0.05, 0.1, 0.2}) {
+            drift("stable/" + tolerance, new StablePrefixAssigner(tolerance));
+        }
+
+        System.out.println();
+        System.out.println("measurements\trule_budget\trules\testimated_imbalance\ttrue_imbalance");
+        Random clientRandom = new Random(7);
+        Clients clients = new Clients(clientRandom, 6, 32);
+        List<Server> servers = servers(16, false);
+        // Splits are learned from an earlier interval measured two levels finer, then applied to the usual measurements
+        List<WeightedPrefix> fine = clients.fluctuate(clientRandom).measure(16);
+        List<WeightedPrefix> coarse = clients.measure(14);
+        for (int ruleBudget : new int[] {0, 65, 128}) {
+            PrefixSplitter splitter = new PrefixSplitter(IPv4AddressRange.of(RANGE));
+            splitter.split(fine, servers, ruleBudget);
+            List<WeightedPrefix> split = splitter.split(coarse, servers, ruleBudget);
+            List<LoadBalancingFlow> flows = OPTIMAL.assignPrefixes(RANGE, split, servers);
+            System.out.printf("pareto/64\t%d\t%d\t%.3f\t%.3f%n",
+                    ruleBudget,
+                    split.size(),
+                    imbalance(flows, split, servers),
+                    clients.imbalance(flows, servers));
+        }
+
+        if (args.length == 1) {
+            replay(args[0], servers(16, false));
+        }
+    }
+
+    // Reassigns 256 prefixes every interval while their traffic fluctuates around means between 500 and 1500 bytes,
+    // prints mean imbalance and mean share of traffic and prefixes moved
+    private static void drift(String name, PrefixAssigner assigner) {
+        Random random = new Random(42);
+        List<Server> servers = servers(16, false);
+        double[] means = new double[256];
+        double[] weights = new double[means.length];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = 500 + 1000 * random.nextDouble();
+        }
+        List<LoadBalancingFlow> flowsOld = null;
+        double imbalanceSum = 0;
+        double movedTrafficSum = 0;
+        double movedPrefixesSum = 0;
+        int intervals = 100;
+        for (int interval = 0; interval < intervals; interval++) {
+            List<WeightedPrefix> measurements = new ArrayList<>();
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = means[i] * Math.exp(0.3 * random.nextGaussian());
+                measurements.add(new WeightedPrefix(IPv4Address.of(RANGE.getValue().getInt() + (i << 16)).withMaskOfLength(16),
+                        weights[i]));
+                total += weights[i];
+            }
+            List<LoadBalancingFlow> flows = assigner.assignPrefixes(RANGE, measurements, servers, flowsOld);
+            imbalanceSum += imbalance(flows, measurements, servers);
+            if (flowsOld != null) {
+                for (int i = 0; i < flows.size(); i++) {
+                    if (!flows.get(i).getDip().equals(flowsOld.get(i).getDip())) {
+                        movedTrafficSum += weights[i] / total;
+                        movedPrefixesSum += 1.0 / flows.size();
+                    }
+                }
+            }
+            flowsOld = flows;
+        }
+        System.out.printf("%s\t%.3f\t%.3f\t%.3f%n",
+                name,
+                imbalanceSum / intervals,
+                movedTrafficSum / (intervals - 1),
+                movedPrefixesSum / (intervals - 1));
+    }
+
+    private static void replay(String journal, List<Server> servers) throws IOException {
+        double greedySum = 0;
+        double optimalSum = 0;
+        int snapshots = 0;
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(Paths.get(journal))) {
+            Snapshot snapshot;
+            while ((snapshot = reader.read()) != null) {
+                List<WeightedPrefix> measurements = snapshot.getClientMeasurements().values().stream()
+                        .flatMap(Collection::stream)
+                        .map(measurement -> new WeightedPrefix(measurement.getPrefix(), measurement.getBytes()))
+                        .collect(toList());
+                if (measurements.isEmpty()) {
+                    continue;
+                }
+                IPv4AddressRange range = IPUtil.range(measurements.stream()
+                        .map(WeightedPrefix::getPrefix)
+                        .collect(toList()));
+                List<WeightedPrefix> merged = MeasurementMerger.merge(measurements, range);
+                IPv4AddressWithMask base = IPUtil.base(range);
+                greedySum += imbalance(GREEDY.assignPrefixes(base, merged, servers), merged, servers);
+                optimalSum += imbalance(OPTIMAL.assignPrefixes(base, merged, servers), merged, servers);
+                snapshots++;
+            }
+        }
+        System.out.println(journal + "\t" + snapshots + " snapshots\tmean greedy " + greedySum / snapshots
+                + "\tmean optimal " + optimalSum / snapshots);
+    }
+
+    private static void print(String name, List<WeightedPrefix> measurements, int numServers, boolean mixed) {
+        List<Server> servers = servers(numServers, mixed);
+        long start = System.nanoTime();
+        List<LoadBalancingFlow> greedy = GREEDY.assignPrefixes(RANGE, measurements, servers);
+        double greedyMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        List<LoadBalancingFlow> optimal = OPTIMAL.assignPrefixes(RANGE, measurements, servers);
+        double optimalMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%s\t%d%s\t%.3f\t%.3f\t%.2f\t%.2f%n",
+                name,
+                numServers,
+                mixed ? " mixed" : "",
+                imbalance(greedy, measurements, servers),
+                imbalance(optimal, measurements, servers),
+                greedyMillis,
+                optimalMillis);
+    }
+
+    // Max load per weight over mean load per weight, minus 1
+    static double imbalance(List<LoadBalancingFlow> flows, List<WeightedPrefix> measurements, List<Server> servers) {
+        Map<IPv4AddressWithMask, Double> weights = new HashMap<>();
+        for (WeightedPrefix measurement : measurements) {
+            weights.put(measurement.getPrefix(), measurement.getWeight());
+        }
+        Map<IPv4Address, Double> loads = new HashMap<>();
+        double total = 0;
+        for (LoadBalancingFlow flow : flows) {
+            double weight = weights.getOrDefault(flow.getPrefix(), 0D);
+            loads.merge(flow.getDip(), weight, Double::sum);
+            total += weight;
+        }
+        double totalServerWeight = servers.stream().mapToDouble(Server::getWeight).sum();
+        double max = 0;
+        for (Server server : servers) {
+            max = Math.max(max, loads.getOrDefault(server.getDip(), 0D) / server.getWeight());
+        }
+        return total == 0 ? 0 : max / (total / totalServerWeight) - 1;
+    }
+
+    // Servers of the testbed, alternately weighted 1 and 2 if mixed
+    private static List<Server> servers(int numServers, boolean mixed) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < numServers; i++) {
+            IPv4Address dip = IPv4Address.of(10 << 24 | (1 + i / 4) << 16 | (1 + i % 4 / 2) << 8 | (2 + i % 2));
+            servers.add(new Server(dip, mixed && i % 2 == 1 ? 2 : 1));
+        }
+        return servers;
+    }
+
+    // Pareto (alpha 1.2) distributed value with minimum 1
+    private static double pareto(Random random) {
+        return 1 / Math.pow(1 - random.nextDouble(), 1 / 1.2);
+    }
+
+    // Equal prefixes of the range with Pareto (alpha 1.2) distributed bytes
+    private static List<WeightedPrefix> pareto(Random random, int bits) {
+        List<WeightedPrefix> measurements = new ArrayList<>();
+        int length = RANGE.getMask().asCidrMaskLength() + bits;
+        for (int i = 0; i < 1 << bits; i++) {
+            IPv4Address address = IPv4Address.of(RANGE.getValue().getInt() + (i << (32 - length)));
+            double bytes = 1000 * pareto(random);
+            measurements.add(new WeightedPrefix(address.withMaskOfLength(length), bytes));
+        }
+        return measurements;
+    }
+
+    // Clients at random addresses, Pareto distributed bytes per prefix of the range and per client within it
+    private static final class Clients {
+        private final int[] addresses;
+        private final double[] bytes;
+
+        private Clients(int[] addresses, double[] bytes) {
+            this.addresses = addresses;
+            this.bytes = bytes;
+        }
+
+        private Clients(Random random, int bits, int clientsPerPrefix) {
+            int length = RANGE.getMask().asCidrMaskLength() + bits;
+            addresses = new int[clientsPerPrefix << bits];
+            bytes = new double[addresses.length];
+            for (int i = 0; i < 1 << bits; i++) {
+                int base = RANGE.getValue().getInt() + (i << (32 - length));
+                double prefixBytes = 1000 * pareto(random);
+                double[] clientWeights = new double[clientsPerPrefix];
+                double totalWeight = 0;
+                for (int j = 0; j < clientsPerPrefix; j++) {
+                    clientWeights[j] = pareto(random);
+                    totalWeight += clientWeights[j];
+                }
+                for (int j = 0; j < clientsPerPrefix; j++) {
+                    int client = i * clientsPerPrefix + j;
+                    addresses[client] = base + random.nextInt(1 << (32 - length));
+                    bytes[client] = prefixBytes * clientWeights[j] / totalWeight;
+                }
+            }
+        }
+
+        // Same clients, bytes fluctuating like in the drift simulation
+        private Clients fluctuate(Random random) {
+            double[] fluctuated = new double[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                fluctuated[i] = bytes[i] * Math.exp(0.3 * random.nextGaussian());
+            }
+            return new Clients(addresses, fluctuated);
+        }
+
+        // Bytes per prefix of the given length, covering the range
+        private List<WeightedPrefix> measure(int length) {
+            int rangeLength = RANGE.getMask().asCidrMaskLength();
+            double[] prefixBytes = new double[1 << (length - rangeLength)];
+            for (int i = 0; i < addresses.length; i++) {
+                prefixBytes[(addresses[i] - RANGE.getValue().getInt()) >>> (32 - length)] += bytes[i];
+            }
+            List<WeightedPrefix> measurements = new ArrayList<>();
+            for (int i = 0; i < prefixBytes.length; i++) {
+                IPv4Address address = IPv4Address.of(RANGE.getValue().getInt() + (i << (32 - length)));
+                measurements.add(new WeightedPrefix(address.withMaskOfLength(length), prefixBytes[i]));
+            }
+            return measurements;
+        }
+
+        // Imbalance of the bytes of the clients each flow matches
+        private double imbalance(List<LoadBalancingFlow> flows, List<Server> servers) {
+            List<WeightedPrefix> loads = new ArrayList<>();
+            for (LoadBalancingFlow flow : flows) {
+                int mask = flow.getPrefix().getMask().getInt();
+                int value = flow.getPrefix().getValue().getInt();
+                double flowBytes = 0;
+                for (int i = 0; i < addresses.length; i++) {
+                    if ((addresses[i] & mask) == value) {
+                        flowBytes += bytes[i];
+                    }
+                }
+                loads.add(new WeightedPrefix(flow.getPrefix(), flowBytes));
+            }
+            return PrefixAssignerSimulator.imbalance(flows, loads, servers);
+        }
+    }
+}
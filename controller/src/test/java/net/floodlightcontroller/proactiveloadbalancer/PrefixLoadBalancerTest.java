@@ -0,0 +1,130 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Config;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Strategy;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Topology;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.serializer.*;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.MockType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(EasyMockRunner.class)
+public class PrefixLoadBalancerTest extends FloodlightTestCase {
+
+    // Core switch 1 with server 10.0.0.4, switch 2 with servers 10.0.0.1 and 10.0.0.2, switch 3 with server 10.0.0.3
+    private static final String TOPOLOGY = "{"
+            + "\"servers\": [\"10.0.0.1\", \"10.0.0.2\", \"10.0.0.3\", \"10.0.0.4\"],"
+            + "\"switches\": [\"00:00:00:00:00:00:00:01\", \"00:00:00:00:00:00:00:02\", \"00:00:00:00:00:00:00:03\"],"
+            + "\"downlinksToServers\": {"
+            + "  \"00:00:00:00:00:00:00:01\": {\"10.0.0.4\": 4},"
+            + "  \"00:00:00:00:00:00:00:02\": {\"10.0.0.1\": 1, \"10.0.0.2\": 2},"
+            + "  \"00:00:00:00:00:00:00:03\": {\"10.0.0.3\": 1}},"
+            + "\"downlinksToSwitches\": {"
+            + "  \"00:00:00:00:00:00:00:01\": {\"00:00:00:00:00:00:00:02\": 2, \"00:00:00:00:00:00:00:03\": 3},"
+            + "  \"00:00:00:00:00:00:00:02\": {},"
+            + "  \"00:00:00:00:00:00:00:03\": {}}"
+            + "}";
+
+    private static final IPv4AddressRange RANGE = new IPv4AddressRange("10.0.0.0-10.255.255.255");
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final DatapathId SWITCH_3 = DatapathId.of(3);
+    private static final IPv4Address CLIENT = IPv4Address.of("10.64.0.1");
+
+    @Mock(type = MockType.NICE)
+    private IOFSwitchService mockSwitchService;
+
+    @Mock
+    private SwitchWriterPool mockSwitchWriters;
+
+    @Mock
+    private ClientTrafficEstimator mockTrafficEstimator;
+
+    private PrefixLoadBalancer loadBalancer;
+
+    @Before
+    public void setUp() throws IOException {
+        SimpleModule module = new SimpleModule()
+                .addKeyDeserializer(IPv4Address.class, new IPv4AddressKeyDeserializer())
+                .addDeserializer(IPv4Address.class, new IPv4AddressDeserializer())
+                .addKeyDeserializer(IPv4AddressWithMask.class, new IPv4AddressWithMaskKeyDeserializer())
+                .addKeyDeserializer(DatapathId.class, new DatapathIdKeyDeserializer())
+                .addDeserializer(DatapathId.class, new DatapathIdDeserializer());
+        Topology topology = new ObjectMapper().registerModule(module).readValue(TOPOLOGY, Topology.class);
+        Map<IPv4Address, Double> weights = new HashMap<>();
+        topology.getServers().forEach(server -> weights.put(server, 1.0));
+        Config config = new Config()
+                .setTopology(topology)
+                .setStrategyRanges(singletonMap(RANGE, Strategy.non_uniform))
+                .setWeights(weights);
+        Map<DatapathId, IPv4Address> vips = new HashMap<>();
+        vips.put(SWITCH_1, IPv4Address.of("10.5.0.1"));
+        vips.put(SWITCH_2, IPv4Address.of("10.5.1.2"));
+        vips.put(SWITCH_3, IPv4Address.of("10.5.1.3"));
+        // Traffic measured per half of the range, so the second round moves clients between servers
+        expect(mockTrafficEstimator.estimate()).andStubReturn(asList(
+                new WeightedPrefix(IPv4AddressWithMask.of("10.0.0.0/9"), 1),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.128.0.0/9"), 3)));
+        mockTrafficEstimator.addMeasurements(anyLong(), anyObject());
+        expectLastCall().asStub();
+        replay(mockSwitchService, mockSwitchWriters);
+
+        loadBalancer = new PrefixLoadBalancer(RANGE, Strategy.non_uniform, config, vips,
+                PathTemplates.of(topology, vips), mockSwitchService, mockSwitchWriters, new PacketInLatencies(),
+                mockTrafficEstimator);
+    }
+
+    @Test
+    public void handleFlowRemoved_whenMicroflowOnSeveralSwitches_countsBytesOnce() throws InterruptedException {
+        mockTrafficEstimator.addMicroflow(CLIENT, 100);
+        expectLastCall().once();
+        replay(mockTrafficEstimator);
+        rebalance();
+        // The client moves to 10.0.0.1 behind switch 2, its microflow is installed on switches 1 and 2
+        assertThat(loadBalancer.handlePacketIn(CLIENT, true), equalTo(true));
+
+        loadBalancer.handleFlowRemoved(CLIENT, SWITCH_1, 100);
+        loadBalancer.handleFlowRemoved(CLIENT, SWITCH_2, 100);
+
+        verify(mockTrafficEstimator);
+    }
+
+    @Test
+    public void handleFlowRemoved_whenClientUnknown_countsNothing() throws InterruptedException {
+        replay(mockTrafficEstimator);
+        rebalance();
+
+        loadBalancer.handleFlowRemoved(CLIENT, SWITCH_1, 100);
+
+        verify(mockTrafficEstimator);
+    }
+
+    private void rebalance() throws InterruptedException {
+        // Load balancing runs at most once per millisecond without an interval
+        Thread.sleep(1);
+        loadBalancer.handleClientMeasurements(emptyMap());
+    }
+}
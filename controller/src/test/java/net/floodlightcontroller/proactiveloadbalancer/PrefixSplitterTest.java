@@ -0,0 +1,125 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PrefixSplitterTest extends FloodlightTestCase {
+
+    private static final IPv4AddressRange CLIENT_RANGE = new IPv4AddressRange("10.0.0.0-10.255.255.255");
+
+    List<Server> SERVERS = asList(
+            new Server(IPv4Address.of("10.0.0.1"), 1),
+            new Server(IPv4Address.of("10.0.0.2"), 1),
+            new Server(IPv4Address.of("10.0.0.3"), 1),
+            new Server(IPv4Address.of("10.0.0.4"), 1));
+
+    private PrefixSplitter splitter;
+
+    @Before
+    public void setUp() {
+        splitter = new PrefixSplitter(CLIENT_RANGE);
+    }
+
+    @Test
+    public void split_whenNoPrefixOverweight_returnsMeasurements() {
+        List<WeightedPrefix> measurements = asList(
+                weightedPrefix("10.0.0.0/9", 1),
+                weightedPrefix("10.128.0.0/9", 1));
+
+        List<WeightedPrefix> result = splitter.split(measurements, SERVERS.subList(0, 2), 10);
+
+        assertThat(result, equalTo(measurements));
+    }
+
+    @Test
+    public void split_whenSplitNeverMeasured_keepsPrefix() {
+        List<WeightedPrefix> measurements = asList(
+                weightedPrefix("10.0.0.0/9", 3),
+                weightedPrefix("10.128.0.0/9", 1));
+
+        List<WeightedPrefix> result = splitter.split(measurements, SERVERS, 10);
+
+        assertThat(result, equalTo(measurements));
+    }
+
+    @Test
+    public void split_whenPrefixOverweight_splitsByMeasuredShares() {
+        // Shares are 4 each, /9 split 1:1 and its lower /10 3:1 when measured finer
+        splitter.split(asList(
+                weightedPrefix("10.0.0.0/11", 3),
+                weightedPrefix("10.32.0.0/11", 1),
+                weightedPrefix("10.64.0.0/10", 4),
+                weightedPrefix("10.128.0.0/9", 8)), SERVERS, 10);
+
+        List<WeightedPrefix> result = splitter.split(asList(
+                weightedPrefix("10.0.0.0/9", 12),
+                weightedPrefix("10.128.0.0/9", 4)), SERVERS, 10);
+
+        // The upper /10 and the heavy /11 were never measured below their level
+        assertThat(result, equalTo(asList(
+                weightedPrefix("10.0.0.0/11", 4.5),
+                weightedPrefix("10.32.0.0/11", 1.5),
+                weightedPrefix("10.64.0.0/10", 6),
+                weightedPrefix("10.128.0.0/9", 4))));
+    }
+
+    @Test
+    public void split_whenBudgetUsed_stopsSplitting() {
+        splitter.split(asList(
+                weightedPrefix("10.0.0.0/11", 3),
+                weightedPrefix("10.32.0.0/11", 1),
+                weightedPrefix("10.64.0.0/10", 4),
+                weightedPrefix("10.128.0.0/9", 8)), SERVERS, 10);
+
+        List<WeightedPrefix> result = splitter.split(asList(
+                weightedPrefix("10.0.0.0/9", 12),
+                weightedPrefix("10.128.0.0/9", 4)), SERVERS, 3);
+
+        assertThat(result, equalTo(asList(
+                weightedPrefix("10.0.0.0/10", 6),
+                weightedPrefix("10.64.0.0/10", 6),
+                weightedPrefix("10.128.0.0/9", 4))));
+    }
+
+    @Test
+    public void split_whenNoBudget_returnsMeasurements() {
+        splitter.split(asList(
+                weightedPrefix("10.0.0.0/10", 2),
+                weightedPrefix("10.64.0.0/10", 1),
+                weightedPrefix("10.128.0.0/9", 1)), SERVERS, 10);
+        List<WeightedPrefix> measurements = asList(
+                weightedPrefix("10.0.0.0/9", 3),
+                weightedPrefix("10.128.0.0/9", 1));
+
+        List<WeightedPrefix> result = splitter.split(measurements, SERVERS, 0);
+
+        assertThat(result, equalTo(measurements));
+    }
+
+    @Test
+    public void split_whenSingleClientOverweight_keepsIt() {
+        List<WeightedPrefix> measurements = asList(
+                weightedPrefix("10.0.0.0/32", 3),
+                weightedPrefix("10.0.0.1/32", 1));
+
+        List<WeightedPrefix> result = splitter.split(measurements, SERVERS, 10);
+
+        assertThat(result, equalTo(measurements));
+    }
+
+    private static WeightedPrefix weightedPrefix(String prefix, double weight) {
+        return new WeightedPrefix(IPv4AddressWithMask.of(prefix), weight);
+    }
+}
@@ -0,0 +1,164 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.proactiveloadbalancer.util.ArrayPrefixTrie;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPUtil;
+import net.floodlightcontroller.proactiveloadbalancer.util.IPv4AddressRange;
+import net.floodlightcontroller.proactiveloadbalancer.util.PrefixTrie;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compares {@link PrefixTrie} with {@link ArrayPrefixTrie} from 10^3 to 10^6 measurement prefixes: merging
+ * measurements as {@link MeasurementMerger} does (previous implementation on PrefixTrie), and a pre-order plus
+ * post-order traversal of the merged trie alone. Run with main, prints ms per operation and checks that both merges
+ * agree.
+ */
+public class PrefixTrieBenchmark {
+
+    // Leaves of a full trie below 10.0.0.0/8, about 10^3 to 10^6
+    private static final int[] DEPTHS = {10, 13, 17, 20};
+    private static final IPv4AddressRange CLIENT_RANGE = IPv4AddressRange.of(IPv4AddressWithMask.of("10.0.0.0/8"));
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        System.out.println("prefixes\tmerge_object_ms\tmerge_array_ms\ttraverse_object_ms\ttraverse_array_ms");
+        for (int depth : DEPTHS) {
+            List<WeightedPrefix> measurements = new ArrayList<>();
+            int base = IPv4Address.of("10.0.0.0").getInt();
+            for (int i = 0; i < 1 << depth; i++) {
+                IPv4AddressWithMask prefix = IPv4Address.of(base + (i << (24 - depth))).withMaskOfLength(8 + depth);
+                measurements.add(new WeightedPrefix(prefix, random.nextInt(1000)));
+            }
+            Collections.shuffle(measurements, random);
+            int repetitions = Math.max(3, (1 << 22) / measurements.size());
+
+            // Both merges agree
+            List<WeightedPrefix> expected = mergeWithPrefixTrie(measurements, CLIENT_RANGE);
+            List<WeightedPrefix> actual = MeasurementMerger.merge(measurements, CLIENT_RANGE);
+            if (!expected.equals(actual)) {
+                throw new AssertionError("Merged measurements differ for " + measurements.size() + " prefixes");
+            }
+
+            // Warm up
+            long sink = 0;
+            for (int i = 0; i < repetitions; i++) {
+                sink += mergeWithPrefixTrie(measurements, CLIENT_RANGE).size();
+                sink += MeasurementMerger.merge(measurements, CLIENT_RANGE).size();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                sink += mergeWithPrefixTrie(measurements, CLIENT_RANGE).size();
+            }
+            double mergeObjectMs = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                sink += MeasurementMerger.merge(measurements, CLIENT_RANGE).size();
+            }
+            double mergeArrayMs = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            // Traversal alone, over tries holding the merged prefixes
+            PrefixTrie<Double> objectTrie = PrefixTrie.inflate(IPUtil.base(CLIENT_RANGE), 1D,
+                    measurements.stream().map(WeightedPrefix::getPrefix).collect(toList()));
+            ArrayPrefixTrie arrayTrie = inflate(measurements);
+            for (int i = 0; i < repetitions; i++) {
+                sink += traverse(objectTrie) + traverse(arrayTrie);
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                sink += traverse(objectTrie);
+            }
+            double traverseObjectMs = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                sink += traverse(arrayTrie);
+            }
+            double traverseArrayMs = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            System.out.printf("%d\t%.3f\t%.3f\t%.3f\t%.3f\t(%d)%n", measurements.size(),
+                    mergeObjectMs, mergeArrayMs, traverseObjectMs, traverseArrayMs, sink & 1);
+        }
+    }
+
+    private static long traverse(PrefixTrie<Double> trie) {
+        long[] sum = {0};
+        trie.traversePreOrder((node, prefix) -> sum[0] += prefix.getMask().asCidrMaskLength());
+        trie.traversePostOrder((node, prefix) -> sum[0] += prefix.getValue().getInt());
+        return sum[0];
+    }
+
+    private static long traverse(ArrayPrefixTrie trie) {
+        long[] sum = {0};
+        trie.traversePreOrder((node, address, length) -> sum[0] += length);
+        trie.traversePostOrder((node, address, length) -> sum[0] += address);
+        return sum[0];
+    }
+
+    private static ArrayPrefixTrie inflate(List<WeightedPrefix> measurements) {
+        int maxLength = measurements.stream()
+                .mapToInt(wp -> wp.getPrefix().getMask().asCidrMaskLength())
+                .max()
+                .orElse(8);
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(IPv4Address.of("10.0.0.0").getInt(), 8, 1D,
+                2 * measurements.size());
+        trie.traversePreOrder((node, address, length) -> {
+            if (length < maxLength) {
+                trie.expand(node, 1D, 1D);
+            }
+        });
+        return trie;
+    }
+
+    // MeasurementMerger.merge as it was on PrefixTrie
+    private static List<WeightedPrefix> mergeWithPrefixTrie(List<WeightedPrefix> measurements,
+            IPv4AddressRange clientRange) {
+        IPv4AddressWithMask rootPrefix = IPUtil.base(clientRange);
+
+        PrefixTrie<Double> tree = PrefixTrie.empty(rootPrefix, 0D);
+        Queue<WeightedPrefix> measurementsInPreOrder = new PriorityQueue<>(comparing(WeightedPrefix::getPrefix));
+        measurementsInPreOrder.addAll(measurements);
+
+        tree.traversePreOrder((node, prefix) -> {
+            WeightedPrefix nextMeasurement = measurementsInPreOrder.peek();
+            while (nextMeasurement != null && Objects.equals(prefix, nextMeasurement.getPrefix())) {
+                node.setValue(node.getValue() + nextMeasurement.getWeight());
+                measurementsInPreOrder.remove();
+                nextMeasurement = measurementsInPreOrder.peek();
+            }
+            if (nextMeasurement != null && prefix.contains(nextMeasurement.getPrefix().getValue())) {
+                IPv4Address minOfRightSubtree = IPUtil.min(IPUtil.subprefix1(prefix));
+                IPv4Address maxOfLeftSubtree = IPUtil.max(IPUtil.subprefix0(prefix));
+                if (minOfRightSubtree.compareTo(clientRange.getMin()) <= 0) {
+                    node.expand1(node.getValue());
+                } else if (clientRange.getMax().compareTo(maxOfLeftSubtree) <= 0) {
+                    node.expand0(node.getValue());
+                } else {
+                    node.expand(node.getValue() / 2, node.getValue() / 2);
+                }
+            }
+        });
+
+        List<WeightedPrefix> mergedMeasurements = new ArrayList<>();
+        tree.traversePostOrder((node, prefix) -> {
+            if (node.isLeaf()) {
+                mergedMeasurements.add(new WeightedPrefix(prefix, node.getValue()));
+            }
+        });
+        return mergedMeasurements;
+    }
+}
@@ -0,0 +1,215 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.sun.net.httpserver.HttpServer;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerLoad;
+import net.floodlightcontroller.proactiveloadbalancer.domain.ServerMetrics;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ServerMetricsCollectorTest extends FloodlightTestCase {
+
+    private static final IPv4Address SERVER_1 = IPv4Address.of("10.5.1.1");
+    private static final IPv4Address SERVER_2 = IPv4Address.of("10.5.1.2");
+
+    private final Map<IPv4Address, ServerMetrics> metrics = new HashMap<>();
+    private final List<Runnable> workerTasks = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong();
+    private ServerMetricsCollector collector;
+
+    @Before
+    public void setUp() {
+        collector = new ServerMetricsCollector(asList(SERVER_1, SERVER_2),
+                server -> {
+                    ServerMetrics result = metrics.get(server);
+                    if (result == null) {
+                        throw new IOException("Connection refused");
+                    }
+                    return result;
+                },
+                null,
+                workerTasks::add,
+                1000,
+                clock::get);
+    }
+
+    @Test
+    public void poll_requestsAllServersAtOnce() {
+        collector.poll();
+
+        assertThat(workerTasks.size(), equalTo(2));
+    }
+
+    @Test
+    public void poll_whenPreviousRequestRunning_skipsServer() {
+        collector.poll();
+
+        collector.poll();
+
+        assertThat(workerTasks.size(), equalTo(2));
+    }
+
+    @Test
+    public void getServerMeasurements_returnsBytesServed() {
+        metrics.put(SERVER_1, metrics(1000, 3, 10, 50_000_000));
+        metrics.put(SERVER_2, metrics(2000, 1, 5, 0));
+
+        pollAndRun(1000);
+
+        assertThat(collector.getServerMeasurements(), contains(
+                new Measurement(SERVER_1.withMaskOfLength(32), 1000),
+                new Measurement(SERVER_2.withMaskOfLength(32), 2000)));
+    }
+
+    @Test
+    public void getLoads_returnsLoadBetweenLastTwoReports() {
+        metrics.put(SERVER_1, metrics(1000, 3, 10, 50_000_000));
+        pollAndRun(1000);
+        metrics.put(SERVER_1, metrics(5000, 4, 14, 90_000_000));
+
+        pollAndRun(3000);
+
+        ServerLoad load = collector.getLoads().get(SERVER_1);
+        assertThat(load.getRate(), closeTo(2000, 1e-9));
+        assertThat(load.getActiveConnections(), equalTo(4));
+        assertThat(load.getMeanLatency(), closeTo(10, 1e-9));
+        assertThat(load.isStale(), equalTo(false));
+        assertThat(collector.getLoads().containsKey(SERVER_2), equalTo(false));
+    }
+
+    @Test
+    public void getLoads_whenPollFails_marksLoadStale() {
+        metrics.put(SERVER_1, metrics(1000, 3, 10, 50_000_000));
+        pollAndRun(1000);
+        pollAndRun(2000);
+        metrics.remove(SERVER_1);
+
+        pollAndRun(3000);
+
+        ServerLoad load = collector.getLoads().get(SERVER_1);
+        assertThat(load.isStale(), equalTo(true));
+        assertThat(load.getLastCollected(), equalTo(2000L));
+    }
+
+    @Test
+    public void getLoads_whenCountersReset_countsFromZero() {
+        metrics.put(SERVER_1, metrics(5000, 0, 10, 50_000_000));
+        pollAndRun(1000);
+        metrics.put(SERVER_1, metrics(1000, 0, 2, 4_000_000));
+
+        pollAndRun(2000);
+
+        ServerLoad load = collector.getLoads().get(SERVER_1);
+        assertThat(load.getRate(), closeTo(1000, 1e-9));
+        assertThat(load.getMeanLatency(), closeTo(2, 1e-9));
+    }
+
+    @Test
+    public void http_parsesMetricsEndpoint() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = ("{\"bytesServed\":1234,\"activeConnections\":2,"
+                    + "\"requests\":7,\"requestLatencyNanos\":5000}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            ServerMetrics result = ServerMetricsCollector.http(server.getAddress().getPort(), 1000)
+                    .fetch(IPv4Address.of("127.0.0.1"));
+
+            assertThat(result.getBytesServed(), equalTo(1234L));
+            assertThat(result.getActiveConnections(), equalTo(2));
+            assertThat(result.getRequests(), equalTo(7L));
+            assertThat(result.getRequestLatencyNanos(), equalTo(5000L));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void takeCompletedRounds_returnsBytesAtPollTime() {
+        metrics.put(SERVER_1, metrics(1000, 3, 10, 50_000_000));
+        clock.set(1000);
+        collector.poll();
+        clock.set(1400);
+        runWorkerTasks();
+
+        List<ServerMetricsCollector.Round> rounds = collector.takeCompletedRounds();
+
+        assertThat(rounds.size(), equalTo(1));
+        assertThat(rounds.get(0).getTimestamp(), equalTo(1000L));
+        assertThat(rounds.get(0).getMeasurements(), contains(new Measurement(SERVER_1.withMaskOfLength(32), 1000)));
+        assertThat(collector.takeCompletedRounds(), empty());
+    }
+
+    @Test
+    public void takeCompletedRounds_whenEarlierRoundRunning_waitsForIt() {
+        metrics.put(SERVER_1, metrics(1000, 3, 10, 50_000_000));
+        metrics.put(SERVER_2, metrics(2000, 1, 5, 0));
+        clock.set(1000);
+        collector.poll();
+        Runnable server2Request = workerTasks.remove(1);
+        runWorkerTasks();
+        // Server 2 is still answering the first poll, so it is skipped
+        pollAndRun(2000);
+
+        assertThat(collector.takeCompletedRounds(), empty());
+
+        server2Request.run();
+        List<ServerMetricsCollector.Round> rounds = collector.takeCompletedRounds();
+
+        assertThat(rounds.size(), equalTo(2));
+        assertThat(rounds.get(0).getMeasurements().size(), equalTo(2));
+        assertThat(rounds.get(1).getTimestamp(), equalTo(2000L));
+        assertThat(rounds.get(1).getMeasurements(), contains(new Measurement(SERVER_1.withMaskOfLength(32), 1000)));
+    }
+
+    @Test
+    public void getServerMeasurements_whenNeverAnswered_isEmpty() {
+        pollAndRun(1000);
+
+        assertThat(collector.getServerMeasurements(), empty());
+    }
+
+    private void pollAndRun(long timestamp) {
+        clock.set(timestamp);
+        collector.poll();
+        runWorkerTasks();
+    }
+
+    private void runWorkerTasks() {
+        List<Runnable> tasks = new ArrayList<>(workerTasks);
+        workerTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static ServerMetrics metrics(long bytesServed, int activeConnections, long requests, long latencyNanos) {
+        return new ServerMetrics()
+                .setBytesServed(bytesServed)
+                .setActiveConnections(activeConnections)
+                .setRequests(requests)
+                .setRequestLatencyNanos(latencyNanos);
+    }
+}
@@ -0,0 +1,94 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ShellSessionTest extends FloodlightTestCase {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private ShellSession session;
+
+    @Before
+    public void setUp() {
+        session = new ShellSession(singletonList("sh"));
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void execute_returnsOutput() throws Exception {
+        assertThat(session.execute("echo foo; echo bar", TIMEOUT_MILLIS), equalTo("foo\nbar\n"));
+    }
+
+    @Test
+    public void execute_whenOutputLacksNewline_returnsOutput() throws Exception {
+        assertThat(session.execute("printf foo", TIMEOUT_MILLIS), equalTo("foo\n"));
+    }
+
+    @Test
+    public void execute_whenRepeated_reusesShell() throws Exception {
+        String pid = session.execute("echo $$", TIMEOUT_MILLIS);
+
+        assertThat(session.execute("echo $$", TIMEOUT_MILLIS), equalTo(pid));
+    }
+
+    @Test
+    public void execute_whenCommandReadsInput_doesNotConsumeNextCommand() throws Exception {
+        session.execute("cat", TIMEOUT_MILLIS);
+
+        assertThat(session.execute("echo foo", TIMEOUT_MILLIS), equalTo("foo\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void execute_whenCommandFails_throwsIOException() throws Exception {
+        session.execute("false", TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void execute_whenCommandFails_keepsSession() throws Exception {
+        String pid = session.execute("echo $$", TIMEOUT_MILLIS);
+        try {
+            session.execute("false", TIMEOUT_MILLIS);
+        } catch (IOException ignored) {
+        }
+
+        assertThat(session.execute("echo $$", TIMEOUT_MILLIS), equalTo(pid));
+    }
+
+    @Test
+    public void execute_whenTimedOut_restartsSession() throws Exception {
+        String pid = session.execute("echo $$", TIMEOUT_MILLIS);
+        try {
+            // Builtin loop, a child process would keep the output pipe open after the shell is killed
+            session.execute("while true; do :; done", 100);
+        } catch (TimeoutException ignored) {
+        }
+
+        assertThat(session.isOpen(), equalTo(false));
+        assertThat(session.execute("echo $$", TIMEOUT_MILLIS), not(equalTo(pid)));
+    }
+
+    @Test
+    public void execute_whenShellExits_restartsSession() throws Exception {
+        try {
+            session.execute("exit 0", TIMEOUT_MILLIS);
+        } catch (IOException ignored) {
+        }
+
+        assertThat(session.execute("echo foo", TIMEOUT_MILLIS), equalTo("foo\n"));
+    }
+}
@@ -0,0 +1,73 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotCodecTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final IPv4AddressWithMask CLIENTS_1 = IPv4AddressWithMask.of("10.0.0.0/9");
+    private static final IPv4AddressWithMask CLIENTS_2 = IPv4AddressWithMask.of("10.128.0.0/9");
+
+    @Test
+    public void encode_whenPrefixesDisappear_dropsTheirBaselines() {
+        SnapshotCodec writer = new SnapshotCodec();
+        SnapshotCodec reader = new SnapshotCodec();
+
+        transfer(writer, reader, snapshot(1000, singletonMap(SWITCH_1, asList(
+                measurement(CLIENTS_1, 100), measurement(CLIENTS_2, 200)))));
+        transfer(writer, reader, snapshot(2000, singletonMap(SWITCH_2, singletonList(
+                measurement(CLIENTS_1, 300)))));
+
+        assertThat(writer.getBaselineSize(), equalTo(1));
+        assertThat(reader.getBaselineSize(), equalTo(1));
+    }
+
+    @Test
+    public void decode_whenPrefixReturns_restoresBytes() {
+        SnapshotCodec writer = new SnapshotCodec();
+        SnapshotCodec reader = new SnapshotCodec();
+
+        transfer(writer, reader, snapshot(1000, singletonMap(SWITCH_1, singletonList(measurement(CLIENTS_1, 500)))));
+        transfer(writer, reader, snapshot(2000, singletonMap(SWITCH_1, singletonList(measurement(CLIENTS_2, 700)))));
+        Snapshot third = transfer(writer, reader,
+                snapshot(3000, singletonMap(SWITCH_1, singletonList(measurement(CLIENTS_1, 50)))));
+
+        assertThat(third.getClientMeasurements().get(SWITCH_1), contains(measurement(CLIENTS_1, 50)));
+    }
+
+    private static Snapshot transfer(SnapshotCodec writer, SnapshotCodec reader, Snapshot snapshot) {
+        return reader.decode(writer.encode(snapshot));
+    }
+
+    private static Snapshot snapshot(long timestamp, Map<DatapathId, List<Measurement>> clientMeasurements) {
+        return new Snapshot()
+                .setTimestamp(timestamp)
+                .setNumRules(emptyMap())
+                .setWriteQueueDepths(emptyMap())
+                .setServerMeasurements(emptyList())
+                .setClientMeasurements(clientMeasurements)
+                .setStaleSwitches(emptyList());
+    }
+
+    private static Measurement measurement(IPv4AddressWithMask prefix, long bytes) {
+        return new Measurement(prefix, bytes);
+    }
+}
@@ -0,0 +1,138 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares logging snapshots as JSON lines with the binary {@link SnapshotJournal}, for ten minutes of snapshots of
+ * 4 switches with 1000 client prefixes each. Run with main, prints ms and bytes for writing and reading back.
+ */
+public class SnapshotJournalBenchmark {
+
+    private static final int SNAPSHOTS = 600;
+    private static final int SWITCHES = 4;
+    private static final int PREFIXES = 1000;
+    private static final int SERVERS = 8;
+
+    public static void main(String[] args) throws IOException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            snapshots.add(snapshot(i));
+        }
+        Path path = Files.createTempFile("snapshots", ".journal");
+        long sink = 0;
+
+        // Warm up
+        for (int i = 0; i < 2; i++) {
+            sink += json(snapshots).length();
+            Files.delete(path);
+            sink += journal(snapshots, path);
+            sink += readJournal(path);
+        }
+
+        long start = System.nanoTime();
+        String log = json(snapshots);
+        double jsonWriteMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        sink += readJson(log);
+        double jsonReadMs = (System.nanoTime() - start) / 1e6;
+
+        Files.delete(path);
+        start = System.nanoTime();
+        sink += journal(snapshots, path);
+        double journalWriteMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        sink += readJournal(path);
+        double journalReadMs = (System.nanoTime() - start) / 1e6;
+        long journalBytes = Files.size(path);
+        Files.delete(path);
+
+        System.out.println("format\twrite_ms\tread_tsv_ms\tbytes");
+        System.out.printf("json\t%.1f\t%.1f\t%d%n", jsonWriteMs, jsonReadMs, log.length());
+        System.out.printf("journal\t%.1f\t%.1f\t%d\t(%d)%n", journalWriteMs, journalReadMs, journalBytes, sink & 1);
+    }
+
+    private static String json(List<Snapshot> snapshots) {
+        StringBuilder log = new StringBuilder();
+        for (Snapshot snapshot : snapshots) {
+            log.append("12:00:00.000 INFO [n.f.p.ProactiveLoadBalancer] snapshot: ")
+                    .append(snapshot.toJson())
+                    .append('\n');
+        }
+        return log.toString();
+    }
+
+    // What process_log.py does: regex per line, parse the whole snapshot
+    private static long readJson(String log) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Pattern pattern = Pattern.compile("snapshot: (.*)");
+        long sink = 0;
+        for (String line : log.split("\n")) {
+            Matcher matcher = pattern.matcher(line);
+            if (matcher.find()) {
+                JsonNode snapshot = mapper.readTree(matcher.group(1));
+                for (JsonNode measurement : snapshot.get("serverMeasurements")) {
+                    sink += measurement.get("bytes").asLong();
+                }
+            }
+        }
+        return sink;
+    }
+
+    private static long journal(List<Snapshot> snapshots, Path path) throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            for (Snapshot snapshot : snapshots) {
+                journal.append(snapshot);
+            }
+        }
+        return Files.size(path);
+    }
+
+    private static long readJournal(Path path) throws IOException {
+        StringWriter out = new StringWriter();
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            SnapshotJournalTool.writeTsv(reader, out);
+        }
+        return out.getBuffer().length();
+    }
+
+    private static Snapshot snapshot(int second) {
+        Map<DatapathId, Integer> numRules = new HashMap<>();
+        Map<DatapathId, List<Measurement>> clientMeasurements = new HashMap<>();
+        for (int s = 1; s <= SWITCHES; s++) {
+            List<Measurement> measurements = new ArrayList<>();
+            for (int p = 0; p < PREFIXES; p++) {
+                IPv4AddressWithMask prefix = IPv4Address.of(0x80000000 | p << 12).withMaskOfLength(20);
+                measurements.add(new Measurement(prefix, (long) second * (p % 97) * 1500));
+            }
+            numRules.put(DatapathId.of(s), PREFIXES);
+            clientMeasurements.put(DatapathId.of(s), measurements);
+        }
+        List<Measurement> serverMeasurements = new ArrayList<>();
+        for (int i = 1; i <= SERVERS; i++) {
+            serverMeasurements.add(new Measurement(IPv4Address.of(0x0A050100 | i).withMaskOfLength(32),
+                    (long) second * i * 125_000));
+        }
+        return new Snapshot()
+                .setTimestamp(1_500_000_000_000L + second * 1000L)
+                .setNumRules(numRules)
+                .setClientMeasurements(clientMeasurements)
+                .setServerMeasurements(serverMeasurements);
+    }
+}
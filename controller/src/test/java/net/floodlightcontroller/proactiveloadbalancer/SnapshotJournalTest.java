@@ -0,0 +1,146 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotJournalTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final IPv4AddressWithMask SERVER_1 = IPv4AddressWithMask.of("10.5.1.1/32");
+    private static final IPv4AddressWithMask SERVER_2 = IPv4AddressWithMask.of("10.5.1.2/32");
+    private static final IPv4AddressWithMask CLIENTS = IPv4AddressWithMask.of("128.0.0.0/1");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = folder.getRoot().toPath().resolve("snapshots.journal");
+    }
+
+    @Test
+    public void read_returnsAppendedSnapshots() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            journal.append(snapshot(1000, 100, 200));
+            journal.append(snapshot(2000, 300, 250));
+        }
+
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            Snapshot first = reader.read();
+            assertThat(first.getTimestamp(), equalTo(1000L));
+            assertThat(first.getServerMeasurements(), contains(
+                    measurement(SERVER_1, 100), measurement(SERVER_2, 200)));
+            Snapshot second = reader.read();
+            assertThat(second.getTimestamp(), equalTo(2000L));
+            assertThat(second.getNumRules(), equalTo(singletonMap(SWITCH_1, 3)));
+            assertThat(second.getWriteQueueDepths(), equalTo(singletonMap(SWITCH_1, 7)));
+            assertThat(second.getServerMeasurements(), contains(
+                    measurement(SERVER_1, 300), measurement(SERVER_2, 250)));
+            assertThat(second.getClientMeasurements().get(SWITCH_1), contains(measurement(CLIENTS, 3000)));
+            assertThat(second.getStaleSwitches(), contains(SWITCH_2));
+            assertThat(second.getCollapsedPacketIns(), equalTo(4L));
+            assertThat(second.getSkippedCycles(), equalTo(1L));
+            assertThat(second.getBarrierBatchMaxLatency(), equalTo(2.5));
+            assertThat(reader.read(), nullValue());
+        }
+    }
+
+    @Test
+    public void read_whenCounterReset_restoresBytes() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            journal.append(snapshot(1000, 5_000_000_000L, 200));
+            journal.append(snapshot(2000, 10, 200));
+        }
+
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            reader.read();
+            assertThat(reader.read().getServerMeasurements(), contains(
+                    measurement(SERVER_1, 10), measurement(SERVER_2, 200)));
+        }
+    }
+
+    @Test
+    public void open_whenJournalExists_appendsAfterLastSnapshot() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            journal.append(snapshot(1000, 100, 200));
+        }
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            journal.append(snapshot(2000, 300, 400));
+        }
+
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            reader.read();
+            Snapshot second = reader.read();
+            assertThat(second.getTimestamp(), equalTo(2000L));
+            assertThat(second.getServerMeasurements(), containsInAnyOrder(
+                    measurement(SERVER_1, 300), measurement(SERVER_2, 400)));
+            assertThat(reader.read(), nullValue());
+        }
+    }
+
+    @Test
+    public void read_whenLastRecordCutShort_endsBeforeIt() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            journal.append(snapshot(1000, 100, 200));
+            journal.append(snapshot(2000, 300, 400));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 3);
+        }
+
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            assertThat(reader.read().getTimestamp(), equalTo(1000L));
+            assertThat(reader.read(), nullValue());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_whenNotJournal_throwsException() throws IOException {
+        Files.write(path, "snapshot: {}".getBytes());
+
+        SnapshotJournalReader.open(path);
+    }
+
+    private static Snapshot snapshot(long timestamp, long server1Bytes, long server2Bytes) {
+        return new Snapshot()
+                .setTimestamp(timestamp)
+                .setNumRules(singletonMap(SWITCH_1, 3))
+                .setWriteQueueDepths(singletonMap(SWITCH_1, 7))
+                .setServerMeasurements(asList(measurement(SERVER_1, server1Bytes), measurement(SERVER_2, server2Bytes)))
+                .setClientMeasurements(singletonMap(SWITCH_1, singletonList(measurement(CLIENTS, timestamp * 3 / 2))))
+                .setStaleSwitches(singletonList(SWITCH_2))
+                .setCollapsedPacketIns(4)
+                .setSkippedCycles(1)
+                .setBarrierBatchMaxLatency(2.5);
+    }
+
+    private static Measurement measurement(IPv4AddressWithMask prefix, long bytes) {
+        return new Measurement(prefix, bytes);
+    }
+}
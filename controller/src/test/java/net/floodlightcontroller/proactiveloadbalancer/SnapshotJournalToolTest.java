@@ -0,0 +1,72 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Measurement;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Snapshot;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotJournalToolTest extends FloodlightTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeTsv_matchesProcessLog() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("snapshots.journal");
+        try (SnapshotJournal journal = SnapshotJournal.open(path)) {
+            // Idle, dropped until load is measured
+            journal.append(snapshot(10_000, 0, 0));
+            journal.append(snapshot(11_000, 0, 0));
+            journal.append(snapshot(12_000, 3000, 1000));
+            journal.append(snapshot(13_050, 5100, 3100));
+        }
+
+        StringWriter out = new StringWriter();
+        try (SnapshotJournalReader reader = SnapshotJournalReader.open(path)) {
+            SnapshotJournalTool.writeTsv(reader, out);
+        }
+
+        assertThat(out.toString(), equalTo(""
+                + "Timestamp\tRules: 00:00:00:00:00:00:00:01\tRules: 00:00:00:00:00:00:00:02"
+                + "\tRate: 10.5.1.2\tRate: 10.5.1.10\tLoad Imbalance\n"
+                + "0.0\t3\t5\t3000.0\t1000.0\t0.5\n"
+                + "1.1\t3\t5\t2000.0\t2000.0\tnan\n"));
+    }
+
+    @Test
+    public void formatDouble_formatsLikePython2Str() {
+        assertThat(SnapshotJournalTool.formatDouble(0), equalTo("0.0"));
+        assertThat(SnapshotJournalTool.formatDouble(1500), equalTo("1500.0"));
+        assertThat(SnapshotJournalTool.formatDouble(1.0 / 3), equalTo("0.333333333333"));
+        assertThat(SnapshotJournalTool.formatDouble(123456789.123456789), equalTo("123456789.123"));
+        assertThat(SnapshotJournalTool.formatDouble(1e12), equalTo("1e+12"));
+        assertThat(SnapshotJournalTool.formatDouble(1.5e-5), equalTo("1.5e-05"));
+        assertThat(SnapshotJournalTool.formatDouble(Double.NaN), equalTo("nan"));
+    }
+
+    private static Snapshot snapshot(long timestamp, long server1Bytes, long server2Bytes) {
+        Map<DatapathId, Integer> numRules = new HashMap<>();
+        numRules.put(DatapathId.of(2), 5);
+        numRules.put(DatapathId.of(1), 3);
+        return new Snapshot()
+                .setTimestamp(timestamp)
+                .setNumRules(numRules)
+                .setServerMeasurements(asList(
+                        new Measurement(IPv4AddressWithMask.of("10.5.1.10/32"), server2Bytes),
+                        new Measurement(IPv4AddressWithMask.of("10.5.1.2/32"), server1Bytes)));
+    }
+}
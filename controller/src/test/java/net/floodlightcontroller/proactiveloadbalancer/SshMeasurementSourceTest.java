@@ -0,0 +1,60 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.Flow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.MeasurementCommand;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+public class SshMeasurementSourceTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_1 = DatapathId.of(1);
+    private static final DatapathId SWITCH_2 = DatapathId.of(2);
+    private static final String DUMP = "NXST_FLOW reply (xid=0x4):\n"
+            + " cookie=0x64, duration=1.5s, table=2, n_packets=10, n_bytes=1000, ip,nw_src=10.0.0.0/8 actions=goto_table:3\n";
+
+    private SshMeasurementSource source;
+
+    @Before
+    public void setUp() {
+        // Both switches are measured through the same endpoint, the second one fails
+        Map<DatapathId, MeasurementCommand> commands = new HashMap<>();
+        commands.put(SWITCH_1, new MeasurementCommand().setEndpoint("host").setCommand("printf '" + DUMP + "'"));
+        commands.put(SWITCH_2, new MeasurementCommand().setEndpoint("host").setCommand("false"));
+        source = new SshMeasurementSource(commands, ShellSessionPool.local(), 5000);
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+    }
+
+    @Test
+    public void getFlows_parsesCommandOutput() throws Exception {
+        List<Flow> flows = source.getFlows(SWITCH_1).get(5, TimeUnit.SECONDS);
+
+        assertThat(flows, hasSize(1));
+        Flow flow = flows.get(0);
+        assertThat(flow.getTableId(), equalTo((short) 2));
+        assertThat(flow.getPrefix(), equalTo(IPv4AddressWithMask.of("10.0.0.0/8")));
+        assertThat(flow.getBytes(), equalTo(1000L));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void getFlows_whenCommandFails_completesExceptionally() throws Exception {
+        source.getFlows(SWITCH_2).get(5, TimeUnit.SECONDS);
+    }
+}
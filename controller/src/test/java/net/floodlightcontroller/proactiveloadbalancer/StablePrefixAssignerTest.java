@@ -0,0 +1,121 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LoadBalancingFlow;
+import net.floodlightcontroller.proactiveloadbalancer.domain.Server;
+import net.floodlightcontroller.proactiveloadbalancer.domain.WeightedPrefix;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class StablePrefixAssignerTest extends FloodlightTestCase {
+
+    IPv4AddressWithMask RANGE = IPv4AddressWithMask.of("10.0.0.0/8");
+    IPv4Address SERVER_1 = IPv4Address.of("10.0.0.1");
+    IPv4Address SERVER_2 = IPv4Address.of("10.0.0.2");
+    IPv4Address SERVER_3 = IPv4Address.of("10.0.0.3");
+    List<Server> SERVERS = asList(new Server(SERVER_1, 1), new Server(SERVER_2, 1));
+    List<LoadBalancingFlow> FLOWS_OLD = asList(
+            new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), SERVER_1),
+            new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), SERVER_1),
+            new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), SERVER_2),
+            new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), SERVER_2));
+
+    @Test
+    public void assignPrefixes_whenNoFlowsOld_assignsOptimally() {
+        List<WeightedPrefix> measurements = measurements(2, 6, 4, 3);
+        List<Server> servers = asList(new Server(SERVER_1, 1), new Server(SERVER_2, 1), new Server(SERVER_3, 1));
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.1).assignPrefixes(RANGE, measurements, servers, null);
+
+        assertThat(result, equalTo(new OptimalPrefixAssigner().assignPrefixes(RANGE, measurements, servers)));
+    }
+
+    @Test
+    public void assignPrefixes_whenWithinTolerance_keepsFlowsOld() {
+        // Loads 5 and 3, 25% above the mean
+        List<WeightedPrefix> measurements = measurements(1, 4, 2, 1);
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.5).assignPrefixes(RANGE, measurements, SERVERS, FLOWS_OLD);
+
+        assertThat(result, equalTo(FLOWS_OLD));
+    }
+
+    @Test
+    public void assignPrefixes_whenAboveTolerance_movesSmallestPrefixCoveringExcess() {
+        List<WeightedPrefix> measurements = measurements(1, 4, 2, 1);
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.1).assignPrefixes(RANGE, measurements, SERVERS, FLOWS_OLD);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), SERVER_1),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), SERVER_2));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_whenNoPrefixFits_movesUntilBalanced() {
+        List<WeightedPrefix> measurements = measurements(4, 3, 2, 1);
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.1).assignPrefixes(RANGE, measurements, SERVERS, FLOWS_OLD);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), SERVER_1),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), SERVER_1));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_whenPrefixesFiner_keepsServerOfContainingFlow() {
+        List<LoadBalancingFlow> flowsOld = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/9"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/9"), SERVER_1));
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.1).assignPrefixes(RANGE, measurements(1, 1, 1, 1), SERVERS, flowsOld);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), SERVER_2),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), SERVER_1),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), SERVER_1));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test
+    public void assignPrefixes_whenServerRemoved_movesItsPrefixesToLeastLoaded() {
+        List<Server> servers = asList(new Server(SERVER_1, 1), new Server(SERVER_3, 1));
+
+        List<LoadBalancingFlow> result = new StablePrefixAssigner(0.1).assignPrefixes(RANGE, measurements(1, 1, 2, 1), servers, FLOWS_OLD);
+
+        List<LoadBalancingFlow> expectedResult = asList(
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.0.0.0/10"), SERVER_1),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.64.0.0/10"), SERVER_1),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.128.0.0/10"), SERVER_3),
+                new LoadBalancingFlow(IPv4AddressWithMask.of("10.192.0.0/10"), SERVER_1));
+        assertThat(result, equalTo(expectedResult));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_whenToleranceNegative_throws() {
+        new StablePrefixAssigner(-1);
+    }
+
+    // Helpers
+    private static List<WeightedPrefix> measurements(double weight0, double weight1, double weight2, double weight3) {
+        return asList(
+                new WeightedPrefix(IPv4AddressWithMask.of("10.0.0.0/10"), weight0),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.64.0.0/10"), weight1),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.128.0.0/10"), weight2),
+                new WeightedPrefix(IPv4AddressWithMask.of("10.192.0.0/10"), weight3));
+    }
+}
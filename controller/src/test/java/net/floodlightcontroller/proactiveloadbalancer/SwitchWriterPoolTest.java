@@ -0,0 +1,157 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(EasyMockRunner.class)
+public class SwitchWriterPoolTest extends FloodlightTestCase {
+
+    private static final DatapathId SWITCH_ID = DatapathId.of(1);
+
+    @Mock
+    private IOFSwitchService mockSwitchService;
+
+    @Mock
+    private IOFSwitch mockSwitch;
+
+    @Mock
+    private OFMessage message1;
+
+    @Mock
+    private OFMessage message2;
+
+    @Mock
+    private OFMessage message3;
+
+    private SwitchWriterPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void write_whenSwitchActive_writesMessagesInOrder() throws InterruptedException {
+        List<OFMessage> written = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        expect(mockSwitchService.getActiveSwitch(SWITCH_ID)).andStubReturn(mockSwitch);
+        expect(mockSwitch.write(anyObject(OFMessage.class))).andStubAnswer(() -> {
+            written.add((OFMessage) getCurrentArguments()[0]);
+            latch.countDown();
+            return true;
+        });
+        replay(mockSwitchService, mockSwitch);
+        pool = new SwitchWriterPool(mockSwitchService, 16, 0);
+
+        pool.write(SWITCH_ID, asList(message1, message2));
+        pool.write(SWITCH_ID, singletonList(message3));
+
+        assertThat(latch.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(written, equalTo(asList(message1, message2, message3)));
+    }
+
+    @Test
+    public void write_whenQueueFull_rejectsBatch() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        expect(mockSwitchService.getActiveSwitch(SWITCH_ID)).andStubReturn(mockSwitch);
+        expect(mockSwitch.write(anyObject(OFMessage.class))).andStubAnswer(() -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            return true;
+        });
+        replay(mockSwitchService, mockSwitch);
+        pool = new SwitchWriterPool(mockSwitchService, 1, 0);
+
+        // First message is taken by the writer, which then blocks
+        pool.write(SWITCH_ID, singletonList(message1));
+        assertThat(writing.await(1, TimeUnit.SECONDS), is(true));
+        boolean second = pool.write(SWITCH_ID, singletonList(message2));
+        boolean third = pool.write(SWITCH_ID, singletonList(message3));
+        int depth = pool.getQueueDepth(SWITCH_ID);
+        release.countDown();
+
+        assertThat(second, is(true));
+        assertThat(third, is(false));
+        assertThat(depth, is(1));
+    }
+
+    @Test
+    public void write_whenShutdown_rejectsBatch() {
+        replay(mockSwitchService, mockSwitch);
+        pool = new SwitchWriterPool(mockSwitchService, 16, 0);
+        pool.shutdown();
+
+        boolean result = pool.write(SWITCH_ID, singletonList(message1));
+
+        assertThat(result, is(false));
+        assertThat(pool.getQueueDepth(SWITCH_ID), is(0));
+    }
+
+    @Test
+    public void shutdown_whenRacingWrites_leavesNoWriterRunning() throws InterruptedException {
+        expect(mockSwitchService.getActiveSwitch(anyObject(DatapathId.class))).andStubReturn(null);
+        replay(mockSwitchService, mockSwitch);
+        pool = new SwitchWriterPool(mockSwitchService, 16, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<String> writerNames = new ArrayList<>();
+        for (int i = 100; i < 164; i++) {
+            DatapathId switchId = DatapathId.of(i);
+            writerNames.add("SwitchWriter-" + switchId);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                pool.write(switchId, singletonList(message1));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        pool.shutdown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (isAnyAlive(writerNames) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(isAnyAlive(writerNames), is(false));
+    }
+
+    // Helpers
+    private static boolean isAnyAlive(List<String> threadNames) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.isAlive() && threadNames.contains(thread.getName()));
+    }
+}
@@ -0,0 +1,64 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Compares least-connections selection by sorting all servers (previous allocation) with
+ * {@link WeightedLeastConnectionsSelector} as the number of servers grows. Run with main, prints ns per allocation.
+ */
+public class WeightedLeastConnectionsSelectorBenchmark {
+
+    private static final int ALLOCATIONS = 200_000;
+    private static final int[] SERVER_COUNTS = {10, 100, 1000};
+
+    public static void main(String[] args) {
+        System.out.println("servers\tsort_ns\theap_ns");
+        for (int serverCount : SERVER_COUNTS) {
+            Random random = new Random(0);
+            double[] weights = new double[serverCount];
+            Map<IPv4Address, Integer> connections = new HashMap<>();
+            IPv4Address[] servers = new IPv4Address[serverCount];
+            for (int i = 0; i < serverCount; i++) {
+                weights[i] = 1 + random.nextInt(4);
+                servers[i] = IPv4Address.of(IPv4Address.of("10.0.0.0").getInt() + i);
+                connections.put(servers[i], 0);
+            }
+            WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(weights);
+
+            // Warm up, then measure; every allocation is followed by a release of a random server to keep counts steady
+            long sink = 0;
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ALLOCATIONS; i++) {
+                    IPv4Address server = connections.entrySet().stream()
+                            .sorted(comparing(Entry::getValue))
+                            .findFirst()
+                            .get()
+                            .getKey();
+                    connections.merge(server, 1, Integer::sum);
+                    connections.merge(servers[random.nextInt(serverCount)], -1, (a, b) -> Math.max(0, a + b));
+                    sink += server.getInt();
+                }
+                double sortNs = (System.nanoTime() - start) / (double) ALLOCATIONS;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ALLOCATIONS; i++) {
+                    sink += selector.acquire();
+                    selector.release(random.nextInt(serverCount));
+                }
+                double heapNs = (System.nanoTime() - start) / (double) ALLOCATIONS;
+
+                if (round == 1) {
+                    System.out.printf("%d\t%.1f\t%.1f\t(%d)%n", serverCount, sortNs, heapNs, sink & 1);
+                }
+            }
+        }
+    }
+}
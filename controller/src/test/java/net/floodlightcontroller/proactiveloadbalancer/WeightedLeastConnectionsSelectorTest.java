@@ -0,0 +1,82 @@
+package net.floodlightcontroller.proactiveloadbalancer;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class WeightedLeastConnectionsSelectorTest extends FloodlightTestCase {
+
+    @Test
+    public void acquire_whenNoServers_returnsMinusOne() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[0]);
+
+        assertThat(selector.acquire(), equalTo(-1));
+    }
+
+    @Test
+    public void acquire_whenEqualWeights_distributesEvenly() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{1, 1, 1});
+
+        for (int i = 0; i < 9; i++) {
+            selector.acquire();
+        }
+
+        assertThat(selector.getConnections(0), equalTo(3));
+        assertThat(selector.getConnections(1), equalTo(3));
+        assertThat(selector.getConnections(2), equalTo(3));
+    }
+
+    @Test
+    public void acquire_whenTied_picksLowestIndex() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{1, 1, 1});
+
+        assertThat(selector.acquire(), equalTo(0));
+        assertThat(selector.acquire(), equalTo(1));
+        assertThat(selector.acquire(), equalTo(2));
+        assertThat(selector.acquire(), equalTo(0));
+    }
+
+    @Test
+    public void acquire_whenWeighted_distributesProportionally() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{1, 3});
+
+        for (int i = 0; i < 8; i++) {
+            selector.acquire();
+        }
+
+        assertThat(selector.getConnections(0), equalTo(2));
+        assertThat(selector.getConnections(1), equalTo(6));
+    }
+
+    @Test
+    public void acquire_whenZeroWeight_skipsServer() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{0, 1});
+
+        assertThat(selector.acquire(), equalTo(1));
+        assertThat(selector.acquire(), equalTo(1));
+    }
+
+    @Test
+    public void release_makesServerLeastLoadedAgain() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{1, 1, 1});
+        for (int i = 0; i < 6; i++) {
+            selector.acquire();
+        }
+
+        selector.release(2);
+
+        assertThat(selector.acquire(), equalTo(2));
+    }
+
+    @Test
+    public void release_whenNoConnections_doesNothing() {
+        WeightedLeastConnectionsSelector selector = new WeightedLeastConnectionsSelector(new double[]{1, 1});
+
+        selector.release(0);
+
+        assertThat(selector.getConnections(0), equalTo(0));
+        assertThat(selector.acquire(), equalTo(0));
+    }
+}
@@ -0,0 +1,123 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ArrayPrefixTrieTest extends FloodlightTestCase {
+
+    private static final int ROOT_ADDRESS = IPv4Address.of("10.0.0.0").getInt();
+
+    @Test
+    public void expand_addsHalvesOfPrefix() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(ROOT_ADDRESS, 8, 1);
+
+        trie.expand(ArrayPrefixTrie.ROOT, 2, 3);
+
+        int child0 = trie.getChild0(ArrayPrefixTrie.ROOT);
+        int child1 = trie.getChild1(ArrayPrefixTrie.ROOT);
+        assertThat(prefix(trie, child0), equalTo(IPv4AddressWithMask.of("10.0.0.0/9")));
+        assertThat(prefix(trie, child1), equalTo(IPv4AddressWithMask.of("10.128.0.0/9")));
+        assertThat(trie.getValue(child0), equalTo(2.0));
+        assertThat(trie.getValue(child1), equalTo(3.0));
+        assertThat(trie.isLeaf(ArrayPrefixTrie.ROOT), equalTo(false));
+        assertThat(trie.getLabel(child0), equalTo(ArrayPrefixTrie.NONE));
+    }
+
+    @Test
+    public void traversePreOrder_visitsNodeBeforeChildren_lowerHalfFirst() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(ROOT_ADDRESS, 8, 0);
+        trie.expand(ArrayPrefixTrie.ROOT, 0, 0);
+        trie.expand(trie.getChild0(ArrayPrefixTrie.ROOT), 0, 0);
+
+        List<IPv4AddressWithMask> visited = new ArrayList<>();
+        trie.traversePreOrder((node, address, length) -> visited.add(IPv4Address.of(address).withMaskOfLength(length)));
+
+        assertThat(visited, contains(
+                IPv4AddressWithMask.of("10.0.0.0/8"),
+                IPv4AddressWithMask.of("10.0.0.0/9"),
+                IPv4AddressWithMask.of("10.0.0.0/10"),
+                IPv4AddressWithMask.of("10.64.0.0/10"),
+                IPv4AddressWithMask.of("10.128.0.0/9")));
+    }
+
+    @Test
+    public void traversePostOrder_visitsChildrenBeforeNode() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(ROOT_ADDRESS, 8, 0);
+        trie.expand(ArrayPrefixTrie.ROOT, 0, 0);
+        trie.expand(trie.getChild1(ArrayPrefixTrie.ROOT), 0, 0);
+
+        List<IPv4AddressWithMask> visited = new ArrayList<>();
+        trie.traversePostOrder((node, address, length) -> visited.add(IPv4Address.of(address).withMaskOfLength(length)));
+
+        assertThat(visited, contains(
+                IPv4AddressWithMask.of("10.0.0.0/9"),
+                IPv4AddressWithMask.of("10.128.0.0/10"),
+                IPv4AddressWithMask.of("10.192.0.0/10"),
+                IPv4AddressWithMask.of("10.128.0.0/9"),
+                IPv4AddressWithMask.of("10.0.0.0/8")));
+    }
+
+    @Test
+    public void traversePreOrder_whenVisitorExpands_visitsNewChildren() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(0, 0, 0);
+
+        int[] visited = {0};
+        trie.traversePreOrder((node, address, length) -> {
+            visited[0]++;
+            if (length < 32) {
+                trie.expand0(node, 0);
+            }
+        });
+
+        assertThat(visited[0], equalTo(33));
+        assertThat(trie.size(), equalTo(33));
+    }
+
+    @Test
+    public void traversePreOrder_whenVisitorCollapses_skipsChildren() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(ROOT_ADDRESS, 8, 0);
+        trie.expand(ArrayPrefixTrie.ROOT, 0, 0);
+
+        int[] visited = {0};
+        trie.traversePreOrder((node, address, length) -> {
+            visited[0]++;
+            trie.collapse(node);
+        });
+
+        assertThat(visited[0], equalTo(1));
+        assertThat(trie.isLeaf(ArrayPrefixTrie.ROOT), equalTo(true));
+    }
+
+    @Test
+    public void traversePostOrder_whenFullDepth_fitsStack() {
+        ArrayPrefixTrie trie = new ArrayPrefixTrie(0, 0, 0);
+        int node = ArrayPrefixTrie.ROOT;
+        for (int length = 0; length < 32; length++) {
+            trie.expand(node, 0, 0);
+            node = trie.getChild1(node);
+        }
+
+        int[] visited = {0};
+        trie.traversePostOrder((n, address, length) -> visited[0]++);
+
+        assertThat(visited[0], equalTo(65));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expand_whenHostPrefix_throwsException() {
+        new ArrayPrefixTrie(ROOT_ADDRESS, 32, 0).expand(ArrayPrefixTrie.ROOT, 0, 0);
+    }
+
+    private static IPv4AddressWithMask prefix(ArrayPrefixTrie trie, int node) {
+        return IPv4Address.of(trie.getAddress(node)).withMaskOfLength(trie.getLength(node));
+    }
+}
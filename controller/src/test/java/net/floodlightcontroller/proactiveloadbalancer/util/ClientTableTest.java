@@ -0,0 +1,102 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ClientTableTest extends FloodlightTestCase {
+
+    @Test
+    public void putIfAbsent_whenUnknown_addsClient() {
+        ClientTable table = new ClientTable();
+
+        boolean result = table.putIfAbsent(1, 7, 0b101);
+
+        assertThat(result, equalTo(true));
+        assertThat(table.contains(1), equalTo(true));
+        assertThat(table.getServer(1, -1), equalTo(7));
+        assertThat(table.getSwitches(1), equalTo(0b101L));
+        assertThat(table.size(), equalTo(1));
+    }
+
+    @Test
+    public void putIfAbsent_whenKnown_leavesEntryUnchanged() {
+        ClientTable table = new ClientTable();
+        table.putIfAbsent(1, 7, 0b101);
+
+        boolean result = table.putIfAbsent(1, 8, 0b1);
+
+        assertThat(result, equalTo(false));
+        assertThat(table.getServer(1, -1), equalTo(7));
+        assertThat(table.getSwitches(1), equalTo(0b101L));
+    }
+
+    @Test
+    public void getServer_whenUnknown_returnsDefault() {
+        ClientTable table = new ClientTable();
+
+        assertThat(table.getServer(0, -1), equalTo(-1));
+        assertThat(table.getSwitches(0), equalTo(0L));
+    }
+
+    @Test
+    public void clearSwitches_whenBitsRemain_keepsClient() {
+        ClientTable table = new ClientTable();
+        table.putIfAbsent(1, 7, 0b101);
+
+        long result = table.clearSwitches(1, 0b1);
+
+        assertThat(result, equalTo(0b101L));
+        assertThat(table.getSwitches(1), equalTo(0b100L));
+    }
+
+    @Test
+    public void clearSwitches_whenLastBit_removesClient() {
+        ClientTable table = new ClientTable();
+        table.putIfAbsent(1, 7, 0b100);
+
+        long result = table.clearSwitches(1, 0b100);
+
+        assertThat(result, equalTo(0b100L));
+        assertThat(table.contains(1), equalTo(false));
+        assertThat(table.size(), equalTo(0));
+    }
+
+    @Test
+    public void clearSwitches_whenUnknown_returnsZero() {
+        ClientTable table = new ClientTable();
+
+        assertThat(table.clearSwitches(1, 0b1), equalTo(0L));
+    }
+
+    @Test
+    public void operations_matchHashMap_underRandomWorkload() {
+        ClientTable table = new ClientTable();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(0);
+        // Small key space forces collisions, removals and resizes
+        for (int i = 0; i < 100_000; i++) {
+            int client = random.nextInt(2048) - 1024;
+            if (random.nextBoolean()) {
+                boolean added = table.putIfAbsent(client, i, 1);
+                assertThat(added, equalTo(expected.putIfAbsent(client, i) == null));
+            } else {
+                assertThat(table.remove(client), equalTo(expected.remove(client) != null));
+            }
+        }
+
+        assertThat(table.size(), equalTo(expected.size()));
+        for (int client = -1024; client < 1024; client++) {
+            assertThat(table.getServer(client, -1), equalTo(expected.getOrDefault(client, -1)));
+        }
+        Map<Integer, Integer> actual = new HashMap<>();
+        table.forEach((client, server, switches) -> actual.put(client, server));
+        assertThat(actual, equalTo(expected));
+    }
+}
@@ -0,0 +1,65 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares range lookup by linear scan over the strategy ranges (previous packet-in dispatch) with
+ * {@link IPv4AddressRangeIndex} as the number of ranges grows. Run with main, prints ns per lookup.
+ */
+public class IPv4AddressRangeIndexBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+    private static final int[] RANGE_COUNTS = {1, 4, 16, 64, 256, 1024, 4096};
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        System.out.println("ranges\tlinear_ns\tindex_ns");
+        for (int rangeCount : RANGE_COUNTS) {
+            // Consecutive /24 ranges starting at 10.0.0.0
+            Map<IPv4AddressRange, Integer> ranges = new LinkedHashMap<>();
+            int base = IPv4Address.of("10.0.0.0").getInt();
+            for (int i = 0; i < rangeCount; i++) {
+                ranges.put(IPv4AddressRange.of(IPv4Address.of(base + (i << 8)), IPv4Address.of(base + (i << 8) + 255)), i);
+            }
+            IPv4AddressRangeIndex<Integer> index = IPv4AddressRangeIndex.of(ranges);
+
+            IPv4Address[] clients = new IPv4Address[1024];
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = IPv4Address.of(base + random.nextInt(rangeCount << 8));
+            }
+
+            // Warm up
+            long sink = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                sink += linear(ranges, clients[i & 1023]);
+                sink += index.get(clients[i & 1023]);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                sink += linear(ranges, clients[i & 1023]);
+            }
+            double linearNs = (System.nanoTime() - start) / (double) LOOKUPS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                sink += index.get(clients[i & 1023]);
+            }
+            double indexNs = (System.nanoTime() - start) / (double) LOOKUPS;
+
+            System.out.printf("%d\t%.1f\t%.1f\t(%d)%n", rangeCount, linearNs, indexNs, sink & 1);
+        }
+    }
+
+    private static int linear(Map<IPv4AddressRange, Integer> ranges, IPv4Address client) {
+        IPv4AddressRange range = ranges.keySet().stream()
+                .filter(r -> r.contains(client))
+                .findFirst()
+                .orElse(null);
+        return ranges.get(range);
+    }
+}
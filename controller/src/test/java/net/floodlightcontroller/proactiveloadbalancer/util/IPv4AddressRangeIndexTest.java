@@ -0,0 +1,72 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IPv4AddressRangeIndexTest extends FloodlightTestCase {
+
+    @Test
+    public void get_whenEmpty_returnsNull() {
+        IPv4AddressRangeIndex<String> index = IPv4AddressRangeIndex.of(emptyMap());
+
+        assertThat(index.get(IPv4Address.of("10.0.0.1")), nullValue());
+    }
+
+    @Test
+    public void get_whenInsideRange_returnsValue() {
+        Map<IPv4AddressRange, String> ranges = new HashMap<>();
+        ranges.put(new IPv4AddressRange("10.0.0.0-10.0.0.255"), "A");
+        ranges.put(new IPv4AddressRange("10.0.1.0-10.0.1.255"), "B");
+
+        IPv4AddressRangeIndex<String> index = IPv4AddressRangeIndex.of(ranges);
+
+        assertThat(index.get(IPv4Address.of("10.0.0.0")), equalTo("A"));
+        assertThat(index.get(IPv4Address.of("10.0.0.255")), equalTo("A"));
+        assertThat(index.get(IPv4Address.of("10.0.1.0")), equalTo("B"));
+        assertThat(index.get(IPv4Address.of("10.0.1.255")), equalTo("B"));
+    }
+
+    @Test
+    public void get_whenOutsideRanges_returnsNull() {
+        Map<IPv4AddressRange, String> ranges = new HashMap<>();
+        ranges.put(new IPv4AddressRange("10.0.0.0-10.0.0.255"), "A");
+        ranges.put(new IPv4AddressRange("10.0.2.0-10.0.2.255"), "B");
+
+        IPv4AddressRangeIndex<String> index = IPv4AddressRangeIndex.of(ranges);
+
+        assertThat(index.get(IPv4Address.of("9.255.255.255")), nullValue());
+        assertThat(index.get(IPv4Address.of("10.0.1.0")), nullValue());
+        assertThat(index.get(IPv4Address.of("10.0.3.0")), nullValue());
+    }
+
+    @Test
+    public void get_whenRangeAboveSignBit_returnsValue() {
+        Map<IPv4AddressRange, String> ranges = new HashMap<>();
+        ranges.put(new IPv4AddressRange("10.0.0.0-10.255.255.255"), "A");
+        ranges.put(new IPv4AddressRange("192.168.0.0-192.168.255.255"), "B");
+
+        IPv4AddressRangeIndex<String> index = IPv4AddressRangeIndex.of(ranges);
+
+        assertThat(index.get(IPv4Address.of("10.1.2.3")), equalTo("A"));
+        assertThat(index.get(IPv4Address.of("192.168.1.1")), equalTo("B"));
+        assertThat(index.get(IPv4Address.of("172.16.0.1")), nullValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_whenRangesOverlap_throws() {
+        Map<IPv4AddressRange, String> ranges = new HashMap<>();
+        ranges.put(new IPv4AddressRange("10.0.0.0-10.0.1.0"), "A");
+        ranges.put(new IPv4AddressRange("10.0.1.0-10.0.1.255"), "B");
+
+        IPv4AddressRangeIndex.of(ranges);
+    }
+}
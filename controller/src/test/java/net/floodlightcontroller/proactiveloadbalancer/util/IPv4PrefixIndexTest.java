@@ -0,0 +1,71 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IPv4PrefixIndexTest extends FloodlightTestCase {
+
+    @Test
+    public void get_whenEmpty_returnsNull() {
+        IPv4PrefixIndex<String> index = IPv4PrefixIndex.empty();
+
+        assertThat(index.get(IPv4Address.of("10.0.0.1")), nullValue());
+        assertThat(index.size(), equalTo(0));
+    }
+
+    @Test
+    public void get_whenContained_returnsValue() {
+        IPv4PrefixIndex<String> index = IPv4PrefixIndex.of(singletonMap(IPv4AddressWithMask.of("10.0.0.0/8"), "a"));
+
+        assertThat(index.get(IPv4Address.of("10.0.0.0")), equalTo("a"));
+        assertThat(index.get(IPv4Address.of("10.255.255.255")), equalTo("a"));
+        assertThat(index.get(IPv4Address.of("11.0.0.0")), nullValue());
+        assertThat(index.get(IPv4Address.of("9.255.255.255")), nullValue());
+    }
+
+    @Test
+    public void get_whenNested_returnsLongestMatch() {
+        Map<IPv4AddressWithMask, String> prefixes = new HashMap<>();
+        prefixes.put(IPv4AddressWithMask.of("0.0.0.0/0"), "default");
+        prefixes.put(IPv4AddressWithMask.of("10.0.0.0/8"), "a");
+        prefixes.put(IPv4AddressWithMask.of("10.1.0.0/16"), "b");
+        prefixes.put(IPv4AddressWithMask.of("10.1.2.3/32"), "c");
+        IPv4PrefixIndex<String> index = IPv4PrefixIndex.of(prefixes);
+
+        assertThat(index.get(IPv4Address.of("192.168.0.1")), equalTo("default"));
+        assertThat(index.get(IPv4Address.of("10.2.0.1")), equalTo("a"));
+        assertThat(index.get(IPv4Address.of("10.1.2.2")), equalTo("b"));
+        assertThat(index.get(IPv4Address.of("10.1.2.3")), equalTo("c"));
+        assertThat(index.size(), equalTo(4));
+    }
+
+    @Test
+    public void get_whenManyPrefixesOfSameLength_findsEach() {
+        Map<IPv4AddressWithMask, Integer> prefixes = new HashMap<>();
+        int base = IPv4Address.of("10.0.0.0").getInt();
+        for (int i = 0; i < 4096; i++) {
+            prefixes.put(IPv4Address.of(base + (i << 8)).withMaskOfLength(24), i);
+        }
+        IPv4PrefixIndex<Integer> index = IPv4PrefixIndex.of(prefixes);
+
+        for (int i = 0; i < 4096; i++) {
+            assertThat(index.get(base + (i << 8) + 17), equalTo(i));
+        }
+        assertThat(index.get(base + (4096 << 8)), nullValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_whenNullValue_throwsException() {
+        IPv4PrefixIndex.of(singletonMap(IPv4AddressWithMask.of("10.0.0.0/8"), null));
+    }
+}
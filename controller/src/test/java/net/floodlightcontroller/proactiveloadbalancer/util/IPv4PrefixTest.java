@@ -0,0 +1,111 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Comparator.comparingLong;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IPv4PrefixTest extends FloodlightTestCase {
+
+    @Test
+    public void of_clearsHostBits() {
+        long prefix = IPv4Prefix.of(address("10.1.2.3"), 8);
+
+        assertThat(IPv4Prefix.toIPv4AddressWithMask(prefix), equalTo(IPv4AddressWithMask.of("10.0.0.0/8")));
+        assertThat(IPv4Prefix.address(prefix), equalTo(address("10.0.0.0")));
+        assertThat(IPv4Prefix.length(prefix), equalTo(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_whenLengthOutOfRange_throws() {
+        IPv4Prefix.of(0, 33);
+    }
+
+    @Test
+    public void of_whenHighAddress_roundTrips() {
+        long prefix = IPv4Prefix.of(IPv4AddressWithMask.of("255.255.255.255/32"));
+
+        assertThat(IPv4Prefix.toString(prefix), equalTo("255.255.255.255/32"));
+        assertThat(IPv4Prefix.broadcast(prefix), equalTo(address("255.255.255.255")));
+    }
+
+    @Test
+    public void broadcast_returnsLastAddress() {
+        assertThat(IPv4Prefix.broadcast(prefix("10.0.0.0/8")), equalTo(address("10.255.255.255")));
+        assertThat(IPv4Prefix.broadcast(IPv4Prefix.ALL), equalTo(address("255.255.255.255")));
+        assertThat(IPv4Prefix.size(IPv4Prefix.ALL), equalTo(1L << 32));
+    }
+
+    @Test
+    public void contains_whenInsidePrefix_returnsTrue() {
+        assertThat(IPv4Prefix.contains(prefix("10.0.0.0/8"), address("10.200.0.1")), equalTo(true));
+        assertThat(IPv4Prefix.contains(prefix("10.0.0.0/8"), address("11.0.0.0")), equalTo(false));
+        assertThat(IPv4Prefix.contains(prefix("10.0.0.0/8"), prefix("10.128.0.0/9")), equalTo(true));
+        assertThat(IPv4Prefix.contains(prefix("10.0.0.0/9"), prefix("10.0.0.0/8")), equalTo(false));
+    }
+
+    @Test
+    public void lowerUpper_splitPrefixInHalves() {
+        long prefix = prefix("10.0.0.0/8");
+
+        assertThat(IPv4Prefix.lower(prefix), equalTo(prefix("10.0.0.0/9")));
+        assertThat(IPv4Prefix.upper(prefix), equalTo(prefix("10.128.0.0/9")));
+        assertThat(IPv4Prefix.upper(IPv4Prefix.ALL), equalTo(prefix("128.0.0.0/1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lower_whenHost_throws() {
+        IPv4Prefix.lower(prefix("10.0.0.1/32"));
+    }
+
+    @Test
+    public void parent_returnsShorterPrefix() {
+        assertThat(IPv4Prefix.parent(prefix("10.128.0.0/9")), equalTo(prefix("10.0.0.0/8")));
+        assertThat(IPv4Prefix.parent(IPv4Prefix.ALL), equalTo(IPv4Prefix.NONE));
+    }
+
+    @Test
+    public void merge_whenSiblings_returnsParent() {
+        assertThat(IPv4Prefix.merge(prefix("10.0.0.0/9"), prefix("10.128.0.0/9")), equalTo(prefix("10.0.0.0/8")));
+        assertThat(IPv4Prefix.merge(prefix("10.128.0.0/9"), prefix("11.0.0.0/9")), equalTo(IPv4Prefix.NONE));
+        assertThat(IPv4Prefix.merge(prefix("10.0.0.0/9"), prefix("10.0.0.0/9")), equalTo(IPv4Prefix.NONE));
+    }
+
+    @Test
+    public void covering_returnsLongestCommonPrefix() {
+        assertThat(IPv4Prefix.covering(address("10.0.0.5"), address("10.0.0.9")), equalTo(prefix("10.0.0.0/28")));
+        assertThat(IPv4Prefix.covering(address("10.0.0.5"), address("10.0.0.5")), equalTo(prefix("10.0.0.5/32")));
+        assertThat(IPv4Prefix.covering(address("10.0.0.0"), address("200.0.0.0")), equalTo(IPv4Prefix.ALL));
+    }
+
+    @Test
+    public void compare_ordersLikeIPv4AddressWithMask() {
+        List<IPv4AddressWithMask> expected = new ArrayList<>();
+        for (String prefix : new String[] {"0.0.0.0/0", "10.0.0.0/8", "10.0.0.0/9", "10.128.0.0/9", "200.0.0.0/8"}) {
+            expected.add(IPv4AddressWithMask.of(prefix));
+        }
+        List<IPv4AddressWithMask> actual = new ArrayList<>(expected);
+        Collections.reverse(actual);
+
+        actual.sort(comparingLong(IPv4Prefix::of));
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    // Helpers
+    private static int address(String address) {
+        return IPv4Address.of(address).getInt();
+    }
+
+    private static long prefix(String prefix) {
+        return IPv4Prefix.of(IPv4AddressWithMask.of(prefix));
+    }
+}
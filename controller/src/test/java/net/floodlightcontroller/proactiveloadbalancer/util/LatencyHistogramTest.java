@@ -0,0 +1,62 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.proactiveloadbalancer.domain.LatencyStats;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest extends FloodlightTestCase {
+
+    @Test
+    public void index_isWithinBucketBounds() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE / 2}) {
+            int index = LatencyHistogram.index(value);
+
+            assertThat(LatencyHistogram.lowerBound(index), lessThanOrEqualTo(value));
+            assertThat(LatencyHistogram.lowerBound(index + 1) - 1, greaterThanOrEqualTo(value));
+        }
+    }
+
+    @Test
+    public void getStats_whenEmpty_returnsZeros() {
+        LatencyStats stats = new LatencyHistogram().getStats();
+
+        assertThat(stats.getCount(), equalTo(0L));
+        assertThat(stats.getP99(), equalTo(0D));
+        assertThat(stats.getMax(), equalTo(0D));
+    }
+
+    @Test
+    public void getStats_returnsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..1000 microseconds
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyStats stats = histogram.getStats();
+
+        assertThat(stats.getCount(), equalTo(1000L));
+        assertThat(stats.getMean(), closeTo(500.5, 0.001));
+        assertThat(stats.getP50(), closeTo(500, 500 * 0.125));
+        assertThat(stats.getP90(), closeTo(900, 900 * 0.125));
+        assertThat(stats.getP99(), closeTo(990, 990 * 0.125));
+        assertThat(stats.getMax(), equalTo(1000D));
+        assertThat(stats.getP999(), lessThanOrEqualTo(stats.getMax()));
+    }
+
+    @Test
+    public void record_whenNegative_recordsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+
+        assertThat(histogram.getStats().getMax(), equalTo(0D));
+        assertThat(histogram.getCount(), equalTo(1L));
+    }
+}
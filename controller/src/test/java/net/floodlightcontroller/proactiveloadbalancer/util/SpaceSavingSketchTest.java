@@ -0,0 +1,120 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class SpaceSavingSketchTest extends FloodlightTestCase {
+
+    @Test
+    public void add_whenKeyMonitored_addsToCount() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+
+        sketch.add(1, 10);
+        sketch.add(2, 5);
+        sketch.add(1, 7);
+
+        assertThat(sketch.size(), equalTo(2));
+        assertThat(sketch.estimate(1), equalTo(17.0));
+        assertThat(sketch.estimate(2), equalTo(5.0));
+        assertThat(sketch.estimate(3), equalTo(0.0));
+    }
+
+    @Test
+    public void add_whenFull_replacesSmallestCounter() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add(1, 10);
+        sketch.add(2, 3);
+
+        sketch.add(3, 4);
+
+        assertThat(sketch.size(), equalTo(2));
+        assertThat(sketch.contains(1), equalTo(true));
+        assertThat(sketch.contains(2), equalTo(false));
+        assertThat(sketch.contains(3), equalTo(true));
+        assertThat(sketch.estimate(3), equalTo(7.0));
+        assertThat(sketch.getError(indexOf(sketch, 3)), equalTo(3.0));
+        assertThat(sketch.estimate(2), equalTo(7.0));
+    }
+
+    @Test
+    public void add_whenManyKeys_boundsWeightOfMonitoredKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(64);
+        Map<Long, Double> exact = new HashMap<>();
+        Random random = new Random(42);
+        double total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // Few heavy keys among many light ones
+            long key = random.nextInt(10) < 3 ? random.nextInt(8) : 1000 + random.nextInt(100_000);
+            double weight = 1 + random.nextInt(100);
+            sketch.add(key, weight);
+            exact.merge(key, weight, Double::sum);
+            total += weight;
+        }
+
+        for (int i = 0; i < sketch.size(); i++) {
+            double weight = exact.get(sketch.getKey(i));
+            assertThat(sketch.getCount(i), greaterThanOrEqualTo(weight));
+            assertThat(sketch.getCount(i) - sketch.getError(i), lessThanOrEqualTo(weight));
+        }
+        for (Map.Entry<Long, Double> entry : exact.entrySet()) {
+            if (entry.getValue() > total / sketch.capacity()) {
+                assertThat(sketch.contains(entry.getKey()), equalTo(true));
+            }
+        }
+    }
+
+    @Test
+    public void scale_multipliesCountsAndErrors() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(1);
+        sketch.add(1, 10);
+        sketch.add(2, 6);
+
+        sketch.scale(0.5);
+
+        assertThat(sketch.getCount(0), closeTo(8, 1e-9));
+        assertThat(sketch.getError(0), closeTo(5, 1e-9));
+    }
+
+    @Test
+    public void clear_removesAllKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add(1, 10);
+        sketch.add(2, 3);
+
+        sketch.clear();
+        sketch.add(3, 1);
+
+        assertThat(sketch.size(), equalTo(1));
+        assertThat(sketch.contains(1), equalTo(false));
+        assertThat(sketch.estimate(3), equalTo(1.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_whenWeightNegative_throwsException() {
+        new SpaceSavingSketch(2).add(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenCapacityZero_throwsException() {
+        new SpaceSavingSketch(0);
+    }
+
+    private static int indexOf(SpaceSavingSketch sketch, long key) {
+        for (int i = 0; i < sketch.size(); i++) {
+            if (sketch.getKey(i) == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,215 @@
+package net.floodlightcontroller.proactiveloadbalancer.util;
+
+import net.floodlightcontroller.test.FloodlightTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TimeSeriesStoreTest extends FloodlightTestCase {
+
+    private static final double DELTA = 1e-9;
+
+    private TimeSeriesStore<String> store;
+
+    @Before
+    public void setUp() {
+        store = new TimeSeriesStore<>(10, 1000);
+    }
+
+    @Test
+    public void getRate_whenSingleSample_returnsZero() {
+        append(0, "a", 100);
+
+        assertThat(store.getRate("a", 1000), equalTo(0D));
+    }
+
+    @Test
+    public void getRate_usesSampleAtLeastWindowOld() {
+        // 100 B/s, then 300 B/s
+        append(0, "a", 0);
+        append(1000, "a", 100);
+        append(2000, "a", 200);
+        append(3000, "a", 500);
+
+        assertThat(store.getRate("a", 1000), closeTo(300, DELTA));
+        assertThat(store.getRate("a", 2000), closeTo(200, DELTA));
+        assertThat(store.getRate("a", 1500), closeTo(200, DELTA));
+    }
+
+    @Test
+    public void getRate_whenWindowExceedsHistory_usesOldestSample() {
+        append(0, "a", 0);
+        append(1000, "a", 100);
+        append(2000, "a", 400);
+
+        assertThat(store.getRate("a", 60000), closeTo(200, DELTA));
+    }
+
+    @Test
+    public void getRate_skipsMissingSamples() {
+        append(0, "a", 0);
+        append(1000, "b", 5);
+        append(2000, "a", 400);
+        append(3000, "b", 10);
+
+        assertThat(store.getRate("a", 60000), closeTo(200, DELTA));
+    }
+
+    @Test
+    public void getRate_whenMissingAtWindowStart_startsAtNextSample() {
+        append(0, "a", 0);
+        append(1000, "b", 5);
+        append(2000, "a", 300);
+        append(3000, "a", 500);
+
+        assertThat(store.getRate("a", 2000), closeTo(200, DELTA));
+    }
+
+    @Test
+    public void getRate_whenUnknownKey_returnsZero() {
+        append(0, "a", 0);
+        append(1000, "a", 100);
+
+        assertThat(store.getRate("b", 1000), equalTo(0D));
+    }
+
+    @Test
+    public void append_sumsValuesOfSameKey() {
+        List<Entry<String, Long>> items = asList(new SimpleEntry<>("a", 100L), new SimpleEntry<>("a", 50L));
+        store.append(0, items, Entry::getKey, Entry::getValue);
+
+        assertThat(toList(store.getValues("a", 0, 0)), contains(150L));
+    }
+
+    @Test
+    public void append_whenTimestampDecreases_dropsSample() {
+        append(1000, "a", 0);
+
+        boolean appended = append(0, "a", 100);
+        append(2000, "a", 200);
+
+        assertThat(appended, equalTo(false));
+        assertThat(store.size(), equalTo(2));
+        assertThat(store.getRate("a", 60000), closeTo(200, DELTA));
+    }
+
+    @Test
+    public void getEwmaRate_whenRateConstant_returnsRate() {
+        for (int i = 0; i < 5; i++) {
+            append(i * 1000, "a", i * 100);
+        }
+
+        assertThat(store.getEwmaRate("a"), closeTo(100, DELTA));
+    }
+
+    @Test
+    public void getEwmaRate_convergesTowardsNewRate() {
+        append(0, "a", 0);
+        append(1000, "a", 100);
+        append(2000, "a", 1100);
+
+        // alpha = 1 - e^-1
+        double alpha = 1 - Math.exp(-1);
+        assertThat(store.getEwmaRate("a"), closeTo(100 + alpha * 900, DELTA));
+    }
+
+    @Test
+    public void getRatePercentile_returnsNearestRank() {
+        long bytes = 0;
+        append(0, "a", bytes);
+        for (int i = 1; i <= 4; i++) {
+            bytes += i * 100;
+            append(i * 1000, "a", bytes);
+        }
+
+        assertThat(store.getRatePercentile("a", 60000, 0.5), closeTo(200, DELTA));
+        assertThat(store.getRatePercentile("a", 60000, 0.99), closeTo(400, DELTA));
+        assertThat(store.getRatePercentile("a", 2000, 0.5), closeTo(300, DELTA));
+    }
+
+    @Test
+    public void getRate_whenCounterReset_countsFromZero() {
+        append(0, "a", 1000);
+        append(1000, "a", 50);
+
+        assertThat(store.getRatePercentile("a", 1000, 0.5), closeTo(50, DELTA));
+        assertThat(store.getEwmaRate("a"), closeTo(50, DELTA));
+    }
+
+    @Test
+    public void getRate_whenCounterResetInWindow_sumsDeltas() {
+        // Reset after 200 bytes, then 50 and 100 more
+        append(0, "a", 0);
+        append(1000, "a", 100);
+        append(2000, "a", 200);
+        append(3000, "a", 50);
+        append(4000, "a", 150);
+
+        assertThat(store.getRate("a", 60000), closeTo(350 / 4.0, DELTA));
+    }
+
+    @Test
+    public void getValues_returnsWindowOldestFirst() {
+        append(0, "a", 1);
+        append(1000, "b", 2);
+        append(2000, "a", 3);
+
+        assertThat(toList(store.getTimestamps(500, 2000)), contains(1000L, 2000L));
+        assertThat(toList(store.getValues("a", 500, 2000)), contains(TimeSeriesStore.MISSING, 3L));
+    }
+
+    @Test
+    public void append_whenRingFull_dropsOldestSamples() {
+        for (int i = 0; i < 25; i++) {
+            append(i * 1000, "a", i * 100);
+        }
+
+        assertThat(store.size(), equalTo(10));
+        assertThat(toList(store.getTimestamps(0, 100000)).get(0), equalTo(15000L));
+        assertThat(store.getRate("a", 60000), closeTo(100, DELTA));
+    }
+
+    @Test
+    public void append_whenKeyAbsentForWholeRing_dropsKey() {
+        append(0, "a", 1);
+        for (int i = 1; i <= 20; i++) {
+            store.append(i * 1000, emptyList(), (String key) -> key, key -> 0L);
+        }
+
+        assertThat(store.getKeys().contains("a"), equalTo(false));
+    }
+
+    @Test
+    public void append_reusesColumnsOfDroppedKeys() {
+        for (int i = 0; i < 100; i++) {
+            append(i * 1000, "key" + i / 20, i);
+        }
+
+        assertThat(store.getKeys().size() <= 2, equalTo(true));
+        assertThat(toList(store.getValues("key4", 0, 99000)).get(0), equalTo(90L));
+    }
+
+    private boolean append(long timestamp, String key, long value) {
+        return store.append(timestamp, singletonList(key), k -> k, k -> value);
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
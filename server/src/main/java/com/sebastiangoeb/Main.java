@@ -5,6 +5,8 @@ import static spark.Spark.ipAddress;
 import static spark.Spark.port;
 
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,6 +21,12 @@ public class Main {
 
 	private static final int BUFFER_SIZE = 64 * 1024; // 64 KB
 
+	// Metrics, running since start
+	private static final AtomicLong BYTES_SERVED = new AtomicLong();
+	private static final AtomicInteger ACTIVE_CONNECTIONS = new AtomicInteger();
+	private static final AtomicLong REQUESTS = new AtomicLong();
+	private static final AtomicLong REQUEST_LATENCY_NANOS = new AtomicLong();
+
 	public static void main(String[] args) {
 		if (args.length >= 1) {
 			ipAddress(args[0]);
@@ -38,27 +46,44 @@ public class Main {
 			res.header("Content-Length", "0");
 			return "";
 		});
+		// Polled by the controller, registered before /:bytes so it is not taken for a size
+		get("/metrics", (req, res) -> {
+			res.type("application/json");
+			return "{\"bytesServed\":" + BYTES_SERVED.get()
+					+ ",\"activeConnections\":" + ACTIVE_CONNECTIONS.get()
+					+ ",\"requests\":" + REQUESTS.get()
+					+ ",\"requestLatencyNanos\":" + REQUEST_LATENCY_NANOS.get() + "}";
+		});
 		get("/:bytes", (req, res) -> {
 			LOG.info("Serving {} to {}", req.params(":bytes"), req.ip());
-			
-			// Parse params
-			long totalSize = human2bytes(req.params(":bytes"));
+			long start = System.nanoTime();
+			ACTIVE_CONNECTIONS.incrementAndGet();
+			try {
+				// Parse params
+				long totalSize = human2bytes(req.params(":bytes"));
 
-			// Set headers and status
-			res.header("Content-Length", String.valueOf(totalSize));
+				// Set headers and status
+				res.header("Content-Length", String.valueOf(totalSize));
 
-			// Stream data
-			res.raw().setBufferSize(BUFFER_SIZE);
-			OutputStream out = res.raw().getOutputStream();
-			byte[] buffer = new byte[BUFFER_SIZE];
-			for (int i = 0; i < buffer.length; i++) {
-				buffer[i] = '-';
-			}
-			for (long bytesWritten = 0; bytesWritten < totalSize; bytesWritten += Math.min(totalSize - bytesWritten,
-					BUFFER_SIZE)) {
-				out.write(buffer, 0, (int) Math.min(totalSize - bytesWritten, BUFFER_SIZE));
+				// Stream data
+				res.raw().setBufferSize(BUFFER_SIZE);
+				OutputStream out = res.raw().getOutputStream();
+				byte[] buffer = new byte[BUFFER_SIZE];
+				for (int i = 0; i < buffer.length; i++) {
+					buffer[i] = '-';
+				}
+				for (long bytesWritten = 0; bytesWritten < totalSize; bytesWritten += Math.min(totalSize - bytesWritten,
+						BUFFER_SIZE)) {
+					int length = (int) Math.min(totalSize - bytesWritten, BUFFER_SIZE);
+					out.write(buffer, 0, length);
+					BYTES_SERVED.addAndGet(length);
+				}
+				return "";
+			} finally {
+				ACTIVE_CONNECTIONS.decrementAndGet();
+				REQUESTS.incrementAndGet();
+				REQUEST_LATENCY_NANOS.addAndGet(System.nanoTime() - start);
 			}
-			return "";
 		});
 	}
 